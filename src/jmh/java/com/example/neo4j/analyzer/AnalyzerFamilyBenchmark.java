@@ -0,0 +1,56 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Token stream throughput of the analyzers of the configurable family, with their
+ * built-in options, compared with the "japanese" analyzer. One operation analyzes one
+ * document; all analyzers share the same dictionaries, so differences come from the
+ * tokenizer mode alone.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class AnalyzerFamilyBenchmark {
+
+    @Param({"TITLES", "ARTICLES"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"japanese", "japanese-normal", "japanese-search"})
+    public String analyzerName;
+
+    private Analyzer analyzer;
+    private List<String> documents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer(analyzerName);
+        documents = corpus.documents();
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int analyze() throws IOException {
+        String document = documents.get(next);
+        next = (next + 1) % documents.size();
+        return AnalyzerThroughputBenchmark.countTokens(analyzer, document);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Measures the overhead of {@link AnalyzerMetrics} by running the same analyzer with and
+ * without metrics. Short titles served from the token stream cache are the worst case,
+ * since replaying a cached value is the cheapest way through the analyzer; the overhead
+ * should stay below 2% there too.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class AnalyzerMetricsBenchmark {
+
+    @Param({"TITLES", "ARTICLES"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"0", "33554432"})
+    public long cacheBytes;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private Analyzer analyzer;
+    private List<String> documents;
+
+    @Setup
+    public void setUp() {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared().withMaxSegmentLength(0);
+        if (cacheBytes > 0) {
+            components = components.withTokenStreamCache(64, cacheBytes);
+        }
+        analyzer = components.withMetrics(metrics).newAnalyzer();
+        documents = corpus.documents();
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int analyze(AnalyzerThroughputBenchmark.Cursor cursor, AnalyzerThroughputBenchmark.TokenCounter counter)
+            throws IOException {
+        int count = AnalyzerThroughputBenchmark.countTokens(analyzer, cursor.nextDocument(documents));
+        counter.tokens += count;
+        return count;
+    }
+
+    /**
+     * Like {@link #analyze}, with four threads recording into the same metrics as index population does.
+     */
+    @Benchmark
+    @Threads(4)
+    public int analyzeConcurrently(AnalyzerThroughputBenchmark.Cursor cursor,
+                                   AnalyzerThroughputBenchmark.TokenCounter counter) throws IOException {
+        return analyze(cursor, counter);
+    }
+}
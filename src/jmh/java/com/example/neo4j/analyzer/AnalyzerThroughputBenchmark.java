@@ -0,0 +1,94 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Token stream throughput of the analyzer returned by
+ * {@link JapaneseAnalyzerProvider#createAnalyzer()} over the benchmark corpora.
+ *
+ * One operation analyzes one document. The {@code tokens} counter gives tokens/sec in
+ * throughput mode; run with {@code -prof gc} (as {@link BenchmarkRunner} does) for
+ * bytes allocated per document.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnalyzerThroughputBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        @Param({"TITLES", "ARTICLES", "LARGE_DOCUMENTS", "MIXED"})
+        public BenchmarkCorpus corpus;
+
+        Analyzer analyzer;
+        List<String> documents;
+
+        @Setup
+        public void setUp() {
+            analyzer = new JapaneseAnalyzerProvider().createAnalyzer();
+            documents = corpus.documents();
+        }
+
+        @TearDown
+        public void tearDown() {
+            analyzer.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String nextDocument(List<String> documents) {
+            String document = documents.get(next);
+            next = (next + 1) % documents.size();
+            return document;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class TokenCounter {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    @Benchmark
+    public int analyze(Corpus corpus, Cursor cursor, TokenCounter counter) throws IOException {
+        int count = countTokens(corpus.analyzer, cursor.nextDocument(corpus.documents));
+        counter.tokens += count;
+        return count;
+    }
+
+    static int countTokens(Analyzer analyzer, String text) throws IOException {
+        int count = 0;
+        try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                count++;
+            }
+            tokenStream.end();
+        }
+        return count;
+    }
+}
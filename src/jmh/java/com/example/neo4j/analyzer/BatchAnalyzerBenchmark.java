@@ -0,0 +1,57 @@
+package com.example.neo4j.analyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures how the throughput of {@link BatchAnalyzer} scales with its number of
+ * threads. Each invocation analyzes a batch of {@link #BATCH_SIZE} documents, so the
+ * scores are documents per second; thread counts above the number of processors show
+ * the cost of oversubscription.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class BatchAnalyzerBenchmark {
+
+    static final int BATCH_SIZE = 1_000;
+
+    @Param({"TITLES", "ARTICLES"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private BatchAnalyzer batchAnalyzer;
+    private List<String> batch;
+
+    @Setup
+    public void setUp() {
+        batchAnalyzer = new BatchAnalyzer(JapaneseAnalysisComponents.shared(), threads);
+        List<String> documents = corpus.documents();
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(documents.get(i % documents.size()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long analyzeBatch() {
+        try (Stream<BatchAnalyzer.AnalyzedText> results = batchAnalyzer.analyze("japanese", batch.iterator())) {
+            return results.mapToLong(text -> text.tokens().size()).sum();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.neo4j.analyzer;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Benchmark scores keyed by benchmark, parameters, mode and metric.
+ *
+ * Stored as a plain tab-separated file ({@code key<TAB>score}) so that baselines can be
+ * committed and diffed. Only stable metrics are tracked: the primary score, the
+ * tokens/sec counter and the normalized allocation rate.
+ */
+final class BenchmarkBaseline {
+
+    private static final String PRIMARY = "score";
+    private static final String TOKENS = "tokens";
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private final Map<String, Double> scores;
+
+    private BenchmarkBaseline(Map<String, Double> scores) {
+        this.scores = scores;
+    }
+
+    static BenchmarkBaseline of(Collection<RunResult> results) {
+        Map<String, Double> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            String prefix = prefix(result.getParams());
+            scores.put(prefix + PRIMARY, result.getPrimaryResult().getScore());
+            for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+                String label = secondary.getKey();
+                if (label.equals(TOKENS) || label.equals(ALLOCATION)) {
+                    scores.put(prefix + label, secondary.getValue().getScore());
+                }
+            }
+        }
+        return new BenchmarkBaseline(scores);
+    }
+
+    static BenchmarkBaseline read(Path file) throws IOException {
+        Map<String, Double> scores = new TreeMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.lastIndexOf('\t');
+            scores.put(line.substring(0, tab), Double.parseDouble(line.substring(tab + 1)));
+        }
+        return new BenchmarkBaseline(scores);
+    }
+
+    void write(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# benchmark[params]:mode:metric<TAB>score");
+        scores.forEach((key, score) -> lines.add(key + "\t" + String.format(Locale.ROOT, "%.4f", score)));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares these scores with a baseline.
+     *
+     * Throughput scores and the tokens counter regress when they drop; average times
+     * and allocation regress when they grow. Keys missing from either side are ignored.
+     *
+     * @param baseline The baseline to compare against
+     * @param tolerance Allowed relative regression
+     * @return Human readable descriptions of each regression, empty if none
+     */
+    List<String> regressionsAgainst(BenchmarkBaseline baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            Double expected = baseline.scores.get(entry.getKey());
+            if (expected == null || expected == 0.0) {
+                continue;
+            }
+            double actual = entry.getValue();
+            double change = (actual - expected) / expected;
+            boolean regressed = higherIsBetter(entry.getKey()) ? change < -tolerance : change > tolerance;
+            if (regressed) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.2f -> %.2f (%+.1f%%)",
+                        entry.getKey(), expected, actual, change * 100));
+            }
+        }
+        return regressions;
+    }
+
+    private static boolean higherIsBetter(String key) {
+        if (key.endsWith(ALLOCATION)) {
+            return false;
+        }
+        return key.contains(":" + Mode.Throughput + ":");
+    }
+
+    private static String prefix(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark());
+        List<String> parameters = new ArrayList<>();
+        for (String name : params.getParamsKeys()) {
+            parameters.add(name + "=" + params.getParam(name));
+        }
+        if (!parameters.isEmpty()) {
+            key.append('[').append(String.join(",", parameters)).append(']');
+        }
+        return key.append(':').append(params.getMode()).append(':').toString();
+    }
+}
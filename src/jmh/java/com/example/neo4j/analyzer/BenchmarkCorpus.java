@@ -0,0 +1,147 @@
+package com.example.neo4j.analyzer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic Japanese corpora for the analyzer benchmarks.
+ *
+ * Documents are assembled from the sentence lists under {@code src/jmh/resources/corpus}
+ * with a fixed seed, so every run (and every baseline) sees exactly the same text.
+ */
+public enum BenchmarkCorpus {
+
+    /**
+     * Short titles and product names, a few dozen characters each.
+     */
+    TITLES(1_000) {
+        @Override
+        String document(Random random) {
+            return pick(Sentences.TITLES, random);
+        }
+    },
+
+    /**
+     * Articles of 2–10 KB (UTF-8), built from paragraphs of Japanese sentences.
+     */
+    ARTICLES(200) {
+        @Override
+        String document(Random random) {
+            int targetBytes = 2 * 1024 + random.nextInt(8 * 1024);
+            return assemble(random, targetBytes, 0.0);
+        }
+    },
+
+    /**
+     * Very large documents of just over 1 MB (UTF-8).
+     */
+    LARGE_DOCUMENTS(2) {
+        @Override
+        String document(Random random) {
+            return assemble(random, 1024 * 1024 + random.nextInt(64 * 1024), 0.0);
+        }
+    },
+
+    /**
+     * 2–10 KB articles where roughly a third of the sentences are English.
+     */
+    MIXED(200) {
+        @Override
+        String document(Random random) {
+            int targetBytes = 2 * 1024 + random.nextInt(8 * 1024);
+            return assemble(random, targetBytes, 0.35);
+        }
+    },
+
+    /**
+     * 2–10 KB articles in English only, like product descriptions or log messages.
+     */
+    ENGLISH(200) {
+        @Override
+        String document(Random random) {
+            int targetBytes = 2 * 1024 + random.nextInt(8 * 1024);
+            return assemble(random, targetBytes, 1.0);
+        }
+    };
+
+    private static final long SEED = 0x6a617061L;
+
+    private final int documentCount;
+
+    BenchmarkCorpus(int documentCount) {
+        this.documentCount = documentCount;
+    }
+
+    abstract String document(Random random);
+
+    /**
+     * @return The documents of this corpus, always the same for a given corpus.
+     */
+    public List<String> documents() {
+        Random random = new Random(SEED + ordinal());
+        List<String> documents = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            documents.add(document(random));
+        }
+        return documents;
+    }
+
+    private static String assemble(Random random, int targetBytes, double englishRatio) {
+        StringBuilder text = new StringBuilder();
+        int bytes = 0;
+        int sentencesInParagraph = 0;
+        int paragraphLength = 4 + random.nextInt(4);
+        while (bytes < targetBytes) {
+            String sentence = random.nextDouble() < englishRatio
+                    ? pick(Sentences.ENGLISH, random) + " "
+                    : pick(Sentences.JAPANESE, random);
+            text.append(sentence);
+            bytes += sentence.getBytes(StandardCharsets.UTF_8).length;
+            // Break into paragraphs of a handful of sentences
+            if (++sentencesInParagraph == paragraphLength) {
+                text.append('\n');
+                bytes++;
+                sentencesInParagraph = 0;
+                paragraphLength = 4 + random.nextInt(4);
+            }
+        }
+        return text.toString();
+    }
+
+    private static String pick(List<String> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    static List<String> readLines(String resource) {
+        InputStream in = BenchmarkCorpus.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Missing benchmark resource: " + resource);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+            return List.copyOf(lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read benchmark resource: " + resource, e);
+        }
+    }
+
+    private static final class Sentences {
+        static final List<String> JAPANESE = readLines("corpus/japanese-sentences.txt");
+        static final List<String> ENGLISH = readLines("corpus/english-sentences.txt");
+        static final List<String> TITLES = readLines("corpus/titles.txt");
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.neo4j.analyzer;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for the {@code benchmarks} Maven profile.
+ *
+ * Runs the selected benchmarks twice: once in throughput mode (documents/sec and
+ * tokens/sec) and once in average-time mode with the GC profiler (ns/op and
+ * bytes allocated/op). The results can then be saved as a baseline or compared
+ * against one, in which case the run fails on regressions beyond the tolerance.
+ *
+ * System properties:
+ * - benchmark.include: regular expression selecting the benchmarks
+ * - benchmark.saveBaseline: file to write the results to as the new baseline
+ * - benchmark.baseline: baseline file to compare the results against
+ * - benchmark.tolerance: allowed relative regression, e.g. 0.10 for 10%
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String include = property("benchmark.include", ".*Benchmark.*");
+
+        List<RunResult> results = new ArrayList<>();
+        results.addAll(run(new OptionsBuilder()
+                .include(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)));
+        results.addAll(run(new OptionsBuilder()
+                .include(include)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .addProfiler(GCProfiler.class)));
+
+        BenchmarkBaseline current = BenchmarkBaseline.of(results);
+
+        String save = property("benchmark.saveBaseline", "");
+        if (!save.isEmpty()) {
+            current.write(Path.of(save));
+            System.out.println("Saved benchmark baseline to " + save);
+        }
+
+        String baseline = property("benchmark.baseline", "");
+        if (!baseline.isEmpty()) {
+            double tolerance = Double.parseDouble(property("benchmark.tolerance", "0.10"));
+            List<String> regressions = current.regressionsAgainst(BenchmarkBaseline.read(Path.of(baseline)), tolerance);
+            if (!regressions.isEmpty()) {
+                System.err.println("Benchmark regressions against " + baseline + ":");
+                regressions.forEach(regression -> System.err.println("  " + regression));
+                System.exit(1);
+            }
+            System.out.println("No regressions beyond " + Math.round(tolerance * 100) + "% against " + baseline);
+        }
+    }
+
+    private static Collection<RunResult> run(ChainedOptionsBuilder options) throws Exception {
+        return new Runner(options.shouldFailOnError(true).build()).run();
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value.strip();
+    }
+}
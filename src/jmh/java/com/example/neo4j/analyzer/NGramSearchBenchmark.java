@@ -0,0 +1,121 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares substring search with a {@code *substring*} wildcard query on a "japanese"
+ * index to a phrase query on a "japanese-ngram" index, as in the dual-index pattern.
+ * Each trial indexes the corpus into an in-memory Lucene index and prints its size,
+ * number of distinct terms and the number of documents each substring is found in;
+ * the benchmark measures the latency of the queries, including their analysis.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class NGramSearchBenchmark {
+
+    private static final String FIELD = "content";
+
+    /**
+     * Parts of words and substrings spanning several words, as users type them in a search box.
+     */
+    static final List<String> SUBSTRINGS = List.of(
+            "ーニング", "ネルギー", "ンターネ", "デジタル", "熱中", "予算案", "再生可能",
+            "子育て支", "老化を遅", "技術を持", "コンピュ", "人工知");
+
+    @Param({"ARTICLES", "TITLES"})
+    public BenchmarkCorpus corpus;
+
+    /**
+     * "wildcard" for a wildcard query on a "japanese" index, "ngram" for a phrase query on a "japanese-ngram" index.
+     */
+    @Param({"wildcard", "ngram"})
+    public String search;
+
+    private Analyzer analyzer;
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private QueryBuilder queryBuilder;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        String analyzerName = search.equals("wildcard") ? "japanese" : "japanese-ngram";
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer(analyzerName);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String text : corpus.documents()) {
+                Document document = new Document();
+                document.add(new TextField(FIELD, text, Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        queryBuilder = new QueryBuilder(analyzer);
+
+        long bytes = 0;
+        for (String file : directory.listAll()) {
+            bytes += directory.fileLength(file);
+        }
+        Terms terms = MultiTerms.getTerms(reader, FIELD);
+        StringBuilder hits = new StringBuilder();
+        for (String substring : SUBSTRINGS) {
+            hits.append(' ').append(substring).append('=').append(searcher.count(query(substring)));
+        }
+        System.out.printf("%n%s on %s: %,d bytes, %,d terms%nHits:%s%n",
+                analyzerName, corpus, bytes, terms == null ? 0 : terms.size(), hits);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int query() throws IOException {
+        String substring = SUBSTRINGS.get(next++ % SUBSTRINGS.size());
+        return searcher.search(query(substring), 10).scoreDocs.length;
+    }
+
+    private Query query(String substring) {
+        if (search.equals("wildcard")) {
+            return new WildcardQuery(new Term(FIELD, "*" + substring + "*"));
+        }
+        Query query = queryBuilder.createPhraseQuery(FIELD, substring);
+        return query == null ? new MatchNoDocsQuery() : query;
+    }
+}
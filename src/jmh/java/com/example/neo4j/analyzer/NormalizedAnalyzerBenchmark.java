@@ -0,0 +1,131 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares the "japanese-normalized" analyzer, which indexes base forms and stemmed
+ * katakana without function words, with the "japanese" analyzer. Each trial indexes the
+ * corpus into an in-memory Lucene index and prints its size, number of distinct terms
+ * and the number of documents each query finds; the benchmark measures the latency of
+ * the queries, including their analysis, as a fulltext query would run them.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class NormalizedAnalyzerBenchmark {
+
+    private static final String FIELD = "content";
+
+    /**
+     * Queries as users type them: inflected verbs and long-vowel variants of katakana words.
+     */
+    static final List<String> QUERIES = List.of(
+            "発表する", "進めた", "広がる", "相次ぐ", "取り組みます", "警戒した", "見直す",
+            "エネルギー", "インターネット", "スマートフォン", "データ", "ソフトウエア",
+            "技術を持つ", "伝統的な祭り", "人手不足");
+
+    @Param({"ARTICLES", "TITLES"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"japanese", "japanese-normalized"})
+    public String analyzerName;
+
+    private Analyzer analyzer;
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private QueryBuilder queryBuilder;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer(analyzerName);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String text : corpus.documents()) {
+                Document document = new Document();
+                document.add(new TextField(FIELD, text, Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        queryBuilder = new QueryBuilder(analyzer);
+
+        long bytes = 0;
+        for (String file : directory.listAll()) {
+            bytes += directory.fileLength(file);
+        }
+        StringBuilder hits = new StringBuilder();
+        for (String text : QUERIES) {
+            hits.append(' ').append(text).append('=').append(searcher.count(query(text)));
+        }
+        System.out.printf("%n%s on %s: %,d bytes, %,d terms, %,d postings%nHits:%s%n",
+                analyzerName, corpus, bytes, termCount(), postingsCount(), hits);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int query() throws IOException {
+        String text = QUERIES.get(next++ % QUERIES.size());
+        return searcher.search(query(text), 10).scoreDocs.length;
+    }
+
+    private Query query(String text) {
+        Query query = queryBuilder.createBooleanQuery(FIELD, text);
+        return query == null ? new MatchNoDocsQuery() : query;
+    }
+
+    private long termCount() throws IOException {
+        Terms terms = MultiTerms.getTerms(reader, FIELD);
+        return terms == null ? 0 : terms.size();
+    }
+
+    private long postingsCount() throws IOException {
+        Terms terms = MultiTerms.getTerms(reader, FIELD);
+        if (terms == null) {
+            return 0;
+        }
+        long postings = 0;
+        TermsEnum termsEnum = terms.iterator();
+        while (termsEnum.next() != null) {
+            postings += termsEnum.docFreq();
+        }
+        return postings;
+    }
+}
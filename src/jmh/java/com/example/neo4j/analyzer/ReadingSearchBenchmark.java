@@ -0,0 +1,185 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares name search by reading: fuzzy queries over the hiragana and katakana
+ * spellings of the query on a "japanese" index, as applications do without reading
+ * forms, to a term query on a "japanese-reading" index. The documents are the names of
+ * people, as in a fulltext index on their name property, written mostly in kanji, some
+ * in hiragana or katakana; the queries are names typed in hiragana. Each trial prints
+ * the index size, number of distinct terms and the number of documents each query finds
+ * (the fuzzy queries cannot find names written in kanji at all); the benchmark measures
+ * the latency of the queries, including their analysis.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ReadingSearchBenchmark {
+
+    private static final String FIELD = "content";
+    private static final int DOCUMENTS = 10_000;
+
+    // Surnames and given names with their readings
+    private static final String[][] SURNAMES = {
+            {"山田", "やまだ"}, {"田中", "たなか"}, {"佐藤", "さとう"}, {"鈴木", "すずき"}, {"高橋", "たかはし"},
+            {"渡辺", "わたなべ"}, {"伊藤", "いとう"}, {"中村", "なかむら"}, {"小林", "こばやし"}, {"加藤", "かとう"},
+            {"吉田", "よしだ"}, {"山本", "やまもと"}, {"松本", "まつもと"}, {"井上", "いのうえ"}, {"木村", "きむら"},
+            {"林", "はやし"}, {"清水", "しみず"}, {"山口", "やまぐち"}, {"森", "もり"}, {"池田", "いけだ"}};
+    private static final String[][] GIVEN_NAMES = {
+            {"太郎", "たろう"}, {"花子", "はなこ"}, {"一郎", "いちろう"}, {"健太", "けんた"}, {"美咲", "みさき"},
+            {"大輔", "だいすけ"}, {"直樹", "なおき"}, {"陽子", "ようこ"}, {"誠", "まこと"}, {"裕子", "ゆうこ"}};
+
+    /**
+     * Full names and surnames typed in hiragana.
+     */
+    static final List<String> QUERIES = List.of(
+            "やまだたろう", "たなか", "すずきいちろう", "わたなべ", "こばやしはなこ", "いのうえ",
+            "まつもとけんた", "はやし", "さとうまこと", "やまぐちようこ");
+
+    /**
+     * "fuzzy" for fuzzy queries on a "japanese" index, "reading" for a term query on a "japanese-reading" index.
+     */
+    @Param({"fuzzy", "reading"})
+    public String search;
+
+    private Analyzer analyzer;
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private QueryBuilder queryBuilder;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        String analyzerName = search.equals("fuzzy") ? "japanese" : "japanese-reading";
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer(analyzerName);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String text : documents()) {
+                Document document = new Document();
+                document.add(new TextField(FIELD, text, Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        queryBuilder = new QueryBuilder(analyzer);
+
+        long bytes = 0;
+        for (String file : directory.listAll()) {
+            bytes += directory.fileLength(file);
+        }
+        Terms terms = MultiTerms.getTerms(reader, FIELD);
+        StringBuilder hits = new StringBuilder();
+        for (String query : QUERIES) {
+            hits.append(' ').append(query).append('=').append(searcher.count(query(query)));
+        }
+        System.out.printf("%n%s: %,d bytes, %,d terms%nHits:%s%n",
+                analyzerName, bytes, terms == null ? 0 : terms.size(), hits);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int query() throws IOException {
+        String query = QUERIES.get(next++ % QUERIES.size());
+        return searcher.search(query(query), 10).scoreDocs.length;
+    }
+
+    private Query query(String kana) throws IOException {
+        if (search.equals("fuzzy")) {
+            // Every word of the query in hiragana and in katakana, within one edit
+            StringBuilder katakana = new StringBuilder();
+            ReadingFormFilter.appendKatakana(katakana, kana);
+            Set<String> terms = new LinkedHashSet<>(terms(kana));
+            terms.addAll(terms(katakana.toString()));
+            BooleanQuery.Builder query = new BooleanQuery.Builder();
+            for (String term : terms) {
+                query.add(new FuzzyQuery(new Term(FIELD, term), 1), BooleanClause.Occur.SHOULD);
+            }
+            return query.build();
+        }
+        Query query = queryBuilder.createBooleanQuery(FIELD, kana, BooleanClause.Occur.MUST);
+        return query == null ? new MatchNoDocsQuery() : query;
+    }
+
+    private List<String> terms(String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(FIELD, text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+
+    /**
+     * @return Names of people, seven in ten in kanji, the others in hiragana or katakana.
+     */
+    private static List<String> documents() {
+        Random random = new Random(42);
+        List<String> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            String[] surname = SURNAMES[random.nextInt(SURNAMES.length)];
+            String[] givenName = GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)];
+            int script = random.nextInt(10);
+            if (script < 7) {
+                documents.add(surname[0] + givenName[0]);
+            } else if (script < 9) {
+                documents.add(surname[1] + givenName[1]);
+            } else {
+                StringBuilder katakana = new StringBuilder();
+                ReadingFormFilter.appendKatakana(katakana, surname[1] + givenName[1]);
+                documents.add(katakana.toString());
+            }
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares the "japanese" analyzer with "japanese-mixed", which only runs Kuromoji on
+ * Japanese text (see {@link ScriptRoutingTokenizer}), on Japanese, mixed and English
+ * corpora. Both produce the same tokens.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ScriptRoutingBenchmark {
+
+    @Param({"ARTICLES", "MIXED", "ENGLISH"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"japanese", "japanese-mixed"})
+    public String analyzerName;
+
+    private Analyzer analyzer;
+    private List<String> documents;
+
+    @Setup
+    public void setUp() {
+        analyzer = analyzerName.equals("japanese-mixed")
+                ? new JapaneseMixedAnalyzerProvider().createAnalyzer()
+                : new JapaneseAnalyzerProvider().createAnalyzer();
+        documents = corpus.documents();
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int analyze(AnalyzerThroughputBenchmark.Cursor cursor, AnalyzerThroughputBenchmark.TokenCounter counter)
+            throws IOException {
+        int count = AnalyzerThroughputBenchmark.countTokens(analyzer, cursor.nextDocument(documents));
+        counter.tokens += count;
+        return count;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.UpperCaseFilter;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the fused {@link UpperCaseStopFilter} with the UpperCaseFilter + StopFilter
+ * chain it replaced.
+ *
+ * {@code filters} isolates the filter cost by replaying pre-computed Kuromoji tokens
+ * through a whitespace tokenizer; {@code pipeline} measures the complete analyzer.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class StopFilterChainBenchmark {
+
+    @Param({"ARTICLES", "MIXED"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"CHAIN", "FUSED"})
+    public String filters;
+
+    private Analyzer filterAnalyzer;
+    private Analyzer pipelineAnalyzer;
+    private List<String> documents;
+    private List<String> pretokenized;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+        CharArraySet ignoreCaseStopwords = new CharArraySet(components.stopwords().words(), true);
+        CompiledStopwordSet upperCaseStopwords = components.stopwords();
+        boolean fused = filters.equals("FUSED");
+
+        filterAnalyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new WhitespaceTokenizer();
+                TokenStream stream = fused
+                        ? new UpperCaseStopFilter(tokenizer, upperCaseStopwords)
+                        : new StopFilter(new UpperCaseFilter(tokenizer), ignoreCaseStopwords);
+                return new TokenStreamComponents(tokenizer, stream);
+            }
+        };
+        pipelineAnalyzer = fused
+                ? new JapaneseAnalyzerProvider().createAnalyzer()
+                : AnalyzerCreationBenchmark.legacyAnalyzer();
+
+        documents = corpus.documents();
+        pretokenized = new ArrayList<>(documents.size());
+        try (Analyzer tokenizerOnly = kuromojiOnly(components)) {
+            for (String document : documents) {
+                pretokenized.add(String.join(" ", terms(tokenizerOnly, document)));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        filterAnalyzer.close();
+        pipelineAnalyzer.close();
+    }
+
+    @Benchmark
+    public int filters() throws IOException {
+        return AnalyzerThroughputBenchmark.countTokens(filterAnalyzer, nextOf(pretokenized));
+    }
+
+    @Benchmark
+    public int pipeline() throws IOException {
+        return AnalyzerThroughputBenchmark.countTokens(pipelineAnalyzer, nextOf(documents));
+    }
+
+    private String nextOf(List<String> texts) {
+        String text = texts.get(next);
+        next = (next + 1) % texts.size();
+        return text;
+    }
+
+    private static Analyzer kuromojiOnly(JapaneseAnalysisComponents components) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                return new TokenStreamComponents(components.tokenizerFactory().create(attributeFactory(fieldName)));
+            }
+        };
+    }
+
+    private static List<String> terms(Analyzer analyzer, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokenStream.end();
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.AbstractAnalysisFactory;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.StopFilterFactory;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.ClasspathResourceLoader;
+import org.apache.lucene.util.ResourceLoader;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the build-time compiled {@link CompiledStopwordSet} with the
+ * {@code StopFilterFactory} wordset it replaced.
+ *
+ * {@code load*} measure loading the stop words from the classpath; {@code lookup*}
+ * measure membership tests for the upper-cased terms of an article (one operation per
+ * term), against the case-insensitive CharArraySet used by StopFilter(ignoreCase=true)
+ * and against the perfect hash.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StopwordSetBenchmark {
+
+    private static final int TERMS = 4096;
+
+    private final ResourceLoader loader = new ClasspathResourceLoader(StopwordSetBenchmark.class.getClassLoader());
+
+    private CharArraySet wordset;
+    private CompiledStopwordSet compiled;
+    private char[][] terms;
+
+    @Setup
+    public void setUp() throws IOException {
+        wordset = loadWordset();
+        compiled = loadCompiled();
+
+        // Upper-cased Kuromoji terms of the article corpus, as seen by the stop filter
+        List<char[]> collected = new ArrayList<>(TERMS);
+        Analyzer tokenizerOnly = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                return new TokenStreamComponents(
+                        JapaneseAnalysisComponents.shared().tokenizerFactory().create(attributeFactory(fieldName)));
+            }
+        };
+        for (String document : BenchmarkCorpus.MIXED.documents()) {
+            try (TokenStream tokenStream = tokenizerOnly.tokenStream("content", document)) {
+                CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+                tokenStream.reset();
+                while (tokenStream.incrementToken() && collected.size() < TERMS) {
+                    collected.add(term.toString().toUpperCase().toCharArray());
+                }
+                tokenStream.end();
+            }
+            if (collected.size() == TERMS) {
+                break;
+            }
+        }
+        tokenizerOnly.close();
+        terms = collected.toArray(new char[0][]);
+    }
+
+    @Benchmark
+    public CharArraySet loadWordset() throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put(AbstractAnalysisFactory.LUCENE_MATCH_VERSION_PARAM, Version.LATEST.toString());
+        args.put("ignoreCase", "true");
+        args.put("words", JapaneseAnalysisComponents.STOPWORDS_RESOURCE);
+        args.put("format", "wordset");
+        StopFilterFactory factory = new StopFilterFactory(args);
+        factory.inform(loader);
+        return factory.getStopWords();
+    }
+
+    @Benchmark
+    public CompiledStopwordSet loadCompiled() throws IOException {
+        try (InputStream in = loader.openResource(CompiledStopwordSet.COMPILED_RESOURCE)) {
+            return CompiledStopwordSet.read(in);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TERMS)
+    public int lookupWordset() {
+        int stopwords = 0;
+        for (char[] term : terms) {
+            if (wordset.contains(term, 0, term.length)) {
+                stopwords++;
+            }
+        }
+        return stopwords;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TERMS)
+    public int lookupCompiled() {
+        int stopwords = 0;
+        for (char[] term : terms) {
+            if (compiled.contains(term, 0, term.length)) {
+                stopwords++;
+            }
+        }
+        return stopwords;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compares synonyms resolved at index time by the "japanese" analyzer with a synonym
+ * file (see {@link CompiledSynonymMap}) with the query-side expansion it replaces, where
+ * the query is an OR of every synonym over an index without synonyms. Each trial indexes
+ * the corpus into an in-memory Lucene index and prints the indexing time, the index size,
+ * the number of terms and the hits of each synonym group, which must be the same for
+ * both strategies; the benchmark measures the query latency, including the analysis of
+ * the query text.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class SynonymSearchBenchmark {
+
+    private static final String FIELD = "content";
+    private static final String SYNONYMS_RESOURCE = "synonyms.txt";
+
+    public enum Strategy {
+        /**
+         * No synonyms in the index; the query is an OR of all words of the group.
+         */
+        QUERY_EXPANSION,
+        /**
+         * Synonyms replaced at index time; the query is the word as the user typed it.
+         */
+        INDEX_SYNONYMS
+    }
+
+    @Param({"ARTICLES", "TITLES"})
+    public BenchmarkCorpus corpus;
+
+    @Param({"QUERY_EXPANSION", "INDEX_SYNONYMS"})
+    public Strategy strategy;
+
+    private List<List<String>> groups;
+    private Analyzer analyzer;
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private QueryBuilder queryBuilder;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path synonymsFile = Files.createTempFile("synonyms", ".txt");
+        try {
+            try (InputStream in = resource(SYNONYMS_RESOURCE)) {
+                Files.copy(in, synonymsFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            groups = groups(synonymsFile);
+            analyzer = strategy == Strategy.INDEX_SYNONYMS
+                    ? JapaneseAnalysisComponents.load(Optional.empty(), Optional.empty(), Optional.of(synonymsFile))
+                            .newAnalyzer()
+                    : JapaneseAnalysisComponents.shared().newAnalyzer();
+        } finally {
+            Files.delete(synonymsFile);
+        }
+
+        directory = new ByteBuffersDirectory();
+        long start = System.nanoTime();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String text : corpus.documents()) {
+                Document document = new Document();
+                document.add(new TextField(FIELD, text, Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.forceMerge(1);
+        }
+        long indexingMillis = (System.nanoTime() - start) / 1_000_000;
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        queryBuilder = new QueryBuilder(analyzer);
+
+        long bytes = 0;
+        for (String file : directory.listAll()) {
+            bytes += directory.fileLength(file);
+        }
+        StringBuilder hits = new StringBuilder();
+        for (List<String> group : groups) {
+            hits.append(' ').append(group.get(0)).append('=').append(searcher.count(query(group.get(0))));
+        }
+        System.out.printf("%n%s on %s: indexed in %,d ms, %,d bytes, %,d terms%nHits:%s%n",
+                strategy, corpus, indexingMillis, bytes, MultiTerms.getTerms(reader, FIELD).size(), hits);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    /**
+     * Searches for each word of each group in turn, as users would type them.
+     */
+    @Benchmark
+    public int query() throws IOException {
+        List<String> group = groups.get(next++ % groups.size());
+        String text = group.get(next % group.size());
+        return searcher.search(query(text), 10).scoreDocs.length;
+    }
+
+    private Query query(String text) {
+        if (strategy == Strategy.INDEX_SYNONYMS) {
+            return phrase(text);
+        }
+        for (List<String> group : groups) {
+            if (group.contains(text)) {
+                BooleanQuery.Builder expanded = new BooleanQuery.Builder();
+                for (String synonym : group) {
+                    expanded.add(phrase(synonym), BooleanClause.Occur.SHOULD);
+                }
+                return expanded.build();
+            }
+        }
+        return phrase(text);
+    }
+
+    private Query phrase(String text) {
+        Query query = queryBuilder.createPhraseQuery(FIELD, text);
+        return query == null ? new MatchNoDocsQuery() : query;
+    }
+
+    private static List<List<String>> groups(Path synonymsFile) throws IOException {
+        List<List<String>> groups = new ArrayList<>();
+        for (String line : Files.readAllLines(synonymsFile)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> group = new ArrayList<>();
+            for (String word : line.split(",")) {
+                group.add(word.strip());
+            }
+            groups.add(List.copyOf(group));
+        }
+        return List.copyOf(groups);
+    }
+
+    private static InputStream resource(String name) {
+        InputStream in = SynonymSearchBenchmark.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new UncheckedIOException(new IOException("Missing benchmark resource: " + name));
+        }
+        return in;
+    }
+}
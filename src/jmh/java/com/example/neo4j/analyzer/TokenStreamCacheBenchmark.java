@@ -0,0 +1,125 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the {@link TokenStreamCache} on short values whose frequencies follow a
+ * Zipfian distribution, as tags and product names do: a few values are very common,
+ * most are rare. A cache size of 0 disables the cache; the small cache holds only the
+ * most frequent values. The hit ratio is printed after each run.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class TokenStreamCacheBenchmark {
+
+    private static final int DISTINCT_VALUES = 10_000;
+    private static final int SAMPLES = 100_000;
+    private static final long SEED = 0x7a697066L;
+
+    @Param({"0", "262144", "33554432"})
+    public long cacheBytes;
+
+    @Param({"1.0"})
+    public double skew;
+
+    private Analyzer analyzer;
+    private TokenStreamCache cache;
+    private List<String> values;
+
+    @Setup
+    public void setUp() {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared().withMaxSegmentLength(0);
+        if (cacheBytes > 0) {
+            components = components.withTokenStreamCache(64, cacheBytes);
+        }
+        analyzer = components.newAnalyzer();
+        cache = components.tokenStreamCache().orElse(null);
+        values = zipfianValues(distinctValues(), skew);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (cache != null) {
+            long lookups = cache.hits() + cache.misses();
+            System.out.printf("%nCache of %d bytes: %.1f%% hits, %d entries, %d evictions%n",
+                    cacheBytes, 100.0 * cache.hits() / Math.max(1, lookups), cache.entries(), cache.evictions());
+        }
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int analyze(AnalyzerThroughputBenchmark.Cursor cursor, AnalyzerThroughputBenchmark.TokenCounter counter)
+            throws IOException {
+        int count = AnalyzerThroughputBenchmark.countTokens(analyzer, cursor.nextDocument(values));
+        counter.tokens += count;
+        return count;
+    }
+
+    /**
+     * Like {@link #analyze}, with four threads sharing the cache as index population does.
+     */
+    @Benchmark
+    @Threads(4)
+    public int analyzeConcurrently(AnalyzerThroughputBenchmark.Cursor cursor,
+                                   AnalyzerThroughputBenchmark.TokenCounter counter) throws IOException {
+        return analyze(cursor, counter);
+    }
+
+    /**
+     * Distinct short values: the corpus titles, each in a number of editions.
+     */
+    private static List<String> distinctValues() {
+        List<String> titles = BenchmarkCorpus.readLines("corpus/titles.txt");
+        List<String> values = new ArrayList<>(DISTINCT_VALUES);
+        for (int i = 0; i < DISTINCT_VALUES; i++) {
+            values.add(titles.get(i % titles.size()) + " 第" + (i / titles.size() + 1) + "版");
+        }
+        return values;
+    }
+
+    /**
+     * Draws values such that the value of rank k has a probability proportional to 1 / k^skew.
+     */
+    private static List<String> zipfianValues(List<String> distinct, double skew) {
+        double[] cumulative = new double[distinct.size()];
+        double sum = 0;
+        for (int k = 0; k < cumulative.length; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        Random random = new Random(SEED);
+        List<String> samples = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            samples.add(distinct.get(low));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ja.tokenattributes.PartOfSpeechAttribute;
+import org.apache.lucene.analysis.ja.tokenattributes.ReadingAttribute;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a text through the stages of one of the Japanese analyzers and reports what each
+ * stage does with it, to find out why a document is slow to index without attaching a
+ * profiler to the database.
+ *
+ * The chain is the one the analyzer gives Neo4j (see
+ * {@link JapaneseTextAnalyzer#createComponents(String, UnaryOperator)}), without the
+ * token stream cache and the metrics, with a probe after the tokenizer, after the
+ * normalization and after the stop filter. The text is analyzed three times: the first
+ * pass records the tokens of each stage and looks for pathological input, the second
+ * one measures time and the third one the bytes allocated by the current thread, which
+ * is too slow to read on every token of a timed pass. A probe measures what the stages
+ * before it spend, so the cost of a stage is the difference from the probe before it,
+ * and includes two clock reads per token of that probe. The numbers are those of a
+ * single run, to compare stages and documents rather than to benchmark (see the JMH
+ * benchmarks for that).
+ *
+ * Flags, each starting with its name:
+ * - LONG_UNKNOWN_RUN (tokenizer): at least {@link #LONG_UNKNOWN_RUN} consecutive
+ *   characters of words in neither dictionary (no reading). Kuromoji considers many
+ *   more paths through unknown text, so long runs of it (encoded data, markup, long
+ *   katakana or Latin strings) are the usual cause of slow tokenization.
+ * - LARGE_UNSEGMENTED_VALUE (tokenizer): a value of at least {@link #LARGE_VALUE}
+ *   characters tokenized as a whole, see {@link SegmentingTokenizer}.
+ * - NO_TERMS (stop filter): a text that is not blank has no terms, so no fulltext
+ *   query finds it.
+ */
+final class AnalysisExplainer {
+
+    /**
+     * Tokens returned per stage; the counts include all tokens.
+     */
+    static final int MAX_TOKENS = 1_000;
+
+    /**
+     * Length from which a run of unknown words is flagged, in characters.
+     */
+    static final int LONG_UNKNOWN_RUN = 100;
+
+    /**
+     * Length from which a value tokenized without segments is flagged, in characters.
+     */
+    static final int LARGE_VALUE = 1 << 20;
+
+    static final String TOKENIZER = "tokenizer";
+    static final String NORMALIZATION = "normalization";
+    static final String STOP_FILTER = "stopFilter";
+
+    private static final String FIELD = "text";
+    private static final int EXCERPT_LENGTH = 20;
+
+    /**
+     * Allocation counter of the current thread, or null if the JVM does not provide one.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    /**
+     * What one stage does with the text.
+     *
+     * @param stage {@link #TOKENIZER}, {@link #NORMALIZATION} or {@link #STOP_FILTER}
+     * @param implementation Class or filters of the stage
+     * @param tokenCount Number of tokens the stage outputs
+     * @param tokens The first {@link #MAX_TOKENS} tokens the stage outputs
+     * @param elapsedNanos Time spent in the stage
+     * @param allocatedBytes Bytes allocated by the stage, or -1 if the JVM does not count them
+     * @param flags Pathological input found at this stage
+     */
+    record Stage(String stage, String implementation, long tokenCount, List<String> tokens, long elapsedNanos,
+                 long allocatedBytes, List<String> flags) {
+    }
+
+    private AnalysisExplainer() {
+    }
+
+    /**
+     * Analyzes a text stage by stage.
+     *
+     * @param components Components of the analyzer
+     * @param analyzer Name of the analyzer, e.g. "japanese"
+     * @param text Text to analyze
+     * @return The stages in chain order
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     * @throws UncheckedIOException if the text cannot be analyzed
+     */
+    static List<Stage> explain(JapaneseAnalysisComponents components, String analyzer, String text) {
+        try (JapaneseTextAnalyzer chains = (JapaneseTextAnalyzer) components.newAnalyzer(analyzer)) {
+            List<Recorder> recorders = new ArrayList<>();
+            List<String> implementations = new ArrayList<>();
+            consume(chains.createComponents(FIELD, stream -> {
+                implementations.add(implementation(components, analyzer, chains, stream));
+                Recorder recorder = new Recorder(stream, recorders.isEmpty());
+                recorders.add(recorder);
+                return recorder;
+            }), text);
+
+            List<Probe> timers = measure(chains, text, System::nanoTime);
+            List<Probe> allocations = THREADS == null
+                    ? null
+                    : measure(chains, text, THREADS::getCurrentThreadAllocatedBytes);
+
+            List<Stage> stages = new ArrayList<>();
+            for (int i = 0; i < recorders.size(); i++) {
+                Recorder recorder = recorders.get(i);
+                String stage = i == 0 ? TOKENIZER : i == recorders.size() - 1 ? STOP_FILTER : NORMALIZATION;
+                stages.add(new Stage(stage, implementations.get(i), recorder.count, List.copyOf(recorder.tokens),
+                        cost(timers, i), allocations == null ? -1 : cost(allocations, i),
+                        flags(components, stage, recorder, text)));
+            }
+            return stages;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to analyze text", e);
+        }
+    }
+
+    private static List<Probe> measure(JapaneseTextAnalyzer chains, String text, LongSupplier counter)
+            throws IOException {
+        List<Probe> probes = new ArrayList<>();
+        consume(chains.createComponents(FIELD, stream -> {
+            Probe probe = new Probe(stream, counter);
+            probes.add(probe);
+            return probe;
+        }), text);
+        return probes;
+    }
+
+    private static long cost(List<Probe> probes, int stage) {
+        return probes.get(stage).total - (stage == 0 ? 0 : probes.get(stage - 1).total);
+    }
+
+    private static void consume(TokenStreamComponents chain, String text) throws IOException {
+        chain.getSource().accept(new StringReader(text));
+        try (TokenStream stream = chain.getTokenStream()) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                // The probes do the work
+            }
+            stream.end();
+        }
+    }
+
+    private static List<String> flags(JapaneseAnalysisComponents components, String stage, Recorder recorder,
+                                      String text) {
+        List<String> flags = new ArrayList<>();
+        if (stage.equals(TOKENIZER)) {
+            if (recorder.longestRunLength >= LONG_UNKNOWN_RUN) {
+                int start = recorder.longestRunStart;
+                flags.add(String.format("LONG_UNKNOWN_RUN: %,d characters of unknown words at offset %,d (%s)%s",
+                        recorder.longestRunLength, start, excerpt(text, start, recorder.longestRunLength),
+                        recorder.longRuns > 1 ? ", " + recorder.longRuns + " such runs" : ""));
+            }
+            if (text.length() >= LARGE_VALUE && components.maxSegmentLength() == 0
+                    && !recorder.routesScripts) {
+                flags.add(String.format("LARGE_UNSEGMENTED_VALUE: %,d characters tokenized as a whole, set %s "
+                        + "to bound the memory used", text.length(), JapaneseAnalyzerSettings.MAX_SEGMENT_LENGTH));
+            }
+        } else if (stage.equals(STOP_FILTER) && recorder.count == 0 && !text.isBlank()) {
+            flags.add("NO_TERMS: every token was removed, no fulltext query finds this text");
+        }
+        return flags;
+    }
+
+    private static String excerpt(String text, int start, int length) {
+        int end = Math.min(text.length(), start + Math.min(length, EXCERPT_LENGTH));
+        if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(start, end) + (length > EXCERPT_LENGTH ? "…" : "");
+    }
+
+    private static String implementation(JapaneseAnalysisComponents components, String analyzer,
+                                         JapaneseTextAnalyzer chains, TokenStream stream) {
+        if (stream instanceof SegmentingTokenizer) {
+            return String.format("SegmentingTokenizer (segments of %,d characters)", components.maxSegmentLength());
+        }
+        if (stream instanceof UpperCaseStopFilter) {
+            return String.format("UpperCaseStopFilter (%s%,d stop words)", chains.upperCase() ? "upper case, " : "",
+                    chains.stopwords().size());
+        }
+        if (stream instanceof Tokenizer) {
+            return stream.getClass().getSimpleName();
+        }
+        // The filters the analyzer normalizes with, by their names in the analyzers file
+        switch (analyzer) {
+            case "japanese":
+                return "synonyms";
+            case "japanese-normalized":
+                return filters(List.of(AnalyzerDefinition.Filter.BASE_FORM,
+                        AnalyzerDefinition.Filter.PART_OF_SPEECH_STOP, AnalyzerDefinition.Filter.KATAKANA_STEM));
+            case "japanese-ngram":
+                return filters(List.of(AnalyzerDefinition.Filter.NGRAM));
+            case "japanese-reading":
+                return components.readingRomaji() ? "readings, romaji" : "readings";
+            default:
+                return filters(JapaneseAnalysisComponents.definition(analyzer).filters());
+        }
+    }
+
+    private static String filters(List<AnalyzerDefinition.Filter> filters) {
+        return filters.stream().map(AnalyzerDefinition.Filter::configName).collect(Collectors.joining(", "));
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter
+                && counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+            return counter;
+        }
+        return null;
+    }
+
+    /**
+     * Probe of the first pass: keeps the tokens of its stage, and after the tokenizer
+     * finds the runs of unknown words. Kuromoji's unknown words have a part of speech but
+     * no reading; the tokens that {@link ScriptRoutingTokenizer} does not pass to Kuromoji
+     * have neither.
+     */
+    private static final class Recorder extends TokenFilter {
+
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final ReadingAttribute readingAtt;
+        private final PartOfSpeechAttribute partOfSpeechAtt;
+        private final boolean routesScripts;
+        private final List<String> tokens = new ArrayList<>();
+        private long count;
+
+        private int runStart = -1;
+        private int runEnd = -1;
+        private int longestRunStart;
+        private int longestRunLength;
+        private int longRuns;
+
+        Recorder(TokenStream input, boolean tokenizer) {
+            super(input);
+            this.readingAtt = tokenizer ? addAttribute(ReadingAttribute.class) : null;
+            this.partOfSpeechAtt = tokenizer ? addAttribute(PartOfSpeechAttribute.class) : null;
+            this.routesScripts = input instanceof ScriptRoutingTokenizer;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (!input.incrementToken()) {
+                return false;
+            }
+            count++;
+            if (tokens.size() < MAX_TOKENS) {
+                tokens.add(termAtt.toString());
+            }
+            if (readingAtt != null) {
+                boolean unknown = partOfSpeechAtt.getPartOfSpeech() != null && readingAtt.getReading() == null;
+                int start = offsetAtt.startOffset();
+                if (unknown && runStart >= 0 && start <= runEnd) {
+                    // Adjacent, or decompounded from the previous token
+                    runEnd = Math.max(runEnd, offsetAtt.endOffset());
+                } else {
+                    endRun();
+                    if (unknown) {
+                        runStart = start;
+                        runEnd = offsetAtt.endOffset();
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            endRun();
+        }
+
+        private void endRun() {
+            if (runStart < 0) {
+                return;
+            }
+            int length = runEnd - runStart;
+            if (length >= LONG_UNKNOWN_RUN) {
+                longRuns++;
+            }
+            if (length > longestRunLength) {
+                longestRunLength = length;
+                longestRunStart = runStart;
+            }
+            runStart = -1;
+        }
+    }
+
+    /**
+     * Probe of the measuring passes: adds up how much a counter (the clock, or the bytes
+     * allocated by the thread) advances while the stages before it work.
+     */
+    private static final class Probe extends TokenFilter {
+
+        private final LongSupplier counter;
+        private long total;
+
+        Probe(TokenStream input, LongSupplier counter) {
+            super(input);
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            long start = counter.getAsLong();
+            boolean hasToken = input.incrementToken();
+            total += counter.getAsLong() - start;
+            return hasToken;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            long start = counter.getAsLong();
+            super.reset();
+            total += counter.getAsLong() - start;
+        }
+
+        @Override
+        public void end() throws IOException {
+            long start = counter.getAsLong();
+            super.end();
+            total += counter.getAsLong() - start;
+        }
+    }
+}
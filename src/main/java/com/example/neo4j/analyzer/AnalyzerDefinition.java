@@ -0,0 +1,385 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ja.JapaneseAnalyzer;
+import org.apache.lucene.analysis.ja.JapaneseBaseFormFilter;
+import org.apache.lucene.analysis.ja.JapaneseKatakanaStemFilter;
+import org.apache.lucene.analysis.ja.JapaneseNumberFilter;
+import org.apache.lucene.analysis.ja.JapanesePartOfSpeechStopFilter;
+import org.apache.lucene.analysis.ja.JapaneseTokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * Configuration of one analyzer of the configurable family: tokenizer mode, punctuation
+ * and compound token handling, stop words, token filters and case.
+ *
+ * The family always has the analyzers "japanese-normal" and "japanese-search", and up to
+ * {@link #MAX_CUSTOM_ANALYZERS} custom analyzers listed in the analyzers file (see
+ * {@link JapaneseAnalyzerSettings#ANALYZERS}), a properties file like:
+ *
+ * <pre>
+ * analyzers = japanese-names, japanese-articles
+ * japanese-names.mode = normal
+ * japanese-names.stopwords = none
+ * japanese-articles.discardCompoundToken = false
+ * japanese-articles.filters = baseForm, katakanaStem
+ * </pre>
+ *
+ * Options not set keep the defaults of the "japanese" analyzer: search mode,
+ * punctuation and compound tokens discarded, the plugin's stop words, no filters and
+ * upper-cased terms. "japanese-normal" defaults to normal mode and "japanese-search"
+ * keeps compound tokens next to their parts; both may be changed in the file.
+ *
+ * @param name Name of the analyzer in Neo4j
+ * @param mode Kuromoji tokenization mode
+ * @param discardPunctuation Whether punctuation tokens are dropped
+ * @param discardCompoundToken Whether search mode drops a compound token it splits into parts
+ * @param stopwords Whether stop words are removed
+ * @param stopwordsFile Stop word file replacing the plugin's stop words, if any
+ * @param filters Filters applied to the tokens, in this order, before stop words are removed
+ * @param upperCase Whether terms are upper-cased; stop words are matched ignoring case either way
+ */
+record AnalyzerDefinition(String name, JapaneseTokenizer.Mode mode, boolean discardPunctuation,
+                          boolean discardCompoundToken, boolean stopwords, Optional<Path> stopwordsFile,
+                          List<Filter> filters, boolean upperCase) {
+
+    /**
+     * Name of the analyzer tokenizing in normal mode.
+     */
+    static final String NORMAL = "japanese-normal";
+
+    /**
+     * Name of the analyzer tokenizing in search mode, with compound tokens.
+     */
+    static final String SEARCH = "japanese-search";
+
+    /**
+     * Number of custom analyzers; Neo4j creates one provider per registered class.
+     */
+    static final int MAX_CUSTOM_ANALYZERS = 4;
+
+    private static final String ANALYZERS_KEY = "analyzers";
+    private static final Set<String> OPTIONS = Set.of(
+            "mode", "discardPunctuation", "discardCompoundToken", "stopwords", "filters", "upperCase");
+
+    private static volatile Map<String, AnalyzerDefinition> configured;
+
+    /**
+     * Token filters that may be added to an analyzer, by their name in the analyzers file.
+     */
+    enum Filter {
+        /**
+         * Replaces inflected words by their base form.
+         */
+        BASE_FORM("baseForm", JapaneseBaseFormFilter::new),
+        /**
+         * Removes particles, auxiliary verbs, symbols and the other parts of speech of Lucene's JapaneseAnalyzer.
+         */
+        PART_OF_SPEECH_STOP("partOfSpeechStop",
+                tokens -> new JapanesePartOfSpeechStopFilter(tokens, JapaneseAnalyzer.getDefaultStopTags())),
+        /**
+         * Removes the trailing long vowel mark of katakana words of four or more characters.
+         */
+        KATAKANA_STEM("katakanaStem",
+                tokens -> new JapaneseKatakanaStemFilter(tokens, JapaneseKatakanaStemFilter.DEFAULT_MINIMUM_LENGTH)),
+        /**
+         * Replaces numbers written in kanji by Arabic numerals.
+         */
+        NUMBER("number", JapaneseNumberFilter::new),
+        /**
+         * Adds the bigrams and trigrams of Japanese text (see {@link CjkNGramFilter}); must come first.
+         */
+        NGRAM("ngram", CjkNGramFilter::new);
+
+        private final String configName;
+        private final UnaryOperator<TokenStream> filter;
+
+        Filter(String configName, UnaryOperator<TokenStream> filter) {
+            this.configName = configName;
+            this.filter = filter;
+        }
+
+        String configName() {
+            return configName;
+        }
+
+        TokenStream apply(TokenStream tokens) {
+            return filter.apply(tokens);
+        }
+
+        static Filter of(String configName) {
+            for (Filter filter : values()) {
+                if (filter.configName.equalsIgnoreCase(configName)) {
+                    return filter;
+                }
+            }
+            throw new IllegalArgumentException("Unknown filter '" + configName + "', expected one of "
+                    + configNames());
+        }
+
+        private static List<String> configNames() {
+            List<String> names = new ArrayList<>();
+            for (Filter filter : values()) {
+                names.add(filter.configName);
+            }
+            return names;
+        }
+    }
+
+    AnalyzerDefinition {
+        filters = List.copyOf(filters);
+        if (filters.indexOf(Filter.NGRAM) > 0) {
+            throw new IllegalArgumentException("Analyzer " + name + ": the ngram filter must come first, "
+                    + "since it needs the tokens as Kuromoji produced them");
+        }
+    }
+
+    /**
+     * @param name Name of the analyzer
+     * @return A definition with the options of the "japanese" analyzer.
+     */
+    static AnalyzerDefinition defaults(String name) {
+        return new AnalyzerDefinition(name, JapaneseTokenizer.Mode.SEARCH, true, true, true, Optional.empty(),
+                List.of(), true);
+    }
+
+    /**
+     * @return The definitions of the analyzers file configured by {@link JapaneseAnalyzerSettings#ANALYZERS},
+     * read on first use.
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalArgumentException if the file contains an invalid definition
+     */
+    static Map<String, AnalyzerDefinition> configured() {
+        Map<String, AnalyzerDefinition> definitions = configured;
+        if (definitions == null) {
+            synchronized (AnalyzerDefinition.class) {
+                definitions = configured;
+                if (definitions == null) {
+                    // Not cached if invalid, so every analyzer of the family reports the error
+                    definitions = load(JapaneseAnalyzerSettings.analyzersFile());
+                    configured = definitions;
+                }
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Names a custom analyzer. Providers are created at startup, so an invalid analyzers
+     * file does not fail here; the error is reported when the analyzer is used.
+     *
+     * @param index Position of the custom analyzer in the analyzers file, from 1
+     * @return The name of the custom analyzer, or a placeholder if there are fewer custom analyzers.
+     */
+    static String customName(int index) {
+        try {
+            List<String> names = new ArrayList<>(configured().keySet());
+            // After japanese-normal and japanese-search
+            if (index + 1 < names.size()) {
+                return names.get(index + 1);
+            }
+        } catch (RuntimeException e) {
+            // Reported by createAnalyzer()
+        }
+        return "japanese-custom-" + index;
+    }
+
+    /**
+     * Applies the filters of this definition to a token stream.
+     *
+     * @param tokens Kuromoji token stream
+     * @return Filtered token stream
+     */
+    TokenStream applyFilters(TokenStream tokens) {
+        TokenStream stream = tokens;
+        for (Filter filter : filters) {
+            stream = filter.apply(stream);
+        }
+        return stream;
+    }
+
+    /**
+     * @return A description of the analyzer, for {@code db.index.fulltext.listAvailableAnalyzers()}.
+     */
+    String description() {
+        StringBuilder description = new StringBuilder("Japanese text analyzer using Kuromoji tokenizer in ")
+                .append(mode.name().toLowerCase(Locale.ROOT)).append(" mode");
+        if (mode != JapaneseTokenizer.Mode.NORMAL && !discardCompoundToken) {
+            description.append(" with compound tokens");
+        }
+        if (!discardPunctuation) {
+            description.append(", keeping punctuation");
+        }
+        for (Filter filter : filters) {
+            description.append(", ").append(filter.configName()).append(" filter");
+        }
+        if (stopwords) {
+            description.append(stopwordsFile.map(file -> ", stop words from " + file.getFileName())
+                    .orElse(", stop words filtering"));
+        }
+        return description.append(upperCase ? " and uppercase normalization" : " without case normalization")
+                .toString();
+    }
+
+    /**
+     * Reads the analyzer definitions from a file; without a file, the family only has
+     * the built-in analyzers with their defaults.
+     *
+     * @param file Analyzers file, or empty for none
+     * @return Definitions by name: "japanese-normal", "japanese-search", then the custom analyzers in file order
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalArgumentException if the file contains an invalid definition
+     */
+    static Map<String, AnalyzerDefinition> load(Optional<Path> file) {
+        Properties properties = new Properties();
+        if (file.isPresent()) {
+            try (Reader reader = Files.newBufferedReader(file.get(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read analyzers file " + file.get(), e);
+            }
+        }
+        try {
+            return parse(properties, file.map(Path::getParent));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid analyzers file " + file.orElse(null) + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses analyzer definitions.
+     *
+     * @param properties Contents of an analyzers file
+     * @param directory Directory relative stop word files are resolved against, if any
+     * @return Definitions by name, as {@link #load(Optional)}
+     * @throws IllegalArgumentException if a definition is invalid
+     */
+    static Map<String, AnalyzerDefinition> parse(Properties properties, Optional<Path> directory) {
+        List<String> custom = new ArrayList<>();
+        for (String name : properties.getProperty(ANALYZERS_KEY, "").split(",")) {
+            if (!name.isBlank()) {
+                custom.add(name.strip());
+            }
+        }
+        if (custom.size() > MAX_CUSTOM_ANALYZERS) {
+            throw new IllegalArgumentException("At most " + MAX_CUSTOM_ANALYZERS + " custom analyzers, got " + custom);
+        }
+
+        Map<String, AnalyzerDefinition> definitions = new LinkedHashMap<>();
+        definitions.put(NORMAL, parse(NORMAL, properties, directory, new AnalyzerDefinition(NORMAL,
+                JapaneseTokenizer.Mode.NORMAL, true, true, true, Optional.empty(), List.of(), true)));
+        definitions.put(SEARCH, parse(SEARCH, properties, directory, new AnalyzerDefinition(SEARCH,
+                JapaneseTokenizer.Mode.SEARCH, true, false, true, Optional.empty(), List.of(), true)));
+        for (String name : custom) {
+            if (name.startsWith(ANALYZERS_KEY) || name.contains(".") || definitions.containsKey(name)
+                    || JapaneseAnalysisComponents.BUILT_IN_ANALYZERS.contains(name)) {
+                throw new IllegalArgumentException("Invalid or duplicate custom analyzer name '" + name + "'");
+            }
+            definitions.put(name, parse(name, properties, directory, defaults(name)));
+        }
+
+        // Options of analyzers that are not listed are most likely typos
+        Set<String> unknown = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (!key.equals(ANALYZERS_KEY) && (dot < 0 || !definitions.containsKey(key.substring(0, dot))
+                    || !OPTIONS.contains(key.substring(dot + 1)))) {
+                unknown.add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown keys " + unknown + "; custom analyzers must be listed in '"
+                    + ANALYZERS_KEY + "' and options are " + new TreeSet<>(OPTIONS));
+        }
+        return Collections.unmodifiableMap(definitions);
+    }
+
+    private static AnalyzerDefinition parse(String name, Properties properties, Optional<Path> directory,
+                                            AnalyzerDefinition defaults) {
+        JapaneseTokenizer.Mode mode = defaults.mode();
+        String modeValue = option(properties, name, "mode");
+        if (modeValue != null) {
+            try {
+                mode = JapaneseTokenizer.Mode.valueOf(modeValue.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + ".mode must be normal, search or extended, got "
+                        + modeValue, e);
+            }
+        }
+
+        boolean stopwords = defaults.stopwords();
+        Optional<Path> stopwordsFile = defaults.stopwordsFile();
+        String stopwordsValue = option(properties, name, "stopwords");
+        if (stopwordsValue != null) {
+            switch (stopwordsValue) {
+                case "default":
+                    stopwords = true;
+                    stopwordsFile = Optional.empty();
+                    break;
+                case "none":
+                    stopwords = false;
+                    stopwordsFile = Optional.empty();
+                    break;
+                default:
+                    stopwords = true;
+                    Path path = Path.of(stopwordsValue);
+                    stopwordsFile = Optional.of(directory.map(parent -> parent.resolve(path)).orElse(path));
+            }
+        }
+
+        List<Filter> filters = defaults.filters();
+        String filtersValue = option(properties, name, "filters");
+        if (filtersValue != null) {
+            filters = new ArrayList<>();
+            for (String filter : filtersValue.split(",")) {
+                if (!filter.isBlank()) {
+                    filters.add(Filter.of(filter.strip()));
+                }
+            }
+        }
+
+        return new AnalyzerDefinition(name, mode,
+                flag(properties, name, "discardPunctuation", defaults.discardPunctuation()),
+                flag(properties, name, "discardCompoundToken", defaults.discardCompoundToken()),
+                stopwords, stopwordsFile, filters,
+                flag(properties, name, "upperCase", defaults.upperCase()));
+    }
+
+    private static String option(Properties properties, String name, String option) {
+        String value = properties.getProperty(name + "." + option);
+        return value == null || value.isBlank() ? null : value.strip();
+    }
+
+    private static boolean flag(Properties properties, String name, String option, boolean defaultValue) {
+        String value = option(properties, name, option);
+        if (value == null) {
+            return defaultValue;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+                return true;
+            case "false":
+                return false;
+            default:
+                throw new IllegalArgumentException(name + "." + option + " must be true or false, got " + value);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.neo4j.analyzer;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the work done by one analyzer (e.g. all "japanese" analyzers of the JVM).
+ *
+ * Like a {@link java.util.concurrent.atomic.LongAdder}, the counters are striped so that
+ * index population threads never contend: every token stream chain records the
+ * documents it finishes (see {@link MetricsTokenFilter}) into its own {@link Recorder},
+ * which only the thread using the chain writes, and {@link #snapshot()} adds up the recorders. Recorders
+ * of chains that have been garbage collected are folded into a single total.
+ *
+ * Reading the clock costs as much as replaying a cached value, so only one in
+ * {@link #LATENCY_SAMPLE_INTERVAL} documents of each chain is timed, starting with the
+ * first. Latencies go into a histogram with power-of-two buckets: bucket {@code i}
+ * counts timed documents that took less than 2<sup>i</sup> microseconds (and at least
+ * half of that), the last bucket everything longer.
+ */
+final class AnalyzerMetrics {
+
+    /**
+     * Number of latency buckets; the last one starts at about 4 seconds.
+     */
+    static final int LATENCY_BUCKETS = 24;
+
+    /**
+     * One in this many documents of a token stream chain is timed.
+     */
+    static final int LATENCY_SAMPLE_INTERVAL = 32;
+
+    private static final int DOCUMENTS = 0;
+    private static final int CHARACTERS = 1;
+    private static final int TOKENS = 2;
+    private static final int STOPPED_TOKENS = 3;
+    private static final int TIMED_DOCUMENTS = 4;
+    private static final int NANOS = 5;
+    private static final int LATENCIES = 6;
+    private static final int COUNTERS = LATENCIES + LATENCY_BUCKETS;
+
+    /**
+     * Dead recorders are folded whenever this many recorders have been created.
+     */
+    private static final int RETIRE_INTERVAL = 64;
+
+    private final String analyzer;
+    private final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    // Totals of the recorders whose chains are gone, guarded by this
+    private final long[] retired = new long[COUNTERS];
+
+    /**
+     * @param analyzer Name of the analyzer
+     */
+    AnalyzerMetrics(String analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    String analyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Creates the recorder of a token stream chain. Its counts stay in the totals after
+     * the chain is garbage collected.
+     *
+     * @param owner Object that lives as long as the chain, usually its last filter
+     * @return Recorder for the thread using the chain
+     */
+    Recorder newRecorder(Object owner) {
+        if (created.incrementAndGet() % RETIRE_INTERVAL == 0) {
+            synchronized (this) {
+                retireUnused();
+            }
+        }
+        Recorder recorder = new Recorder(owner);
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * @return The current counters; concurrent updates may be partially included.
+     */
+    synchronized Snapshot snapshot() {
+        retireUnused();
+        long[] totals = retired.clone();
+        for (Recorder recorder : recorders) {
+            recorder.addTo(totals);
+        }
+        long[] latencyCounts = new long[LATENCY_BUCKETS];
+        System.arraycopy(totals, LATENCIES, latencyCounts, 0, LATENCY_BUCKETS);
+        return new Snapshot(analyzer, totals[DOCUMENTS], totals[CHARACTERS], totals[TOKENS],
+                totals[STOPPED_TOKENS], totals[TIMED_DOCUMENTS], totals[NANOS], latencyCounts);
+    }
+
+    private void retireUnused() {
+        for (Iterator<Recorder> it = recorders.iterator(); it.hasNext(); ) {
+            Recorder recorder = it.next();
+            if (recorder.owner.get() == null) {
+                recorder.addTo(retired);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The upper bound of a latency bucket in microseconds, or {@link Long#MAX_VALUE} for the last.
+     */
+    static long bucketUpperBoundMicros(int bucket) {
+        return bucket == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1_000;
+        return Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Counters of one token stream chain. Only the thread using the chain records into
+     * it, so updates are plain additions published without a fence. (A pooled chain
+     * passes to the next thread through an atomic slot of its {@link TokenStreamPool},
+     * which orders the updates of both threads.)
+     */
+    final class Recorder {
+
+        private final WeakReference<Object> owner;
+        private final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+        private int untimed = LATENCY_SAMPLE_INTERVAL - 1;
+
+        private Recorder(Object owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        /**
+         * @return Whether the next document should be timed.
+         */
+        boolean timeNext() {
+            if (++untimed < LATENCY_SAMPLE_INTERVAL) {
+                return false;
+            }
+            untimed = 0;
+            return true;
+        }
+
+        /**
+         * Records one analyzed document.
+         *
+         * @param characters Length of the document
+         * @param tokens Tokens emitted
+         * @param stoppedTokens Tokens removed as stop words
+         * @param nanos Time spent analyzing the document, or -1 if it was not timed
+         */
+        void record(long characters, long tokens, long stoppedTokens, long nanos) {
+            add(DOCUMENTS, 1);
+            add(CHARACTERS, characters);
+            add(TOKENS, tokens);
+            add(STOPPED_TOKENS, stoppedTokens);
+            if (nanos >= 0) {
+                add(TIMED_DOCUMENTS, 1);
+                add(NANOS, nanos);
+                add(LATENCIES + bucket(nanos), 1);
+            }
+        }
+
+        private void add(int counter, long delta) {
+            counters.setOpaque(counter, counters.getPlain(counter) + delta);
+        }
+
+        private void addTo(long[] totals) {
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counters.getOpaque(i);
+            }
+        }
+    }
+
+    /**
+     * Counters of an analyzer at one point in time.
+     */
+    record Snapshot(String analyzer, long documents, long characters, long tokens, long stoppedTokens,
+                    long timedDocuments, long nanos, long[] latencyCounts) {
+
+        /**
+         * @return Mean latency of the timed documents in microseconds, or 0 if none were timed.
+         */
+        double meanLatencyMicros() {
+            return timedDocuments == 0 ? 0 : nanos / 1e3 / timedDocuments;
+        }
+
+        /**
+         * Estimates a latency percentile as the upper bound of the bucket containing it.
+         *
+         * @param percentile Percentile between 0 and 100
+         * @return Latency in microseconds, or 0 if nothing was recorded
+         */
+        long latencyPercentileMicros(double percentile) {
+            if (timedDocuments == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(timedDocuments * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < latencyCounts.length; i++) {
+                seen += latencyCounts[i];
+                if (seen >= rank && seen > 0) {
+                    return bucketUpperBoundMicros(i);
+                }
+            }
+            return bucketUpperBoundMicros(latencyCounts.length - 1);
+        }
+    }
+}
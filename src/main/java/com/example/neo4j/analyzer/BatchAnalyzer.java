@@ -0,0 +1,193 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Tokenizes many texts in parallel, for bulk imports that need the tokens of values
+ * without indexing them.
+ *
+ * Texts are analyzed in chunks of {@link #CHUNK_SIZE} on a fork-join pool of a fixed
+ * number of platform threads. Each analyzer name has one analyzer over the same
+ * components as the analyzers Neo4j indexes with, so the tokens are identical, and
+ * each pool thread uses one token stream chain at a time: there are never more chains
+ * in use than threads, whether they are kept per thread or in a {@link TokenStreamPool}.
+ *
+ * Results are streamed in input order. At most a few chunks per thread are analyzed
+ * ahead of the consumer, so memory does not grow with the number of texts, and the
+ * input is read only as fast as the results are consumed.
+ */
+final class BatchAnalyzer {
+
+    /**
+     * Number of texts analyzed by one task.
+     */
+    static final int CHUNK_SIZE = 32;
+
+    /**
+     * Number of chunks per thread that may be analyzed ahead of the consumer.
+     */
+    static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+    private final JapaneseAnalysisComponents components;
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<String, Analyzer> analyzers = new ConcurrentHashMap<>();
+
+    /**
+     * @param components Components of the analyzers
+     * @param parallelism Number of threads analyzing texts
+     */
+    BatchAnalyzer(JapaneseAnalysisComponents components, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+        }
+        this.components = components;
+        this.pool = new ForkJoinPool(parallelism, BatchAnalyzer::newThread, null, false);
+    }
+
+    /**
+     * @return The batch analyzer over the shared components, created on first use.
+     */
+    static BatchAnalyzer shared() {
+        return Holder.INSTANCE;
+    }
+
+    int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Analyzes texts in parallel. The returned stream must be closed if it is not
+     * consumed to the end, so that chunks analyzed ahead are cancelled.
+     *
+     * @param analyzer Name of the analyzer, e.g. "japanese"
+     * @param texts Texts to analyze; null texts have no tokens
+     * @return The tokens of each text, in input order
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     */
+    Stream<AnalyzedText> analyze(String analyzer, Iterator<String> texts) {
+        Analyzer shared = analyzers.computeIfAbsent(analyzer, components::newAnalyzer);
+        Chunks chunks = new Chunks(shared, texts, parallelism() * CHUNKS_AHEAD_PER_THREAD);
+        return StreamSupport.stream(chunks, false).onClose(chunks::cancel);
+    }
+
+    /**
+     * Tokens of one text of a batch.
+     *
+     * @param index Position of the text in the input, starting at 0
+     * @param tokens Terms of the text as they would be indexed
+     */
+    record AnalyzedText(long index, List<String> tokens) {
+    }
+
+    /**
+     * Results of a batch: submits chunks to the pool while fewer than the given number
+     * are pending, and hands out their results in order.
+     */
+    private final class Chunks extends Spliterators.AbstractSpliterator<AnalyzedText> {
+
+        private final Analyzer analyzer;
+        private final Iterator<String> texts;
+        private final int maxPending;
+        private final ArrayDeque<ForkJoinTask<List<AnalyzedText>>> pending = new ArrayDeque<>();
+        private long submitted;
+        private Iterator<AnalyzedText> current = List.<AnalyzedText>of().iterator();
+
+        Chunks(Analyzer analyzer, Iterator<String> texts, int maxPending) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.analyzer = analyzer;
+            this.texts = texts;
+            this.maxPending = maxPending;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super AnalyzedText> action) {
+            while (!current.hasNext()) {
+                fill();
+                ForkJoinTask<List<AnalyzedText>> next = pending.poll();
+                if (next == null) {
+                    return false;
+                }
+                current = next.join().iterator();
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        private void fill() {
+            while (pending.size() < maxPending && texts.hasNext()) {
+                List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (chunk.size() < CHUNK_SIZE && texts.hasNext()) {
+                    chunk.add(texts.next());
+                }
+                long firstIndex = submitted;
+                submitted += chunk.size();
+                pending.add(pool.submit(() -> analyzeChunk(analyzer, firstIndex, chunk)));
+            }
+        }
+
+        void cancel() {
+            for (ForkJoinTask<?> task : pending) {
+                task.cancel(false);
+            }
+            pending.clear();
+        }
+    }
+
+    private static List<AnalyzedText> analyzeChunk(Analyzer analyzer, long firstIndex, List<String> texts) {
+        List<AnalyzedText> results = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            results.add(new AnalyzedText(firstIndex + i, tokens(analyzer, texts.get(i))));
+        }
+        return results;
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("text", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to analyze text", e);
+        }
+        return tokens;
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("japanese-analyzer-batch-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class Holder {
+        // Batches are not indexed, so they are kept out of the metrics of the indexes
+        static final BatchAnalyzer INSTANCE = new BatchAnalyzer(JapaneseAnalysisComponents.shared().withMetrics(false),
+                JapaneseAnalyzerSettings.batchParallelism());
+    }
+}
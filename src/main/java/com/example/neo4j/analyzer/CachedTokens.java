@@ -0,0 +1,138 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+
+import java.util.Arrays;
+
+/**
+ * Immutable token sequence of one value, as stored in a {@link TokenStreamCache}.
+ *
+ * Keeps the attributes that the index writer consumes: terms, offsets, position
+ * increments and lengths, and types, plus the final offset and position increment
+ * reported by {@code end()} and the number of stop words the chain removed, which
+ * the metrics count for replayed values as well. The terms are packed into a single
+ * character array.
+ */
+final class CachedTokens {
+
+    private final char[] terms;
+    private final int[] termEnds;
+    private final int[] startOffsets;
+    private final int[] endOffsets;
+    private final int[] positionIncrements;
+    private final int[] positionLengths;
+    private final String[] types;
+    private final int finalOffset;
+    private final int finalPositionIncrement;
+    private final int removedTokens;
+
+    private CachedTokens(Builder builder, int finalOffset, int finalPositionIncrement, int removedTokens) {
+        int size = builder.size;
+        this.terms = Arrays.copyOf(builder.terms, size == 0 ? 0 : builder.termEnds[size - 1]);
+        this.termEnds = Arrays.copyOf(builder.termEnds, size);
+        this.startOffsets = Arrays.copyOf(builder.startOffsets, size);
+        this.endOffsets = Arrays.copyOf(builder.endOffsets, size);
+        this.positionIncrements = Arrays.copyOf(builder.positionIncrements, size);
+        this.positionLengths = Arrays.copyOf(builder.positionLengths, size);
+        this.types = Arrays.copyOf(builder.types, size);
+        this.finalOffset = finalOffset;
+        this.finalPositionIncrement = finalPositionIncrement;
+        this.removedTokens = removedTokens;
+    }
+
+    /**
+     * @return Number of tokens.
+     */
+    int size() {
+        return termEnds.length;
+    }
+
+    /**
+     * Sets the attributes of a token stream to one of the tokens.
+     */
+    void copyTo(int index, CharTermAttribute termAtt, OffsetAttribute offsetAtt,
+                PositionIncrementAttribute posIncAtt, PositionLengthAttribute posLenAtt, TypeAttribute typeAtt) {
+        int start = index == 0 ? 0 : termEnds[index - 1];
+        termAtt.copyBuffer(terms, start, termEnds[index] - start);
+        offsetAtt.setOffset(startOffsets[index], endOffsets[index]);
+        posIncAtt.setPositionIncrement(positionIncrements[index]);
+        posLenAtt.setPositionLength(positionLengths[index]);
+        typeAtt.setType(types[index]);
+    }
+
+    int finalOffset() {
+        return finalOffset;
+    }
+
+    int finalPositionIncrement() {
+        return finalPositionIncrement;
+    }
+
+    /**
+     * @return Number of stop words removed from the value.
+     */
+    int removedTokens() {
+        return removedTokens;
+    }
+
+    /**
+     * @return Estimated heap size of this token sequence, in bytes.
+     */
+    long estimatedBytes() {
+        // Object headers and array headers, then the array contents; types are shared strings
+        return 8 * 16 + 2L * terms.length + 5L * Integer.BYTES * termEnds.length + 4L * types.length;
+    }
+
+    /**
+     * Collects the tokens of a stream; reused for every value a stream records.
+     */
+    static final class Builder {
+
+        private char[] terms = new char[64];
+        private int[] termEnds = new int[8];
+        private int[] startOffsets = new int[8];
+        private int[] endOffsets = new int[8];
+        private int[] positionIncrements = new int[8];
+        private int[] positionLengths = new int[8];
+        private String[] types = new String[8];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(CharTermAttribute termAtt, OffsetAttribute offsetAtt, PositionIncrementAttribute posIncAtt,
+                 PositionLengthAttribute posLenAtt, TypeAttribute typeAtt) {
+            if (size == termEnds.length) {
+                int capacity = size * 2;
+                termEnds = Arrays.copyOf(termEnds, capacity);
+                startOffsets = Arrays.copyOf(startOffsets, capacity);
+                endOffsets = Arrays.copyOf(endOffsets, capacity);
+                positionIncrements = Arrays.copyOf(positionIncrements, capacity);
+                positionLengths = Arrays.copyOf(positionLengths, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+            int start = size == 0 ? 0 : termEnds[size - 1];
+            int end = start + termAtt.length();
+            if (end > terms.length) {
+                terms = Arrays.copyOf(terms, Math.max(end, terms.length * 2));
+            }
+            System.arraycopy(termAtt.buffer(), 0, terms, start, termAtt.length());
+            termEnds[size] = end;
+            startOffsets[size] = offsetAtt.startOffset();
+            endOffsets[size] = offsetAtt.endOffset();
+            positionIncrements[size] = posIncAtt.getPositionIncrement();
+            positionLengths[size] = posLenAtt.getPositionLength();
+            types[size] = typeAtt.type();
+            size++;
+        }
+
+        CachedTokens build(int finalOffset, int finalPositionIncrement, int removedTokens) {
+            return new CachedTokens(this, finalOffset, finalPositionIncrement, removedTokens);
+        }
+    }
+}
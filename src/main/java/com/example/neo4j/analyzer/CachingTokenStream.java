@@ -0,0 +1,204 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Final stage of an analyzer chain wrapped by {@link TokenStreamCache}.
+ *
+ * When a reader is set, up to {@code maxValueLength + 1} characters are buffered. A
+ * value that fits is looked up in the cache: on a hit its tokens are replayed without
+ * touching the analyzer chain, on a miss the chain tokenizes the buffered value and the
+ * tokens are recorded and cached once the stream has been consumed to the end. Longer
+ * values are passed through the chain, starting with the buffered characters.
+ *
+ * The number of stop words the chain removes from a value is cached with its tokens,
+ * and {@link #removedTokens()} counts them again when the value is replayed.
+ *
+ * Like any token stream, an instance is only used by one thread at a time; the cache
+ * itself is shared.
+ */
+final class CachingTokenStream extends TokenFilter {
+
+    private enum Mode { REPLAY, RECORD, PASS }
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final PositionLengthAttribute posLenAtt = addAttribute(PositionLengthAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+
+    private final TokenStreamCache cache;
+    private final String chain;
+    private final TokenStreamComponents components;
+    private final LongSupplier chainRemovedTokens;
+    private final char[] buffer;
+    private final SegmentingTokenizer.SegmentReader shortValue = new SegmentingTokenizer.SegmentReader();
+    private final PrefixedReader longValue = new PrefixedReader();
+    private final CachedTokens.Builder recorder = new CachedTokens.Builder();
+
+    private Mode mode = Mode.PASS;
+    private String value;
+    private CachedTokens replay;
+    private int replayed;
+    private boolean exhausted;
+    private long removedAtReset;
+    private long replayedRemovedTokens;
+
+    CachingTokenStream(TokenStreamCache cache, String chain, TokenStreamComponents components,
+                       LongSupplier removedTokens) {
+        super(components.getTokenStream());
+        this.cache = cache;
+        this.chain = chain;
+        this.components = components;
+        this.chainRemovedTokens = removedTokens;
+        this.buffer = new char[cache.maxValueLength() + 1];
+    }
+
+    /**
+     * Buffers the start of the value and decides whether it can be served from the cache.
+     */
+    void setReader(Reader reader) {
+        int length = 0;
+        try {
+            while (length < buffer.length) {
+                int read = reader.read(buffer, length, buffer.length - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        replay = null;
+        if (length > cache.maxValueLength()) {
+            mode = Mode.PASS;
+            value = null;
+            longValue.set(buffer, length, reader);
+            components.getSource().accept(longValue);
+            return;
+        }
+        value = new String(buffer, 0, length);
+        replay = cache.get(chain, value);
+        if (replay != null) {
+            mode = Mode.REPLAY;
+            return;
+        }
+        mode = Mode.RECORD;
+        shortValue.set(buffer, 0, length);
+        components.getSource().accept(shortValue);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        switch (mode) {
+            case REPLAY:
+                if (replayed == replay.size()) {
+                    return false;
+                }
+                clearAttributes();
+                replay.copyTo(replayed++, termAtt, offsetAtt, posIncAtt, posLenAtt, typeAtt);
+                return true;
+            case RECORD:
+                if (!input.incrementToken()) {
+                    exhausted = true;
+                    return false;
+                }
+                recorder.add(termAtt, offsetAtt, posIncAtt, posLenAtt, typeAtt);
+                return true;
+            default:
+                return input.incrementToken();
+        }
+    }
+
+    @Override
+    public void reset() throws IOException {
+        replayed = 0;
+        exhausted = false;
+        recorder.clear();
+        if (mode != Mode.REPLAY) {
+            super.reset();
+            removedAtReset = chainRemovedTokens.getAsLong();
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        if (mode == Mode.REPLAY) {
+            endAttributes();
+            offsetAtt.setOffset(replay.finalOffset(), replay.finalOffset());
+            posIncAtt.setPositionIncrement(replay.finalPositionIncrement());
+            replayedRemovedTokens += replay.removedTokens();
+            return;
+        }
+        super.end();
+        if (mode == Mode.RECORD && exhausted) {
+            // Only complete token sequences are cached
+            int removed = (int) (chainRemovedTokens.getAsLong() - removedAtReset);
+            cache.put(chain, value, recorder.build(offsetAtt.endOffset(), posIncAtt.getPositionIncrement(), removed));
+        }
+    }
+
+    /**
+     * @return Number of stop words removed since this stream was created, by the chain
+     *         or from the cached values replayed.
+     */
+    long removedTokens() {
+        return chainRemovedTokens.getAsLong() + replayedRemovedTokens;
+    }
+
+    @Override
+    public void close() throws IOException {
+        value = null;
+        replay = null;
+        if (mode != Mode.REPLAY) {
+            super.close();
+        }
+    }
+
+    /**
+     * Reader returning the buffered start of a long value, then the rest of it.
+     */
+    private static final class PrefixedReader extends Reader {
+
+        private char[] prefix;
+        private int prefixLength;
+        private int position;
+        private Reader rest;
+
+        void set(char[] prefix, int prefixLength, Reader rest) {
+            this.prefix = prefix;
+            this.prefixLength = prefixLength;
+            this.position = 0;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) throws IOException {
+            if (position < prefixLength) {
+                int count = Math.min(length, prefixLength - position);
+                System.arraycopy(prefix, position, target, offset, count);
+                position += count;
+                return count;
+            }
+            return rest.read(target, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            rest.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.io.IOException;
+
+/**
+ * Adds the bigrams and trigrams of Japanese text to the Kuromoji tokens, so that any
+ * part of a word can be found with term lookups instead of a wildcard query.
+ *
+ * Consecutive Kuromoji tokens made only of kanji and kana form a run, and the n-grams
+ * are taken over the whole run, across token boundaries. Every character of a run but
+ * the first has its own position, which holds the n-grams ending with that character,
+ * and each Kuromoji token is stacked on the position of its second character (a single
+ * character token on its own). A token of two or three characters is not emitted next
+ * to the n-gram of the same characters, which stands for it. A run starting with a single character token keeps it
+ * at its own position, where the n-grams of the second character are stacked. As a result the n-grams of any
+ * substring are at the same relative positions in the query and in the document, and
+ * a phrase query ({@code "ンピュー"}) finds the documents containing the substring
+ * however Kuromoji splits it. Substrings of a single character are only found where
+ * they are a word of their own. Other tokens (Latin words, numbers) pass through
+ * unchanged. The n-grams are keywords, which the stop filter and stemmers leave alone.
+ */
+final class CjkNGramFilter extends TokenFilter {
+
+    /**
+     * Token type of the n-grams.
+     */
+    static final String NGRAM_TYPE = "<CJK_NGRAM>";
+
+    static final int MIN_GRAM = 2;
+    static final int MAX_GRAM = 3;
+
+    // Length of the planned entry that stands for the Kuromoji token
+    private static final int TOKEN = 0;
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+    private final KeywordAttribute keywordAtt = addAttribute(KeywordAttribute.class);
+
+    // The last characters of the run before the current token, followed by the characters of the token
+    private char[] buffer = new char[32];
+    private int bufferLength;
+    private int bufferStartOffset;
+    private int runEndOffset = -1;
+    private int lastStartOffset;
+
+    // N-grams of the current token and the token itself, as start and length in the buffer and position increment
+    private int[] grams = new int[3 * 16];
+    private int gramCount;
+    private int nextGram;
+
+    private State token;
+    private boolean stackOnToken;
+
+    /**
+     * @param input Kuromoji token stream, before any filter changes the terms
+     */
+    CjkNGramFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (nextGram < gramCount) {
+            emit(nextGram++);
+            return true;
+        }
+        if (!input.incrementToken()) {
+            return false;
+        }
+        if (!isJapaneseToken()) {
+            runEndOffset = -1;
+            return true;
+        }
+        planGrams();
+        if (gramCount == 1 && grams[1] == TOKEN) {
+            // A single character starting a run, the next n-grams share its position
+            stackOnToken = true;
+            gramCount = 0;
+            return true;
+        }
+        token = captureState();
+        emit(nextGram++);
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        runEndOffset = -1;
+        lastStartOffset = 0;
+        gramCount = 0;
+        nextGram = 0;
+        stackOnToken = false;
+    }
+
+    /**
+     * @return Whether the current token is made of kanji and kana and its offsets span
+     * exactly its characters, so that it can continue a run.
+     */
+    private boolean isJapaneseToken() {
+        int length = termAtt.length();
+        if (length == 0 || offsetAtt.endOffset() - offsetAtt.startOffset() != length) {
+            return false;
+        }
+        char[] term = termAtt.buffer();
+        for (int i = 0; i < length; i++) {
+            if (Character.isSurrogate(term[i]) || !ScriptRoutingTokenizer.isJapanese(term[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the n-grams ending in the current token and keeps the end of the run for the next one.
+     */
+    private void planGrams() {
+        int length = termAtt.length();
+        int start = offsetAtt.startOffset();
+        int tailLength = 0;
+        int positionIncrement = posIncAtt.getPositionIncrement();
+        if (start == runEndOffset) {
+            // Move the end of the previous token to the front
+            tailLength = Math.min(MAX_GRAM - 1, bufferLength);
+            System.arraycopy(buffer, bufferLength - tailLength, buffer, 0, tailLength);
+            if (stackOnToken) {
+                positionIncrement = 0;
+            }
+        }
+        stackOnToken = false;
+        buffer = ArrayUtil.grow(buffer, tailLength + length);
+        System.arraycopy(termAtt.buffer(), 0, buffer, tailLength, length);
+        bufferStartOffset = start - tailLength;
+
+        gramCount = 0;
+        nextGram = 0;
+        int tokenEnd = tailLength + length;
+        boolean tokenAdded = false;
+        for (int end = tailLength + 1; end <= tokenEnd; end++) {
+            boolean first = true;
+            // Longest first, so that start offsets never go backwards
+            for (int gram = MAX_GRAM; gram >= MIN_GRAM; gram--) {
+                int gramStart = end - gram;
+                if (gramStart < 0 || bufferStartOffset + gramStart < lastStartOffset) {
+                    // Only trigrams over a single character token before, whose bigram follows
+                    continue;
+                }
+                if (!tokenAdded && gramStart >= tailLength) {
+                    tokenAdded = true;
+                    // A two or three character token is replaced by its n-gram, which no stop word removes
+                    if (length > MAX_GRAM) {
+                        addGram(tailLength, TOKEN, first ? positionIncrement : 0);
+                        first = false;
+                        positionIncrement = 1;
+                    }
+                }
+                addGram(gramStart, gram, first ? positionIncrement : 0);
+                first = false;
+                positionIncrement = 1;
+            }
+        }
+        if (!tokenAdded) {
+            // A single character, stacked on the n-grams ending with it
+            addGram(tailLength, TOKEN, gramCount == 0 ? positionIncrement : 0);
+        }
+        bufferLength = tokenEnd;
+        runEndOffset = offsetAtt.endOffset();
+    }
+
+    private void addGram(int start, int length, int positionIncrement) {
+        lastStartOffset = bufferStartOffset + start;
+        grams = ArrayUtil.grow(grams, 3 * (gramCount + 1));
+        grams[3 * gramCount] = start;
+        grams[3 * gramCount + 1] = length;
+        grams[3 * gramCount + 2] = positionIncrement;
+        gramCount++;
+    }
+
+    private void emit(int index) {
+        int start = grams[3 * index];
+        int length = grams[3 * index + 1];
+        if (length == TOKEN) {
+            restoreState(token);
+            posIncAtt.setPositionIncrement(grams[3 * index + 2]);
+            return;
+        }
+        clearAttributes();
+        termAtt.copyBuffer(buffer, start, length);
+        offsetAtt.setOffset(bufferStartOffset + start, bufferStartOffset + start + length);
+        posIncAtt.setPositionIncrement(grams[3 * index + 2]);
+        typeAtt.setType(NGRAM_TYPE);
+        keywordAtt.setKeyword(true);
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.WordlistLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable stop word set backed by a minimal perfect hash over the upper-case
+ * spellings of the stop words.
+ *
+ * Lookups hash the term once, probe exactly one slot and compare the characters in
+ * place, so they never allocate and never fold case. The set is normally compiled at
+ * build time from {@code japanese-stopwords.txt} (see {@link StopwordSetCompiler}) and
+ * loaded from the jar with {@link #read(InputStream)}; custom stop word files are
+ * compiled at load time with {@link #compile(Collection)}.
+ *
+ * The hash is built with the hash-and-displace scheme: keys are grouped into buckets
+ * by one half of their hash, and each bucket stores the displacement that sends all of
+ * its keys to free slots.
+ */
+final class CompiledStopwordSet {
+
+    /**
+     * Classpath resource holding the stop words compiled at build time.
+     */
+    static final String COMPILED_RESOURCE = "japanese-stopwords.mph";
+
+    private static final int MAGIC = 0x4a535457; // "JSTW"
+    private static final int VERSION = 1;
+    private static final int KEYS_PER_BUCKET = 3;
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+
+    private final List<String> words;
+    private final char[] keys;
+    private final int[] keyOffsets;
+    private final int[] displacements;
+
+    private CompiledStopwordSet(List<String> words, char[] keys, int[] keyOffsets, int[] displacements) {
+        this.words = words;
+        this.keys = keys;
+        this.keyOffsets = keyOffsets;
+        this.displacements = displacements;
+    }
+
+    /**
+     * Compiles stop words into a new set.
+     *
+     * @param stopwords Stop words in any case; matching is case-insensitive
+     * @return The compiled set
+     */
+    static CompiledStopwordSet compile(Collection<String> stopwords) {
+        // Stop words as StopFilter(ignoreCase=true) stores them: lower-cased per code point
+        Set<String> lowerCaseWords = new LinkedHashSet<>();
+        for (String stopword : stopwords) {
+            lowerCaseWords.add(lowerCase(stopword));
+        }
+        List<String> words = List.copyOf(lowerCaseWords);
+        List<String> variants = List.copyOf(UpperCaseStopFilter.upperCaseVariants(words));
+
+        int slotCount = variants.size();
+        int bucketCount = Math.max(1, (slotCount + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+        long[] hashes = new long[slotCount];
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < slotCount; i++) {
+            char[] key = variants.get(i).toCharArray();
+            hashes[i] = hash(key, 0, key.length);
+            buckets.get(bucket(hashes[i], bucketCount)).add(i);
+        }
+
+        // Place the largest buckets first, while most slots are still free
+        List<Integer> order = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Integer.compare(buckets.get(b).size(), buckets.get(a).size()));
+
+        int[] displacements = new int[bucketCount];
+        int[] keyAtSlot = new int[slotCount];
+        BitSet occupied = new BitSet(slotCount);
+        for (int bucket : order) {
+            List<Integer> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                continue;
+            }
+            int[] slots = new int[members.size()];
+            int displacement = 0;
+            while (!place(members, hashes, displacement, slotCount, occupied, slots)) {
+                if (++displacement == MAX_DISPLACEMENT) {
+                    throw new IllegalStateException("Could not build a perfect hash for " + slotCount + " stop words");
+                }
+            }
+            displacements[bucket] = displacement;
+            for (int i = 0; i < slots.length; i++) {
+                occupied.set(slots[i]);
+                keyAtSlot[slots[i]] = members.get(i);
+            }
+        }
+
+        // Lay out the keys in slot order
+        StringBuilder keys = new StringBuilder();
+        int[] keyOffsets = new int[slotCount + 1];
+        for (int slot = 0; slot < slotCount; slot++) {
+            keyOffsets[slot] = keys.length();
+            keys.append(variants.get(keyAtSlot[slot]));
+        }
+        keyOffsets[slotCount] = keys.length();
+
+        return new CompiledStopwordSet(words, keys.toString().toCharArray(), keyOffsets, displacements);
+    }
+
+    /**
+     * Compiles a stop word file in Lucene's "wordset" format: one word per line, blank
+     * lines and lines starting with '#' are ignored.
+     *
+     * @param in UTF-8 encoded word list
+     * @return The compiled set
+     * @throws IOException if the list cannot be read
+     */
+    static CompiledStopwordSet compile(InputStream in) throws IOException {
+        return compile(WordlistLoader.getLines(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a set written by {@link #write(OutputStream)}.
+     *
+     * @param in Stream positioned at the start of a compiled set
+     * @return The compiled set
+     * @throws IOException if the stream cannot be read or is not a compiled stop word set
+     */
+    static CompiledStopwordSet read(InputStream in) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(in.readAllBytes());
+        try {
+            if (data.getInt() != MAGIC) {
+                throw new IOException("Not a compiled stop word set");
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported compiled stop word set version: " + version);
+            }
+
+            String[] words = new String[data.getInt()];
+            for (int i = 0; i < words.length; i++) {
+                int length = data.getInt();
+                words[i] = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+                data.position(data.position() + length);
+            }
+            char[] keys = new char[data.getInt()];
+            data.asCharBuffer().get(keys);
+            data.position(data.position() + keys.length * Character.BYTES);
+            int[] keyOffsets = readInts(data);
+            int[] displacements = readInts(data);
+            return new CompiledStopwordSet(List.of(words), keys, keyOffsets, displacements);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            throw new IOException("Truncated compiled stop word set", e);
+        }
+    }
+
+    /**
+     * Writes this set in the binary form read by {@link #read(InputStream)}.
+     *
+     * @param out Destination stream, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(words.size());
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        data.writeInt(keys.length);
+        for (char c : keys) {
+            data.writeChar(c);
+        }
+        writeInts(data, keyOffsets);
+        writeInts(data, displacements);
+        data.flush();
+    }
+
+    /**
+     * Checks whether an upper-cased term is a stop word.
+     *
+     * @param text Buffer holding the term, already upper-cased
+     * @param offset Start of the term in the buffer
+     * @param length Length of the term
+     * @return true if the term is a stop word
+     */
+    boolean contains(char[] text, int offset, int length) {
+        int slotCount = keyOffsets.length - 1;
+        if (slotCount == 0) {
+            return false;
+        }
+        long hash = hash(text, offset, length);
+        int slot = slot(hash, displacements[bucket(hash, displacements.length)], slotCount);
+        int start = keyOffsets[slot];
+        return keyOffsets[slot + 1] - start == length
+                && Arrays.equals(keys, start, start + length, text, offset, offset + length);
+    }
+
+    /**
+     * @return The stop words, lower-cased, in the order they were listed.
+     */
+    List<String> words() {
+        return words;
+    }
+
+    /**
+     * @return Number of upper-case spellings in the hash.
+     */
+    int size() {
+        return keyOffsets.length - 1;
+    }
+
+    private static boolean place(List<Integer> members, long[] hashes, int displacement, int slotCount,
+                                 BitSet occupied, int[] slots) {
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slot(hashes[members.get(i)], displacement, slotCount);
+            if (occupied.get(slot)) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+            slots[i] = slot;
+        }
+        return true;
+    }
+
+    private static long hash(char[] text, int offset, int length) {
+        // 64-bit FNV-1a over the UTF-16 code units, finished with the murmur3 mixer
+        long hash = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= text[i];
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static int bucket(long hash, int bucketCount) {
+        return (int) ((hash >>> 32) % bucketCount);
+    }
+
+    private static int slot(long hash, int displacement, int slotCount) {
+        return (int) ((mix(hash + displacement * 0x9e3779b97f4a7c15L) >>> 1) % slotCount);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String lowerCase(String word) {
+        StringBuilder lower = new StringBuilder(word.length());
+        word.codePoints().map(Character::toLowerCase).forEach(lower::appendCodePoint);
+        return lower.toString();
+    }
+
+    private static int[] readInts(ByteBuffer data) {
+        int[] values = new int[data.getInt()];
+        data.asIntBuffer().get(values);
+        data.position(data.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        data.writeInt(values.length);
+        for (int value : values) {
+            data.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.FlattenGraphFilter;
+import org.apache.lucene.analysis.synonym.SolrSynonymParser;
+import org.apache.lucene.analysis.synonym.SynonymGraphFilter;
+import org.apache.lucene.analysis.synonym.SynonymMap;
+import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.fst.ByteSequenceOutputs;
+import org.apache.lucene.util.fst.FST;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Immutable synonym dictionary: Lucene's FST-backed {@link SynonymMap} over the words
+ * as the Kuromoji tokenizer splits them.
+ *
+ * Synonym files are in the Solr format: {@code 携帯, スマホ, スマートフォン} on one line
+ * makes the words equivalent, {@code ケータイ => 携帯} maps the left side to the right
+ * side. Equivalent words are all replaced by the first one, both when indexing and when
+ * querying, since Neo4j analyzes both with the same analyzer; the index then holds a
+ * single term per group instead of every synonym. Words are matched ignoring case.
+ *
+ * A synonym file is parsed and compiled when the components are loaded, or ahead of
+ * time by {@link SynonymMapCompiler} into the binary form read by {@link #read(InputStream)};
+ * {@link #load(Path, KuromojiTokenizerFactory)} accepts either.
+ */
+final class CompiledSynonymMap {
+
+    private static final int MAGIC = 0x4a53594e; // "JSYN"
+    private static final int VERSION = 1;
+
+    private final SynonymMap map;
+
+    private CompiledSynonymMap(SynonymMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Parses and compiles a synonym file in the Solr format.
+     *
+     * @param in Synonym rules
+     * @param tokenizers Factory of the tokenizers splitting the words of the rules, as
+     * the indexed text is split
+     * @return The compiled synonyms
+     * @throws IOException if the rules cannot be read or are invalid
+     */
+    static CompiledSynonymMap compile(Reader in, KuromojiTokenizerFactory tokenizers) throws IOException {
+        try (Analyzer analyzer = new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = tokenizers.create(attributeFactory(fieldName));
+                return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+            }
+        }) {
+            // Equivalent words are reduced to the first one, not expanded to all of them
+            SolrSynonymParser parser = new SolrSynonymParser(true, false, analyzer);
+            parser.parse(in);
+            return new CompiledSynonymMap(parser.build());
+        } catch (ParseException e) {
+            throw new IOException("Invalid synonym rule at line " + e.getErrorOffset() + ": " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            // Thrown by the parser for rules without words, e.g. made only of stop words or punctuation
+            throw new IOException("Invalid synonym rule: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a synonym map written by {@link #write(OutputStream)}.
+     *
+     * @param in Stream positioned at the start of a compiled synonym map
+     * @return The compiled synonyms
+     * @throws IOException if the stream cannot be read or is not a compiled synonym map
+     */
+    static CompiledSynonymMap read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a compiled synonym map");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compiled synonym map version: " + version);
+        }
+        int maxHorizontalContext = data.readInt();
+        // The FST outputs refer to the words by their id, which is their insertion order
+        BytesRefHash words = new BytesRefHash();
+        int wordCount = data.readInt();
+        for (int i = 0; i < wordCount; i++) {
+            byte[] word = new byte[data.readInt()];
+            data.readFully(word);
+            words.add(new BytesRef(word));
+        }
+        FST<BytesRef> fst = null;
+        if (data.readBoolean()) {
+            InputStreamDataInput fstIn = new InputStreamDataInput(data);
+            fst = new FST<>(FST.readMetadata(fstIn, ByteSequenceOutputs.getSingleton()), fstIn);
+        }
+        return new CompiledSynonymMap(new SynonymMap(fst, words, maxHorizontalContext));
+    }
+
+    /**
+     * Loads a synonym file, compiled by {@link SynonymMapCompiler} or in the Solr format.
+     *
+     * @param file Synonym file
+     * @param tokenizers Factory of the tokenizers splitting the words of a Solr format file
+     * @return The compiled synonyms
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    static CompiledSynonymMap load(Path file, KuromojiTokenizerFactory tokenizers) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            in.mark(Integer.BYTES);
+            byte[] header = in.readNBytes(Integer.BYTES);
+            in.reset();
+            if (header.length == Integer.BYTES && ByteBuffer.wrap(header).getInt() == MAGIC) {
+                return read(in);
+            }
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT));
+            return compile(reader, tokenizers);
+        } catch (IOException e) {
+            throw new IOException("Failed to load synonym file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes these synonyms in the binary form read by {@link #read(InputStream)}.
+     *
+     * @param out Destination stream, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(map.maxHorizontalContext);
+        data.writeInt(map.words.size());
+        BytesRef word = new BytesRef();
+        for (int i = 0; i < map.words.size(); i++) {
+            map.words.get(i, word);
+            data.writeInt(word.length);
+            data.write(word.bytes, word.offset, word.length);
+        }
+        // A file without rules has no FST
+        data.writeBoolean(map.fst != null);
+        if (map.fst != null) {
+            OutputStreamDataOutput fstOut = new OutputStreamDataOutput(data);
+            map.fst.save(fstOut, fstOut);
+        }
+        data.flush();
+    }
+
+    /**
+     * Adds the synonym stage to a token stream. The graph of multi-word synonyms is
+     * flattened, since the index cannot store it.
+     *
+     * @param tokens Kuromoji token stream
+     * @return Token stream with synonyms replaced
+     */
+    TokenStream apply(TokenStream tokens) {
+        if (map.fst == null) {
+            return tokens;
+        }
+        return new FlattenGraphFilter(new SynonymGraphFilter(tokens, map, true));
+    }
+
+    /**
+     * @return Heap used by the FST and the words, in bytes.
+     */
+    long ramBytesUsed() {
+        return (map.fst == null ? 0 : map.fst.ramBytesUsed()) + map.words.ramBytesUsed();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.neo4j.graphdb.schema.AnalyzerProvider;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Base of the providers of the configurable analyzer family, whose options are read from
+ * the analyzers file (see {@link AnalyzerDefinition}).
+ *
+ * The options are looked up by the provider's name whenever an analyzer is created, so
+ * an invalid analyzers file fails the creation of an index with one of these analyzers,
+ * not the startup of Neo4j.
+ */
+abstract class ConfiguredAnalyzerProvider extends AnalyzerProvider {
+
+    /**
+     * Constructor that registers the analyzer with the given name and starts loading the
+     * analysis components in the background (see {@link DictionaryWarmup}).
+     *
+     * @param name Name of the analyzer
+     */
+    ConfiguredAnalyzerProvider(String name) {
+        super(name);
+        // Neo4j creates the providers at startup, before the first write
+        DictionaryWarmup.start();
+    }
+
+    /**
+     * Creates and returns a Lucene Analyzer instance configured by the analyzers file.
+     *
+     * The analyzer pipeline consists of:
+     * 1. JapaneseTokenizer - Kuromoji-based morphological analysis in the configured mode
+     * 2. The configured filters, in their order
+     * 3. UpperCaseStopFilter - Converts tokens to uppercase, unless disabled, and removes the configured stop words
+     *
+     * @return Configured Analyzer instance for Japanese text
+     * @throws UncheckedIOException if the shared analysis components, the analyzers file
+     * or the configured stop word file cannot be loaded
+     * @throws IllegalArgumentException if the analyzers file is invalid
+     */
+    @Override
+    public Analyzer createAnalyzer() {
+        return JapaneseAnalysisComponents.shared().newAnalyzer(definition());
+    }
+
+    /**
+     * @return A description of this analyzer, listing its options.
+     */
+    @Override
+    public String description() {
+        try {
+            return definition().description();
+        } catch (RuntimeException e) {
+            return "Japanese text analyzer with an invalid configuration: " + e.getMessage();
+        }
+    }
+
+    /**
+     * @return The stop words removed by this analyzer, or none if its configuration is
+     * invalid: Neo4j lists the stop words of every analyzer together, and the error is
+     * reported by the description.
+     */
+    @Override
+    public List<String> stopwords() {
+        try {
+            return JapaneseAnalysisComponents.shared().stopwords(definition()).words();
+        } catch (RuntimeException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * @return The options of this analyzer in the analyzers file, or the defaults if it has none.
+     * @throws UncheckedIOException if the analyzers file cannot be read
+     * @throws IllegalArgumentException if the analyzers file is invalid
+     */
+    AnalyzerDefinition definition() {
+        return AnalyzerDefinition.configured().getOrDefault(getName(), AnalyzerDefinition.defaults(getName()));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads and warms up the analysis components in the background when the plugin is
+ * loaded.
+ *
+ * The Kuromoji dictionaries (TokenInfoDictionary, ConnectionCosts, UnknownDictionary,
+ * CharacterDefinition) are loaded lazily, so without warm-up the first fulltext write or
+ * query after a restart pays for loading them and for running the tokenizer in the
+ * interpreter. Neo4j instantiates the analyzer providers when it starts, and the
+ * providers start this warm-up, which builds the {@linkplain JapaneseAnalysisComponents#shared()
+ * shared components} and analyzes a sample text a number of times on a daemon thread.
+ * An analyzer used before the warm-up has loaded the components waits for them instead
+ * of loading them a second time.
+ *
+ * Disabled with {@code -Djapanese.analyzer.warmup=false}. An invalid value is logged and
+ * ignored, since failing a provider's constructor would fail the loading of every
+ * analyzer of the plugin.
+ */
+final class DictionaryWarmup {
+
+    /**
+     * Number of times the sample text is analyzed, so that the JIT compiles the tokenizer.
+     */
+    static final int ROUNDS = 200;
+
+    private static final List<String> SAMPLE_TEXTS = List.of(
+            "日本は先進的な技術を持っています。東京タワーから富士山が見えました。",
+            "Neo4jは素晴らしいgraph databaseです。JavaとPythonでプログラミングしています。",
+            "関西国際空港で２０２４年１月にｉＰｈｏｎｅ１５を買った。ﾃｽﾄ用の半角カナ「引用」も含む。",
+            "The API returns JSON with status code 200 on success.");
+
+    private static final System.Logger LOG = System.getLogger(DictionaryWarmup.class.getName());
+
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final CountDownLatch COMPLETED = new CountDownLatch(1);
+
+    private DictionaryWarmup() {
+    }
+
+    /**
+     * Starts the warm-up, unless it is disabled or already started.
+     */
+    static void start() {
+        if (!enabled() || !STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(DictionaryWarmup::run, "japanese-analyzer-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Waits for the warm-up to complete.
+     *
+     * @param timeout Maximum time to wait
+     * @return true if the warm-up has completed, false if it was not started or timed out
+     */
+    static boolean awaitCompletion(Duration timeout) throws InterruptedException {
+        return STARTED.get() && COMPLETED.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean enabled() {
+        try {
+            return JapaneseAnalyzerSettings.warmup();
+        } catch (IllegalArgumentException e) {
+            LOG.log(Level.WARNING, e.getMessage() + "; warming up as by default");
+            return true;
+        }
+    }
+
+    private static void run() {
+        try {
+            // Loads the tokenizer factory and the stop words; the dictionaries follow on first use.
+            // The sample texts are neither cached nor counted in the metrics of the indexes.
+            JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared()
+                    .withTokenStreamCache(0, 0)
+                    .withMetrics(false);
+            try (Analyzer japanese = components.newAnalyzer();
+                 Analyzer mixed = components.newScriptRoutingAnalyzer()) {
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (String text : SAMPLE_TEXTS) {
+                        consume(japanese, text);
+                        consume(mixed, text);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException | LinkageError e) {
+            // The first analyzer reports the failure to load the components
+        } finally {
+            COMPLETED.countDown();
+        }
+    }
+
+    private static void consume(Analyzer analyzer, String text) throws IOException {
+        try (TokenStream stream = analyzer.tokenStream("warmup", text)) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                // Only the work of producing the tokens matters
+            }
+            stream.end();
+        }
+    }
+}
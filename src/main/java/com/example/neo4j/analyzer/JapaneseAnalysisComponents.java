@@ -0,0 +1,629 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.AbstractAnalysisFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ja.JapaneseAnalyzer;
+import org.apache.lucene.analysis.ja.JapaneseBaseFormFilter;
+import org.apache.lucene.analysis.ja.JapaneseKatakanaStemFilter;
+import org.apache.lucene.analysis.ja.JapaneseTokenizer;
+import org.apache.lucene.analysis.ja.JapanesePartOfSpeechStopFilter;
+import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.ClasspathResourceLoader;
+import org.apache.lucene.util.ResourceLoader;
+import org.apache.lucene.util.Version;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide registry of the analysis components behind the "japanese" analyzer.
+ *
+ * The tokenizer factory, with the Kuromoji dictionaries (see {@link KuromojiTokenizerFactory}),
+ * and the compiled stop word set are built once and shared by every analyzer handed out
+ * by {@link #newAnalyzer()}. Creating an analyzer is
+ * therefore only an object allocation; the tokenizer chains are still created lazily by
+ * the reuse strategy: one per thread, or, when a pool size is configured, as many as are
+ * in use at once, drawn from a {@link TokenStreamPool} per analyzer name.
+ *
+ * When a maximum segment length is configured, tokenizers are wrapped in a
+ * {@link SegmentingTokenizer} so that large values are tokenized in bounded pieces.
+ * When a {@link TokenStreamCache} is configured, all analyzers share it. When a
+ * {@link ReloadableUserDictionary} is configured, analyzers switch to a reloaded
+ * dictionary on their next token stream. When a synonym file is configured, the
+ * "japanese" analyzer replaces synonyms with the {@link CompiledSynonymMap} loaded here.
+ * Unless disabled, analyzers record {@link AnalyzerMetrics} per analyzer name.
+ *
+ * The configurable analyzers (see {@link AnalyzerDefinition}) share the dictionaries as
+ * well: tokenizer factories with other options reuse them, and a stop word file used by
+ * several analyzers is compiled once.
+ */
+final class JapaneseAnalysisComponents {
+
+    /**
+     * Classpath resource holding the bundled Japanese stop words.
+     */
+    static final String STOPWORDS_RESOURCE = "japanese-stopwords.txt";
+
+    /**
+     * Names of the analyzers with a fixed configuration.
+     */
+    static final List<String> BUILT_IN_ANALYZERS = List.of(
+            "japanese", "japanese-mixed", "japanese-normalized", "japanese-ngram", "japanese-reading");
+
+    private static final CompiledStopwordSet NO_STOPWORDS = CompiledStopwordSet.compile(List.of());
+
+    private final KuromojiTokenizerFactory tokenizerFactory;
+    private final CompiledStopwordSet stopwords;
+    private final CompiledSynonymMap synonyms;
+    private final ConcurrentMap<TokenizerOptions, KuromojiTokenizerFactory> tokenizerFactories;
+    private final ConcurrentMap<Path, CompiledStopwordSet> stopwordFiles;
+    private final int maxSegmentLength;
+    private final TokenStreamCache tokenStreamCache;
+    private final ConcurrentMap<String, AnalyzerMetrics> metrics;
+    private final int poolMaxIdleChains;
+    private final int poolMaxRetainedValueLength;
+    private final ConcurrentMap<String, TokenStreamPool> pools;
+    private final boolean readingRomaji;
+
+    private JapaneseAnalysisComponents(ResourceLoader loader, Optional<Path> stopwordsFile,
+                                       Optional<Path> userDictionaryFile, Optional<Path> synonymsFile)
+            throws IOException {
+        // Kuromoji tokenizer for Japanese morphological analysis, over the shared dictionaries
+        ReloadableUserDictionary userDictionary = userDictionaryFile.isPresent()
+                ? ReloadableUserDictionary.open(userDictionaryFile.get())
+                : null;
+        this.tokenizerFactory = new KuromojiTokenizerFactory(args(), userDictionary);
+
+        // Japanese stop words, loaded exactly once
+        this.stopwords = loadStopwords(loader, stopwordsFile);
+        // Synonyms, split into words by the same tokenizer
+        this.synonyms = synonymsFile.isPresent()
+                ? CompiledSynonymMap.load(synonymsFile.get(), tokenizerFactory)
+                : null;
+        this.tokenizerFactories = new ConcurrentHashMap<>();
+        this.stopwordFiles = new ConcurrentHashMap<>();
+        this.maxSegmentLength = 0;
+        this.tokenStreamCache = null;
+        this.metrics = new ConcurrentHashMap<>();
+        this.poolMaxIdleChains = 0;
+        this.poolMaxRetainedValueLength = 0;
+        this.pools = null;
+        this.readingRomaji = false;
+    }
+
+    private JapaneseAnalysisComponents(JapaneseAnalysisComponents components, int maxSegmentLength,
+                                       TokenStreamCache tokenStreamCache,
+                                       ConcurrentMap<String, AnalyzerMetrics> metrics) {
+        this(components, maxSegmentLength, tokenStreamCache, metrics, components.poolMaxIdleChains,
+                components.poolMaxRetainedValueLength, components.readingRomaji);
+    }
+
+    private JapaneseAnalysisComponents(JapaneseAnalysisComponents components, int maxSegmentLength,
+                                       TokenStreamCache tokenStreamCache,
+                                       ConcurrentMap<String, AnalyzerMetrics> metrics,
+                                       int poolMaxIdleChains, int poolMaxRetainedValueLength,
+                                       boolean readingRomaji) {
+        this.tokenizerFactory = components.tokenizerFactory;
+        this.stopwords = components.stopwords;
+        this.synonyms = components.synonyms;
+        this.tokenizerFactories = components.tokenizerFactories;
+        this.stopwordFiles = components.stopwordFiles;
+        this.maxSegmentLength = maxSegmentLength;
+        this.tokenStreamCache = tokenStreamCache;
+        this.metrics = metrics;
+        this.poolMaxIdleChains = poolMaxIdleChains;
+        this.poolMaxRetainedValueLength = poolMaxRetainedValueLength;
+        // Chains of other components are built differently, so each instance pools its own
+        this.pools = poolMaxIdleChains == 0 ? null : new ConcurrentHashMap<>();
+        this.readingRomaji = readingRomaji;
+    }
+
+    /**
+     * @return The shared components, built on first use.
+     */
+    static JapaneseAnalysisComponents shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Loads a new set of components; {@link #shared()} should be used instead outside tests.
+     *
+     * @param stopwordsFile Custom stop word file, or empty for the bundled stop words
+     * @return Newly loaded components
+     * @throws UncheckedIOException if the components cannot be loaded
+     */
+    static JapaneseAnalysisComponents load(Optional<Path> stopwordsFile) {
+        return load(stopwordsFile, Optional.empty());
+    }
+
+    /**
+     * Loads a new set of components with a user dictionary; {@link #shared()} should be
+     * used instead outside tests.
+     *
+     * @param stopwordsFile Custom stop word file, or empty for the bundled stop words
+     * @param userDictionaryFile User dictionary file, or empty for none
+     * @return Newly loaded components
+     * @throws UncheckedIOException if the components cannot be loaded
+     */
+    static JapaneseAnalysisComponents load(Optional<Path> stopwordsFile, Optional<Path> userDictionaryFile) {
+        return load(stopwordsFile, userDictionaryFile, Optional.empty());
+    }
+
+    /**
+     * Loads a new set of components with a user dictionary and synonyms; {@link #shared()}
+     * should be used instead outside tests.
+     *
+     * @param stopwordsFile Custom stop word file, or empty for the bundled stop words
+     * @param userDictionaryFile User dictionary file, or empty for none
+     * @param synonymsFile Synonym file of the "japanese" analyzer, or empty for none
+     * @return Newly loaded components
+     * @throws UncheckedIOException if the components cannot be loaded
+     */
+    static JapaneseAnalysisComponents load(Optional<Path> stopwordsFile, Optional<Path> userDictionaryFile,
+                                           Optional<Path> synonymsFile) {
+        try {
+            return new JapaneseAnalysisComponents(
+                    new ClasspathResourceLoader(JapaneseAnalysisComponents.class.getClassLoader()),
+                    stopwordsFile, userDictionaryFile, synonymsFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load Japanese analysis components", e);
+        }
+    }
+
+    /**
+     * Creates a lightweight analyzer backed by the shared components, with the synonym
+     * stage if synonyms are configured.
+     *
+     * @return Analyzer instance for Japanese text
+     */
+    Analyzer newAnalyzer() {
+        if (synonyms == null) {
+            return new JapaneseTextAnalyzer(this, "japanese", this::newTokenizer);
+        }
+        return new JapaneseTextAnalyzer(this, "japanese", this::newTokenizer, synonyms::apply);
+    }
+
+    /**
+     * Creates a lightweight analyzer that runs Kuromoji only on text that is not plain ASCII, see
+     * {@link ScriptRoutingTokenizer}.
+     *
+     * @return Analyzer instance for mixed Japanese and non-Japanese text
+     */
+    Analyzer newScriptRoutingAnalyzer() {
+        return new JapaneseTextAnalyzer(this, "japanese-mixed", this::newScriptRoutingTokenizer);
+    }
+
+    /**
+     * Creates a lightweight analyzer that indexes the dictionary form of words: inflected
+     * words are reduced to their base form, katakana words lose a trailing long vowel
+     * mark, and particles, auxiliary verbs, symbols and other parts of speech without
+     * meaning of their own are removed (those of Lucene's {@link JapaneseAnalyzer}).
+     *
+     * @return Analyzer instance for Japanese text, with a smaller term dictionary
+     */
+    Analyzer newNormalizedAnalyzer() {
+        return new JapaneseTextAnalyzer(this, "japanese-normalized", this::newTokenizer,
+                JapaneseAnalysisComponents::normalize);
+    }
+
+    /**
+     * Creates an analyzer that indexes the bigrams and trigrams of Japanese text next to
+     * the Kuromoji tokens (see {@link CjkNGramFilter}), so that a part of a word is found
+     * by term lookups instead of a wildcard query.
+     *
+     * @return Analyzer instance for substring search in Japanese text
+     */
+    Analyzer newNGramAnalyzer() {
+        return new JapaneseTextAnalyzer(this, "japanese-ngram", this::newTokenizer, CjkNGramFilter::new);
+    }
+
+    /**
+     * Creates an analyzer that indexes the readings of words in katakana next to the
+     * Kuromoji tokens (see {@link ReadingFormFilter}), so that a word is found by its
+     * reading in hiragana, katakana or, with {@link #withReadingRomaji(boolean)}, romaji
+     * with a term lookup instead of a fuzzy query.
+     *
+     * @return Analyzer instance for phonetic search in Japanese text
+     */
+    Analyzer newReadingAnalyzer() {
+        return new JapaneseTextAnalyzer(this, "japanese-reading", this::newTokenizer,
+                tokens -> new ReadingFormFilter(tokens, stopwords, readingRomaji));
+    }
+
+    /**
+     * Creates an analyzer of the configurable family.
+     *
+     * @param definition Tokenizer options, filters, stop words and case of the analyzer
+     * @return Analyzer instance over the shared dictionaries
+     * @throws UncheckedIOException if the stop word file of the definition cannot be read
+     */
+    Analyzer newAnalyzer(AnalyzerDefinition definition) {
+        KuromojiTokenizerFactory factory = tokenizerFactory(definition);
+        return new JapaneseTextAnalyzer(this, definition.name(), attributes -> newTokenizer(attributes, factory),
+                definition::applyFilters, stopwords(definition), definition.upperCase());
+    }
+
+    /**
+     * Creates an analyzer by the name Neo4j knows it by.
+     *
+     * @param name Analyzer name, e.g. "japanese"
+     * @return Analyzer instance, as created by the provider of that name
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     */
+    Analyzer newAnalyzer(String name) {
+        switch (name) {
+            case "japanese":
+                return newAnalyzer();
+            case "japanese-mixed":
+                return newScriptRoutingAnalyzer();
+            case "japanese-normalized":
+                return newNormalizedAnalyzer();
+            case "japanese-ngram":
+                return newNGramAnalyzer();
+            case "japanese-reading":
+                return newReadingAnalyzer();
+            default:
+                return newAnalyzer(definition(name));
+        }
+    }
+
+    /**
+     * @param name Name of an analyzer of the configurable family
+     * @return The definition of the analyzer
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     */
+    static AnalyzerDefinition definition(String name) {
+        AnalyzerDefinition definition = AnalyzerDefinition.configured().get(name);
+        if (definition == null) {
+            List<String> names = new ArrayList<>(BUILT_IN_ANALYZERS);
+            names.addAll(AnalyzerDefinition.configured().keySet());
+            throw new IllegalArgumentException("Unknown analyzer '" + name + "', expected one of " + names);
+        }
+        return definition;
+    }
+
+    /**
+     * Returns components sharing this instance's tokenizer factory and stop words, but
+     * splitting values into segments of at most the given length. The returned
+     * components have no token stream cache, since their tokens may differ.
+     *
+     * @param maxSegmentLength Maximum segment length, or 0 to tokenize values as a whole
+     * @return Components with the given segment length
+     */
+    JapaneseAnalysisComponents withMaxSegmentLength(int maxSegmentLength) {
+        if (maxSegmentLength != 0 && maxSegmentLength < SegmentingTokenizer.MIN_SEGMENT_LENGTH) {
+            throw new IllegalArgumentException("Segment length must be 0 or at least "
+                    + SegmentingTokenizer.MIN_SEGMENT_LENGTH + ", got " + maxSegmentLength);
+        }
+        return new JapaneseAnalysisComponents(this, maxSegmentLength, null, metrics);
+    }
+
+    /**
+     * Returns components sharing this instance's tokenizer factory and stop words, with
+     * a new token stream cache for short values.
+     *
+     * @param maxValueLength Longest value whose tokens are cached, or 0 for no cache
+     * @param maxBytes Size bound of the cache, in bytes
+     * @return Components with the given cache
+     */
+    JapaneseAnalysisComponents withTokenStreamCache(int maxValueLength, long maxBytes) {
+        TokenStreamCache cache = maxValueLength == 0 ? null : new TokenStreamCache(maxValueLength, maxBytes);
+        if (cache != null) {
+            // Tokens cached with the previous dictionary are no longer used
+            userDictionary().ifPresent(dictionary -> dictionary.onReload(cache::clear));
+        }
+        return new JapaneseAnalysisComponents(this, maxSegmentLength, cache, metrics);
+    }
+
+    /**
+     * Returns components sharing this instance's resources, with or without metrics.
+     *
+     * @param enabled Whether analyzers record {@link AnalyzerMetrics}
+     * @return Components recording metrics into this instance's counters, or recording none
+     */
+    JapaneseAnalysisComponents withMetrics(boolean enabled) {
+        ConcurrentMap<String, AnalyzerMetrics> counters = enabled
+                ? (metrics == null ? new ConcurrentHashMap<>() : metrics)
+                : null;
+        return new JapaneseAnalysisComponents(this, maxSegmentLength, tokenStreamCache, counters);
+    }
+
+    /**
+     * Returns components sharing this instance's resources, whose analyzers draw their
+     * token stream chains from a {@link TokenStreamPool} per analyzer name instead of
+     * keeping one per thread.
+     *
+     * @param maxIdleChains Maximum number of idle chains per analyzer name, or 0 for one chain per thread
+     * @param maxRetainedValueLength Longest value after which a chain is reused
+     * @return Components with the given pools
+     */
+    JapaneseAnalysisComponents withPool(int maxIdleChains, int maxRetainedValueLength) {
+        if (maxIdleChains < 0) {
+            throw new IllegalArgumentException("Maximum number of idle chains must not be negative, got "
+                    + maxIdleChains);
+        }
+        if (maxIdleChains != 0 && maxRetainedValueLength <= 0) {
+            throw new IllegalArgumentException("Maximum retained value length must be positive, got "
+                    + maxRetainedValueLength);
+        }
+        return new JapaneseAnalysisComponents(this, maxSegmentLength, tokenStreamCache, metrics, maxIdleChains,
+                maxRetainedValueLength, readingRomaji);
+    }
+
+    /**
+     * Returns components sharing this instance's resources, whose "japanese-reading"
+     * analyzers add the romanization of the readings or leave it out.
+     *
+     * @param romanize Whether the reading analyzer adds the Hepburn spelling of the readings
+     * @return Components with the given reading analyzer
+     */
+    JapaneseAnalysisComponents withReadingRomaji(boolean romanize) {
+        return new JapaneseAnalysisComponents(this, maxSegmentLength, tokenStreamCache, metrics, poolMaxIdleChains,
+                poolMaxRetainedValueLength, romanize);
+    }
+
+    KuromojiTokenizerFactory tokenizerFactory() {
+        return tokenizerFactory;
+    }
+
+    /**
+     * @param definition Definition of a configurable analyzer
+     * @return The factory of the analyzer's tokenizers, shared by all definitions with the same tokenizer options.
+     */
+    KuromojiTokenizerFactory tokenizerFactory(AnalyzerDefinition definition) {
+        return tokenizerFactories.computeIfAbsent(
+                new TokenizerOptions(definition.mode(), definition.discardPunctuation(),
+                        definition.discardCompoundToken()),
+                options -> tokenizerFactory.withOptions(options.mode(), options.discardPunctuation(),
+                        options.discardCompoundToken()));
+    }
+
+    /**
+     * Creates the tokenizer of a new token stream chain.
+     *
+     * @param factory Attribute factory of the field being analyzed
+     * @return Kuromoji tokenizer, segmenting its input if a maximum segment length is set
+     */
+    Tokenizer newTokenizer(AttributeFactory factory) {
+        return newTokenizer(factory, tokenizerFactory);
+    }
+
+    private Tokenizer newTokenizer(AttributeFactory factory, KuromojiTokenizerFactory tokenizerFactory) {
+        if (maxSegmentLength == 0) {
+            return tokenizerFactory.create(factory);
+        }
+        return new SegmentingTokenizer(factory, tokenizerFactory, maxSegmentLength);
+    }
+
+    /**
+     * Creates the tokenizer of a new script routing token stream chain. Its windows are
+     * as long as the configured segments, if values are segmented.
+     *
+     * @param factory Attribute factory of the field being analyzed
+     * @return Tokenizer running Kuromoji on Japanese text only
+     */
+    Tokenizer newScriptRoutingTokenizer(AttributeFactory factory) {
+        int windowLength = maxSegmentLength == 0 ? ScriptRoutingTokenizer.DEFAULT_WINDOW_LENGTH : maxSegmentLength;
+        return new ScriptRoutingTokenizer(factory, tokenizerFactory, windowLength);
+    }
+
+    /**
+     * Adds the filters of {@link #newNormalizedAnalyzer()} to a Kuromoji token stream.
+     */
+    static TokenStream normalize(TokenStream tokens) {
+        TokenStream stream = new JapaneseBaseFormFilter(tokens);
+        stream = new JapanesePartOfSpeechStopFilter(stream, JapaneseAnalyzer.getDefaultStopTags());
+        return new JapaneseKatakanaStemFilter(stream, JapaneseKatakanaStemFilter.DEFAULT_MINIMUM_LENGTH);
+    }
+
+    /**
+     * @return The maximum segment length, or 0 if values are tokenized as a whole.
+     */
+    int maxSegmentLength() {
+        return maxSegmentLength;
+    }
+
+    /**
+     * @return The cache of the tokens of short values, if one is configured.
+     */
+    Optional<TokenStreamCache> tokenStreamCache() {
+        return Optional.ofNullable(tokenStreamCache);
+    }
+
+    /**
+     * @param analyzer Name of the analyzer
+     * @return The metrics of the analyzer, if metrics are enabled.
+     */
+    Optional<AnalyzerMetrics> metrics(String analyzer) {
+        if (metrics == null) {
+            return Optional.empty();
+        }
+        return Optional.of(metrics.computeIfAbsent(analyzer, AnalyzerMetrics::new));
+    }
+
+    /**
+     * @return The metrics of every analyzer that has been used, sorted by name.
+     */
+    List<AnalyzerMetrics> allMetrics() {
+        if (metrics == null) {
+            return List.of();
+        }
+        List<AnalyzerMetrics> all = new ArrayList<>(metrics.values());
+        all.sort(Comparator.comparing(AnalyzerMetrics::analyzer));
+        return all;
+    }
+
+    /**
+     * @return The user dictionary, if one is configured.
+     */
+    Optional<ReloadableUserDictionary> userDictionary() {
+        return tokenizerFactory.userDictionary();
+    }
+
+    /**
+     * @param analyzer Name of the analyzer
+     * @return The pool of the analyzer's token stream chains, if chains are pooled.
+     */
+    Optional<TokenStreamPool> pool(String analyzer) {
+        if (pools == null) {
+            return Optional.empty();
+        }
+        return Optional.of(pools.computeIfAbsent(analyzer, name -> new TokenStreamPool(poolMaxIdleChains,
+                poolMaxRetainedValueLength, this::userDictionaryGeneration)));
+    }
+
+    /**
+     * @return The generation of the user dictionary, or 0 if there is none.
+     */
+    long userDictionaryGeneration() {
+        return userDictionary().map(ReloadableUserDictionary::generation).orElse(0L);
+    }
+
+    /**
+     * @param analyzer Name of the analyzer
+     * @return The reuse strategy of analyzers over these components: token stream chains
+     * are pooled per analyzer name, or kept per thread, and are replaced when the user
+     * dictionary is reloaded.
+     */
+    Analyzer.ReuseStrategy reuseStrategy(String analyzer) {
+        return pool(analyzer)
+                .map(TokenStreamPool::reuseStrategy)
+                .or(() -> userDictionary().map(ReloadableUserDictionary::reuseStrategy))
+                .orElse(Analyzer.GLOBAL_REUSE_STRATEGY);
+    }
+
+    /**
+     * @return The synonyms of the "japanese" analyzer, if configured.
+     */
+    Optional<CompiledSynonymMap> synonyms() {
+        return Optional.ofNullable(synonyms);
+    }
+
+    /**
+     * @return Whether the reading analyzer adds the romanization of the readings.
+     */
+    boolean readingRomaji() {
+        return readingRomaji;
+    }
+
+    /**
+     * @return The stop words, compiled for {@link UpperCaseStopFilter}.
+     */
+    CompiledStopwordSet stopwords() {
+        return stopwords;
+    }
+
+    /**
+     * @param definition Definition of a configurable analyzer
+     * @return The stop words removed by the analyzer: none, those of its own file or the plugin's.
+     * @throws UncheckedIOException if the stop word file cannot be read
+     */
+    CompiledStopwordSet stopwords(AnalyzerDefinition definition) {
+        if (!definition.stopwords()) {
+            return NO_STOPWORDS;
+        }
+        return definition.stopwordsFile()
+                .map(file -> stopwordFiles.computeIfAbsent(file, JapaneseAnalysisComponents::compileStopwords))
+                .orElse(stopwords);
+    }
+
+    /**
+     * @param analyzer Name of the analyzer
+     * @return The stop words removed by the analyzer.
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     */
+    CompiledStopwordSet stopwords(String analyzer) {
+        return BUILT_IN_ANALYZERS.contains(analyzer) ? stopwords : stopwords(definition(analyzer));
+    }
+
+    /**
+     * @return The bundled stop words, also when a stop word file replaces them.
+     * @throws UncheckedIOException if the stop words cannot be read
+     */
+    static CompiledStopwordSet bundledStopwords() {
+        try {
+            return loadStopwords(new ClasspathResourceLoader(JapaneseAnalysisComponents.class.getClassLoader()),
+                    Optional.empty());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the bundled stop words", e);
+        }
+    }
+
+    private static CompiledStopwordSet compileStopwords(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return CompiledStopwordSet.compile(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read stop word file " + file, e);
+        }
+    }
+
+    /**
+     * Loads the stop words: a configured stop word file is compiled on the fly,
+     * otherwise the set compiled at build time is read from the jar. The bundled text
+     * file is only parsed if the compiled set is missing (e.g. in an IDE build).
+     */
+    private static CompiledStopwordSet loadStopwords(ResourceLoader loader, Optional<Path> stopwordsFile)
+            throws IOException {
+        if (stopwordsFile.isPresent()) {
+            try (InputStream in = Files.newInputStream(stopwordsFile.get())) {
+                return CompiledStopwordSet.compile(in);
+            }
+        }
+        try (InputStream in = loader.openResource(CompiledStopwordSet.COMPILED_RESOURCE)) {
+            return CompiledStopwordSet.read(in);
+        } catch (IOException e) {
+            try (InputStream in = loader.openResource(STOPWORDS_RESOURCE)) {
+                return CompiledStopwordSet.compile(in);
+            }
+        }
+    }
+
+    private static Map<String, String> args(String... keyValues) {
+        // Factories consume their argument map, so every factory gets a fresh one
+        Map<String, String> args = new HashMap<>();
+        args.put(AbstractAnalysisFactory.LUCENE_MATCH_VERSION_PARAM, Version.LATEST.toString());
+        for (int i = 0; i < keyValues.length; i += 2) {
+            args.put(keyValues[i], keyValues[i + 1]);
+        }
+        return args;
+    }
+
+    private record TokenizerOptions(JapaneseTokenizer.Mode mode, boolean discardPunctuation,
+                                    boolean discardCompoundToken) {
+    }
+
+    private static final class Holder {
+        static final JapaneseAnalysisComponents INSTANCE = fromSettings();
+
+        private static JapaneseAnalysisComponents fromSettings() {
+            JapaneseAnalysisComponents components = load(JapaneseAnalyzerSettings.stopwordsFile(),
+                    JapaneseAnalyzerSettings.userDictionaryFile(), JapaneseAnalyzerSettings.synonymsFile())
+                    .withMaxSegmentLength(JapaneseAnalyzerSettings.maxSegmentLength())
+                    .withTokenStreamCache(JapaneseAnalyzerSettings.cacheMaxValueLength(),
+                            JapaneseAnalyzerSettings.cacheMaxBytes())
+                    .withMetrics(JapaneseAnalyzerSettings.metrics())
+                    .withPool(JapaneseAnalyzerSettings.poolMaxIdleChains(),
+                            JapaneseAnalyzerSettings.poolMaxRetainedValueLength())
+                    .withReadingRomaji(JapaneseAnalyzerSettings.readingRomaji());
+            Duration checkInterval = JapaneseAnalyzerSettings.userDictionaryCheckInterval();
+            if (!checkInterval.isZero()) {
+                components.userDictionary().ifPresent(dictionary -> dictionary.watch(checkInterval));
+            }
+            return components;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.neo4j.analyzer;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Neo4j procedures of the Japanese analyzer plugin.
+ *
+ * Neo4j finds them in the plugin jar next to the analyzer providers; they use the
+ * analyzers of the whole JVM, not of a single database.
+ */
+public class JapaneseAnalyzerProcedures {
+
+    @Context
+    public GraphDatabaseService database;
+
+    @Context
+    public Log log;
+
+    /**
+     * Lists the tokenization metrics of every analyzer that has been used since startup.
+     *
+     * @return One row per analyzer name, or none if metrics are disabled
+     */
+    @Procedure(name = "japanese.analyzer.metrics", mode = Mode.READ)
+    @Description("Tokenization metrics of the Japanese analyzers since startup: documents, characters, "
+            + "tokens, stop words removed and latency percentiles, per analyzer name.")
+    public Stream<MetricsRecord> metrics() {
+        return JapaneseAnalysisComponents.shared().allMetrics().stream()
+                .map(metrics -> new MetricsRecord(metrics.snapshot()));
+    }
+
+    /**
+     * Tokenizes texts in parallel with one of the Japanese analyzers, producing the same
+     * terms as a fulltext index with that analyzer (see {@link BatchAnalyzer}).
+     *
+     * @param texts Texts to analyze; null texts have no tokens
+     * @param analyzer Name of the analyzer
+     * @return One row per text, in input order
+     * @throws IllegalArgumentException if texts is null or there is no analyzer with the given name
+     */
+    @Procedure(name = "japanese.analyzeBatch", mode = Mode.READ)
+    @Description("Tokenizes a list of texts in parallel with a Japanese analyzer ('japanese' by default), "
+            + "returning the terms each text would be indexed with.")
+    public Stream<TokensRecord> analyzeBatch(@Name("texts") List<String> texts,
+                                             @Name(value = "analyzer", defaultValue = "japanese") String analyzer) {
+        if (texts == null) {
+            throw new IllegalArgumentException("texts must be a list, got null");
+        }
+        return BatchAnalyzer.shared().analyze(analyzer, texts.iterator())
+                .map(TokensRecord::new);
+    }
+
+    /**
+     * Runs a text through the stages of one of the Japanese analyzers, measuring each
+     * stage and flagging pathological input (see {@link AnalysisExplainer}).
+     *
+     * @param text Text to analyze
+     * @param analyzer Name of the analyzer
+     * @return One row per stage, in chain order
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     */
+    @Procedure(name = "japanese.explain", mode = Mode.READ)
+    @Description("Runs a text through the stages of a Japanese analyzer ('japanese' by default), returning the "
+            + "tokens, time and allocations of each stage, and flags for input that is slow or cannot be found.")
+    public Stream<ExplainRecord> explain(@Name("text") String text,
+                                         @Name(value = "analyzer", defaultValue = "japanese") String analyzer) {
+        return AnalysisExplainer.explain(JapaneseAnalysisComponents.shared(), analyzer, text).stream()
+                .map(ExplainRecord::new);
+    }
+
+    /**
+     * Rewrites the entries of a fulltext index that change because the stop words or the
+     * user dictionary changed since it was built, instead of rebuilding the whole index
+     * (see {@link Reindex}). Calling it again with the same options resumes an
+     * interrupted reindex.
+     *
+     * @param index Name of a fulltext index with a Japanese analyzer
+     * @param options previousStopwords and/or previousUserDictionary, the files the index was
+     *                built with, and optionally batchSize, maxEntitiesPerSecond and limit
+     * @return One row per batch, produced as the batches are written
+     * @throws IllegalArgumentException if the index or an option is invalid
+     */
+    @Procedure(name = "japanese.reindex", mode = Mode.WRITE)
+    @Description("Rewrites, in batches, the entries of a fulltext index with a Japanese analyzer that change "
+            + "since the stop words or the user dictionary changed. Options: previousStopwords (file or 'bundled'), "
+            + "previousUserDictionary (file or '' for none), batchSize, maxEntitiesPerSecond, limit.")
+    public Stream<ReindexRecord> reindex(@Name("index") String index,
+                                         @Name(value = "options", defaultValue = "{}") Map<String, Object> options) {
+        return Reindex.start(database, log, index, Reindex.Options.parse(options)).map(ReindexRecord::new);
+    }
+
+    /**
+     * Row of {@link #explain(String, String)}. Only the first
+     * {@value AnalysisExplainer#MAX_TOKENS} tokens of a stage are listed.
+     */
+    public static class ExplainRecord {
+        public final String stage;
+        public final String implementation;
+        public final long tokenCount;
+        public final List<String> tokens;
+        public final long elapsedNanos;
+        public final long allocatedBytes;
+        public final List<String> flags;
+
+        ExplainRecord(AnalysisExplainer.Stage stage) {
+            this.stage = stage.stage();
+            this.implementation = stage.implementation();
+            this.tokenCount = stage.tokenCount();
+            this.tokens = stage.tokens();
+            this.elapsedNanos = stage.elapsedNanos();
+            this.allocatedBytes = stage.allocatedBytes();
+            this.flags = stage.flags();
+        }
+    }
+
+    /**
+     * Row of {@link #reindex(String, Map)}.
+     */
+    public static class ReindexRecord {
+        public final String index;
+        public final long batch;
+        public final long entities;
+        public final long scanned;
+        public final long elapsedMillis;
+        public final boolean done;
+
+        ReindexRecord(Reindex.Progress progress) {
+            this.index = progress.index();
+            this.batch = progress.batch();
+            this.entities = progress.entities();
+            this.scanned = progress.scanned();
+            this.elapsedMillis = progress.elapsedMillis();
+            this.done = progress.done();
+        }
+    }
+
+    /**
+     * Row of {@link #analyzeBatch(List, String)}.
+     */
+    public static class TokensRecord {
+        public final long index;
+        public final List<String> tokens;
+
+        TokensRecord(BatchAnalyzer.AnalyzedText text) {
+            this.index = text.index();
+            this.tokens = text.tokens();
+        }
+    }
+
+    /**
+     * Row of {@link #metrics()}. Latencies are in microseconds and measured on a sample of
+     * the documents ({@code timedDocuments}); percentiles are the upper bounds of the
+     * power-of-two histogram buckets they fall into.
+     */
+    public static class MetricsRecord {
+        public final String analyzer;
+        public final long documents;
+        public final long characters;
+        public final long tokens;
+        public final long stoppedTokens;
+        public final long timedDocuments;
+        public final double meanMicros;
+        public final long p50Micros;
+        public final long p90Micros;
+        public final long p99Micros;
+        /**
+         * Number of timed documents per latency bucket: element i counts documents that took
+         * less than 2<sup>i</sup> microseconds, the last element all longer ones.
+         */
+        public final List<Long> latencyHistogram;
+
+        MetricsRecord(AnalyzerMetrics.Snapshot snapshot) {
+            this.analyzer = snapshot.analyzer();
+            this.documents = snapshot.documents();
+            this.characters = snapshot.characters();
+            this.tokens = snapshot.tokens();
+            this.stoppedTokens = snapshot.stoppedTokens();
+            this.timedDocuments = snapshot.timedDocuments();
+            this.meanMicros = snapshot.meanLatencyMicros();
+            this.p50Micros = snapshot.latencyPercentileMicros(50);
+            this.p90Micros = snapshot.latencyPercentileMicros(90);
+            this.p99Micros = snapshot.latencyPercentileMicros(99);
+            List<Long> histogram = new ArrayList<>();
+            for (long count : snapshot.latencyCounts()) {
+                histogram.add(count);
+            }
+            this.latencyHistogram = histogram;
+        }
+    }
+}
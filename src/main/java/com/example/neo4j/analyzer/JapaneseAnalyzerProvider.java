@@ -1,13 +1,8 @@
 package com.example.neo4j.analyzer;
 
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.custom.CustomAnalyzer;
-import org.apache.lucene.analysis.core.UpperCaseFilterFactory;
-import org.apache.lucene.analysis.core.StopFilterFactory;
-import org.apache.lucene.analysis.ja.JapaneseTokenizerFactory;
 import org.neo4j.graphdb.schema.AnalyzerProvider;
 
-import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.List;
 
@@ -23,10 +18,13 @@ import java.util.List;
 public class JapaneseAnalyzerProvider extends AnalyzerProvider {
 
     /**
-     * Constructor that registers this analyzer with the name "japanese".
+     * Constructor that registers this analyzer with the name "japanese" and starts
+     * loading the analysis components in the background (see {@link DictionaryWarmup}).
      */
     public JapaneseAnalyzerProvider() {
         super("japanese");
+        // Neo4j creates the providers at startup, before the first write
+        DictionaryWarmup.start();
     }
 
     /**
@@ -34,32 +32,19 @@ public class JapaneseAnalyzerProvider extends AnalyzerProvider {
      * 
      * The analyzer pipeline consists of:
      * 1. JapaneseTokenizer - Kuromoji-based morphological analysis
-     * 2. UpperCaseFilter - Converts tokens to uppercase
-     * 3. StopFilter - Removes Japanese stop words
+     * 2. SynonymGraphFilter - Replaces synonyms, if a synonym file is configured (see {@link CompiledSynonymMap})
+     * 3. UpperCaseStopFilter - Converts tokens to uppercase and removes Japanese stop words
+     * 
+     * The tokenizer factory, synonyms and stop word sets are shared by all
+     * analyzers through {@link JapaneseAnalysisComponents}, so this is cheap to call
+     * once per fulltext index.
      * 
      * @return Configured Analyzer instance for Japanese text
-     * @throws UncheckedIOException if analyzer creation fails
+     * @throws UncheckedIOException if the shared analysis components cannot be loaded
      */
     @Override
     public Analyzer createAnalyzer() {
-        try {
-            return CustomAnalyzer.builder()
-                    // Use Kuromoji tokenizer for Japanese morphological analysis
-                    .withTokenizer(JapaneseTokenizerFactory.class)
-                    
-                    // Convert all tokens to uppercase for consistent searching
-                    .addTokenFilter(UpperCaseFilterFactory.class)
-                    
-                    // Remove Japanese stop words
-                    .addTokenFilter(StopFilterFactory.class, 
-                        "ignoreCase", "true",
-                        "words", "japanese-stopwords.txt", 
-                        "format", "wordset")
-                    
-                    .build();
-        } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create Japanese analyzer", e);
-        }
+        return JapaneseAnalysisComponents.shared().newAnalyzer();
     }
 
     /**
@@ -70,50 +55,11 @@ public class JapaneseAnalyzerProvider extends AnalyzerProvider {
         return "Japanese text analyzer using Kuromoji tokenizer with stop words filtering and uppercase normalization";
     }
 
+    /**
+     * @return The Japanese stop words removed by this analyzer.
+     */
     @Override
     public List<String> stopwords() {
-        Analyzer analyzer = createAnalyzer();
-        try {
-            // Access tokenFilters field from CustomAnalyzer
-            var tokenFiltersField = analyzer.getClass().getDeclaredField("tokenFilters");
-            tokenFiltersField.setAccessible(true);
-            var tokenFilters = tokenFiltersField.get(analyzer);
-            
-            if (tokenFilters instanceof Object[] filterArray) {
-                for (Object filter : filterArray) {
-                    // Look for StopFilterFactory
-                    if (filter.getClass().getSimpleName().contains("StopFilter")) {
-                        try {
-                            // Get stopwords from the parent class AbstractWordsFileFilterFactory
-                            var wordsField = filter.getClass().getSuperclass().getDeclaredField("words");
-                            wordsField.setAccessible(true);
-                            var words = wordsField.get(filter);
-                            
-                            if (words != null) {
-                                // Convert CharArraySet to List<String>
-                                List<String> result = new java.util.ArrayList<>();
-                                if (words instanceof Iterable<?> iterableWords) {
-                                    for (Object obj : iterableWords) {
-                                        if (obj instanceof char[]) {
-                                            result.add(new String((char[]) obj));
-                                        } else {
-                                            result.add(obj.toString());
-                                        }
-                                    }
-                                }
-                                return result;
-                            }
-                        } catch (Exception e) {
-                            // Continue to next filter if this fails
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            // If reflection fails, return empty list
-        } finally {
-            analyzer.close();
-        }
-        return List.of();
+        return JapaneseAnalysisComponents.shared().stopwords().words();
     }
 }
@@ -0,0 +1,264 @@
+package com.example.neo4j.analyzer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Settings of the Japanese analyzer plugin.
+ *
+ * An AnalyzerProvider is instantiated by the ServiceLoader without access to the Neo4j
+ * configuration, so the settings are read from JVM system properties, e.g. via
+ * {@code server.jvm.additional=-Djapanese.analyzer.stopwords=/path/to/stopwords.txt}
+ * in neo4j.conf.
+ */
+final class JapaneseAnalyzerSettings {
+
+    /**
+     * Path of a stop word file replacing the bundled japanese-stopwords.txt.
+     */
+    static final String STOPWORDS = "japanese.analyzer.stopwords";
+
+    /**
+     * Path of a Kuromoji user dictionary (see {@link ReloadableUserDictionary}).
+     */
+    static final String USER_DICTIONARY = "japanese.analyzer.userDictionary";
+
+    /**
+     * Seconds between checks of the user dictionary file for changes; 0 disables reloading.
+     */
+    static final String USER_DICTIONARY_CHECK_INTERVAL = "japanese.analyzer.userDictionary.checkInterval";
+
+    /**
+     * Maximum number of characters tokenized in one piece (see {@link SegmentingTokenizer});
+     * 0, the default, tokenizes every value as a whole.
+     */
+    static final String MAX_SEGMENT_LENGTH = "japanese.analyzer.maxSegmentLength";
+
+    /**
+     * Longest value, in characters, whose tokens are kept in the {@link TokenStreamCache};
+     * 0, the default, disables the cache.
+     */
+    static final String CACHE_MAX_VALUE_LENGTH = "japanese.analyzer.cache.maxValueLength";
+
+    /**
+     * Upper bound on the estimated size of the token stream cache, in bytes.
+     */
+    static final String CACHE_MAX_BYTES = "japanese.analyzer.cache.maxBytes";
+
+    /**
+     * Whether the analysis components are loaded and warmed up in the background when
+     * the plugin is loaded (see {@link DictionaryWarmup}); true by default.
+     */
+    static final String WARMUP = "japanese.analyzer.warmup";
+
+    /**
+     * Whether analyzers record {@link AnalyzerMetrics}; true by default.
+     */
+    static final String METRICS = "japanese.analyzer.metrics";
+
+    /**
+     * Number of threads of {@link BatchAnalyzer}; 0, the default, uses one per processor.
+     */
+    static final String BATCH_PARALLELISM = "japanese.analyzer.batch.parallelism";
+
+    /**
+     * Path of the analyzers file defining the configurable analyzers (see {@link AnalyzerDefinition}).
+     */
+    static final String ANALYZERS = "japanese.analyzer.analyzers";
+
+    /**
+     * Path of a synonym file applied by the "japanese" analyzer (see {@link CompiledSynonymMap}).
+     */
+    static final String SYNONYMS = "japanese.analyzer.synonyms";
+
+    /**
+     * Maximum number of idle token stream chains kept per analyzer (see {@link TokenStreamPool});
+     * 0 keeps one chain per thread instead. Twice the number of processors by default.
+     */
+    static final String POOL_MAX_IDLE_CHAINS = "japanese.analyzer.pool.maxIdleChains";
+
+    /**
+     * Longest value, in characters, after which a pooled token stream chain is reused.
+     */
+    static final String POOL_MAX_RETAINED_VALUE_LENGTH = "japanese.analyzer.pool.maxRetainedValueLength";
+
+    /**
+     * Whether the "japanese-reading" analyzer also indexes the readings in romaji (see
+     * {@link ReadingFormFilter}); false by default.
+     */
+    static final String READING_ROMAJI = "japanese.analyzer.reading.romaji";
+
+    private static final long DEFAULT_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    private static final long DEFAULT_POOL_MAX_RETAINED_VALUE_LENGTH = 64 * 1024;
+    private static final long DEFAULT_USER_DICTIONARY_CHECK_INTERVAL = 10;
+
+    private JapaneseAnalyzerSettings() {
+    }
+
+    /**
+     * @return The custom stop word file, if one is configured.
+     */
+    static Optional<Path> stopwordsFile() {
+        return path(STOPWORDS);
+    }
+
+    /**
+     * @return The user dictionary file, if one is configured.
+     */
+    static Optional<Path> userDictionaryFile() {
+        return path(USER_DICTIONARY);
+    }
+
+    /**
+     * @return The analyzers file, if one is configured.
+     */
+    static Optional<Path> analyzersFile() {
+        return path(ANALYZERS);
+    }
+
+    /**
+     * @return The synonym file, if one is configured.
+     */
+    static Optional<Path> synonymsFile() {
+        return path(SYNONYMS);
+    }
+
+    /**
+     * @return The interval between checks of the user dictionary for changes, or zero if it is not reloaded.
+     * @throws IllegalArgumentException if the configured value is not a valid number of seconds
+     */
+    static Duration userDictionaryCheckInterval() {
+        return Duration.ofSeconds(number(USER_DICTIONARY_CHECK_INTERVAL, DEFAULT_USER_DICTIONARY_CHECK_INTERVAL,
+                Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return The maximum segment length, or 0 if values are not segmented.
+     * @throws IllegalArgumentException if the configured value is not a valid length
+     */
+    static int maxSegmentLength() {
+        int length = (int) number(MAX_SEGMENT_LENGTH, 0, Integer.MAX_VALUE);
+        if (length != 0 && length < SegmentingTokenizer.MIN_SEGMENT_LENGTH) {
+            throw new IllegalArgumentException(MAX_SEGMENT_LENGTH + " must be 0 or at least "
+                    + SegmentingTokenizer.MIN_SEGMENT_LENGTH + ", got " + length);
+        }
+        return length;
+    }
+
+    /**
+     * @return The longest value whose tokens are cached, or 0 if the cache is disabled.
+     * @throws IllegalArgumentException if the configured value is not a valid length
+     */
+    static int cacheMaxValueLength() {
+        return (int) number(CACHE_MAX_VALUE_LENGTH, 0, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @return The size bound of the token stream cache, in bytes.
+     * @throws IllegalArgumentException if the configured value is not a valid size
+     */
+    static long cacheMaxBytes() {
+        long bytes = number(CACHE_MAX_BYTES, DEFAULT_CACHE_MAX_BYTES, Long.MAX_VALUE);
+        if (bytes == 0) {
+            throw new IllegalArgumentException(CACHE_MAX_BYTES + " must be positive");
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Whether the analysis components are warmed up when the plugin is loaded.
+     * @throws IllegalArgumentException if the configured value is neither true nor false
+     */
+    static boolean warmup() {
+        return flag(WARMUP, true);
+    }
+
+    /**
+     * @return Whether analyzers record metrics.
+     * @throws IllegalArgumentException if the configured value is neither true nor false
+     */
+    static boolean metrics() {
+        return flag(METRICS, true);
+    }
+
+    /**
+     * @return The number of threads analyzing batches.
+     * @throws IllegalArgumentException if the configured value is not a valid number of threads
+     */
+    static int batchParallelism() {
+        int parallelism = (int) number(BATCH_PARALLELISM, 0, 1024);
+        return parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    /**
+     * @return The maximum number of idle chains per analyzer, or 0 if chains are kept per thread.
+     * @throws IllegalArgumentException if the configured value is not a valid number of chains
+     */
+    static int poolMaxIdleChains() {
+        long defaultChains = 2L * Runtime.getRuntime().availableProcessors();
+        return (int) number(POOL_MAX_IDLE_CHAINS, defaultChains, 65536);
+    }
+
+    /**
+     * @return The longest value after which a pooled chain is reused.
+     * @throws IllegalArgumentException if the configured value is not a valid length
+     */
+    static int poolMaxRetainedValueLength() {
+        int length = (int) number(POOL_MAX_RETAINED_VALUE_LENGTH, DEFAULT_POOL_MAX_RETAINED_VALUE_LENGTH,
+                Integer.MAX_VALUE);
+        if (length == 0) {
+            throw new IllegalArgumentException(POOL_MAX_RETAINED_VALUE_LENGTH + " must be positive");
+        }
+        return length;
+    }
+
+    /**
+     * @return Whether the reading analyzer indexes the readings in romaji as well.
+     * @throws IllegalArgumentException if the configured value is neither true nor false
+     */
+    static boolean readingRomaji() {
+        return flag(READING_ROMAJI, false);
+    }
+
+    private static boolean flag(String property, boolean defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        switch (value.strip().toLowerCase(Locale.ROOT)) {
+            case "true":
+                return true;
+            case "false":
+                return false;
+            default:
+                throw new IllegalArgumentException(property + " must be true or false, got " + value);
+        }
+    }
+
+    private static long number(String property, long defaultValue, long maximum) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        long number;
+        try {
+            number = Long.parseLong(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + property + ": " + value, e);
+        }
+        if (number < 0 || number > maximum) {
+            throw new IllegalArgumentException(property + " must be between 0 and " + maximum + ", got " + number);
+        }
+        return number;
+    }
+
+    private static Optional<Path> path(String property) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of(Path.of(value.strip()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.neo4j.analyzer;
+
+/**
+ * Providers of the custom analyzers listed in the analyzers file (see {@link AnalyzerDefinition}).
+ *
+ * Neo4j creates one provider per class registered with the ServiceLoader, and a provider
+ * is named when it is created, so the plugin registers a fixed number of providers that
+ * take the names of the custom analyzers in the order they are listed in the file. The
+ * providers without a custom analyzer are registered as "japanese-custom-N"; they have
+ * no stop words, and creating an index with one of them fails, so that a typo in an
+ * index does not silently get the options of the "japanese" analyzer.
+ */
+public abstract class JapaneseCustomAnalyzerProvider extends ConfiguredAnalyzerProvider {
+
+    JapaneseCustomAnalyzerProvider(int index) {
+        super(AnalyzerDefinition.customName(index));
+    }
+
+    /**
+     * @return The options of the custom analyzer in the analyzers file.
+     * @throws IllegalArgumentException if this provider has no custom analyzer, or the analyzers file is invalid
+     */
+    @Override
+    AnalyzerDefinition definition() {
+        AnalyzerDefinition definition = AnalyzerDefinition.configured().get(getName());
+        if (definition == null) {
+            throw new IllegalArgumentException("No custom analyzer is configured as " + getName()
+                    + "; list the custom analyzers in the analyzers file set by -D" + JapaneseAnalyzerSettings.ANALYZERS);
+        }
+        return definition;
+    }
+
+    @Override
+    public String description() {
+        return isUnused() ? "Unused slot for a custom Japanese analyzer of the analyzers file" : super.description();
+    }
+
+    private boolean isUnused() {
+        try {
+            return !AnalyzerDefinition.configured().containsKey(getName());
+        } catch (RuntimeException e) {
+            // An invalid file is reported by the description
+            return false;
+        }
+    }
+
+    /**
+     * Provider of the first custom analyzer.
+     */
+    public static final class First extends JapaneseCustomAnalyzerProvider {
+        public First() {
+            super(1);
+        }
+    }
+
+    /**
+     * Provider of the second custom analyzer.
+     */
+    public static final class Second extends JapaneseCustomAnalyzerProvider {
+        public Second() {
+            super(2);
+        }
+    }
+
+    /**
+     * Provider of the third custom analyzer.
+     */
+    public static final class Third extends JapaneseCustomAnalyzerProvider {
+        public Third() {
+            super(3);
+        }
+    }
+
+    /**
+     * Provider of the fourth custom analyzer.
+     */
+    public static final class Fourth extends JapaneseCustomAnalyzerProvider {
+        public Fourth() {
+            super(4);
+        }
+    }
+}
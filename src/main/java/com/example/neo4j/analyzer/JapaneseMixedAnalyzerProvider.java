@@ -0,0 +1,58 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.neo4j.graphdb.schema.AnalyzerProvider;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Japanese Analyzer Provider for text that is partly or mostly not Japanese.
+ *
+ * Works like the "japanese" analyzer, but only runs Kuromoji on the parts of the text
+ * that are not plain ASCII; English words, identifiers and numbers are split without
+ * morphological analysis (see {@link ScriptRoutingTokenizer}).
+ */
+public class JapaneseMixedAnalyzerProvider extends AnalyzerProvider {
+
+    /**
+     * Constructor that registers this analyzer with the name "japanese-mixed" and starts
+     * loading the analysis components in the background (see {@link DictionaryWarmup}).
+     */
+    public JapaneseMixedAnalyzerProvider() {
+        super("japanese-mixed");
+        // Neo4j creates the providers at startup, before the first write
+        DictionaryWarmup.start();
+    }
+
+    /**
+     * Creates and returns a Lucene Analyzer instance for mixed Japanese and English text.
+     *
+     * The analyzer pipeline consists of:
+     * 1. ScriptRoutingTokenizer - Letter and digit runs for ASCII text, Kuromoji otherwise
+     * 2. UpperCaseStopFilter - Converts tokens to uppercase and removes Japanese stop words
+     *
+     * @return Configured Analyzer instance for mixed text
+     * @throws UncheckedIOException if the shared analysis components cannot be loaded
+     */
+    @Override
+    public Analyzer createAnalyzer() {
+        return JapaneseAnalysisComponents.shared().newScriptRoutingAnalyzer();
+    }
+
+    /**
+     * @return A description of this analyzer.
+     */
+    @Override
+    public String description() {
+        return "Japanese text analyzer for mixed Japanese and English text, using Kuromoji only for the parts that are not plain ASCII";
+    }
+
+    /**
+     * @return The Japanese stop words removed by this analyzer.
+     */
+    @Override
+    public List<String> stopwords() {
+        return JapaneseAnalysisComponents.shared().stopwords().words();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.neo4j.graphdb.schema.AnalyzerProvider;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Japanese Analyzer Provider for substring search.
+ *
+ * Works like the "japanese" analyzer, but also indexes the bigrams and trigrams of
+ * kanji and kana text, so that a query for a part of a word ({@code "ンピュー"}) finds
+ * the documents containing it by term lookups. Meant for a second fulltext index on the
+ * same properties as a "japanese" index, which keeps serving word queries.
+ */
+public class JapaneseNGramAnalyzerProvider extends AnalyzerProvider {
+
+    /**
+     * Constructor that registers this analyzer with the name "japanese-ngram" and
+     * starts loading the analysis components in the background (see {@link DictionaryWarmup}).
+     */
+    public JapaneseNGramAnalyzerProvider() {
+        super("japanese-ngram");
+        // Neo4j creates the providers at startup, before the first write
+        DictionaryWarmup.start();
+    }
+
+    /**
+     * Creates and returns a Lucene Analyzer instance for substring search in Japanese text.
+     *
+     * The analyzer pipeline consists of:
+     * 1. JapaneseTokenizer - Kuromoji-based morphological analysis
+     * 2. CjkNGramFilter - Adds the bigrams and trigrams of consecutive kanji and kana tokens
+     * 3. UpperCaseStopFilter - Converts tokens to uppercase and removes Japanese stop words
+     *
+     * @return Configured Analyzer instance for substring search in Japanese text
+     * @throws UncheckedIOException if the shared analysis components cannot be loaded
+     */
+    @Override
+    public Analyzer createAnalyzer() {
+        return JapaneseAnalysisComponents.shared().newNGramAnalyzer();
+    }
+
+    /**
+     * @return A description of this analyzer.
+     */
+    @Override
+    public String description() {
+        return "Japanese text analyzer using Kuromoji tokenizer with CJK bigrams and trigrams for substring search, "
+                + "stop words filtering and uppercase normalization";
+    }
+
+    /**
+     * @return The Japanese stop words removed by this analyzer.
+     */
+    @Override
+    public List<String> stopwords() {
+        return JapaneseAnalysisComponents.shared().stopwords().words();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.neo4j.analyzer;
+
+/**
+ * Japanese Analyzer Provider tokenizing in Kuromoji's normal mode.
+ *
+ * Normal mode does not split compound words, so it produces fewer tokens and is faster
+ * than search mode; it suits short values such as names and titles. Its options can be
+ * changed in the analyzers file (see {@link AnalyzerDefinition}).
+ */
+public class JapaneseNormalAnalyzerProvider extends ConfiguredAnalyzerProvider {
+
+    /**
+     * Constructor that registers this analyzer with the name "japanese-normal".
+     */
+    public JapaneseNormalAnalyzerProvider() {
+        super(AnalyzerDefinition.NORMAL);
+    }
+}
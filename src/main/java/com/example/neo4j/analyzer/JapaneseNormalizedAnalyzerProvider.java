@@ -0,0 +1,63 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.neo4j.graphdb.schema.AnalyzerProvider;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Japanese Analyzer Provider that indexes the dictionary form of words.
+ *
+ * Works like the "japanese" analyzer, but reduces inflected words to their base form,
+ * stems katakana words and removes particles and other function words by their part
+ * of speech, so that fewer distinct terms are indexed and a query for one form of a
+ * word finds all of them.
+ */
+public class JapaneseNormalizedAnalyzerProvider extends AnalyzerProvider {
+
+    /**
+     * Constructor that registers this analyzer with the name "japanese-normalized" and
+     * starts loading the analysis components in the background (see {@link DictionaryWarmup}).
+     */
+    public JapaneseNormalizedAnalyzerProvider() {
+        super("japanese-normalized");
+        // Neo4j creates the providers at startup, before the first write
+        DictionaryWarmup.start();
+    }
+
+    /**
+     * Creates and returns a Lucene Analyzer instance for normalized Japanese text.
+     *
+     * The analyzer pipeline consists of:
+     * 1. JapaneseTokenizer - Kuromoji-based morphological analysis
+     * 2. JapaneseBaseFormFilter - Replaces inflected words by their base form
+     * 3. JapanesePartOfSpeechStopFilter - Removes particles, auxiliary verbs and symbols
+     * 4. JapaneseKatakanaStemFilter - Removes the trailing long vowel mark of katakana words
+     * 5. UpperCaseStopFilter - Converts tokens to uppercase and removes Japanese stop words
+     *
+     * @return Configured Analyzer instance for normalized Japanese text
+     * @throws UncheckedIOException if the shared analysis components cannot be loaded
+     */
+    @Override
+    public Analyzer createAnalyzer() {
+        return JapaneseAnalysisComponents.shared().newNormalizedAnalyzer();
+    }
+
+    /**
+     * @return A description of this analyzer.
+     */
+    @Override
+    public String description() {
+        return "Japanese text analyzer using Kuromoji tokenizer with base form reduction, katakana stemming, "
+                + "part-of-speech and stop words filtering and uppercase normalization";
+    }
+
+    /**
+     * @return The Japanese stop words removed by this analyzer.
+     */
+    @Override
+    public List<String> stopwords() {
+        return JapaneseAnalysisComponents.shared().stopwords().words();
+    }
+}
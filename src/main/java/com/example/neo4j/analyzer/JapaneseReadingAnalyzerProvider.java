@@ -0,0 +1,62 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.neo4j.graphdb.schema.AnalyzerProvider;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Japanese Analyzer Provider for phonetic search.
+ *
+ * Works like the "japanese" analyzer, but also indexes the readings of words in
+ * katakana, so that a query in kana ({@code "やまだたろう"}) finds the documents
+ * containing the word in kanji (山田太郎) by term lookups, without a fuzzy query over
+ * every spelling. With {@code japanese.analyzer.reading.romaji=true} the readings are
+ * indexed in romaji as well ({@code "yamadataro"}).
+ */
+public class JapaneseReadingAnalyzerProvider extends AnalyzerProvider {
+
+    /**
+     * Constructor that registers this analyzer with the name "japanese-reading" and
+     * starts loading the analysis components in the background (see {@link DictionaryWarmup}).
+     */
+    public JapaneseReadingAnalyzerProvider() {
+        super("japanese-reading");
+        // Neo4j creates the providers at startup, before the first write
+        DictionaryWarmup.start();
+    }
+
+    /**
+     * Creates and returns a Lucene Analyzer instance for phonetic search in Japanese text.
+     *
+     * The analyzer pipeline consists of:
+     * 1. JapaneseTokenizer - Kuromoji-based morphological analysis
+     * 2. ReadingFormFilter - Adds the katakana readings of the tokens, and the joined readings of kana runs and names
+     * 3. UpperCaseStopFilter - Converts tokens to uppercase and removes Japanese stop words
+     *
+     * @return Configured Analyzer instance for phonetic search in Japanese text
+     * @throws UncheckedIOException if the shared analysis components cannot be loaded
+     */
+    @Override
+    public Analyzer createAnalyzer() {
+        return JapaneseAnalysisComponents.shared().newReadingAnalyzer();
+    }
+
+    /**
+     * @return A description of this analyzer.
+     */
+    @Override
+    public String description() {
+        return "Japanese text analyzer using Kuromoji tokenizer with katakana readings for phonetic search, "
+                + "stop words filtering and uppercase normalization";
+    }
+
+    /**
+     * @return The Japanese stop words removed by this analyzer.
+     */
+    @Override
+    public List<String> stopwords() {
+        return JapaneseAnalysisComponents.shared().stopwords().words();
+    }
+}
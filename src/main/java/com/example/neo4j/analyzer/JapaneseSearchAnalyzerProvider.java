@@ -0,0 +1,19 @@
+package com.example.neo4j.analyzer;
+
+/**
+ * Japanese Analyzer Provider tokenizing in Kuromoji's search mode, keeping compound words.
+ *
+ * Search mode splits compound words into their parts; this analyzer also keeps the
+ * compound word itself at the same position, so that articles are found both by the
+ * compound (関西国際空港) and by its parts (空港). Its options can be changed in the
+ * analyzers file (see {@link AnalyzerDefinition}).
+ */
+public class JapaneseSearchAnalyzerProvider extends ConfiguredAnalyzerProvider {
+
+    /**
+     * Constructor that registers this analyzer with the name "japanese-search".
+     */
+    public JapaneseSearchAnalyzerProvider() {
+        super(AnalyzerDefinition.SEARCH);
+    }
+}
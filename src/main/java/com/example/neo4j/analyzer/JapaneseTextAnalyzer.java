@@ -0,0 +1,138 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.UpperCaseFilter;
+import org.apache.lucene.util.AttributeFactory;
+
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Analyzer for Japanese text built on the shared {@link JapaneseAnalysisComponents}.
+ *
+ * Produces the same token stream as the former CustomAnalyzer chain
+ * (JapaneseTokenizer, UpperCaseFilter, StopFilter), but does not own any factories or
+ * word sets of its own, and upper-cases and removes stop words in a single filter.
+ * Variants may normalize the tokens before the stop words are removed, use other stop
+ * words and keep the case of the terms.
+ */
+final class JapaneseTextAnalyzer extends Analyzer {
+
+    private final JapaneseAnalysisComponents components;
+    private final String name;
+    private final Function<AttributeFactory, Tokenizer> tokenizers;
+    private final UnaryOperator<TokenStream> normalization;
+    private final CompiledStopwordSet stopwords;
+    private final boolean upperCase;
+
+    /**
+     * @param components Shared analysis components
+     * @param name Name of the analyzer; analyzers with the same name share cached tokens
+     * @param tokenizers Creates the tokenizer of each token stream chain
+     */
+    JapaneseTextAnalyzer(JapaneseAnalysisComponents components, String name,
+                         Function<AttributeFactory, Tokenizer> tokenizers) {
+        this(components, name, tokenizers, UnaryOperator.identity());
+    }
+
+    /**
+     * @param components Shared analysis components
+     * @param name Name of the analyzer; analyzers with the same name share cached tokens
+     * @param tokenizers Creates the tokenizer of each token stream chain
+     * @param normalization Adds the filters applied to the tokens before stop words are removed
+     */
+    JapaneseTextAnalyzer(JapaneseAnalysisComponents components, String name,
+                         Function<AttributeFactory, Tokenizer> tokenizers, UnaryOperator<TokenStream> normalization) {
+        this(components, name, tokenizers, normalization, components.stopwords(), true);
+    }
+
+    /**
+     * @param components Shared analysis components
+     * @param name Name of the analyzer; analyzers with the same name share cached tokens
+     * @param tokenizers Creates the tokenizer of each token stream chain
+     * @param normalization Adds the filters applied to the tokens before stop words are removed
+     * @param stopwords Stop words to remove
+     * @param upperCase Whether terms are upper-cased
+     */
+    JapaneseTextAnalyzer(JapaneseAnalysisComponents components, String name,
+                         Function<AttributeFactory, Tokenizer> tokenizers, UnaryOperator<TokenStream> normalization,
+                         CompiledStopwordSet stopwords, boolean upperCase) {
+        super(components.reuseStrategy(name));
+        this.components = components;
+        this.name = name;
+        this.tokenizers = tokenizers;
+        this.normalization = normalization;
+        this.stopwords = stopwords;
+        this.upperCase = upperCase;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        // Cached tokens and pooled chains are kept per user dictionary generation. It is
+        // read before the tokenizer picks its dictionary, so the tokenizer's is never older.
+        long generation = components.userDictionaryGeneration();
+        String chainName = components.userDictionary().isPresent() ? name + "@" + generation : name;
+        TokenStreamComponents chain = createComponents(fieldName, UnaryOperator.identity());
+        UpperCaseStopFilter stopFilter = (UpperCaseStopFilter) chain.getTokenStream();
+        // Short values may be served from the token stream cache
+        TokenStreamComponents cached = components.tokenStreamCache()
+                .map(cache -> cache.wrap(chainName, chain, stopFilter::removedTokens))
+                .orElse(chain);
+        // Cache hits are measured as well, with the stop words removed when they were cached
+        LongSupplier removedTokens = cached.getTokenStream() instanceof CachingTokenStream caching
+                ? caching::removedTokens
+                : stopFilter::removedTokens;
+        TokenStreamComponents measured = components.metrics(name)
+                .map(metrics -> new TokenStreamComponents(cached.getSource(),
+                        new MetricsTokenFilter(cached.getTokenStream(), metrics, removedTokens)))
+                .orElse(cached);
+        // Pooled chains go back to the pool when their stream is closed
+        return components.pool(name)
+                .map(pool -> pool.wrap(generation, measured))
+                .orElse(measured);
+    }
+
+    /**
+     * Creates the token stream chain of this analyzer, without the token stream cache and
+     * the metrics. The output of each stage (the tokenizer, the normalization if there is
+     * one, and the stop filter) is passed through {@code stage}, so that
+     * {@link AnalysisExplainer} can observe it.
+     *
+     * @param fieldName Name of the field being analyzed
+     * @param stage Wraps the output of a stage, or returns it as it is
+     * @return The tokenizer and the last stage
+     */
+    TokenStreamComponents createComponents(String fieldName, UnaryOperator<TokenStream> stage) {
+        Tokenizer tokenizer = tokenizers.apply(attributeFactory(fieldName));
+        TokenStream tokens = stage.apply(tokenizer);
+        TokenStream normalized = normalization.apply(tokens);
+        if (normalized != tokens) {
+            normalized = stage.apply(normalized);
+        }
+        return new TokenStreamComponents(tokenizer,
+                stage.apply(new UpperCaseStopFilter(normalized, stopwords, upperCase)));
+    }
+
+    /**
+     * @return The stop words removed by this analyzer.
+     */
+    CompiledStopwordSet stopwords() {
+        return stopwords;
+    }
+
+    /**
+     * @return Whether this analyzer upper-cases its terms.
+     */
+    boolean upperCase() {
+        return upperCase;
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        // Only uppercasing applies to multi-term queries (wildcard, prefix, ...)
+        return upperCase ? new UpperCaseFilter(in) : in;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.TokenizerFactory;
+import org.apache.lucene.analysis.ja.JapaneseTokenizer;
+import org.apache.lucene.analysis.ja.dict.ConnectionCosts;
+import org.apache.lucene.analysis.ja.dict.TokenInfoDictionary;
+import org.apache.lucene.analysis.ja.dict.UnknownDictionary;
+import org.apache.lucene.util.AttributeFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Creates Kuromoji tokenizers that all share one copy of the system dictionaries.
+ *
+ * The system dictionary, the unknown word dictionary and the connection cost matrix are
+ * resolved once, when the factory is created, and handed to every tokenizer, so they are
+ * resident exactly once per JVM no matter how many databases, fulltext indexes and
+ * threads use the analyzers. Lucene keeps the bulk of them (the word entries and the
+ * connection costs, about 8 MB) in direct buffers outside the heap; only the FST and the
+ * target map, about 5 MB, are on the heap.
+ *
+ * Tokenizers are configured like {@code JapaneseTokenizerFactory} with its defaults:
+ * search mode, punctuation and compound tokens discarded; factories with other options
+ * over the same dictionaries are created by {@link #withOptions}. Each tokenizer uses the
+ * user dictionary current when it is created, if one is configured.
+ */
+final class KuromojiTokenizerFactory extends TokenizerFactory {
+
+    private final TokenInfoDictionary systemDictionary;
+    private final UnknownDictionary unknownDictionary;
+    private final ConnectionCosts connectionCosts;
+    private final ReloadableUserDictionary userDictionary;
+    private final JapaneseTokenizer.Mode mode;
+    private final boolean discardPunctuation;
+    private final boolean discardCompoundToken;
+
+    /**
+     * @param args Factory arguments; only the Lucene match version is supported
+     * @param userDictionary User dictionary, or null for none
+     * @throws IllegalArgumentException if there are other arguments
+     */
+    KuromojiTokenizerFactory(Map<String, String> args, ReloadableUserDictionary userDictionary) {
+        super(args);
+        if (!args.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameters: " + args);
+        }
+        this.systemDictionary = TokenInfoDictionary.getInstance();
+        this.unknownDictionary = UnknownDictionary.getInstance();
+        this.connectionCosts = ConnectionCosts.getInstance();
+        this.userDictionary = userDictionary;
+        this.mode = JapaneseTokenizer.DEFAULT_MODE;
+        this.discardPunctuation = true;
+        this.discardCompoundToken = true;
+    }
+
+    private KuromojiTokenizerFactory(KuromojiTokenizerFactory shared, JapaneseTokenizer.Mode mode,
+                                     boolean discardPunctuation, boolean discardCompoundToken) {
+        super(new HashMap<>());
+        this.systemDictionary = shared.systemDictionary;
+        this.unknownDictionary = shared.unknownDictionary;
+        this.connectionCosts = shared.connectionCosts;
+        this.userDictionary = shared.userDictionary;
+        this.mode = mode;
+        this.discardPunctuation = discardPunctuation;
+        this.discardCompoundToken = discardCompoundToken;
+    }
+
+    @Override
+    public JapaneseTokenizer create(AttributeFactory factory) {
+        return new JapaneseTokenizer(factory, systemDictionary, unknownDictionary, connectionCosts,
+                userDictionary == null ? null : userDictionary.current(), discardPunctuation, discardCompoundToken,
+                mode);
+    }
+
+    /**
+     * Returns a factory sharing this factory's dictionaries, with other tokenizer options.
+     *
+     * @param mode Tokenization mode
+     * @param discardPunctuation Whether punctuation tokens are dropped
+     * @param discardCompoundToken Whether search mode drops a compound token it splits into parts
+     * @return Factory of tokenizers with the given options
+     */
+    KuromojiTokenizerFactory withOptions(JapaneseTokenizer.Mode mode, boolean discardPunctuation,
+                                         boolean discardCompoundToken) {
+        if (mode == this.mode && discardPunctuation == this.discardPunctuation
+                && discardCompoundToken == this.discardCompoundToken) {
+            return this;
+        }
+        return new KuromojiTokenizerFactory(this, mode, discardPunctuation, discardCompoundToken);
+    }
+
+    /**
+     * @return The user dictionary, if one is configured.
+     */
+    Optional<ReloadableUserDictionary> userDictionary() {
+        return Optional.ofNullable(userDictionary);
+    }
+
+    TokenInfoDictionary systemDictionary() {
+        return systemDictionary;
+    }
+
+    ConnectionCosts connectionCosts() {
+        return connectionCosts;
+    }
+}
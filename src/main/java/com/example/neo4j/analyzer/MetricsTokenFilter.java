@@ -0,0 +1,65 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Last stage of an instrumented analyzer chain: counts the tokens of each document and
+ * records the document into its chain's {@link AnalyzerMetrics.Recorder} when the stream ends.
+ *
+ * The latency of a timed document is the time from {@code reset()} to {@code end()},
+ * which includes the consumer's work between tokens. The number of characters is the
+ * final offset. Documents whose stream is closed without being ended are not recorded.
+ */
+final class MetricsTokenFilter extends TokenFilter {
+
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final AnalyzerMetrics.Recorder recorder;
+    private final LongSupplier removedTokens;
+
+    private boolean timed;
+    private long start;
+    private long stoppedAtStart;
+    private int tokens;
+
+    /**
+     * @param input Token stream to measure
+     * @param metrics Metrics to record into
+     * @param removedTokens Number of stop words removed by the chain so far, including
+     *                      those of values replayed from the token stream cache
+     */
+    MetricsTokenFilter(TokenStream input, AnalyzerMetrics metrics, LongSupplier removedTokens) {
+        super(input);
+        this.recorder = metrics.newRecorder(this);
+        this.removedTokens = removedTokens;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (input.incrementToken()) {
+            tokens++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        tokens = 0;
+        stoppedAtStart = removedTokens.getAsLong();
+        timed = recorder.timeNext();
+        start = timed ? System.nanoTime() : 0;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        recorder.record(offsetAtt.endOffset(), tokens, removedTokens.getAsLong() - stoppedAtStart,
+                timed ? System.nanoTime() - start : -1);
+    }
+}
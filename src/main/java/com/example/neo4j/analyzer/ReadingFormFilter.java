@@ -0,0 +1,328 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ja.tokenattributes.PartOfSpeechAttribute;
+import org.apache.lucene.analysis.ja.tokenattributes.ReadingAttribute;
+import org.apache.lucene.analysis.ja.util.ToStringUtil;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds the readings of Kuromoji tokens, in katakana, to the tokens, so that a word
+ * written in kanji (東京) is also found by its reading in hiragana or katakana
+ * (とうきょう, トウキョウ) with a term lookup.
+ *
+ * Every token is kept as it is, with its reading stacked on the same position, unless
+ * it is a stop word or its reading is the token itself; the reading of kana is the kana
+ * in katakana. Kuromoji splits a word written in kana alone at arbitrary places (たなか
+ * becomes た and なか), so a run of consecutive kana tokens also gets its joined reading
+ * (タナカ), spanning all of their positions, and so do consecutive personal names (山田太郎,
+ * ヤマダタロウ): a name or word typed in kana matches the single reading indexed for its
+ * kanji, whatever Kuromoji makes of it. Kana runs are joined up to
+ * {@link #MAX_RUN_LENGTH} characters, names up to {@link #MAX_NAME_TOKENS} tokens, and
+ * both end before an honorific (やまだたろうさん is joined up to ヤマダタロウ), which starts
+ * no run either (the さん of 山田太郎さんは is not joined to は). A run of
+ * stop words alone (これは) has no joined reading.
+ *
+ * With romanization, the Hepburn spelling of every reading, without long vowels (tokyo
+ * for トウキョウ, taro for タロウ), is stacked as well: the reading rather than the
+ * pronunciation, since the reading is all there is for kana. Readings and romanizations
+ * have the type {@link #READING_TYPE} and are keywords, so the stop filter keeps them.
+ * Must come first, since it needs the attributes of the Kuromoji tokenizer.
+ */
+final class ReadingFormFilter extends TokenFilter {
+
+    /**
+     * Token type of the readings.
+     */
+    static final String READING_TYPE = "<READING>";
+
+    /**
+     * Longest run of kana, in characters, whose readings are joined.
+     */
+    static final int MAX_RUN_LENGTH = 32;
+
+    /**
+     * Largest number of consecutive personal names whose readings are joined.
+     */
+    static final int MAX_NAME_TOKENS = 4;
+
+    /**
+     * Part of speech of honorifics after names (さん, 様), which end a run.
+     */
+    private static final String NAME_SUFFIX = "名詞-接尾-人名";
+
+    private enum Kind { KANA, NAME, OTHER }
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final PositionLengthAttribute posLenAtt = addAttribute(PositionLengthAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+    private final KeywordAttribute keywordAtt = addAttribute(KeywordAttribute.class);
+    private final ReadingAttribute readingAtt = addAttribute(ReadingAttribute.class);
+    private final PartOfSpeechAttribute posAtt = addAttribute(PartOfSpeechAttribute.class);
+
+    private final CompiledStopwordSet stopwords;
+    private final boolean romanize;
+
+    // Tokens of the current run as Kuromoji produced them, and the token read after it
+    private final List<State> run = new ArrayList<>();
+    private State lookahead;
+    private boolean exhausted;
+
+    private final List<Output> outputs = new ArrayList<>();
+    private int nextOutput;
+
+    /**
+     * @param input Kuromoji token stream, before any filter changes the terms
+     * @param stopwords Stop words of the analyzer, whose readings are not added
+     * @param romanize Whether the Hepburn spelling of the readings is added as well
+     */
+    ReadingFormFilter(TokenStream input, CompiledStopwordSet stopwords, boolean romanize) {
+        super(input);
+        this.stopwords = stopwords;
+        this.romanize = romanize;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (nextOutput == outputs.size()) {
+            outputs.clear();
+            nextOutput = 0;
+            if (!readRun()) {
+                return false;
+            }
+        }
+        emit(outputs.get(nextOutput++));
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        run.clear();
+        lookahead = null;
+        exhausted = false;
+        outputs.clear();
+        nextOutput = 0;
+    }
+
+    /**
+     * Reads the next token, and the tokens that continue its run of kana or of personal
+     * names, and plans the tokens emitted for them.
+     */
+    private boolean readRun() throws IOException {
+        run.clear();
+        if (!next()) {
+            return false;
+        }
+        Kind kind = kind();
+        int length = termAtt.length();
+        int end = offsetAtt.endOffset();
+        run.add(captureState());
+        while (kind != Kind.OTHER && next()) {
+            boolean continues = offsetAtt.startOffset() == end && posIncAtt.getPositionIncrement() == 1
+                    && (kind == Kind.KANA
+                        ? isKana() && length + termAtt.length() <= MAX_RUN_LENGTH && !isNameSuffix()
+                        : isPersonalName() && run.size() < MAX_NAME_TOKENS);
+            if (!continues) {
+                lookahead = captureState();
+                break;
+            }
+            length += termAtt.length();
+            end = offsetAtt.endOffset();
+            run.add(captureState());
+        }
+
+        plan(run.size() > 1);
+        return true;
+    }
+
+    private boolean next() throws IOException {
+        if (lookahead != null) {
+            restoreState(lookahead);
+            lookahead = null;
+            return true;
+        }
+        if (exhausted || !input.incrementToken()) {
+            exhausted = true;
+            return false;
+        }
+        return true;
+    }
+
+    private Kind kind() {
+        // An honorific ends a run, so it does not start one either
+        if (isKana() && !isNameSuffix()) {
+            return Kind.KANA;
+        }
+        return isPersonalName() ? Kind.NAME : Kind.OTHER;
+    }
+
+    private void plan(boolean join) {
+        String joined = null;
+        int runStart = 0;
+        int runEnd = 0;
+        int runLength = 0;
+        if (join) {
+            StringBuilder readings = new StringBuilder();
+            // Kuromoji splits kana words at stop words too (たなか into た and なか), so
+            // only a run made of nothing but stop words (これは) has no joined reading
+            boolean stopwordsOnly = true;
+            for (State token : run) {
+                restoreState(token);
+                String reading = reading();
+                if (reading == null) {
+                    join = false;
+                    break;
+                }
+                stopwordsOnly &= isStopword();
+                readings.append(reading);
+                runEnd = offsetAtt.endOffset();
+                // The tokens of a run follow each other, but the last may span several positions
+                runLength = run.size() - 1 + posLenAtt.getPositionLength();
+            }
+            join &= !stopwordsOnly;
+            restoreState(run.get(0));
+            runStart = offsetAtt.startOffset();
+            joined = readings.toString();
+        }
+
+        for (int i = 0; i < run.size(); i++) {
+            restoreState(run.get(i));
+            int start = offsetAtt.startOffset();
+            int end = offsetAtt.endOffset();
+            outputs.add(new Output(i, null, start, end, posIncAtt.getPositionIncrement(), posLenAtt.getPositionLength()));
+            String reading = reading();
+            if (reading != null && !isStopword()) {
+                if (!reading.contentEquals(termAtt)) {
+                    outputs.add(new Output(i, reading, start, end, 0, 1));
+                }
+                if (romanize) {
+                    outputs.add(new Output(i, romanization(reading), start, end, 0, 1));
+                }
+            }
+            if (i == 0 && join) {
+                outputs.add(new Output(0, joined, runStart, runEnd, 0, runLength));
+                if (romanize) {
+                    outputs.add(new Output(0, romanization(joined), runStart, runEnd, 0, runLength));
+                }
+            }
+        }
+    }
+
+    private void emit(Output output) {
+        restoreState(run.get(output.token));
+        if (output.term == null) {
+            return;
+        }
+        termAtt.setEmpty().append(output.term);
+        offsetAtt.setOffset(output.startOffset, output.endOffset);
+        posIncAtt.setPositionIncrement(output.positionIncrement);
+        posLenAtt.setPositionLength(output.positionLength);
+        typeAtt.setType(READING_TYPE);
+        keywordAtt.setKeyword(true);
+    }
+
+    /**
+     * @return The reading of the current token in katakana, or null if it has none (e.g. a Latin word
+     * or a katakana word missing from the dictionary).
+     */
+    private String reading() {
+        if (isKana()) {
+            StringBuilder katakana = new StringBuilder(termAtt.length());
+            appendKatakana(katakana, termAtt);
+            return katakana.toString();
+        }
+        return readingAtt.getReading();
+    }
+
+    /**
+     * @return Whether the current token is made of hiragana and katakana only.
+     */
+    private boolean isKana() {
+        int length = termAtt.length();
+        if (length == 0) {
+            return false;
+        }
+        char[] term = termAtt.buffer();
+        for (int i = 0; i < length; i++) {
+            char c = term[i];
+            if (c < 0x3041 || c > 0x30FF || c == 0x30FB || (c > 0x309F && c < 0x30A1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether the current token is a personal name, by the IPADIC part of speech
+     * or a user dictionary part of speech naming one (e.g. カスタム人名).
+     */
+    private boolean isPersonalName() {
+        String partOfSpeech = posAtt.getPartOfSpeech();
+        return partOfSpeech != null && partOfSpeech.contains("人名") && !partOfSpeech.startsWith(NAME_SUFFIX);
+    }
+
+    private boolean isStopword() {
+        return stopwords.contains(termAtt.buffer(), 0, termAtt.length());
+    }
+
+    private boolean isNameSuffix() {
+        String partOfSpeech = posAtt.getPartOfSpeech();
+        return partOfSpeech != null && partOfSpeech.startsWith(NAME_SUFFIX);
+    }
+
+    /**
+     * Appends kana in katakana: hiragana, including the iteration marks, is shifted to the katakana block.
+     */
+    static void appendKatakana(StringBuilder katakana, CharSequence kana) {
+        for (int i = 0; i < kana.length(); i++) {
+            char c = kana.charAt(i);
+            if ((c >= 0x3041 && c <= 0x3096) || c == 0x309D || c == 0x309E) {
+                c += 0x60;
+            }
+            katakana.append(c);
+        }
+    }
+
+    /**
+     * @return The Hepburn spelling of katakana, whose long vowels (ō for ou and oo) lose their macrons.
+     */
+    static String romanization(String katakana) {
+        String romanization = ToStringUtil.getRomanization(katakana);
+        StringBuilder folded = new StringBuilder(romanization.length());
+        for (int i = 0; i < romanization.length(); i++) {
+            char c = romanization.charAt(i);
+            switch (c) {
+                case 'ā' -> folded.append('a');
+                case 'ī' -> folded.append('i');
+                case 'ū' -> folded.append('u');
+                case 'ē' -> folded.append('e');
+                case 'ō' -> folded.append('o');
+                default -> folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * A token to emit: a token of the run, as it is or with another term.
+     *
+     * @param token Index of the token in the run
+     * @param term Term replacing the token's, or null to emit the token unchanged
+     */
+    private record Output(int token, String term, int startOffset, int endOffset, int positionIncrement,
+                          int positionLength) {
+    }
+}
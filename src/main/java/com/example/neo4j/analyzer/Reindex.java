@@ -0,0 +1,718 @@
+package com.example.neo4j.analyzer;
+
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.IndexSetting;
+import org.neo4j.graphdb.schema.IndexType;
+import org.neo4j.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rewrites the entries of a fulltext index that change with the stop words or the user
+ * dictionary (see {@link ReindexPlan}), in batches, instead of dropping and rebuilding
+ * the index.
+ *
+ * Neo4j only updates a fulltext entry when an indexed property changes, and within one
+ * transaction neither setting a property to its own value nor changing it and setting it
+ * back is a change. Each batch therefore takes two transactions: the first appends
+ * {@link #PADDING} to the indexed string values of its entities, which Neo4j indexes
+ * with the current analyzer like any update, and the second sets the values back. No
+ * analyzer makes a term of the trailing space, so in between the entries already have
+ * the terms of the original values, and the properties are never missing; only the
+ * values read in between end with the space. A value written by someone else in between
+ * is kept. Both transactions are ordinary property updates, which triggers, change data
+ * capture and other indexes on the properties see as well.
+ *
+ * The entities to rewrite are found while the batches are written, so at most one batch
+ * is held in memory. If the plan needs the text of the values, the entities of the index
+ * are read first, label by label (or type by type), in the id order of the scans; then
+ * the index is queried for each term the stop filter now removes. Rewritten entries no
+ * longer have these terms, so each query only finds the entries that are left.
+ *
+ * Progress is kept on a {@link #CHECKPOINT_LABEL} node per index, updated in the same
+ * transactions: the entities of the batch in progress, the position of the scans and
+ * the number of entities rewritten. A reindex that was interrupted, or stopped at its
+ * limit, resumes where it stopped when it is called again with the same changes, and
+ * first removes the padding of a batch that did not finish. The node is deleted once
+ * all entries have been rewritten.
+ */
+final class Reindex {
+
+    /**
+     * Label of the nodes recording the progress of a reindex.
+     */
+    static final String CHECKPOINT_LABEL = "JapaneseReindex";
+
+    /**
+     * Appended to the indexed values between the two transactions of a batch.
+     */
+    static final String PADDING = " ";
+
+    /**
+     * Value of {@code previousStopwords} for the stop words bundled with the plugin.
+     */
+    static final String BUNDLED_STOPWORDS = "bundled";
+
+    private static final int DEFAULT_BATCH_SIZE = 1_000;
+    private static final int MAX_BATCH_SIZE = 100_000;
+    private static final Set<String> OPTIONS = Set.of(
+            "previousStopwords", "previousUserDictionary", "batchSize", "maxEntitiesPerSecond", "limit");
+
+    /**
+     * Indexes being reindexed in this JVM, by database and index name; their checkpoints must not be shared.
+     */
+    private static final Set<String> RUNNING = ConcurrentHashMap.newKeySet();
+
+    private final GraphDatabaseService database;
+    private final Log log;
+    private final String index;
+    private final String running;
+    private final IndexedEntities entities;
+    private final ReindexPlan plan;
+    private final Options options;
+    private final Label checkpointLabel = Label.label(CHECKPOINT_LABEL);
+
+    /**
+     * Options of {@code japanese.reindex}.
+     *
+     * @param previousStopwords Stop words the index was built with, or empty if they did not change
+     * @param previousUserDictionary User dictionary entries the index was built with, or empty if the
+     *                               dictionary did not change
+     * @param batchSize Entities rewritten per batch
+     * @param maxEntitiesPerSecond Upper bound on the entities rewritten per second, or 0 for none
+     * @param limit Entities rewritten before the reindex stops, to be resumed later, or 0 for all
+     */
+    record Options(Optional<CompiledStopwordSet> previousStopwords, Optional<List<String>> previousUserDictionary,
+                   int batchSize, long maxEntitiesPerSecond, long limit) {
+
+        /**
+         * Parses the options map of the procedure:
+         * - previousStopwords: stop word file the index was built with, or "bundled"
+         * - previousUserDictionary: user dictionary file the index was built with, or "" for none
+         * - batchSize: entities per batch (1000)
+         * - maxEntitiesPerSecond: throttle, 0 for none (0)
+         * - limit: entities to rewrite in this call, 0 for all (0)
+         *
+         * @param options Options by name
+         * @return The parsed options
+         * @throws IllegalArgumentException if an option is unknown or invalid, or neither
+         * previous stop words nor a previous user dictionary is given
+         * @throws UncheckedIOException if a previous configuration file cannot be read
+         */
+        static Options parse(Map<String, Object> options) {
+            for (String option : options.keySet()) {
+                if (!OPTIONS.contains(option)) {
+                    throw new IllegalArgumentException("Unknown reindex option '" + option + "', expected one of "
+                            + new TreeSet<>(OPTIONS));
+                }
+            }
+            Optional<CompiledStopwordSet> stopwords = Optional.ofNullable(text(options, "previousStopwords"))
+                    .map(Options::stopwords);
+            Optional<List<String>> userDictionary = Optional.ofNullable(text(options, "previousUserDictionary"))
+                    .map(Options::userDictionary);
+            if (stopwords.isEmpty() && userDictionary.isEmpty()) {
+                throw new IllegalArgumentException("Nothing to diff: set previousStopwords or previousUserDictionary "
+                        + "to the configuration the index was built with");
+            }
+            return new Options(stopwords, userDictionary,
+                    (int) number(options, "batchSize", DEFAULT_BATCH_SIZE, 1, MAX_BATCH_SIZE),
+                    number(options, "maxEntitiesPerSecond", 0, 0, Long.MAX_VALUE),
+                    number(options, "limit", 0, 0, Long.MAX_VALUE));
+        }
+
+        private static CompiledStopwordSet stopwords(String file) {
+            if (file.equals(BUNDLED_STOPWORDS)) {
+                return JapaneseAnalysisComponents.bundledStopwords();
+            }
+            try (InputStream in = Files.newInputStream(Path.of(file))) {
+                return CompiledStopwordSet.compile(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read stop word file " + file, e);
+            }
+        }
+
+        private static List<String> userDictionary(String file) {
+            if (file.isBlank()) {
+                return List.of();
+            }
+            try {
+                return ReloadableUserDictionary.readEntries(Path.of(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read user dictionary " + file, e);
+            }
+        }
+
+        private static String text(Map<String, Object> options, String option) {
+            Object value = options.get(option);
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException(option + " must be a string, got " + value);
+            }
+            return (String) value;
+        }
+
+        private static long number(Map<String, Object> options, String option, long defaultValue, long minimum,
+                                   long maximum) {
+            Object value = options.get(option);
+            if (value == null) {
+                return defaultValue;
+            }
+            if (!(value instanceof Long || value instanceof Integer)) {
+                throw new IllegalArgumentException(option + " must be an integer, got " + value);
+            }
+            long number = ((Number) value).longValue();
+            if (number < minimum || number > maximum) {
+                throw new IllegalArgumentException(option + " must be between " + minimum + " and " + maximum
+                        + ", got " + number);
+            }
+            return number;
+        }
+    }
+
+    /**
+     * Progress after a batch.
+     *
+     * @param index Name of the index
+     * @param batch Number of the batch in this call, from 1; 0 if there was nothing to rewrite
+     * @param entities Entities rewritten so far, including those of interrupted calls
+     * @param scanned Entities read in this call to find those whose values contain a word of the plan
+     * @param elapsedMillis Time since the start of this call
+     * @param done Whether all entries have been rewritten; false if the limit was reached
+     */
+    record Progress(String index, long batch, long entities, long scanned, long elapsedMillis, boolean done) {
+    }
+
+    /**
+     * What a fulltext index indexes.
+     *
+     * @param nodes Whether it indexes nodes, or relationships
+     * @param tokens Labels or relationship types
+     * @param propertyKeys Indexed properties
+     * @param analyzer Name of its analyzer
+     */
+    private record IndexedEntities(boolean nodes, List<String> tokens, List<String> propertyKeys, String analyzer) {
+    }
+
+    /**
+     * An entity to rewrite.
+     *
+     * @param elementId Element id of the entity
+     * @param source Position of the label or type whose scan found it, or the number of
+     *               labels or types if a term query found it
+     * @param id Id of the entity if a scan found it, after which the scan resumes; -1 otherwise
+     */
+    private record Candidate(String elementId, int source, long id) {
+    }
+
+    /**
+     * Progress recorded by an earlier call with the same changes.
+     *
+     * @param source Position of the label or type being scanned, or the number of labels
+     *               or types once the scans are done
+     * @param lastId Id of the last entity of that scan rewritten, or -1 to start with the first
+     * @param processed Entities rewritten
+     */
+    private record Checkpoint(int source, long lastId, long processed) {
+    }
+
+    private Reindex(GraphDatabaseService database, Log log, String index, String running, IndexedEntities entities,
+                    ReindexPlan plan, Options options) {
+        this.database = database;
+        this.log = log;
+        this.index = index;
+        this.running = running;
+        this.entities = entities;
+        this.plan = plan;
+        this.options = options;
+    }
+
+    /**
+     * Starts or resumes rewriting the entries of an index that change with the stop
+     * words or the user dictionary. The user dictionary file is reloaded first, so that
+     * the diff is against the dictionary the analyzers use.
+     *
+     * @param database Database of the index
+     * @param log Log of the progress
+     * @param index Name of a fulltext index with a Japanese analyzer
+     * @param options Previous configuration, batching and throttling
+     * @return Progress after each batch; batches run as the stream is consumed
+     * @throws IllegalArgumentException if there is no such index, or it does not use a Japanese analyzer
+     * @throws IllegalStateException if the index is already being reindexed, or the user dictionary
+     * file cannot be loaded
+     */
+    static Stream<Progress> start(GraphDatabaseService database, Log log, String index, Options options) {
+        IndexedEntities entities = indexedEntities(database, index);
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+        ReindexPlan plan = ReindexPlan.of(entities.analyzer(), components, options.previousStopwords(),
+                options.previousUserDictionary(), currentUserDictionary(components));
+        String running = database.databaseName() + "/" + index;
+        if (!RUNNING.add(running)) {
+            throw new IllegalStateException("Index " + index + " is already being reindexed");
+        }
+        try {
+            return new Reindex(database, log, index, running, entities, plan, options).run()
+                    .onClose(() -> RUNNING.remove(running));
+        } catch (RuntimeException e) {
+            RUNNING.remove(running);
+            throw e;
+        }
+    }
+
+    private Stream<Progress> run() {
+        long start = System.nanoTime();
+        // Removes the padding an interrupted reindex left behind
+        Checkpoint checkpoint = recover();
+        log.info("Reindexing index %s, %s", index, plan);
+        Candidates candidates = new Candidates(checkpoint);
+        Iterator<Progress> batches = new Batches(candidates, checkpoint.processed(), start);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+                .onClose(candidates::close);
+    }
+
+    /**
+     * Rewrites one batch per call of {@link #next()}.
+     */
+    private final class Batches implements Iterator<Progress> {
+
+        private final Candidates candidates;
+        private final long start;
+        private long processed;
+        private long rewritten;
+        private long batch;
+        private boolean finished;
+
+        Batches(Candidates candidates, long processed, long start) {
+            this.candidates = candidates;
+            this.processed = processed;
+            this.start = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !finished;
+        }
+
+        @Override
+        public Progress next() {
+            if (finished) {
+                throw new NoSuchElementException();
+            }
+            long size = options.batchSize();
+            if (options.limit() > 0) {
+                size = Math.min(size, options.limit() - rewritten);
+            }
+            // A batch ends with its scan or query, which moves on once the batch is written
+            List<Candidate> ids = new ArrayList<>();
+            if (candidates.hasNext()) {
+                while (ids.size() < size && candidates.hasNextInSource()) {
+                    ids.add(candidates.next());
+                }
+                rewrite(ids);
+                processed += ids.size();
+                rewritten += ids.size();
+                batch++;
+            }
+
+            boolean done = !candidates.hasNext();
+            finished = done || (options.limit() > 0 && rewritten >= options.limit());
+            if (done) {
+                deleteCheckpoint();
+                log.info("Reindexed %,d entities of index %s", processed, index);
+            } else {
+                log.info("Reindexed %,d entities of index %s so far", processed, index);
+            }
+            if (finished) {
+                candidates.close();
+                RUNNING.remove(running);
+            } else {
+                throttle(rewritten, start);
+            }
+            return new Progress(index, batch, processed, candidates.scanned, elapsedMillis(start), done);
+        }
+    }
+
+    /**
+     * The entities to rewrite: a scan per label or type if the plan needs the text of the
+     * values, then a query per term of the plan. They are read in one transaction that is
+     * kept open while the batches are written.
+     */
+    private final class Candidates implements AutoCloseable {
+
+        private final List<String> terms = List.copyOf(plan.indexTerms());
+        private final int scans = entities.tokens().size();
+        private final int sources = scans + terms.size();
+        private Transaction tx;
+        private ResourceIterator<?> iterator;
+        private Candidate next;
+        private int source;
+        private long lastId;
+        private long scanned;
+
+        Candidates(Checkpoint checkpoint) {
+            boolean scan = plan.allEntities() || !plan.substrings().isEmpty();
+            source = scan ? checkpoint.source() : scans;
+            lastId = checkpoint.lastId();
+        }
+
+        /**
+         * Moves on to the next scan or query while the current one has nothing left.
+         *
+         * @return Whether an entity is left to rewrite
+         */
+        boolean hasNext() {
+            while (!hasNextInSource()) {
+                if (source >= sources) {
+                    return false;
+                }
+                closeIterator();
+                source++;
+                lastId = -1;
+            }
+            return true;
+        }
+
+        /**
+         * @return Whether the current scan or query has another entity to rewrite.
+         */
+        boolean hasNextInSource() {
+            if (next != null) {
+                return true;
+            }
+            if (source >= sources) {
+                return false;
+            }
+            if (iterator == null) {
+                iterator = open();
+            }
+            while (iterator.hasNext()) {
+                Entity entity = (Entity) iterator.next();
+                if (source >= scans) {
+                    next = new Candidate(entity.getElementId(), source, -1);
+                    return true;
+                }
+                scanned++;
+                // Scans return the entities in id order
+                long id = entity.getId();
+                if (id > lastId && !hasEarlierLabel(entity) && changes(entity)) {
+                    next = new Candidate(entity.getElementId(), source, id);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Candidate next() {
+            if (!hasNextInSource()) {
+                throw new NoSuchElementException();
+            }
+            Candidate candidate = next;
+            next = null;
+            return candidate;
+        }
+
+        private ResourceIterator<?> open() {
+            if (tx == null) {
+                tx = database.beginTx();
+            }
+            if (source < scans) {
+                String token = entities.tokens().get(source);
+                return entities.nodes()
+                        ? tx.findNodes(Label.label(token))
+                        : tx.findRelationships(RelationshipType.withName(token));
+            }
+            String query = entities.nodes()
+                    ? "CALL db.index.fulltext.queryNodes($index, $query) YIELD node RETURN node AS entity"
+                    : "CALL db.index.fulltext.queryRelationships($index, $query) YIELD relationship "
+                            + "RETURN relationship AS entity";
+            return tx.execute(query, Map.of("index", index, "query", termQuery(terms.get(source - scans))))
+                    .columnAs("entity");
+        }
+
+        /**
+         * A node with several of the indexed labels is rewritten by the scan of the first.
+         */
+        private boolean hasEarlierLabel(Entity entity) {
+            for (int i = 0; entities.nodes() && i < source; i++) {
+                if (((Node) entity).hasLabel(Label.label(entities.tokens().get(i)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void closeIterator() {
+            next = null;
+            if (iterator != null) {
+                iterator.close();
+                iterator = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            closeIterator();
+            source = sources;
+            if (tx != null) {
+                tx.close();
+                tx = null;
+            }
+        }
+    }
+
+    private boolean changes(Entity entity) {
+        for (String key : entities.propertyKeys()) {
+            Object value = entity.getProperty(key, null);
+            if (plan.allEntities() ? padded(value) != null : plan.matches(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finishes the batch of an interrupted call, and resets the checkpoint if it was
+     * recorded for other changes.
+     */
+    private Checkpoint recover() {
+        try (Transaction tx = database.beginTx()) {
+            Node node = tx.findNode(checkpointLabel, "index", index);
+            if (node == null) {
+                node = tx.createNode(checkpointLabel);
+                node.setProperty("index", index);
+            }
+            String[] pending = (String[]) node.getProperty("pending", new String[0]);
+            if (pending.length > 0) {
+                log.info("Removing the padding of %,d entities of an interrupted reindex of index %s",
+                        pending.length, index);
+                for (String id : pending) {
+                    Entity entity = entity(tx, id);
+                    for (String key : entity == null ? List.<String>of() : entities.propertyKeys()) {
+                        Object value = unpadded(entity.getProperty(key, null));
+                        if (value != null) {
+                            entity.setProperty(key, value);
+                        }
+                    }
+                }
+                node.removeProperty("pending");
+            }
+            Checkpoint checkpoint;
+            if (plan.fingerprint().equals(node.getProperty("fingerprint", null))) {
+                checkpoint = new Checkpoint(((Long) node.getProperty("source", 0L)).intValue(),
+                        (Long) node.getProperty("lastId", -1L), (Long) node.getProperty("processed", 0L));
+            } else {
+                node.setProperty("fingerprint", plan.fingerprint());
+                node.setProperty("processed", 0L);
+                node.removeProperty("source");
+                node.removeProperty("lastId");
+                checkpoint = new Checkpoint(0, -1, 0);
+            }
+            tx.commit();
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Rewrites the entries of a batch: pads the indexed values in one transaction and
+     * sets them back in the next.
+     */
+    private void rewrite(List<Candidate> batch) {
+        String[] ids = batch.stream().map(Candidate::elementId).toArray(String[]::new);
+        Map<String, Map<String, Object>> originals = new LinkedHashMap<>();
+        try (Transaction tx = database.beginTx()) {
+            for (String id : ids) {
+                Entity entity = entity(tx, id);
+                if (entity == null) {
+                    continue;
+                }
+                Map<String, Object> values = new LinkedHashMap<>();
+                for (String key : entities.propertyKeys()) {
+                    Object value = entity.getProperty(key, null);
+                    Object padded = padded(value);
+                    if (padded != null) {
+                        entity.setProperty(key, padded);
+                        values.put(key, value);
+                    }
+                }
+                originals.put(id, values);
+            }
+            tx.findNode(checkpointLabel, "index", index).setProperty("pending", ids);
+            tx.commit();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            for (Map.Entry<String, Map<String, Object>> original : originals.entrySet()) {
+                Entity entity = entity(tx, original.getKey());
+                if (entity == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Object> value : original.getValue().entrySet()) {
+                    // A value written in between was indexed with the current analyzer already
+                    if (Objects.deepEquals(entity.getProperty(value.getKey(), null), padded(value.getValue()))) {
+                        entity.setProperty(value.getKey(), value.getValue());
+                    }
+                }
+            }
+            Candidate last = batch.get(batch.size() - 1);
+            Node checkpoint = tx.findNode(checkpointLabel, "index", index);
+            checkpoint.removeProperty("pending");
+            checkpoint.setProperty("source", (long) Math.min(last.source(), entities.tokens().size()));
+            checkpoint.setProperty("lastId", last.id());
+            checkpoint.setProperty("processed", (Long) checkpoint.getProperty("processed", 0L) + ids.length);
+            tx.commit();
+        }
+    }
+
+    /**
+     * @return The value with {@link #PADDING} appended to the string, or to the last
+     * string of an array, or null if the value has no entry to rewrite.
+     */
+    static Object padded(Object value) {
+        if (value instanceof String text) {
+            return text.isEmpty() ? null : text + PADDING;
+        }
+        if (value instanceof String[] texts && texts.length > 0) {
+            String[] padded = Arrays.copyOf(texts, texts.length);
+            padded[texts.length - 1] += PADDING;
+            return padded;
+        }
+        return null;
+    }
+
+    /**
+     * @return The value without the {@link #PADDING} of {@link #padded(Object)}, or null if it has none.
+     */
+    static Object unpadded(Object value) {
+        if (value instanceof String text && text.endsWith(PADDING)) {
+            return text.substring(0, text.length() - PADDING.length());
+        }
+        if (value instanceof String[] texts && texts.length > 0 && texts[texts.length - 1].endsWith(PADDING)) {
+            String[] unpadded = Arrays.copyOf(texts, texts.length);
+            unpadded[texts.length - 1] = (String) unpadded(texts[texts.length - 1]);
+            return unpadded;
+        }
+        return null;
+    }
+
+    private void deleteCheckpoint() {
+        try (Transaction tx = database.beginTx()) {
+            Node checkpoint = tx.findNode(checkpointLabel, "index", index);
+            if (checkpoint != null) {
+                checkpoint.delete();
+            }
+            tx.commit();
+        }
+    }
+
+    private Entity entity(Transaction tx, String id) {
+        try {
+            return entities.nodes() ? tx.getNodeByElementId(id) : tx.getRelationshipByElementId(id);
+        } catch (NotFoundException e) {
+            // Deleted since it was found
+            return null;
+        }
+    }
+
+    private void throttle(long rewritten, long start) {
+        if (options.maxEntitiesPerSecond() == 0) {
+            return;
+        }
+        long wait = rewritten * 1_000_000_000L / options.maxEntitiesPerSecond() - (System.nanoTime() - start);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Reindex of " + index + " interrupted, call again to resume", e);
+            }
+        }
+    }
+
+    /**
+     * Builds a fulltext query for exactly one term. Regular expressions are not analyzed,
+     * apart from upper-casing, so the query finds a term even if it is a stop word now.
+     */
+    static String termQuery(String term) {
+        StringBuilder query = new StringBuilder("/");
+        term.codePoints().forEach(codePoint -> {
+            if (!Character.isLetterOrDigit(codePoint)) {
+                query.append('\\');
+            }
+            query.appendCodePoint(codePoint);
+        });
+        return query.append('/').toString();
+    }
+
+    private static IndexedEntities indexedEntities(GraphDatabaseService database, String index) {
+        try (Transaction tx = database.beginTx()) {
+            IndexDefinition definition = tx.schema().getIndexByName(index);
+            if (definition.getIndexType() != IndexType.FULLTEXT) {
+                throw new IllegalArgumentException("Index " + index + " is not a fulltext index");
+            }
+            String analyzer = String.valueOf(definition.getIndexConfiguration().get(IndexSetting.fulltext_Analyzer()));
+            if (!JapaneseAnalysisComponents.BUILT_IN_ANALYZERS.contains(analyzer)
+                    && !AnalyzerDefinition.configured().containsKey(analyzer)) {
+                throw new IllegalArgumentException("Index " + index + " uses the analyzer '" + analyzer
+                        + "', not a Japanese analyzer");
+            }
+            List<String> tokens = new ArrayList<>();
+            if (definition.isNodeIndex()) {
+                definition.getLabels().forEach(label -> tokens.add(label.name()));
+            } else {
+                definition.getRelationshipTypes().forEach(type -> tokens.add(type.name()));
+            }
+            List<String> propertyKeys = new ArrayList<>();
+            definition.getPropertyKeys().forEach(propertyKeys::add);
+            return new IndexedEntities(definition.isNodeIndex(), tokens, propertyKeys, analyzer);
+        }
+    }
+
+    private static List<String> currentUserDictionary(JapaneseAnalysisComponents components) {
+        Optional<ReloadableUserDictionary> dictionary = components.userDictionary();
+        if (dictionary.isEmpty()) {
+            return List.of();
+        }
+        ReloadableUserDictionary current = dictionary.get();
+        current.reloadIfChanged();
+        if (current.lastFailure() != null) {
+            throw new IllegalStateException("Failed to load user dictionary " + current.file()
+                    + ", the analyzers still use the previous one", current.lastFailure());
+        }
+        try {
+            return ReloadableUserDictionary.readEntries(current.file());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read user dictionary " + current.file(), e);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.util.CSVUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The entries of a fulltext index that change when the stop words or the user
+ * dictionary of its analyzer change, worked out from the old and the new configuration.
+ *
+ * An entry can only change if its text contains a word whose analysis changed:
+ * - A new stop word removes the terms equal to it, so the entries to rewrite are those
+ *   the existing index finds by that term ({@link #indexTerms()}).
+ * - A stop word that was removed from the list is not in the existing index at all, so
+ *   the entries to rewrite are those whose text contains it ({@link #substrings()}).
+ *   If the analyzer changes the words before removing stop words (base forms,
+ *   synonyms, ...), the text need not contain the stop word, and every entry of the
+ *   index is rewritten instead ({@link #allEntities()}).
+ * - A user dictionary entry only changes the tokenization where its surface form occurs,
+ *   so the entries to rewrite are those whose text contains the surface form of an
+ *   entry that was added, removed or changed.
+ */
+final class ReindexPlan {
+
+    /**
+     * Filters of the configurable analyzers whose terms are still parts of the text.
+     */
+    private static final Set<AnalyzerDefinition.Filter> SURFACE_FILTERS =
+            Set.of(AnalyzerDefinition.Filter.NGRAM, AnalyzerDefinition.Filter.PART_OF_SPEECH_STOP);
+
+    private final SortedSet<String> indexTerms;
+    private final SortedSet<String> substrings;
+    private final boolean allEntities;
+
+    private ReindexPlan(SortedSet<String> indexTerms, SortedSet<String> substrings, boolean allEntities) {
+        this.indexTerms = indexTerms;
+        this.substrings = substrings;
+        this.allEntities = allEntities;
+    }
+
+    /**
+     * Diffs the configuration an index was built with against the current one.
+     *
+     * @param analyzer Name of the analyzer of the index
+     * @param components Current analysis components
+     * @param previousStopwords Stop words the index was built with, or empty if they did not change
+     * @param previousUserDictionary User dictionary entries the index was built with, or empty if
+     *                               the dictionary did not change
+     * @param currentUserDictionary Current user dictionary entries
+     * @return The entries to rewrite
+     * @throws IllegalArgumentException if there is no analyzer with the given name
+     */
+    static ReindexPlan of(String analyzer, JapaneseAnalysisComponents components,
+                          Optional<CompiledStopwordSet> previousStopwords,
+                          Optional<List<String>> previousUserDictionary, List<String> currentUserDictionary) {
+        CompiledStopwordSet currentStopwords = components.stopwords(analyzer);
+        ReindexPlan plan = new ReindexPlan(new TreeSet<>(), new TreeSet<>(), false);
+        if (previousStopwords.isPresent()) {
+            plan = plan.and(stopwordChange(previousStopwords.get(), currentStopwords,
+                    upperCase(analyzer), keepsSurfaceForms(analyzer, components)));
+        }
+        if (previousUserDictionary.isPresent()) {
+            plan = plan.and(userDictionaryChange(previousUserDictionary.get(), currentUserDictionary));
+        }
+        return plan;
+    }
+
+    /**
+     * @param previous Stop words the index was built with
+     * @param current Stop words of the analyzer now
+     * @param upperCase Whether the analyzer upper-cases its terms
+     * @param keepsSurfaceForms Whether the terms are parts of the text, up to case
+     * @return The entries to rewrite for the stop words added and removed
+     */
+    static ReindexPlan stopwordChange(CompiledStopwordSet previous, CompiledStopwordSet current, boolean upperCase,
+                                      boolean keepsSurfaceForms) {
+        SortedSet<String> added = new TreeSet<>(current.words());
+        added.removeAll(previous.words());
+        SortedSet<String> removed = new TreeSet<>(previous.words());
+        removed.removeAll(current.words());
+
+        SortedSet<String> indexTerms = new TreeSet<>();
+        SortedSet<String> substrings = new TreeSet<>();
+        if (upperCase) {
+            // Exactly the terms the stop filter now removes
+            indexTerms.addAll(UpperCaseStopFilter.upperCaseVariants(added));
+        } else {
+            // Terms keep their case, so the index may hold any spelling of the word
+            substrings.addAll(upperCase(added));
+        }
+        substrings.addAll(upperCase(removed));
+        return new ReindexPlan(indexTerms, substrings, !removed.isEmpty() && !keepsSurfaceForms);
+    }
+
+    /**
+     * @param previous User dictionary entries the index was built with
+     * @param current User dictionary entries now
+     * @return The entries to rewrite for the dictionary entries added, removed or changed
+     * @throws IllegalArgumentException if an entry is not valid CSV
+     */
+    static ReindexPlan userDictionaryChange(Collection<String> previous, Collection<String> current) {
+        SortedSet<String> changed = new TreeSet<>(previous);
+        changed.addAll(current);
+        Set<String> unchanged = new TreeSet<>(previous);
+        unchanged.retainAll(current);
+        changed.removeAll(unchanged);
+
+        List<String> surfaces = new ArrayList<>();
+        for (String entry : changed) {
+            String[] values = CSVUtil.parse(entry);
+            if (values.length == 0 || values[0].isEmpty()) {
+                throw new IllegalArgumentException("User dictionary entry without surface form: " + entry);
+            }
+            surfaces.add(values[0]);
+        }
+        return new ReindexPlan(new TreeSet<>(), upperCase(surfaces), false);
+    }
+
+    /**
+     * @return A plan rewriting the entries of both plans.
+     */
+    ReindexPlan and(ReindexPlan other) {
+        SortedSet<String> terms = new TreeSet<>(indexTerms);
+        terms.addAll(other.indexTerms);
+        SortedSet<String> parts = new TreeSet<>(substrings);
+        parts.addAll(other.substrings);
+        return new ReindexPlan(terms, parts, allEntities || other.allEntities);
+    }
+
+    /**
+     * @return The terms whose entries in the existing index are rewritten, as they are indexed.
+     */
+    SortedSet<String> indexTerms() {
+        return indexTerms;
+    }
+
+    /**
+     * @return The upper-cased words whose occurrence in an indexed value rewrites its entry.
+     */
+    SortedSet<String> substrings() {
+        return substrings;
+    }
+
+    /**
+     * @return Whether every entry of the index is rewritten.
+     */
+    boolean allEntities() {
+        return allEntities;
+    }
+
+    /**
+     * @return Whether no entry changes.
+     */
+    boolean isEmpty() {
+        return indexTerms.isEmpty() && substrings.isEmpty() && !allEntities;
+    }
+
+    /**
+     * Checks whether an indexed value contains one of the {@link #substrings()}.
+     *
+     * @param value Property value; strings and string arrays are indexed
+     * @return true if the entry of the value has to be rewritten
+     */
+    boolean matches(Object value) {
+        if (value instanceof String text) {
+            String upperCaseText = text.toUpperCase(Locale.ROOT);
+            for (String substring : substrings) {
+                if (upperCaseText.contains(substring)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof String[] texts) {
+            for (String text : texts) {
+                if (matches(text)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A digest identifying the plan, so that an interrupted reindex is only resumed for the same changes.
+     */
+    String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.join("\n", indexTerms).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.join("\n", substrings).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) (allEntities ? 1 : 0));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (allEntities) {
+            return "all entries";
+        }
+        List<String> parts = new ArrayList<>();
+        if (!indexTerms.isEmpty()) {
+            parts.add("entries with the terms " + indexTerms);
+        }
+        if (!substrings.isEmpty()) {
+            parts.add("entries containing " + substrings);
+        }
+        return parts.isEmpty() ? "no entries" : String.join(" and ", parts);
+    }
+
+    private static boolean upperCase(String analyzer) {
+        return JapaneseAnalysisComponents.BUILT_IN_ANALYZERS.contains(analyzer)
+                || JapaneseAnalysisComponents.definition(analyzer).upperCase();
+    }
+
+    private static boolean keepsSurfaceForms(String analyzer, JapaneseAnalysisComponents components) {
+        switch (analyzer) {
+            case "japanese":
+                return components.synonyms().isEmpty();
+            case "japanese-mixed":
+            case "japanese-ngram":
+            case "japanese-reading":
+                return true;
+            case "japanese-normalized":
+                return false;
+            default:
+                return SURFACE_FILTERS.containsAll(JapaneseAnalysisComponents.definition(analyzer).filters());
+        }
+    }
+
+    private static SortedSet<String> upperCase(Collection<String> words) {
+        SortedSet<String> upperCased = new TreeSet<>();
+        for (String word : words) {
+            upperCased.add(word.toUpperCase(Locale.ROOT));
+        }
+        return upperCased;
+    }
+}
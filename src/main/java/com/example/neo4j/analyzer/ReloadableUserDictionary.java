@@ -0,0 +1,233 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
+import org.apache.lucene.analysis.ja.dict.UserDictionary;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kuromoji user dictionary read from a file outside the plugin jar, reloaded when the
+ * file changes.
+ *
+ * The file uses Kuromoji's CSV format ({@code surface,segmentation,readings,part of speech}).
+ * A reload compiles the new file into Lucene's {@link UserDictionary} (an FST) on the
+ * calling thread and then swaps it in with a single volatile write, so tokenization
+ * never waits for it: a tokenizer keeps the dictionary it was created with, and token
+ * stream chains created before the swap are replaced on their next use (see
+ * {@link #reuseStrategy()}). If the new file cannot be read or parsed, the previous
+ * dictionary stays in use.
+ */
+final class ReloadableUserDictionary {
+
+    private final Path file;
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private final Analyzer.ReuseStrategy reuseStrategy = new GenerationReuseStrategy();
+
+    private volatile Loaded loaded;
+    private volatile Exception lastFailure;
+    private ScheduledExecutorService watcher;
+
+    private ReloadableUserDictionary(Path file, Loaded loaded) {
+        this.file = file;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Loads a user dictionary file.
+     *
+     * @param file User dictionary in Kuromoji's CSV format
+     * @return The loaded dictionary
+     * @throws IOException if the file cannot be read or parsed
+     */
+    static ReloadableUserDictionary open(Path file) throws IOException {
+        return new ReloadableUserDictionary(file, load(file, 1));
+    }
+
+    /**
+     * @return The current dictionary, or null if the file has no entries.
+     */
+    UserDictionary current() {
+        return loaded.dictionary;
+    }
+
+    /**
+     * @return Number of times the dictionary was loaded, starting with 1.
+     */
+    long generation() {
+        return loaded.generation;
+    }
+
+    /**
+     * @return Number of entries of the current dictionary.
+     */
+    int entries() {
+        return loaded.entries;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * @return The error of the last reload, if it failed and the previous dictionary is
+     * still in use, or if a reload listener failed after the new dictionary was swapped in.
+     */
+    Exception lastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Registers an action to run after every reload, e.g. to clear cached tokens. An
+     * exception thrown by the action is recorded as {@link #lastFailure()}; the other
+     * actions still run and the file is still watched.
+     */
+    void onReload(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Loads the file again if its size or modification time changed.
+     *
+     * @return true if a new dictionary was swapped in
+     */
+    synchronized boolean reloadIfChanged() {
+        Loaded previous = loaded;
+        Loaded next;
+        try {
+            if (previous.version.equals(version(file))) {
+                return false;
+            }
+            next = load(file, previous.generation + 1);
+        } catch (IOException | RuntimeException e) {
+            lastFailure = e;
+            return false;
+        }
+        loaded = next;
+        lastFailure = null;
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                // Thrown on the watcher thread, it would cancel all further checks
+                lastFailure = e;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the file for changes at a fixed interval on a daemon thread, until the JVM exits.
+     */
+    synchronized void watch(Duration interval) {
+        if (watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "japanese-analyzer-user-dictionary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking the file for changes.
+     */
+    synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Returns a reuse strategy for analyzers whose tokenizers use this dictionary. Like
+     * Lucene's global reuse strategy it keeps one token stream chain per thread, but
+     * creates a new one once the dictionary has been reloaded.
+     */
+    Analyzer.ReuseStrategy reuseStrategy() {
+        return reuseStrategy;
+    }
+
+    private static Loaded load(Path file, long generation) throws IOException {
+        // Read the version first: a change while reading is picked up by the next check
+        Object version = version(file);
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        try (Reader reader = new StringReader(text)) {
+            return new Loaded(UserDictionary.open(reader), generation, entries(text).size(), version);
+        }
+    }
+
+    /**
+     * Reads the entries of a user dictionary file without compiling them.
+     *
+     * @param file User dictionary in Kuromoji's CSV format
+     * @return The entry lines, stripped, without blank lines and comments
+     * @throws IOException if the file cannot be read
+     */
+    static List<String> readEntries(Path file) throws IOException {
+        return entries(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    private static List<String> entries(String text) {
+        List<String> entries = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            String entry = line.strip();
+            if (!entry.isEmpty() && !entry.startsWith("#")) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static Object version(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return List.of(attributes.lastModifiedTime(), attributes.size(), Objects.toString(attributes.fileKey()));
+    }
+
+    private record Loaded(UserDictionary dictionary, long generation, int entries, Object version) {
+    }
+
+    /**
+     * Token stream chain of a thread and the dictionary generation it was created for.
+     */
+    private record Stamped(long generation, TokenStreamComponents components) {
+    }
+
+    private final class GenerationReuseStrategy extends Analyzer.ReuseStrategy {
+
+        @Override
+        public TokenStreamComponents getReusableComponents(Analyzer analyzer, String fieldName) {
+            long generation = generation();
+            Stamped stamped = (Stamped) getStoredValue(analyzer);
+            if (stamped != null && stamped.generation == generation && stamped.components != null) {
+                return stamped.components;
+            }
+            // The next chain is created with this generation's dictionary, or a newer one
+            setStoredValue(analyzer, new Stamped(generation, null));
+            return null;
+        }
+
+        @Override
+        public void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+            Stamped stamped = (Stamped) getStoredValue(analyzer);
+            setStoredValue(analyzer, new Stamped(stamped.generation, components));
+        }
+    }
+}
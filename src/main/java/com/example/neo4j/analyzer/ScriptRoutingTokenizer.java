@@ -0,0 +1,292 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.TokenizerFactory;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.util.AttributeFactory;
+
+import java.io.IOException;
+
+/**
+ * Tokenizer that runs Kuromoji only on the parts of the input that are not plain ASCII.
+ *
+ * The input is read in windows of bounded length, cut like the segments of
+ * {@link SegmentingTokenizer}, and each window is split into whitespace-separated
+ * chunks. Chunks of ASCII characters alone (English words, identifiers, numbers) are
+ * split without a lattice into runs of ASCII letters and runs of ASCII digits, which
+ * is how Kuromoji splits them as unknown words: {@code Neo4j} becomes NEO, 4 and J.
+ * Consecutive chunks with any other character (kanji, kana, but also full-width
+ * letters or µ, which Kuromoji splits by its own character classes) are tokenized
+ * together by Kuromoji, along with the whitespace around them. Kuromoji keeps a
+ * whitespace run as a single token, which every path through the lattice goes
+ * through, so the text between the whitespace runs is split as with the
+ * {@code japanese} analyzer: スマホ is split the same way after {@code iPhone} and a
+ * space as after the space alone.
+ *
+ * Tokens of the fast path have no Kuromoji attributes (part of speech, reading, base
+ * form); Kuromoji writes its tokens with all of their attributes directly into this
+ * tokenizer's attributes (see {@link SharedAttributeFactory}). Offsets of both refer
+ * to the whole input.
+ */
+final class ScriptRoutingTokenizer extends Tokenizer {
+
+    /**
+     * Window length used unless a maximum segment length is configured.
+     */
+    static final int DEFAULT_WINDOW_LENGTH = 4096;
+
+    private static final int SEPARATOR = 0;
+    private static final int LETTER = 1;
+    private static final int NUMBER = 2;
+
+    private final CharTermAttribute termAtt;
+    private final OffsetAttribute offsetAtt;
+    private final SharedAttributeFactory sharedAttributes;
+    private final Tokenizer japaneseTokenizer;
+    private final SegmentingTokenizer.SegmentReader run = new SegmentingTokenizer.SegmentReader();
+    private final char[] buffer;
+
+    private int bufferLength;
+    private int windowLength;
+    private int windowOffset;
+    private boolean inputExhausted;
+    private boolean clearAllAttributes;
+
+    // Position in the window, end of the fast path chunk being split, start of the Kuromoji run
+    private int next;
+    private int chunkEnd;
+    private int runStart;
+    private boolean runActive;
+
+    /**
+     * @param factory Attribute factory
+     * @param tokenizerFactory Factory of the tokenizer run on Japanese text
+     * @param windowLength Maximum number of characters buffered at once
+     */
+    ScriptRoutingTokenizer(AttributeFactory factory, TokenizerFactory tokenizerFactory, int windowLength) {
+        super(factory);
+        if (windowLength < SegmentingTokenizer.MIN_SEGMENT_LENGTH) {
+            throw new IllegalArgumentException("Window length must be at least "
+                    + SegmentingTokenizer.MIN_SEGMENT_LENGTH + ", got " + windowLength);
+        }
+        this.termAtt = addAttribute(CharTermAttribute.class);
+        this.offsetAtt = addAttribute(OffsetAttribute.class);
+        this.sharedAttributes = new SharedAttributeFactory(this);
+        this.japaneseTokenizer = tokenizerFactory.create(sharedAttributes);
+        this.buffer = new char[windowLength];
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        while (true) {
+            if (runActive) {
+                if (clearAllAttributes) {
+                    clearAttributes();
+                }
+                if (japaneseTokenizer.incrementToken()) {
+                    int base = windowOffset + runStart;
+                    offsetAtt.setOffset(
+                            correctOffset(base + offsetAtt.startOffset()),
+                            correctOffset(base + offsetAtt.endOffset()));
+                    return true;
+                }
+                japaneseTokenizer.end();
+                japaneseTokenizer.close();
+                runActive = false;
+            }
+            if (next < chunkEnd) {
+                if (nextFastToken()) {
+                    return true;
+                }
+                continue;
+            }
+            next = skipWhitespace(next);
+            if (next == windowLength) {
+                if (!nextWindow()) {
+                    return false;
+                }
+                continue;
+            }
+
+            int end = chunkEnd(next);
+            if (isAscii(next, end)) {
+                chunkEnd = end;
+                continue;
+            }
+            // Extend the run over the following chunks that need Kuromoji as well
+            int following = skipWhitespace(end);
+            while (following < windowLength) {
+                int followingEnd = chunkEnd(following);
+                if (isAscii(following, followingEnd)) {
+                    break;
+                }
+                end = followingEnd;
+                following = skipWhitespace(end);
+            }
+            // Kuromoji sees the whitespace on both sides of the run, as in the whole text
+            runStart = next;
+            while (runStart > 0 && isWhitespace(buffer[runStart - 1])) {
+                runStart--;
+            }
+            end = following;
+            next = end;
+            run.set(buffer, runStart, end - runStart);
+            japaneseTokenizer.setReader(run);
+            japaneseTokenizer.reset();
+            runActive = true;
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        int finalOffset = correctOffset(windowOffset + bufferLength);
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        // The wrapped tokenizer clears the shared attributes, but not those only added by later filters
+        clearAllAttributes = !sharedAttributes.coversAllAttributes(japaneseTokenizer);
+        closeRun();
+        bufferLength = 0;
+        windowLength = 0;
+        windowOffset = 0;
+        inputExhausted = false;
+        next = 0;
+        chunkEnd = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeRun();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Emits the next run of letters or digits of the current fast path chunk.
+     *
+     * @return false if the rest of the chunk holds no letters or digits
+     */
+    private boolean nextFastToken() {
+        int start = next;
+        int kind = SEPARATOR;
+        while (start < chunkEnd) {
+            kind = kind(buffer[start]);
+            if (kind != SEPARATOR) {
+                break;
+            }
+            start++;
+        }
+        if (kind == SEPARATOR) {
+            next = chunkEnd;
+            return false;
+        }
+        int end = start;
+        while (end < chunkEnd && kind(buffer[end]) == kind) {
+            end++;
+        }
+        next = end;
+
+        clearAttributes();
+        termAtt.copyBuffer(buffer, start, end - start);
+        offsetAtt.setOffset(correctOffset(windowOffset + start), correctOffset(windowOffset + end));
+        return true;
+    }
+
+    /**
+     * Drops the previous window from the buffer, refills it and picks the next window.
+     *
+     * @return false once the whole input has been consumed
+     */
+    private boolean nextWindow() throws IOException {
+        bufferLength -= windowLength;
+        System.arraycopy(buffer, windowLength, buffer, 0, bufferLength);
+        windowOffset += windowLength;
+        windowLength = 0;
+        next = 0;
+        chunkEnd = 0;
+
+        while (bufferLength < buffer.length && !inputExhausted) {
+            int read = input.read(buffer, bufferLength, buffer.length - bufferLength);
+            if (read == -1) {
+                inputExhausted = true;
+            } else {
+                bufferLength += read;
+            }
+        }
+        if (bufferLength == 0) {
+            return false;
+        }
+        windowLength = inputExhausted ? bufferLength : SegmentingTokenizer.boundary(buffer, bufferLength);
+        return true;
+    }
+
+    private void closeRun() throws IOException {
+        if (runActive) {
+            runActive = false;
+            japaneseTokenizer.close();
+        }
+    }
+
+    private int skipWhitespace(int from) {
+        while (from < windowLength && isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private int chunkEnd(int from) {
+        while (from < windowLength && !isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private boolean isAscii(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    /**
+     * Japanese characters: kanji (including supplementary kanji, via their surrogates),
+     * kana, and the CJK symbols, punctuation and iteration marks.
+     */
+    static boolean isJapanese(char c) {
+        if (c < 0x2E80) {
+            return false;
+        }
+        if (Character.isSurrogate(c)) {
+            // Only supplementary ideographs are likely in Japanese text
+            return true;
+        }
+        if ((c >= 0x3000 && c <= 0x30FF) || (c >= 0xFF61 && c <= 0xFF9F)) {
+            // CJK symbols and punctuation, hiragana, katakana (with ー), half-width katakana
+            return true;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    private static int kind(char c) {
+        if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+            return LETTER;
+        }
+        return c >= '0' && c <= '9' ? NUMBER : SEPARATOR;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.TokenizerFactory;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.util.AttributeFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Tokenizer that feeds its input to another tokenizer in segments of bounded length.
+ *
+ * Kuromoji builds its lattice over every run of text it cannot resolve early, so a
+ * huge value with few sentence breaks (log dumps, scraped pages) makes it buffer and
+ * analyze megabytes at once. This tokenizer reads at most {@code maxSegmentLength}
+ * characters into a fixed buffer, cuts the buffer at the last safe boundary (see
+ * {@link #boundary(char[], int)}) and runs the wrapped tokenizer on that segment only,
+ * so the memory used per document no longer depends on the size of the value.
+ *
+ * The wrapped tokenizer shares the attributes of this tokenizer (see
+ * {@link SharedAttributeFactory}), so its tokens are passed on as they are; only the
+ * offsets are shifted to the position of the segment in the whole input.
+ */
+final class SegmentingTokenizer extends Tokenizer {
+
+    /**
+     * Smallest accepted segment length; shorter segments would cut too many words.
+     */
+    static final int MIN_SEGMENT_LENGTH = 64;
+
+    private final OffsetAttribute offsetAtt;
+    private final SharedAttributeFactory sharedAttributes;
+    private final Tokenizer tokenizer;
+    private final SegmentReader segment = new SegmentReader();
+    private final char[] buffer;
+
+    private int bufferLength;
+    private int segmentLength;
+    private int segmentOffset;
+    private boolean inputExhausted;
+    private boolean clearAllAttributes;
+    private boolean segmentActive;
+
+    /**
+     * @param factory Attribute factory
+     * @param tokenizerFactory Factory of the tokenizer run on each segment
+     * @param maxSegmentLength Maximum number of characters per segment
+     */
+    SegmentingTokenizer(AttributeFactory factory, TokenizerFactory tokenizerFactory, int maxSegmentLength) {
+        super(factory);
+        if (maxSegmentLength < MIN_SEGMENT_LENGTH) {
+            throw new IllegalArgumentException("Segment length must be at least " + MIN_SEGMENT_LENGTH
+                    + ", got " + maxSegmentLength);
+        }
+        this.offsetAtt = addAttribute(OffsetAttribute.class);
+        this.sharedAttributes = new SharedAttributeFactory(this);
+        this.tokenizer = tokenizerFactory.create(sharedAttributes);
+        this.buffer = new char[maxSegmentLength];
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        while (true) {
+            if (segmentActive) {
+                if (clearAllAttributes) {
+                    clearAttributes();
+                }
+                if (tokenizer.incrementToken()) {
+                    offsetAtt.setOffset(
+                            correctOffset(segmentOffset + offsetAtt.startOffset()),
+                            correctOffset(segmentOffset + offsetAtt.endOffset()));
+                    return true;
+                }
+                tokenizer.end();
+                tokenizer.close();
+                segmentActive = false;
+            }
+            if (!nextSegment()) {
+                return false;
+            }
+            segment.set(buffer, 0, segmentLength);
+            tokenizer.setReader(segment);
+            tokenizer.reset();
+            segmentActive = true;
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        int finalOffset = correctOffset(segmentOffset + bufferLength);
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        // The wrapped tokenizer clears the shared attributes, but not those only added by later filters
+        clearAllAttributes = !sharedAttributes.coversAllAttributes(tokenizer);
+        closeSegment();
+        bufferLength = 0;
+        segmentLength = 0;
+        segmentOffset = 0;
+        inputExhausted = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeSegment();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Drops the previous segment from the buffer, refills it and picks the next segment.
+     *
+     * @return false once the whole input has been consumed
+     */
+    private boolean nextSegment() throws IOException {
+        // Keep whatever followed the previous segment at the start of the buffer
+        bufferLength -= segmentLength;
+        System.arraycopy(buffer, segmentLength, buffer, 0, bufferLength);
+        segmentOffset += segmentLength;
+        segmentLength = 0;
+
+        while (bufferLength < buffer.length && !inputExhausted) {
+            int read = input.read(buffer, bufferLength, buffer.length - bufferLength);
+            if (read == -1) {
+                inputExhausted = true;
+            } else {
+                bufferLength += read;
+            }
+        }
+        if (bufferLength == 0) {
+            return false;
+        }
+        segmentLength = inputExhausted ? bufferLength : boundary(buffer, bufferLength);
+        return true;
+    }
+
+    private void closeSegment() throws IOException {
+        if (segmentActive) {
+            segmentActive = false;
+            tokenizer.close();
+        }
+    }
+
+    /**
+     * Finds where to cut a full buffer. In order of preference, the cut is made after
+     * the last sentence punctuation, after the last whitespace, or at the last change of
+     * script in the second half of the buffer; if there is none, the buffer is cut at
+     * its end, but never inside a surrogate pair.
+     *
+     * @param text Buffered text
+     * @param length Number of buffered characters
+     * @return Length of the segment, between 1 and {@code length}
+     */
+    static int boundary(char[] text, int length) {
+        int minimum = length / 2;
+        for (int i = length - 1; i >= minimum; i--) {
+            if (isSentenceEnd(text[i])) {
+                return i + 1;
+            }
+        }
+        for (int i = length - 1; i >= minimum; i--) {
+            if (Character.isWhitespace(text[i]) || Character.isSpaceChar(text[i])) {
+                return i + 1;
+            }
+        }
+        for (int i = length - 1; i > minimum; i--) {
+            if (isScriptChange(text[i - 1], text[i])) {
+                return i;
+            }
+        }
+        return Character.isHighSurrogate(text[length - 1]) ? length - 1 : length;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        switch (c) {
+            case '。':
+            case '．':
+            case '！':
+            case '？':
+            case '!':
+            case '?':
+            case '\n':
+            case '\r':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * A change between two scripts that does not split a word: both characters belong
+     * to a specific script (not punctuation or the prolonged sound mark), and the change
+     * is not from kanji to the hiragana of an inflected ending, as in 食べる.
+     */
+    private static boolean isScriptChange(char previous, char next) {
+        if (Character.isSurrogate(previous) || Character.isSurrogate(next)) {
+            return false;
+        }
+        Character.UnicodeScript before = Character.UnicodeScript.of(previous);
+        Character.UnicodeScript after = Character.UnicodeScript.of(next);
+        return before != after
+                && !isCommon(before) && !isCommon(after)
+                && !(before == Character.UnicodeScript.HAN && after == Character.UnicodeScript.HIRAGANA);
+    }
+
+    private static boolean isCommon(Character.UnicodeScript script) {
+        return script == Character.UnicodeScript.COMMON
+                || script == Character.UnicodeScript.INHERITED
+                || script == Character.UnicodeScript.UNKNOWN;
+    }
+
+    /**
+     * Reader over a range of a buffer owned by a tokenizer, reused for every segment of
+     * every document.
+     */
+    static final class SegmentReader extends Reader {
+
+        private char[] text;
+        private int position;
+        private int end;
+
+        void set(char[] text, int offset, int length) {
+            this.text = text;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if (position == end) {
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            System.arraycopy(text, position, target, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // The buffer belongs to the enclosing tokenizer
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.util.Attribute;
+import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.AttributeSource;
+
+import java.util.Iterator;
+
+/**
+ * Attribute factory that hands out the attributes of an existing attribute source.
+ *
+ * A tokenizer created with this factory inside another tokenizer writes its tokens
+ * straight into the attributes of the outer tokenizer, so the outer tokenizer can pass
+ * them on without copying every attribute of every token.
+ */
+final class SharedAttributeFactory extends AttributeFactory {
+
+    private final AttributeSource source;
+
+    /**
+     * @param source Attribute source whose attributes are shared
+     */
+    SharedAttributeFactory(AttributeSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public AttributeImpl createAttributeInstance(Class<? extends Attribute> attClass) {
+        // AttributeSource always backs its attributes with AttributeImpl instances
+        return (AttributeImpl) source.addAttribute(attClass);
+    }
+
+    /**
+     * Checks whether a tokenizer created with this factory clears every attribute of the
+     * shared source when it clears its own. Filters may add attributes to the source
+     * after the tokenizer was created, which only the source clears.
+     *
+     * @param tokenizer Attribute source created with this factory
+     * @return true if the tokenizer has all attributes of the shared source
+     */
+    boolean coversAllAttributes(AttributeSource tokenizer) {
+        Iterator<Class<? extends Attribute>> attributes = source.getAttributeClassesIterator();
+        while (attributes.hasNext()) {
+            if (!tokenizer.hasAttribute(attributes.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.neo4j.analyzer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Build-time tool that compiles a stop word list into a {@link CompiledStopwordSet}.
+ *
+ * Invoked by the build (process-classes phase) to package
+ * {@value CompiledStopwordSet#COMPILED_RESOURCE} next to {@code japanese-stopwords.txt}:
+ * 
+ * <pre>
+ * StopwordSetCompiler &lt;input stop word file&gt; &lt;output file&gt;
+ * </pre>
+ *
+ * Public only so that the build can run it; it is left out of the plugin jar.
+ */
+public final class StopwordSetCompiler {
+
+    private StopwordSetCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: StopwordSetCompiler <stopwords.txt> <output>");
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+
+        CompiledStopwordSet stopwords;
+        try (InputStream in = Files.newInputStream(input)) {
+            stopwords = CompiledStopwordSet.compile(in);
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(output)) {
+            stopwords.write(out);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.neo4j.analyzer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Tool that compiles a synonym file in the Solr format into a {@link CompiledSynonymMap},
+ * so that the plugin loads the FST instead of parsing and tokenizing the rules at startup:
+ *
+ * <pre>
+ * SynonymMapCompiler &lt;synonym file&gt; &lt;output file&gt; [user dictionary]
+ * </pre>
+ *
+ * The words of the rules are split by the Kuromoji tokenizer; pass the user dictionary
+ * configured in Neo4j, if any, so that they are split as the indexed text is. Run with
+ * {@code java -cp} on the plugin jar; it prints nothing unless it fails.
+ */
+final class SynonymMapCompiler {
+
+    private SynonymMapCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            throw new IllegalArgumentException(
+                    "Usage: SynonymMapCompiler <synonyms.txt> <output> [userdict.csv]");
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        Optional<Path> userDictionary = args.length == 3 ? Optional.of(Path.of(args[2])) : Optional.empty();
+
+        KuromojiTokenizerFactory tokenizers = JapaneseAnalysisComponents.load(Optional.empty(), userDictionary)
+                .tokenizerFactory();
+        CompiledSynonymMap synonyms = CompiledSynonymMap.load(input, tokenizers);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(output)) {
+            synonyms.write(out);
+        }
+    }
+}
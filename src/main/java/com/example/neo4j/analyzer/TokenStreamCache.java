@@ -0,0 +1,201 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, concurrent cache of the complete token sequences of short values.
+ *
+ * Short properties (product names, tags, titles) repeat across many nodes, and every
+ * write and every reindex tokenizes them again. Analyzers whose components are wrapped
+ * with {@link #wrap(String, TokenStreamComponents)} look values of at most
+ * {@code maxValueLength} characters up in this cache and replay the recorded tokens
+ * (see {@link CachingTokenStream}); longer values always go through the analyzer.
+ *
+ * The cache is split into segments, each a {@link LinkedHashMap} in access order
+ * guarded by its own lock, so that concurrent index population threads rarely contend.
+ * Each segment evicts its least recently used entries once the estimated size of its
+ * entries exceeds its share of {@code maxBytes}.
+ */
+final class TokenStreamCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final int maxValueLength;
+    private final long maxBytes;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxValueLength Longest value, in characters, whose tokens are cached
+     * @param maxBytes Upper bound on the estimated size of all cached entries
+     */
+    TokenStreamCache(int maxValueLength, long maxBytes) {
+        if (maxValueLength <= 0) {
+            throw new IllegalArgumentException("Maximum value length must be positive, got " + maxValueLength);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive, got " + maxBytes);
+        }
+        this.maxValueLength = maxValueLength;
+        this.maxBytes = maxBytes;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(Math.max(1, maxBytes / SEGMENT_COUNT));
+        }
+    }
+
+    /**
+     * Wraps the components of an analyzer, so that short values are served from this
+     * cache. The analyzer must not use char filters: the wrapped chain reads the
+     * buffered value, so offsets could not be corrected.
+     *
+     * @param chain Name of the analyzer chain; chains with the same name must produce the same tokens
+     * @param components Components of the analyzer chain
+     * @param removedTokens Number of stop words the chain has removed so far
+     * @return Components whose token stream replays cached tokens when possible
+     */
+    TokenStreamComponents wrap(String chain, TokenStreamComponents components, LongSupplier removedTokens) {
+        CachingTokenStream stream = new CachingTokenStream(this, chain, components, removedTokens);
+        return new TokenStreamComponents(stream::setReader, stream);
+    }
+
+    int maxValueLength() {
+        return maxValueLength;
+    }
+
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return Number of lookups that found the tokens of a value.
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of lookups of short values that had to be tokenized.
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of entries evicted to stay within the size bound.
+     */
+    long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Number of cached values.
+     */
+    long entries() {
+        long entries = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.size();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return Estimated size of all cached entries, in bytes.
+     */
+    long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes all entries; the counters are kept.
+     */
+    void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    CachedTokens get(String chain, String value) {
+        Key key = new Key(chain, value);
+        Segment segment = segment(key);
+        CachedTokens tokens;
+        synchronized (segment) {
+            tokens = segment.get(key);
+        }
+        if (tokens == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return tokens;
+    }
+
+    void put(String chain, String value, CachedTokens tokens) {
+        Key key = new Key(chain, value);
+        long weight = weight(value, tokens);
+        Segment segment = segment(key);
+        synchronized (segment) {
+            if (weight > segment.maxBytes) {
+                return;
+            }
+            CachedTokens previous = segment.put(key, tokens);
+            if (previous != null) {
+                segment.bytes -= weight(value, previous);
+            }
+            segment.bytes += weight;
+            Iterator<Map.Entry<Key, CachedTokens>> eldest = segment.entrySet().iterator();
+            while (segment.bytes > segment.maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, CachedTokens> entry = eldest.next();
+                segment.bytes -= weight(entry.getKey().value, entry.getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private Segment segment(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * Estimated heap size of an entry: the key string, the token arrays and the map node.
+     */
+    private static long weight(String value, CachedTokens tokens) {
+        return 96 + 2L * value.length() + tokens.estimatedBytes();
+    }
+
+    private record Key(String chain, String value) {
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, CachedTokens> {
+
+        final long maxBytes;
+        long bytes;
+
+        Segment(long maxBytes) {
+            super(16, 0.75f, true);
+            this.maxBytes = maxBytes;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded pool of the token stream chains of one analyzer, shared by all threads.
+ *
+ * Lucene's reuse strategies keep one chain per thread and analyzer for as long as the
+ * thread lives, so the chains retained grow with the number of writer threads, and a
+ * virtual thread, which analyzes a few values and ends, gets no reuse at all. Analyzers
+ * using {@link #reuseStrategy()} instead borrow an idle chain from this pool for every
+ * token stream, or create one if none is idle, and the chain goes back to the pool when
+ * its stream is closed. At most {@code maxIdleChains} chains are kept; chains closed while
+ * the pool is full are left to the garbage collector. The chains retained therefore stay
+ * bounded whatever the number of threads; only those in use at the same moment add to them.
+ *
+ * Kuromoji's buffers grow with the values it tokenizes and never shrink, so a chain that
+ * analyzed a value longer than {@code maxRetainedValueLength} characters is not returned
+ * either: the next value gets a new chain with small buffers. Neither is a chain whose
+ * stream was closed without being ended, nor one created with a user dictionary that has
+ * since been reloaded.
+ *
+ * The pool is an array of slots taken and filled with atomic operations, starting at a
+ * random slot so that threads rarely compete for the same one. Nothing blocks, so
+ * borrowing a chain never pins or parks a virtual thread.
+ */
+final class TokenStreamPool {
+
+    private final AtomicReferenceArray<PooledTokenStream> idle;
+    private final int maxRetainedValueLength;
+    private final LongSupplier generation;
+    private final Analyzer.ReuseStrategy reuseStrategy = new PoolReuseStrategy();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder trimmed = new LongAdder();
+
+    /**
+     * @param maxIdleChains Maximum number of chains kept for reuse
+     * @param maxRetainedValueLength Longest value, in characters, after which a chain is kept
+     * @param generation Supplies the current user dictionary generation; chains of other generations are dropped
+     */
+    TokenStreamPool(int maxIdleChains, int maxRetainedValueLength, LongSupplier generation) {
+        if (maxIdleChains <= 0) {
+            throw new IllegalArgumentException("Maximum number of idle chains must be positive, got " + maxIdleChains);
+        }
+        if (maxRetainedValueLength <= 0) {
+            throw new IllegalArgumentException("Maximum retained value length must be positive, got "
+                    + maxRetainedValueLength);
+        }
+        this.idle = new AtomicReferenceArray<>(maxIdleChains);
+        this.maxRetainedValueLength = maxRetainedValueLength;
+        this.generation = generation;
+    }
+
+    /**
+     * @return The reuse strategy of the analyzers drawing their chains from this pool.
+     * Their components must be wrapped with {@link #wrap(long, TokenStreamComponents)}.
+     */
+    Analyzer.ReuseStrategy reuseStrategy() {
+        return reuseStrategy;
+    }
+
+    /**
+     * Wraps the components of a new chain, so that the chain returns to this pool when
+     * its stream is closed.
+     *
+     * @param generation User dictionary generation read before the chain was created
+     * @param components Components of the analyzer chain
+     * @return Components whose token stream returns the chain to this pool on close
+     */
+    TokenStreamComponents wrap(long generation, TokenStreamComponents components) {
+        created.increment();
+        PooledTokenStream stream = new PooledTokenStream(this, generation, components);
+        TokenStreamComponents pooled = new TokenStreamComponents(components.getSource(), stream);
+        stream.pooled = pooled;
+        return pooled;
+    }
+
+    int maxIdleChains() {
+        return idle.length();
+    }
+
+    int maxRetainedValueLength() {
+        return maxRetainedValueLength;
+    }
+
+    /**
+     * @return Number of chains currently kept for reuse.
+     */
+    int idleChains() {
+        int count = 0;
+        for (int i = 0; i < idle.length(); i++) {
+            if (idle.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of chains created.
+     */
+    long created() {
+        return created.sum();
+    }
+
+    /**
+     * @return Number of token streams served by an idle chain.
+     */
+    long reused() {
+        return reused.sum();
+    }
+
+    /**
+     * @return Number of chains dropped after a value longer than the retained length.
+     */
+    long trimmed() {
+        return trimmed.sum();
+    }
+
+    private PooledTokenStream borrow() {
+        long current = generation.getAsLong();
+        int start = ThreadLocalRandom.current().nextInt(idle.length());
+        for (int i = 0; i < idle.length(); i++) {
+            int slot = (start + i) % idle.length();
+            if (idle.get(slot) == null) {
+                continue;
+            }
+            PooledTokenStream stream = idle.getAndSet(slot, null);
+            if (stream != null && stream.generation == current) {
+                reused.increment();
+                stream.borrowed = true;
+                return stream;
+            }
+            // Taken by another thread in the meantime, or created with a previous dictionary
+        }
+        return null;
+    }
+
+    private void release(PooledTokenStream stream) {
+        if (stream.generation != generation.getAsLong()) {
+            return;
+        }
+        int start = ThreadLocalRandom.current().nextInt(idle.length());
+        for (int i = 0; i < idle.length(); i++) {
+            if (idle.compareAndSet((start + i) % idle.length(), null, stream)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands out idle chains of the pool, ignoring Lucene's per-thread storage.
+     */
+    private final class PoolReuseStrategy extends Analyzer.ReuseStrategy {
+
+        @Override
+        public TokenStreamComponents getReusableComponents(Analyzer analyzer, String fieldName) {
+            PooledTokenStream stream = borrow();
+            return stream == null ? null : stream.pooled;
+        }
+
+        @Override
+        public void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+            // New chains are in use until their stream is closed
+        }
+    }
+
+    /**
+     * Last stage of a pooled chain: returns the chain to the pool when the stream is
+     * closed, unless the value was too long or the stream was not ended.
+     */
+    private static final class PooledTokenStream extends TokenFilter {
+
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final TokenStreamPool pool;
+        private final long generation;
+        private TokenStreamComponents pooled;
+        private boolean borrowed = true;
+        private boolean ended;
+
+        PooledTokenStream(TokenStreamPool pool, long generation, TokenStreamComponents components) {
+            super(components.getTokenStream());
+            this.pool = pool;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            return input.incrementToken();
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            ended = false;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            ended = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            // A stream closed twice must not hand its chain out twice
+            if (!borrowed) {
+                return;
+            }
+            borrowed = false;
+            if (!ended) {
+                return;
+            }
+            ended = false;
+            if (offsetAtt.endOffset() > pool.maxRetainedValueLength) {
+                pool.trimmed.increment();
+                return;
+            }
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.CharacterUtils;
+import org.apache.lucene.analysis.FilteringTokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Single-pass replacement for {@code UpperCaseFilter} followed by a case-insensitive
+ * {@code StopFilter}.
+ *
+ * Each term is upper-cased in place in the term buffer and then looked up, without
+ * further case folding, in a {@link CompiledStopwordSet} of pre-computed upper-case
+ * stop word variants (see {@link #upperCaseVariants(Collection)}). The emitted tokens, including position
+ * increments for removed stop words, are identical to the two-filter chain. Keyword
+ * tokens are only upper-cased, like the keywords of Lucene's stemmers: the filters that
+ * add tokens of their own ({@link CjkNGramFilter}, {@link ReadingFormFilter}) mark them as
+ * keywords, so that n-grams which happen to be stop words can still be found. Analyzers
+ * that keep the case of their terms look up an upper-cased copy instead.
+ */
+final class UpperCaseStopFilter extends FilteringTokenFilter {
+
+    /**
+     * Upper bound on the number of upper-case spellings kept for a single stop word.
+     */
+    private static final int MAX_VARIANTS_PER_WORD = 64;
+
+    /**
+     * Case mappings only exist in the BMP and the Supplementary Multilingual Plane;
+     * every code point above maps to itself.
+     */
+    private static final int LAST_CASED_CODE_POINT = 0x1FFFF;
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final KeywordAttribute keywordAtt = addAttribute(KeywordAttribute.class);
+    private final CompiledStopwordSet upperCaseStopwords;
+    private final boolean upperCase;
+    private char[] upperCaseCopy;
+    private long removedTokens;
+
+    /**
+     * @param input Token stream to filter
+     * @param upperCaseStopwords Compiled stop words
+     */
+    UpperCaseStopFilter(TokenStream input, CompiledStopwordSet upperCaseStopwords) {
+        this(input, upperCaseStopwords, true);
+    }
+
+    /**
+     * @param input Token stream to filter
+     * @param upperCaseStopwords Compiled stop words
+     * @param upperCase Whether terms are upper-cased, or keep their case
+     */
+    UpperCaseStopFilter(TokenStream input, CompiledStopwordSet upperCaseStopwords, boolean upperCase) {
+        super(input);
+        this.upperCaseStopwords = upperCaseStopwords;
+        this.upperCase = upperCase;
+        this.upperCaseCopy = upperCase ? null : new char[16];
+    }
+
+    @Override
+    protected boolean accept() {
+        char[] buffer = termAtt.buffer();
+        int length = termAtt.length();
+        if (!upperCase) {
+            upperCaseCopy = ArrayUtil.grow(upperCaseCopy, length);
+            System.arraycopy(buffer, 0, upperCaseCopy, 0, length);
+            buffer = upperCaseCopy;
+        }
+        CharacterUtils.toUpperCase(buffer, 0, length);
+        if (!keywordAtt.isKeyword() && upperCaseStopwords.contains(buffer, 0, length)) {
+            removedTokens++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of stop words removed since this filter was created.
+     */
+    long removedTokens() {
+        return removedTokens;
+    }
+
+    /**
+     * Enumerates the upper-case spellings that the compiled stop word set is built from.
+     *
+     * A case-insensitive {@code StopFilter} after {@code UpperCaseFilter} removes an
+     * upper-cased term {@code u} when {@code toLowerCase(u)} equals a lower-cased stop
+     * word. Since lower-casing works code point by code point, the matching terms are
+     * exactly the strings whose code points are upper-case mappings lowering to the
+     * stop word's code points. This method enumerates those strings, so that lookups
+     * need no case folding at all. For the bundled Japanese stop words (which have no
+     * case) every word maps to itself.
+     *
+     * @param stopwords Stop words in any case
+     * @return Immutable, sorted set of all upper-case spellings
+     */
+    static SortedSet<String> upperCaseVariants(Collection<String> stopwords) {
+        List<int[]> lowerCaseWords = new ArrayList<>(stopwords.size());
+        BitSet lowerCaseCodePoints = new BitSet();
+        for (String stopword : stopwords) {
+            int[] codePoints = stopword.codePoints().map(Character::toLowerCase).toArray();
+            lowerCaseWords.add(codePoints);
+            for (int codePoint : codePoints) {
+                lowerCaseCodePoints.set(codePoint);
+            }
+        }
+
+        Map<Integer, List<Integer>> upperCaseSpellings = upperCaseSpellings(lowerCaseCodePoints);
+
+        SortedSet<String> variants = new TreeSet<>();
+        for (int[] word : lowerCaseWords) {
+            addVariants(word, upperCaseSpellings, variants);
+        }
+        return Collections.unmodifiableSortedSet(variants);
+    }
+
+    /**
+     * Maps each requested lower-case code point to the upper-case code points that
+     * lower-case to it.
+     */
+    private static Map<Integer, List<Integer>> upperCaseSpellings(BitSet lowerCaseCodePoints) {
+        Map<Integer, List<Integer>> spellings = new HashMap<>();
+        BitSet seen = new BitSet();
+        for (int codePoint = 0; codePoint <= LAST_CASED_CODE_POINT; codePoint++) {
+            // Every upper-case mapping that lower-cases to one of the requested code points
+            int upper = Character.toUpperCase(codePoint);
+            if (lowerCaseCodePoints.get(Character.toLowerCase(upper)) && !seen.get(upper)) {
+                seen.set(upper);
+                spellings.computeIfAbsent(Character.toLowerCase(upper), key -> new ArrayList<>(2)).add(upper);
+            }
+        }
+        // Uncased code points beyond the scanned range only spell themselves
+        for (int lower = lowerCaseCodePoints.nextSetBit(LAST_CASED_CODE_POINT + 1); lower >= 0;
+                lower = lowerCaseCodePoints.nextSetBit(lower + 1)) {
+            spellings.put(lower, List.of(lower));
+        }
+        return spellings;
+    }
+
+    private static void addVariants(int[] word, Map<Integer, List<Integer>> spellings, Set<String> variants) {
+        List<String> prefixes = List.of("");
+        for (int codePoint : word) {
+            List<Integer> options = spellings.get(codePoint);
+            if (options == null) {
+                // No upper-cased term can lower-case to this word
+                return;
+            }
+            List<String> extended = new ArrayList<>(prefixes.size() * options.size());
+            for (String prefix : prefixes) {
+                for (int option : options) {
+                    extended.add(prefix + Character.toString(option));
+                }
+            }
+            if (extended.size() > MAX_VARIANTS_PER_WORD) {
+                throw new IllegalArgumentException("Too many upper-case spellings for stop word: "
+                        + new String(word, 0, word.length));
+            }
+            prefixes = extended;
+        }
+        variants.addAll(prefixes);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for AnalysisExplainer.
+ *
+ * Tests the stage by stage analysis behind {@code japanese.explain} including:
+ * - The last stage producing the same terms as the analyzer, for every built-in analyzer
+ * - Stages, implementations and token counts of each chain
+ * - Time and allocations measured per stage
+ * - Flags for long runs of unknown words, large unsegmented values and texts without terms
+ */
+public class AnalysisExplainerTest {
+
+    private static final String TEXT = "日本は先進的な技術を持っています。Neo4jグラフデータベースを使います。";
+
+    /**
+     * Letters and digits in neither dictionary, as in encoded data.
+     */
+    private static final String ENCODED = "QUJDREVGR0hJSktMTU5PUFFSU1RVVldYWVo0MTIzNDU2Nzg5".repeat(5);
+
+    private final JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+
+    @Test
+    void testLastStageProducesTheTermsOfTheAnalyzer() throws IOException {
+        for (String name : JapaneseAnalysisComponents.BUILT_IN_ANALYZERS) {
+            List<AnalysisExplainer.Stage> stages = AnalysisExplainer.explain(components, name, TEXT);
+            try (Analyzer analyzer = components.newAnalyzer(name)) {
+                assertEquals(tokens(analyzer, TEXT), stages.get(stages.size() - 1).tokens(), name);
+            }
+            assertEquals(AnalysisExplainer.TOKENIZER, stages.get(0).stage(), name);
+            assertEquals(AnalysisExplainer.STOP_FILTER, stages.get(stages.size() - 1).stage(), name);
+        }
+    }
+
+    @Test
+    void testStages() {
+        List<AnalysisExplainer.Stage> japanese = AnalysisExplainer.explain(components, "japanese", TEXT);
+        assertEquals(2, japanese.size(), "No normalization without synonyms: " + japanese);
+        AnalysisExplainer.Stage tokenizer = japanese.get(0);
+        AnalysisExplainer.Stage stopFilter = japanese.get(1);
+        assertEquals("JapaneseTokenizer", tokenizer.implementation());
+        assertTrue(tokenizer.tokens().containsAll(List.of("日本", "は", "技術", "を")), tokenizer.tokens().toString());
+        assertTrue(stopFilter.implementation().startsWith("UpperCaseStopFilter (upper case, "),
+                stopFilter.implementation());
+        assertTrue(stopFilter.tokens().containsAll(List.of("日本", "技術", "NEO")));
+        assertFalse(stopFilter.tokens().contains("は"));
+        assertEquals(tokenizer.tokens().size(), tokenizer.tokenCount());
+        assertTrue(stopFilter.tokenCount() < tokenizer.tokenCount(), "Stop words are removed");
+
+        List<AnalysisExplainer.Stage> normalized = AnalysisExplainer.explain(components, "japanese-normalized", TEXT);
+        assertEquals(List.of(AnalysisExplainer.TOKENIZER, AnalysisExplainer.NORMALIZATION,
+                AnalysisExplainer.STOP_FILTER), normalized.stream().map(AnalysisExplainer.Stage::stage).toList());
+        assertEquals("baseForm, partOfSpeechStop, katakanaStem", normalized.get(1).implementation());
+        assertTrue(normalized.get(1).tokens().contains("持つ"), "Base form of 持っ");
+
+        List<AnalysisExplainer.Stage> mixed = AnalysisExplainer.explain(components, "japanese-mixed", TEXT);
+        assertEquals("ScriptRoutingTokenizer", mixed.get(0).implementation());
+        List<AnalysisExplainer.Stage> ngram = AnalysisExplainer.explain(components, "japanese-ngram", TEXT);
+        assertEquals("ngram", ngram.get(1).implementation());
+        assertTrue(ngram.get(1).tokenCount() > ngram.get(0).tokenCount(), "N-grams are added");
+
+        List<AnalysisExplainer.Stage> segmented = AnalysisExplainer.explain(
+                components.withMaxSegmentLength(4096), "japanese", TEXT);
+        assertEquals("SegmentingTokenizer (segments of 4,096 characters)", segmented.get(0).implementation());
+        assertEquals(japanese.get(1).tokens(), segmented.get(1).tokens());
+
+        assertThrows(IllegalArgumentException.class, () -> AnalysisExplainer.explain(components, "standard", TEXT));
+    }
+
+    @Test
+    void testCostsPerStage() {
+        String text = TEXT.repeat(200);
+        List<AnalysisExplainer.Stage> stages = AnalysisExplainer.explain(components, "japanese", text);
+        for (AnalysisExplainer.Stage stage : stages) {
+            assertTrue(stage.elapsedNanos() >= 0, stage.toString());
+            assertTrue(stage.allocatedBytes() >= -1, stage.toString());
+        }
+        AnalysisExplainer.Stage tokenizer = stages.get(0);
+        assertTrue(tokenizer.elapsedNanos() > 0);
+        if (tokenizer.allocatedBytes() >= 0) {
+            // Kuromoji allocates its lattice as it goes, the stop filter works in place
+            assertTrue(tokenizer.allocatedBytes() > stages.get(1).allocatedBytes(), stages.toString());
+        }
+        assertEquals(AnalysisExplainer.MAX_TOKENS, tokenizer.tokens().size());
+        assertTrue(tokenizer.tokenCount() > AnalysisExplainer.MAX_TOKENS, "All tokens are counted");
+        assertEquals(List.of(), tokenizer.flags());
+    }
+
+    @Test
+    void testLongUnknownRunIsFlagged() {
+        String text = "これは" + ENCODED + "です。" + ENCODED.substring(0, 50);
+        List<String> flags = AnalysisExplainer.explain(components, "japanese", text).get(0).flags();
+        assertEquals(1, flags.size(), flags.toString());
+        assertTrue(flags.get(0).startsWith("LONG_UNKNOWN_RUN: " + ENCODED.length() + " characters of unknown words "
+                + "at offset 3 (" + ENCODED.substring(0, 20) + "…)"), flags.get(0));
+
+        String twice = ENCODED + "。" + ENCODED;
+        assertTrue(AnalysisExplainer.explain(components, "japanese", twice).get(0).flags().get(0)
+                .endsWith(", 2 such runs"));
+        // japanese-mixed keeps ASCII chunks away from Kuromoji
+        String spaced = "これは " + ENCODED + " です。";
+        assertTrue(AnalysisExplainer.explain(components, "japanese", spaced).get(0).flags().get(0)
+                .contains(" at offset 4 "));
+        assertEquals(List.of(), AnalysisExplainer.explain(components, "japanese-mixed", spaced).get(0).flags());
+        assertEquals(1, AnalysisExplainer.explain(components, "japanese-mixed", text).get(0).flags().size());
+        assertEquals(List.of(), AnalysisExplainer.explain(components, "japanese", TEXT).get(0).flags());
+    }
+
+    @Test
+    void testLargeUnsegmentedValueIsFlagged() {
+        String text = " ".repeat(AnalysisExplainer.LARGE_VALUE) + "日本の技術";
+        List<String> flags = AnalysisExplainer.explain(components.withMaxSegmentLength(0), "japanese", text)
+                .get(0).flags();
+        assertEquals(1, flags.size(), flags.toString());
+        assertTrue(flags.get(0).startsWith("LARGE_UNSEGMENTED_VALUE: "), flags.get(0));
+        assertTrue(flags.get(0).contains(JapaneseAnalyzerSettings.MAX_SEGMENT_LENGTH));
+
+        assertEquals(List.of(), AnalysisExplainer.explain(components.withMaxSegmentLength(4096), "japanese", text)
+                .get(0).flags());
+    }
+
+    @Test
+    void testTextWithoutTermsIsFlagged() {
+        List<AnalysisExplainer.Stage> stages = AnalysisExplainer.explain(components, "japanese", "これはそれです。");
+        AnalysisExplainer.Stage stopFilter = stages.get(stages.size() - 1);
+        assertEquals(0, stopFilter.tokenCount());
+        assertEquals(1, stopFilter.flags().size());
+        assertTrue(stopFilter.flags().get(0).startsWith("NO_TERMS: "));
+
+        assertEquals(List.of(), AnalysisExplainer.explain(components, "japanese", " ").get(1).flags());
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("text", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
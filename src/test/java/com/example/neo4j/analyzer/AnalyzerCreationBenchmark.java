@@ -0,0 +1,104 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.StopFilterFactory;
+import org.apache.lucene.analysis.core.UpperCaseFilterFactory;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.ja.JapaneseTokenizerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares the cost of creating one analyzer per fulltext index before and after
+ * the shared analysis components were introduced.
+ *
+ * For each strategy it reports the average time of a createAnalyzer() call and the
+ * heap retained per analyzer once it has analyzed a document (i.e. with its
+ * per-thread tokenizer chain in place).
+ *
+ * Run with e.g. {@code -Xmx1g} so that the heap measurements are not dominated by GC noise.
+ */
+public class AnalyzerCreationBenchmark {
+
+    private static final int CREATION_ITERATIONS = 2_000;
+    private static final int RETAINED_ANALYZERS = 500;
+    private static final String SAMPLE_TEXT = "日本は先進的な技術を持っています。";
+
+    public static void main(String[] args) {
+        JapaneseAnalyzerProvider provider = new JapaneseAnalyzerProvider();
+
+        report("CustomAnalyzer.builder() per index", AnalyzerCreationBenchmark::legacyAnalyzer);
+        report("shared components", provider::createAnalyzer);
+    }
+
+    /**
+     * The analyzer chain as it was built before the shared components existed.
+     */
+    static Analyzer legacyAnalyzer() {
+        try {
+            return CustomAnalyzer.builder()
+                    .withTokenizer(JapaneseTokenizerFactory.class)
+                    .addTokenFilter(UpperCaseFilterFactory.class)
+                    .addTokenFilter(StopFilterFactory.class,
+                        "ignoreCase", "true",
+                        "words", JapaneseAnalysisComponents.STOPWORDS_RESOURCE,
+                        "format", "wordset")
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void report(String name, Supplier<Analyzer> factory) {
+        // Warm up class loading, the Kuromoji dictionaries and the JIT
+        for (int i = 0; i < CREATION_ITERATIONS; i++) {
+            factory.get().close();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CREATION_ITERATIONS; i++) {
+            factory.get().close();
+        }
+        double nanosPerCreation = (System.nanoTime() - start) / (double) CREATION_ITERATIONS;
+
+        long before = usedHeap();
+        List<Analyzer> retained = new ArrayList<>(RETAINED_ANALYZERS);
+        for (int i = 0; i < RETAINED_ANALYZERS; i++) {
+            Analyzer analyzer = factory.get();
+            consume(analyzer);
+            retained.add(analyzer);
+        }
+        long after = usedHeap();
+        long bytesPerAnalyzer = (after - before) / RETAINED_ANALYZERS;
+
+        System.out.printf("%-40s %,12.0f ns/createAnalyzer %,12d bytes retained/index%n",
+                name, nanosPerCreation, bytesPerAnalyzer);
+
+        retained.forEach(Analyzer::close);
+    }
+
+    private static void consume(Analyzer analyzer) {
+        try (TokenStream tokenStream = analyzer.tokenStream("content", SAMPLE_TEXT)) {
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                // Just drain the stream
+            }
+            tokenStream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
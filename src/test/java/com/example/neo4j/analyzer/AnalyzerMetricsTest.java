@@ -0,0 +1,199 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for AnalyzerMetrics.
+ *
+ * Verifies the documents, characters, tokens and stop words recorded by instrumented
+ * analyzers, with and without the token stream cache, from concurrent threads, and the
+ * latency histogram.
+ */
+public class AnalyzerMetricsTest {
+
+    private static final String TEXT = "これはテストです";
+
+    @Test
+    void testDocumentIsRecorded() throws IOException {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty());
+        Analyzer analyzer = components.newAnalyzer();
+
+        assertEquals(List.of("テスト"), tokens(analyzer, TEXT));
+        AnalyzerMetrics.Snapshot snapshot = components.metrics("japanese").orElseThrow().snapshot();
+        assertEquals(1, snapshot.documents());
+        assertEquals(TEXT.length(), snapshot.characters());
+        assertEquals(1, snapshot.tokens());
+        assertEquals(3, snapshot.stoppedTokens(), "これ, は and です are stop words");
+        assertEquals(1, snapshot.timedDocuments(), "The first document of a chain should be timed");
+        assertTrue(snapshot.nanos() > 0);
+        assertEquals(1, sum(snapshot.latencyCounts()));
+
+        analyzer.close();
+    }
+
+    @Test
+    void testAnalyzersAreRecordedByName() throws IOException {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty());
+        Analyzer japanese = components.newAnalyzer();
+        Analyzer mixed = components.newScriptRoutingAnalyzer();
+
+        tokens(japanese, TEXT);
+        tokens(mixed, TEXT);
+        tokens(mixed, "Customer ID 4711");
+
+        List<AnalyzerMetrics> all = components.allMetrics();
+        assertEquals(List.of("japanese", "japanese-mixed"), all.stream().map(AnalyzerMetrics::analyzer).toList());
+        assertEquals(1, all.get(0).snapshot().documents());
+        assertEquals(2, all.get(1).snapshot().documents());
+
+        japanese.close();
+        mixed.close();
+    }
+
+    @Test
+    void testCachedValuesAreRecorded() throws IOException {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty())
+                .withTokenStreamCache(64, 1024 * 1024);
+        Analyzer analyzer = components.newAnalyzer();
+
+        tokens(analyzer, TEXT);
+        tokens(analyzer, TEXT);
+
+        assertEquals(1, components.tokenStreamCache().orElseThrow().hits());
+        AnalyzerMetrics.Snapshot snapshot = components.metrics("japanese").orElseThrow().snapshot();
+        assertEquals(2, snapshot.documents());
+        assertEquals(2, snapshot.tokens());
+        assertEquals(6, snapshot.stoppedTokens(), "The stop words of a replayed value are counted again");
+
+        analyzer.close();
+    }
+
+    @Test
+    void testDisabledMetricsRecordNothing() throws IOException {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty())
+                .withMetrics(false);
+        Analyzer analyzer = components.newAnalyzer();
+
+        assertEquals(List.of("テスト"), tokens(analyzer, TEXT));
+        assertTrue(components.metrics("japanese").isEmpty());
+        assertTrue(components.allMetrics().isEmpty());
+
+        analyzer.close();
+    }
+
+    @Test
+    void testConcurrentThreadsAreAllCounted() throws Exception {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty());
+        Analyzer analyzer = components.newAnalyzer();
+        int threads = 8;
+        int documentsPerThread = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    int tokens = 0;
+                    for (int i = 0; i < documentsPerThread; i++) {
+                        tokens += tokens(analyzer, "東京タワーの高さは" + i + "メートルです").size();
+                    }
+                    return tokens;
+                }));
+            }
+            long tokens = 0;
+            for (Future<Integer> result : results) {
+                tokens += result.get();
+            }
+
+            AnalyzerMetrics.Snapshot snapshot = components.metrics("japanese").orElseThrow().snapshot();
+            assertEquals(threads * documentsPerThread, snapshot.documents());
+            assertEquals(tokens, snapshot.tokens());
+            int interval = AnalyzerMetrics.LATENCY_SAMPLE_INTERVAL;
+            assertEquals(threads * ((documentsPerThread + interval - 1) / interval), snapshot.timedDocuments(),
+                "One in " + interval + " documents of each thread should be timed");
+            assertEquals(snapshot.timedDocuments(), sum(snapshot.latencyCounts()));
+        } finally {
+            executor.shutdown();
+        }
+        analyzer.close();
+    }
+
+    @Test
+    void testLatencyHistogram() {
+        assertEquals(0, AnalyzerMetrics.bucket(999));
+        assertEquals(1, AnalyzerMetrics.bucket(1_000));
+        assertEquals(10, AnalyzerMetrics.bucket(1_000_000));
+        assertEquals(AnalyzerMetrics.LATENCY_BUCKETS - 1, AnalyzerMetrics.bucket(Long.MAX_VALUE));
+
+        AnalyzerMetrics metrics = new AnalyzerMetrics("japanese");
+        Object chain = new Object();
+        AnalyzerMetrics.Recorder recorder = metrics.newRecorder(chain);
+        for (int i = 0; i < 98; i++) {
+            recorder.record(10, 2, 0, 3_000);
+        }
+        recorder.record(10, 2, 0, 900_000);
+        recorder.record(10, 2, 0, 60_000_000_000L);
+        recorder.record(10, 2, 0, -1);
+        AnalyzerMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertEquals(101, snapshot.documents());
+        assertEquals(100, snapshot.timedDocuments());
+        assertEquals(4, snapshot.latencyPercentileMicros(50));
+        assertEquals(1024, snapshot.latencyPercentileMicros(99));
+        assertEquals(Long.MAX_VALUE, snapshot.latencyPercentileMicros(100));
+        assertEquals(0, new AnalyzerMetrics("empty").snapshot().latencyPercentileMicros(99));
+    }
+
+    @Test
+    void testCountsOfCollectedChainsAreKept() throws InterruptedException {
+        AnalyzerMetrics metrics = new AnalyzerMetrics("japanese");
+        for (int i = 0; i < 1_000; i++) {
+            metrics.newRecorder(new Object()).record(10, 2, 1, -1);
+        }
+        // Let the chains be collected, so that their recorders are folded into the totals
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        AnalyzerMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1_000, snapshot.documents());
+        assertEquals(10_000, snapshot.characters());
+        assertEquals(2_000, snapshot.tokens());
+        assertEquals(1_000, snapshot.stoppedTokens());
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+}
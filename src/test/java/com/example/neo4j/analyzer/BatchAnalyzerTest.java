@@ -0,0 +1,162 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test class for BatchAnalyzer.
+ *
+ * Verifies that batches produce exactly the tokens of the indexing analyzers, in input
+ * order, and that the input is read only as far as the results are consumed. The
+ * performance test checks that the throughput grows with the number of threads, from
+ * one up to the number of processors.
+ */
+public class BatchAnalyzerTest {
+
+    private static final List<String> SENTENCES = List.of(
+            "日本は先進的な技術を持っています。",
+            "東京タワーから富士山が見えました。",
+            "Neo4jは素晴らしいgraph databaseです。",
+            "関西国際空港で２０２４年１月にｉＰｈｏｎｅ１５を買った。",
+            "The API returns JSON with status code 200 on success.",
+            "プログラミングは面白い分野です。");
+
+    @Test
+    void testTokensMatchIndexingAnalyzers() throws IOException {
+        List<String> texts = texts(1_000);
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+        BatchAnalyzer batch = new BatchAnalyzer(components, 4);
+
+        for (String name : List.of("japanese", "japanese-mixed")) {
+            List<BatchAnalyzer.AnalyzedText> results;
+            try (Stream<BatchAnalyzer.AnalyzedText> stream = batch.analyze(name, texts.iterator())) {
+                results = stream.collect(Collectors.toList());
+            }
+            assertEquals(texts.size(), results.size());
+            try (Analyzer analyzer = components.newAnalyzer(name)) {
+                for (int i = 0; i < texts.size(); i++) {
+                    assertEquals(i, results.get(i).index(), "Results should be in input order");
+                    assertEquals(tokens(analyzer, texts.get(i)), results.get(i).tokens(), name + ": " + texts.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNullAndEmptyTextsHaveNoTokens() {
+        BatchAnalyzer batch = new BatchAnalyzer(JapaneseAnalysisComponents.shared(), 2);
+
+        List<List<String>> tokens = batch.analyze("japanese", Arrays.asList("東京タワー", null, "", "です").iterator())
+                .map(BatchAnalyzer.AnalyzedText::tokens)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(List.of("東京", "タワー"), List.of(), List.of(), List.of()), tokens);
+    }
+
+    @Test
+    void testUnknownAnalyzerIsRejected() {
+        BatchAnalyzer batch = new BatchAnalyzer(JapaneseAnalysisComponents.shared(), 1);
+
+        assertThrows(IllegalArgumentException.class, () -> batch.analyze("standard", List.of("text").iterator()));
+    }
+
+    @Test
+    void testInputIsReadAsResultsAreConsumed() {
+        BatchAnalyzer batch = new BatchAnalyzer(JapaneseAnalysisComponents.shared(), 2);
+        AtomicLong read = new AtomicLong();
+        Iterator<String> endless = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                return SENTENCES.get((int) (read.getAndIncrement() % SENTENCES.size()));
+            }
+        };
+
+        try (Stream<BatchAnalyzer.AnalyzedText> stream = batch.analyze("japanese", endless)) {
+            assertEquals(99, stream.skip(99).findFirst().orElseThrow().index());
+        }
+
+        long maxAhead = (long) batch.parallelism() * BatchAnalyzer.CHUNKS_AHEAD_PER_THREAD * BatchAnalyzer.CHUNK_SIZE;
+        assertTrue(read.get() <= 100 + maxAhead + BatchAnalyzer.CHUNK_SIZE,
+            "Only a bounded number of texts should be read ahead, read " + read.get());
+    }
+
+    @Test
+    @Tag("performance")
+    void testThroughputScalesWithThreads() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        assumeTrue(processors >= 2, "Scaling needs at least two processors");
+        List<String> texts = texts(20_000);
+
+        double single = 0;
+        double best = 0;
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            BatchAnalyzer batch = new BatchAnalyzer(JapaneseAnalysisComponents.shared(), threads);
+            analyzeAll(batch, texts);
+            long start = System.nanoTime();
+            analyzeAll(batch, texts);
+            double textsPerSecond = texts.size() / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("%d threads: %,.0f texts/s%n", threads, textsPerSecond);
+            if (threads == 1) {
+                single = textsPerSecond;
+            }
+            best = Math.max(best, textsPerSecond);
+        }
+
+        assertTrue(best > 1.3 * single,
+            String.format("Throughput should grow with threads: %.0f texts/s single, %.0f best", single, best));
+    }
+
+    private static void analyzeAll(BatchAnalyzer batch, List<String> texts) {
+        try (Stream<BatchAnalyzer.AnalyzedText> stream = batch.analyze("japanese", texts.iterator())) {
+            assertEquals(texts.size(), stream.count());
+        }
+    }
+
+    /**
+     * Distinct texts of one to three sentences.
+     */
+    private static List<String> texts(int count) {
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j <= i % 3; j++) {
+                text.append(SENTENCES.get((i + j) % SENTENCES.size()));
+            }
+            texts.add(text.append(i).toString());
+        }
+        return texts;
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.WordlistLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CompiledStopwordSet.
+ * 
+ * Tests the perfect hash stop word set including:
+ * - Lookups of every stop word spelling and of non stop words
+ * - Round trip through the binary form packaged in the jar
+ * - Equivalence of the build-time compiled set with japanese-stopwords.txt
+ * - Fallback to compiling a custom stop word file at load time
+ */
+public class CompiledStopwordSetTest {
+
+    @Test
+    void testContainsExactlyTheUpperCaseSpellings() {
+        List<String> stopwords = List.of("the", "I", "これ", "です", "。", "straße");
+        CompiledStopwordSet compiled = CompiledStopwordSet.compile(stopwords);
+
+        Set<String> variants = UpperCaseStopFilter.upperCaseVariants(stopwords);
+        assertEquals(variants.size(), compiled.size());
+        for (String variant : variants) {
+            assertTrue(contains(compiled, variant), "Should contain spelling: " + variant);
+        }
+
+        for (String other : List.of("THEM", "TH", "", "この", "the", "I ", "情報", "STRASSE")) {
+            assertFalse(contains(compiled, other), "Should not contain: " + other);
+        }
+        assertEquals(List.of("the", "i", "これ", "です", "。", "straße"), compiled.words());
+    }
+
+    @Test
+    void testLookupWithinLargerBuffer() {
+        CompiledStopwordSet compiled = CompiledStopwordSet.compile(List.of("これ", "は"));
+        char[] buffer = "XXこれはYY".toCharArray();
+
+        assertTrue(compiled.contains(buffer, 2, 2));
+        assertTrue(compiled.contains(buffer, 4, 1));
+        assertFalse(compiled.contains(buffer, 2, 3));
+        assertFalse(compiled.contains(buffer, 1, 2));
+    }
+
+    @Test
+    void testEmptySet() {
+        CompiledStopwordSet compiled = CompiledStopwordSet.compile(List.of());
+
+        assertEquals(0, compiled.size());
+        assertFalse(contains(compiled, "これ"));
+    }
+
+    @Test
+    void testBinaryRoundTrip() throws IOException {
+        CompiledStopwordSet compiled = bundledTextSet();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiled.write(out);
+        CompiledStopwordSet read = CompiledStopwordSet.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(compiled.words(), read.words());
+        assertEquals(compiled.size(), read.size());
+        for (String word : compiled.words()) {
+            assertTrue(contains(read, word.toUpperCase()), "Should contain: " + word);
+        }
+    }
+
+    @Test
+    void testRejectsOtherFiles() {
+        byte[] text = "これ\nは\n".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> CompiledStopwordSet.read(new ByteArrayInputStream(text)));
+    }
+
+    @Test
+    void testBuildTimeSetMatchesStopwordFile() throws IOException {
+        // The build compiles japanese-stopwords.txt during process-classes
+        try (InputStream in = resource(CompiledStopwordSet.COMPILED_RESOURCE)) {
+            assertNotNull(in, "The build should package " + CompiledStopwordSet.COMPILED_RESOURCE);
+            CompiledStopwordSet packaged = CompiledStopwordSet.read(in);
+
+            assertEquals(bundledTextSet().words(), packaged.words());
+            try (InputStream text = resource(JapaneseAnalysisComponents.STOPWORDS_RESOURCE)) {
+                for (String line : WordlistLoader.getLines(text, StandardCharsets.UTF_8)) {
+                    assertTrue(contains(packaged, line.toUpperCase()), "Should contain: " + line);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCustomStopwordFileIsCompiledAtLoad() throws IOException {
+        Path file = Files.createTempFile("custom-stopwords", ".txt");
+        try {
+            Files.writeString(file, "# custom list\n情報\nGraph\n", StandardCharsets.UTF_8);
+            JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.of(file));
+
+            assertEquals(List.of("情報", "graph"), components.stopwords().words());
+            assertTrue(contains(components.stopwords(), "GRAPH"));
+            assertFalse(contains(components.stopwords(), "これ"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static CompiledStopwordSet bundledTextSet() throws IOException {
+        try (InputStream in = resource(JapaneseAnalysisComponents.STOPWORDS_RESOURCE)) {
+            return CompiledStopwordSet.compile(in);
+        }
+    }
+
+    private static InputStream resource(String name) {
+        return CompiledStopwordSetTest.class.getClassLoader().getResourceAsStream(name);
+    }
+
+    private static boolean contains(CompiledStopwordSet set, String term) {
+        char[] chars = term.toCharArray();
+        return set.contains(chars, 0, chars.length);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of concurrent writes to nodes under "japanese" fulltext indexes.
+ *
+ * Populates an in-process Neo4j with a generated Japanese corpus (see
+ * {@link LoadTestCorpus}), creates "japanese" fulltext indexes on the titles and bodies
+ * and measures their population, then runs concurrent writers updating the nodes and
+ * concurrent readers calling {@code db.index.fulltext.queryNodes} for a fixed time.
+ * Reports writes/sec, queries/sec, query p50/p99 latency and index population time,
+ * and fails when any of them regresses past the stored baseline. Runs only in the
+ * load-test Maven profile:
+ *
+ *     mvn -Pload-test test
+ *
+ * System properties (defaults in parentheses):
+ * - loadtest.nodes: nodes indexed by the population (20000)
+ * - loadtest.writers, loadtest.readers: concurrent writer and reader threads (8, 4)
+ * - loadtest.batchSize: nodes updated per write transaction (50)
+ * - loadtest.warmupSeconds, loadtest.seconds: unmeasured and measured run time (10, 30)
+ * - loadtest.baseline: baseline file to compare the results with, if it exists
+ * - loadtest.saveBaseline: whether to write the results to the baseline file instead (false)
+ * - loadtest.results: file the results of every run are written to
+ */
+@Tag("load-test")
+public class ConcurrentIndexingLoadTest {
+
+    private static final long SEED = 42;
+    private static final int POPULATION_BATCH_SIZE = 1_000;
+    private static final String MARKER = "負荷試験";
+
+    private final int nodes = intProperty("loadtest.nodes", 20_000);
+    private final int writers = intProperty("loadtest.writers", 8);
+    private final int readers = intProperty("loadtest.readers", 4);
+    private final int batchSize = intProperty("loadtest.batchSize", 50);
+    private final int warmupSeconds = intProperty("loadtest.warmupSeconds", 10);
+    private final int seconds = intProperty("loadtest.seconds", 30);
+
+    private Neo4j server;
+    private GraphDatabaseService database;
+
+    @BeforeEach
+    void initializeNeo4j() {
+        server = Neo4jBuilders.newInProcessBuilder()
+                .withDisabledServer()
+                .build();
+        database = server.defaultDatabaseService();
+    }
+
+    @AfterEach
+    void closeNeo4j() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testConcurrentWritersAndReaders() throws Exception {
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put(LoadTestBaseline.POPULATION_MILLIS, (double) populateIndexes());
+        results.putAll(runWritersAndReaders());
+
+        // Every writer's last update is searchable
+        assertEquals(writers, count("article_body", MARKER), "Last update of each writer should be indexed");
+
+        LoadTestBaseline current = LoadTestBaseline.of(results);
+        System.out.printf("Load test: %,d nodes, %d writers x %d nodes per transaction, %d readers, %d s%n",
+                nodes, writers, batchSize, readers, seconds);
+        current.values().forEach((metric, value) -> System.out.printf("  %-18s %,12.2f%n", metric, value));
+
+        String resultsFile = System.getProperty("loadtest.results", "");
+        if (!resultsFile.isBlank()) {
+            current.write(Path.of(resultsFile));
+        }
+        String baselineFile = System.getProperty("loadtest.baseline", "");
+        if (baselineFile.isBlank()) {
+            return;
+        }
+        Path baseline = Path.of(baselineFile);
+        if (Boolean.getBoolean("loadtest.saveBaseline")) {
+            current.write(baseline);
+            System.out.println("Saved load test baseline to " + baseline);
+        } else if (Files.exists(baseline)) {
+            List<String> regressions = current.regressionsAgainst(LoadTestBaseline.read(baseline));
+            assertTrue(regressions.isEmpty(), "Load test regressions against " + baseline + ":\n  "
+                    + String.join("\n  ", regressions));
+            System.out.println("No regressions against " + baseline);
+        } else {
+            System.out.println("No load test baseline at " + baseline + ", record one with -Dloadtest.saveBaseline=true");
+        }
+    }
+
+    /**
+     * Creates the nodes, then the fulltext indexes over them.
+     *
+     * @return Time until the indexes are online, in milliseconds
+     */
+    private long populateIndexes() {
+        database.executeTransactionally("CREATE INDEX article_id FOR (n:Article) ON (n.id)");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        LoadTestCorpus corpus = new LoadTestCorpus(new Random(SEED));
+        for (int first = 0; first < nodes; first += POPULATION_BATCH_SIZE) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int id = first; id < Math.min(nodes, first + POPULATION_BATCH_SIZE); id++) {
+                rows.add(Map.of("id", id, "title", corpus.title(), "body", corpus.body()));
+            }
+            database.executeTransactionally(
+                    "UNWIND $rows AS row CREATE (:Article {id: row.id, title: row.title, body: row.body})",
+                    Map.of("rows", rows));
+        }
+
+        long start = System.nanoTime();
+        database.executeTransactionally("CREATE FULLTEXT INDEX article_title FOR (n:Article) ON EACH [n.title] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CREATE FULLTEXT INDEX article_body FOR (n:Article) ON EACH [n.body] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CALL db.awaitIndexes(3600)");
+        long populationMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(count("article_title", LoadTestCorpus.NOUNS.get(0)) > 0, "Titles should be indexed");
+        assertTrue(count("article_body", LoadTestCorpus.NOUNS.get(0)) > 0, "Bodies should be indexed");
+        return populationMillis;
+    }
+
+    /**
+     * Runs the writers and readers together; only the operations after the warm-up are measured.
+     *
+     * @return Throughputs and query latency percentiles
+     */
+    private Map<String, Double> runWritersAndReaders() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch ready = new CountDownLatch(writers + readers);
+        long measureStart = System.nanoTime() + (warmupSeconds + 1) * 1_000_000_000L;
+        long measureEnd = measureStart + seconds * 1_000_000_000L;
+        try {
+            List<Future<Long>> writes = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int partition = writer;
+                writes.add(executor.submit(() -> write(partition, ready, measureStart, measureEnd)));
+            }
+            List<Future<long[]>> latencies = new ArrayList<>();
+            for (int reader = 0; reader < readers; reader++) {
+                int seed = reader;
+                latencies.add(executor.submit(() -> read(seed, ready, measureStart, measureEnd)));
+            }
+
+            long nodesWritten = 0;
+            for (Future<Long> writer : writes) {
+                nodesWritten += writer.get();
+            }
+            long[] allLatencies = new long[0];
+            for (Future<long[]> reader : latencies) {
+                long[] readerLatencies = reader.get();
+                int offset = allLatencies.length;
+                allLatencies = Arrays.copyOf(allLatencies, offset + readerLatencies.length);
+                System.arraycopy(readerLatencies, 0, allLatencies, offset, readerLatencies.length);
+            }
+            Arrays.sort(allLatencies);
+            assertTrue(allLatencies.length > 0, "Readers should have run queries");
+
+            Map<String, Double> results = new LinkedHashMap<>();
+            results.put(LoadTestBaseline.WRITES_PER_SECOND, nodesWritten / (double) seconds);
+            results.put(LoadTestBaseline.QUERIES_PER_SECOND, allLatencies.length / (double) seconds);
+            results.put(LoadTestBaseline.QUERY_P50_MILLIS, percentile(allLatencies, 0.50) / 1e6);
+            results.put(LoadTestBaseline.QUERY_P99_MILLIS, percentile(allLatencies, 0.99) / 1e6);
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Updates the titles and bodies of the writer's own nodes, so that writers never wait for each other's locks.
+     *
+     * @return Number of nodes updated during the measurement
+     */
+    private long write(int partition, CountDownLatch ready, long measureStart, long measureEnd)
+            throws InterruptedException {
+        Random random = new Random(SEED + 1 + partition);
+        LoadTestCorpus corpus = new LoadTestCorpus(random);
+        int partitionSize = (nodes - partition + writers - 1) / writers;
+        ready.countDown();
+        ready.await();
+        long measured = 0;
+        long now;
+        while ((now = System.nanoTime()) < measureEnd) {
+            List<Map<String, Object>> rows = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                int id = partition + writers * random.nextInt(partitionSize);
+                rows.add(Map.of("id", id, "title", corpus.title(), "body", corpus.body()));
+            }
+            update(rows);
+            if (now >= measureStart) {
+                measured += batchSize;
+            }
+        }
+        // Checked once all writers are done
+        update(List.of(Map.of("id", partition, "title", corpus.title(), "body", MARKER + "。" + corpus.body())));
+        return measured;
+    }
+
+    private void update(List<Map<String, Object>> rows) {
+        try (Transaction tx = database.beginTx()) {
+            tx.execute("UNWIND $rows AS row MATCH (n:Article {id: row.id}) "
+                    + "SET n.title = row.title, n.body = row.body", Map.of("rows", rows));
+            tx.commit();
+        }
+    }
+
+    /**
+     * Queries the title and body indexes in turn.
+     *
+     * @return Latency of each query during the measurement, in nanoseconds
+     */
+    private long[] read(int seed, CountDownLatch ready, long measureStart, long measureEnd)
+            throws InterruptedException {
+        LoadTestCorpus corpus = new LoadTestCorpus(new Random(SEED + 1_000 + seed));
+        long[] latencies = new long[1024];
+        int count = 0;
+        boolean titles = false;
+        ready.countDown();
+        ready.await();
+        long start;
+        while ((start = System.nanoTime()) < measureEnd) {
+            titles = !titles;
+            database.executeTransactionally(
+                    "CALL db.index.fulltext.queryNodes($index, $query, {limit: 10}) YIELD node RETURN node.id AS id",
+                    Map.of("index", titles ? "article_title" : "article_body", "query", corpus.query()),
+                    result -> result.stream().count());
+            if (start >= measureStart) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private long count(String index, String query) {
+        return database.executeTransactionally(
+                "CALL db.index.fulltext.queryNodes($index, $query) YIELD node RETURN count(node) AS hits",
+                Map.of("index", index, "query", query),
+                result -> (Long) result.next().get("hits"));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.strip());
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ja.JapaneseTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the configurable analyzer family.
+ *
+ * Tests the analyzers defined by the analyzers file including:
+ * - Parsing of the file, with the defaults of "japanese-normal" and "japanese-search"
+ * - Rejection of invalid files, and of custom analyzers missing from the file
+ * - No stop words, and the error in the description, for an invalid configuration
+ * - Token output of each tokenizer mode and option
+ * - Sharing of the dictionaries, tokenizer factories and stop word files
+ * - Throughput of each variant compared to the "japanese" analyzer, as a performance test
+ */
+public class ConfiguredAnalyzerTest {
+
+    private static final String TEXT = "関西国際空港に到着しました。Neo4jのグラフデータベースです！";
+
+    private static final double MIN_RELATIVE_THROUGHPUT = 0.5;
+    private static final long MEASUREMENT_NANOS = 1_000_000_000L;
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("analyzers");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testParsesAnalyzersFile() throws IOException {
+        Path file = write("analyzers.properties",
+                "analyzers = japanese-names, japanese-articles",
+                "japanese-normal.discardPunctuation = false",
+                "japanese-names.mode = normal",
+                "japanese-names.stopwords = none",
+                "japanese-names.upperCase = false",
+                "japanese-articles.stopwords = article-stopwords.txt",
+                "japanese-articles.filters = baseForm, katakanaStem");
+
+        Map<String, AnalyzerDefinition> definitions = AnalyzerDefinition.load(Optional.of(file));
+
+        assertEquals(List.of("japanese-normal", "japanese-search", "japanese-names", "japanese-articles"),
+                List.copyOf(definitions.keySet()));
+        AnalyzerDefinition normal = definitions.get("japanese-normal");
+        assertEquals(JapaneseTokenizer.Mode.NORMAL, normal.mode());
+        assertFalse(normal.discardPunctuation());
+        AnalyzerDefinition search = definitions.get("japanese-search");
+        assertEquals(JapaneseTokenizer.Mode.SEARCH, search.mode());
+        assertFalse(search.discardCompoundToken());
+        AnalyzerDefinition names = definitions.get("japanese-names");
+        assertFalse(names.stopwords());
+        assertFalse(names.upperCase());
+        AnalyzerDefinition articles = definitions.get("japanese-articles");
+        assertEquals(JapaneseTokenizer.Mode.SEARCH, articles.mode());
+        assertEquals(Optional.of(directory.resolve("article-stopwords.txt")), articles.stopwordsFile());
+        assertEquals(List.of(AnalyzerDefinition.Filter.BASE_FORM, AnalyzerDefinition.Filter.KATAKANA_STEM),
+                articles.filters());
+
+        // Without a file there are only the built-in analyzers
+        assertEquals(List.of("japanese-normal", "japanese-search"),
+                List.copyOf(AnalyzerDefinition.load(Optional.empty()).keySet()));
+    }
+
+    @Test
+    void testRejectsInvalidDefinitions() {
+        assertInvalid("japanese-normal.mode = fast");
+        assertInvalid("japanese-normal.discardPunctuation = yes");
+        assertInvalid("japanese-normal.filters = baseForm, stemming");
+        assertInvalid("japanese-search.filters = baseForm, ngram");
+        assertInvalid("japanese-normal.tokenizer = normal");
+        assertInvalid("japanese-names.mode = normal");
+        assertInvalid("analyzers = japanese");
+        assertInvalid("analyzers = a, b, c, d, e");
+    }
+
+    @Test
+    void testUnusedCustomSlotsFail() {
+        // No analyzers file is configured in the tests
+        JapaneseCustomAnalyzerProvider provider = new JapaneseCustomAnalyzerProvider.Fourth();
+        assertEquals("japanese-custom-4", provider.getName());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, provider::createAnalyzer);
+        assertTrue(e.getMessage().contains(JapaneseAnalyzerSettings.ANALYZERS), e.getMessage());
+        assertEquals(List.of(), provider.stopwords());
+        assertTrue(provider.description().startsWith("Unused slot"), provider.description());
+    }
+
+    @Test
+    void testInvalidConfigurationHasNoStopwords() {
+        ConfiguredAnalyzerProvider provider = new ConfiguredAnalyzerProvider("japanese-invalid") {
+            @Override
+            AnalyzerDefinition definition() {
+                throw new IllegalArgumentException("At most 4 custom analyzers");
+            }
+        };
+        // db.index.fulltext.listAvailableAnalyzers() lists the other analyzers all the same
+        assertEquals(List.of(), provider.stopwords());
+        assertTrue(provider.description().contains("At most 4 custom analyzers"), provider.description());
+    }
+
+    @Test
+    void testTokenizerModes() throws IOException {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+        Map<String, AnalyzerDefinition> definitions = AnalyzerDefinition.load(Optional.empty());
+
+        assertEquals(List.of("関西", "国際", "空港", "到着", "し", "まし", "NEO", "4", "J", "グラフ", "データベース"),
+                tokens(components.newAnalyzer(), TEXT));
+        // Normal mode keeps the compound word whole
+        assertEquals(List.of("関西国際空港", "到着", "し", "まし", "NEO", "4", "J", "グラフ", "データベース"),
+                tokens(components.newAnalyzer(definitions.get("japanese-normal")), TEXT));
+        // Search mode with compounds indexes both, the compound on the position of its first part
+        assertEquals(List.of("関西", "+関西国際空港", "国際", "空港", "到着", "し", "まし",
+                        "NEO", "4", "J", "グラフ", "データベース"),
+                tokens(components.newAnalyzer(definitions.get("japanese-search")), TEXT));
+    }
+
+    @Test
+    void testStopwordsPunctuationCaseAndFilters() throws IOException {
+        write("stopwords.txt", "# Only particles", "に", "の");
+        Path file = write("analyzers.properties",
+                "analyzers = japanese-raw, japanese-particles, japanese-base",
+                "japanese-raw.stopwords = none",
+                "japanese-raw.discardPunctuation = false",
+                "japanese-raw.upperCase = false",
+                "japanese-particles.stopwords = stopwords.txt",
+                "japanese-base.filters = baseForm, partOfSpeechStop");
+        Map<String, AnalyzerDefinition> definitions = AnalyzerDefinition.load(Optional.of(file));
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+
+        assertEquals(List.of("関西", "国際", "空港", "に", "到着", "し", "まし", "た", "。",
+                        "Neo", "4", "j", "の", "グラフ", "データベース", "です", "！"),
+                tokens(components.newAnalyzer(definitions.get("japanese-raw")), TEXT));
+        assertEquals(List.of("関西", "国際", "空港", "到着", "し", "まし", "た",
+                        "NEO", "4", "J", "グラフ", "データベース", "です"),
+                tokens(components.newAnalyzer(definitions.get("japanese-particles")), TEXT));
+        assertEquals(List.of("関西", "国際", "空港", "到着", "NEO", "4", "J", "グラフ", "データベース"),
+                tokens(components.newAnalyzer(definitions.get("japanese-base")), TEXT));
+        assertEquals(List.of("に", "の"), components.stopwords(definitions.get("japanese-particles")).words());
+        assertEquals(List.of(), components.stopwords(definitions.get("japanese-raw")).words());
+    }
+
+    @Test
+    void testVariantsShareResources() throws IOException {
+        write("stopwords.txt", "に", "の");
+        Path file = write("analyzers.properties",
+                "analyzers = japanese-a, japanese-b",
+                "japanese-a.mode = normal",
+                "japanese-a.stopwords = stopwords.txt",
+                "japanese-b.mode = normal",
+                "japanese-b.stopwords = stopwords.txt",
+                "japanese-b.upperCase = false");
+        Map<String, AnalyzerDefinition> definitions = AnalyzerDefinition.load(Optional.of(file));
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+
+        KuromojiTokenizerFactory japanese = components.tokenizerFactory();
+        for (AnalyzerDefinition definition : definitions.values()) {
+            KuromojiTokenizerFactory factory = components.tokenizerFactory(definition);
+            assertSame(japanese.systemDictionary(), factory.systemDictionary(), definition.name());
+            assertSame(japanese.connectionCosts(), factory.connectionCosts(), definition.name());
+        }
+        assertSame(components.tokenizerFactory(definitions.get("japanese-normal")),
+                components.tokenizerFactory(definitions.get("japanese-a")));
+        assertSame(components.tokenizerFactory(definitions.get("japanese-a")),
+                components.tokenizerFactory(definitions.get("japanese-b")));
+        assertSame(components.stopwords(definitions.get("japanese-a")),
+                components.stopwords(definitions.get("japanese-b")));
+        assertSame(components.stopwords(), components.stopwords(definitions.get("japanese-search")));
+    }
+
+    @Test
+    @Tag("performance")
+    void testThroughputOfEachVariant() throws IOException {
+        Path file = write("analyzers.properties",
+                "analyzers = japanese-base, japanese-raw",
+                "japanese-base.filters = baseForm, partOfSpeechStop, katakanaStem",
+                "japanese-raw.stopwords = none",
+                "japanese-raw.upperCase = false");
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+        Map<String, Analyzer> analyzers = new LinkedHashMap<>();
+        analyzers.put("japanese", components.newAnalyzer());
+        for (AnalyzerDefinition definition : AnalyzerDefinition.load(Optional.of(file)).values()) {
+            analyzers.put(definition.name(), components.newAnalyzer(definition));
+        }
+        List<String> texts = List.of(TEXT, "日本は先進的な技術を持っています。", "東京タワーから富士山が見えました。",
+                "スマートフォンのアプリケーションを開発する。", "機械学習とディープラーニングが注目されています。");
+
+        // Warm up every chain, then measure
+        for (Analyzer analyzer : analyzers.values()) {
+            textsPerSecond(analyzer, texts);
+        }
+        double japanese = textsPerSecond(analyzers.get("japanese"), texts);
+        for (Map.Entry<String, Analyzer> analyzer : analyzers.entrySet()) {
+            double throughput = textsPerSecond(analyzer.getValue(), texts);
+            System.out.printf("%s: %,.0f texts/s%n", analyzer.getKey(), throughput);
+            assertTrue(throughput >= MIN_RELATIVE_THROUGHPUT * japanese,
+                    analyzer.getKey() + " analyzed " + throughput + " texts/s, japanese " + japanese);
+        }
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(directory.resolve(name), List.of(lines), StandardCharsets.UTF_8);
+    }
+
+    private static void assertInvalid(String... lines) {
+        Properties properties = new Properties();
+        for (String line : lines) {
+            String[] keyValue = line.split("=", 2);
+            properties.setProperty(keyValue[0].strip(), keyValue[1].strip());
+        }
+        assertThrows(IllegalArgumentException.class, () -> AnalyzerDefinition.parse(properties, Optional.empty()));
+    }
+
+    private static double textsPerSecond(Analyzer analyzer, List<String> texts) throws IOException {
+        long start = System.nanoTime();
+        long analyzed = 0;
+        while (System.nanoTime() - start < MEASUREMENT_NANOS) {
+            tokens(analyzer, texts.get((int) (analyzed++ % texts.size())));
+        }
+        return analyzed * 1e9 / (System.nanoTime() - start);
+    }
+
+    /**
+     * @return The terms; those stacked on the previous position are prefixed with '+'.
+     */
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add((posIncAtt.getPositionIncrement() == 0 ? "+" : "") + termAtt);
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DictionaryWarmup.
+ *
+ * Checks in fresh JVMs, which create the analyzer providers as Neo4j does at startup,
+ * that the warm-up completes, leaves the metrics of the analyzers empty and ignores an
+ * invalid setting. The performance test measures the time to the first token with and
+ * without the warm-up: each JVM lets the rest of the "startup" pass, then analyzes its
+ * first value and writes the time it took to a file.
+ */
+public class DictionaryWarmupTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    @Test
+    @Tag("performance")
+    void testWarmupReducesTimeToFirstToken() throws Exception {
+        long cold = timeToFirstToken(false);
+        long warm = timeToFirstToken(true);
+        System.out.printf("Time to first token: %,d µs without warm-up, %,d µs with warm-up%n",
+                cold / 1_000, warm / 1_000);
+
+        assertTrue(warm * 4 < cold,
+            "Warm-up should remove most of the first token latency: " + warm + " ns vs " + cold + " ns");
+    }
+
+    @Test
+    void testWarmupIsNotCounted() throws Exception {
+        runProbe(WarmupProbe.class, "true");
+    }
+
+    @Test
+    void testInvalidSettingIsIgnored() throws Exception {
+        // Must neither fail the providers nor disable the warm-up
+        runProbe(WarmupProbe.class, "off");
+    }
+
+    @Test
+    void testWarmupSetting() {
+        String previous = System.getProperty(JapaneseAnalyzerSettings.WARMUP);
+        try {
+            System.clearProperty(JapaneseAnalyzerSettings.WARMUP);
+            assertTrue(JapaneseAnalyzerSettings.warmup(), "Warm-up should be enabled by default");
+            System.setProperty(JapaneseAnalyzerSettings.WARMUP, "FALSE");
+            assertFalse(JapaneseAnalyzerSettings.warmup());
+            System.setProperty(JapaneseAnalyzerSettings.WARMUP, "off");
+            assertThrows(IllegalArgumentException.class, JapaneseAnalyzerSettings::warmup);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(JapaneseAnalyzerSettings.WARMUP);
+            } else {
+                System.setProperty(JapaneseAnalyzerSettings.WARMUP, previous);
+            }
+        }
+    }
+
+    /**
+     * Runs {@link FirstTokenProbe} in a new JVM.
+     *
+     * @return Nanoseconds from creating an analyzer to its first token
+     */
+    private static long timeToFirstToken(boolean warmup) throws IOException, InterruptedException {
+        Path result = Files.createTempFile("first-token", ".txt");
+        try {
+            runProbe(FirstTokenProbe.class, Boolean.toString(warmup), result.toString());
+            return Long.parseLong(Files.readString(result).strip());
+        } finally {
+            Files.delete(result);
+        }
+    }
+
+    /**
+     * Runs a probe in a new JVM and checks that it succeeds.
+     *
+     * @param warmup Value of the warm-up setting
+     * @param args Arguments of the probe
+     */
+    private static void runProbe(Class<?> probe, String warmup, String... args)
+            throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-D" + JapaneseAnalyzerSettings.WARMUP + "=" + warmup,
+                probe.getName()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        if (!process.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            fail("Probe JVM did not finish within " + STARTUP_TIMEOUT);
+        }
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).strip();
+        assertEquals(0, process.exitValue(), "Probe JVM failed: " + output);
+    }
+
+    /**
+     * Creates the providers like the ServiceLoader, waits for the warm-up (if enabled)
+     * as the rest of the database startup would, and writes the nanoseconds to the first
+     * token to the file given as argument.
+     */
+    public static class FirstTokenProbe {
+
+        public static void main(String[] args) throws Exception {
+            new JapaneseAnalyzerProvider();
+            new JapaneseMixedAnalyzerProvider();
+            if (JapaneseAnalyzerSettings.warmup() && !DictionaryWarmup.awaitCompletion(STARTUP_TIMEOUT)) {
+                throw new IllegalStateException("Warm-up did not complete");
+            }
+
+            long start = System.nanoTime();
+            try (Analyzer analyzer = new JapaneseAnalyzerProvider().createAnalyzer();
+                 TokenStream stream = analyzer.tokenStream("content", "東京都に住んでいます")) {
+                CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+                stream.reset();
+                if (!stream.incrementToken() || !termAtt.toString().equals("東京")) {
+                    throw new IllegalStateException("Unexpected first token");
+                }
+                long elapsed = System.nanoTime() - start;
+                Files.writeString(Path.of(args[0]), Long.toString(elapsed));
+            }
+        }
+    }
+
+    /**
+     * Creates the providers like the ServiceLoader, waits for the warm-up and fails if
+     * it did not complete or was counted in the metrics.
+     */
+    public static class WarmupProbe {
+
+        public static void main(String[] args) throws Exception {
+            new JapaneseAnalyzerProvider();
+            new JapaneseMixedAnalyzerProvider();
+            if (!DictionaryWarmup.awaitCompletion(STARTUP_TIMEOUT)) {
+                throw new IllegalStateException("Warm-up did not complete");
+            }
+            List<AnalyzerMetrics.Snapshot> metrics = JapaneseAnalysisComponents.shared().allMetrics().stream()
+                    .map(AnalyzerMetrics::snapshot)
+                    .filter(snapshot -> snapshot.documents() > 0)
+                    .toList();
+            if (!metrics.isEmpty()) {
+                throw new IllegalStateException("Warm-up was counted: " + metrics);
+            }
+        }
+    }
+}
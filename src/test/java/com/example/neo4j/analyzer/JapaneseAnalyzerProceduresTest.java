@@ -0,0 +1,146 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for JapaneseAnalyzerProcedures.
+ *
+ * Writes nodes into fulltext indexes with the Japanese analyzers and checks that
+ * {@code japanese.analyzer.metrics()} reports the analyzed documents. The metrics are
+ * shared by the whole JVM, so the test compares counters before and after its writes.
+ * Checks that {@code japanese.analyzeBatch()} returns the terms that fulltext queries
+ * find the nodes by, and that {@code japanese.explain()} returns the stages of the chain;
+ * neither is counted in the metrics.
+ */
+public class JapaneseAnalyzerProceduresTest {
+
+    private Neo4j server;
+    private GraphDatabaseService database;
+
+    @BeforeEach
+    void initializeNeo4j() {
+        server = Neo4jBuilders.newInProcessBuilder()
+                .withProcedure(JapaneseAnalyzerProcedures.class)
+                .build();
+        database = server.defaultDatabaseService();
+    }
+
+    @AfterEach
+    void closeNeo4j() {
+        server.close();
+    }
+
+    @Test
+    void testMetricsReportIndexedDocuments() {
+        database.executeTransactionally("CREATE FULLTEXT INDEX article_index FOR (n:Article) ON EACH [n.title] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CREATE FULLTEXT INDEX product_index FOR (n:Product) ON EACH [n.name] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese-mixed'}}");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        Map<String, Map<String, Object>> before = metrics();
+
+        database.executeTransactionally("UNWIND range(1, 100) AS i CREATE (:Article {title: 'これは日本の技術です' + i})");
+        database.executeTransactionally("CREATE (:Product {name: 'Neo4jグラフデータベース'})");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        Map<String, Map<String, Object>> after = metrics();
+
+        Map<String, Object> japanese = after.get("japanese");
+        assertNotNull(japanese, "The japanese analyzer should be listed: " + after);
+        assertTrue(delta(before, after, "japanese", "documents") >= 100);
+        assertTrue(delta(before, after, "japanese", "tokens") >= 300, "日本, 技術 and the number");
+        assertTrue(delta(before, after, "japanese", "stoppedTokens") >= 300, "これ, は, の and です");
+        assertTrue(delta(before, after, "japanese-mixed", "documents") >= 1);
+        assertTrue((Long) japanese.get("p99Micros") >= (Long) japanese.get("p50Micros"));
+        assertEquals(AnalyzerMetrics.LATENCY_BUCKETS, ((List<?>) japanese.get("latencyHistogram")).size());
+    }
+
+    @Test
+    void testBatchesAndExplanationsAreNotCounted() {
+        Map<String, Map<String, Object>> before = metrics();
+        database.executeTransactionally("CALL japanese.analyzeBatch($texts)",
+                Map.of("texts", List.of("日本は先進的な技術を持っています。", "Neo4jグラフデータベース")));
+        database.executeTransactionally("CALL japanese.explain('日本は先進的な技術を持っています。')");
+        Map<String, Map<String, Object>> after = metrics();
+
+        assertEquals(documents(before, "japanese"), documents(after, "japanese"),
+                "Only indexed documents should be counted");
+    }
+
+    @Test
+    void testAnalyzeBatchReturnsIndexedTerms() {
+        database.executeTransactionally("CREATE FULLTEXT INDEX article_index FOR (n:Article) ON EACH [n.title] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        database.executeTransactionally("CREATE (:Article {title: '日本は先進的な技術を持っています。'})");
+
+        List<Map<String, Object>> rows = database.executeTransactionally(
+                "CALL japanese.analyzeBatch($texts) YIELD index, tokens RETURN index, tokens",
+                Map.of("texts", List.of("日本は先進的な技術を持っています。", "Neo4jグラフデータベース")),
+                result -> result.stream().collect(Collectors.toList()));
+
+        assertEquals(2, rows.size());
+        assertEquals(0L, rows.get(0).get("index"));
+        List<?> tokens = (List<?>) rows.get(0).get("tokens");
+        assertTrue(tokens.contains("技術"), "Tokens: " + tokens);
+        for (Object token : tokens) {
+            long hits = database.executeTransactionally(
+                    "CALL db.index.fulltext.queryNodes('article_index', $term) YIELD node RETURN count(node) AS hits",
+                    Map.of("term", token), result -> (Long) result.next().get("hits"));
+            assertEquals(1, hits, "The node should be found by " + token);
+        }
+
+        List<Map<String, Object>> mixed = database.executeTransactionally(
+                "CALL japanese.analyzeBatch(['Customer ID 4711'], 'japanese-mixed')", Map.of(),
+                result -> result.stream().collect(Collectors.toList()));
+        assertEquals(List.of("CUSTOMER", "ID", "4711"), mixed.get(0).get("tokens"));
+        assertThrows(RuntimeException.class, () -> database.executeTransactionally(
+                "CALL japanese.analyzeBatch(null)"));
+    }
+
+    @Test
+    void testExplainReturnsStages() {
+        List<Map<String, Object>> rows = database.executeTransactionally(
+                "CALL japanese.explain($text, 'japanese-normalized') YIELD stage, implementation, tokenCount, tokens, "
+                        + "elapsedNanos, allocatedBytes, flags RETURN *",
+                Map.of("text", "日本は先進的な技術を持っています。"),
+                result -> result.stream().collect(Collectors.toList()));
+
+        assertEquals(List.of("tokenizer", "normalization", "stopFilter"),
+                rows.stream().map(row -> row.get("stage")).collect(Collectors.toList()));
+        Map<String, Object> last = rows.get(2);
+        assertEquals(List.of("日本", "先進", "的", "技術", "持つ"), last.get("tokens"));
+        assertEquals(5L, last.get("tokenCount"));
+        assertEquals(List.of(), last.get("flags"));
+        for (Map<String, Object> row : rows) {
+            assertTrue((Long) row.get("elapsedNanos") >= 0, row.toString());
+        }
+        assertThrows(RuntimeException.class, () -> database.executeTransactionally(
+                "CALL japanese.explain('日本', 'standard')"));
+    }
+
+    private Map<String, Map<String, Object>> metrics() {
+        return database.executeTransactionally("CALL japanese.analyzer.metrics()", Map.of(),
+                result -> result.stream().collect(Collectors.toMap(row -> (String) row.get("analyzer"), row -> row)));
+    }
+
+    private static long documents(Map<String, Map<String, Object>> metrics, String analyzer) {
+        return metrics.containsKey(analyzer) ? (Long) metrics.get(analyzer).get("documents") : 0;
+    }
+
+    private static long delta(Map<String, Map<String, Object>> before, Map<String, Map<String, Object>> after,
+                              String analyzer, String column) {
+        long previous = before.containsKey(analyzer) ? (Long) before.get(analyzer).get(column) : 0;
+        return (Long) after.get(analyzer).get(column) - previous;
+    }
+}
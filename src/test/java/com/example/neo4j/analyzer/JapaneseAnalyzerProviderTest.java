@@ -12,6 +12,7 @@ import org.neo4j.harness.Neo4j;
 import org.neo4j.harness.Neo4jBuilders;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -61,6 +62,18 @@ public class JapaneseAnalyzerProviderTest {
             
             assertTrue(analyzerNames.contains("japanese"), 
                 "Japanese analyzer should be available in the list of analyzers");
+            assertTrue(analyzerNames.contains("japanese-mixed"), 
+                "Mixed Japanese analyzer should be available in the list of analyzers");
+            assertTrue(analyzerNames.contains("japanese-normalized"),
+                "Normalized Japanese analyzer should be available in the list of analyzers");
+            assertTrue(analyzerNames.contains("japanese-ngram"),
+                "N-gram Japanese analyzer should be available in the list of analyzers");
+            assertTrue(analyzerNames.contains("japanese-reading"),
+                "Reading Japanese analyzer should be available in the list of analyzers");
+            assertTrue(analyzerNames.contains("japanese-normal"),
+                "Normal mode Japanese analyzer should be available in the list of analyzers");
+            assertTrue(analyzerNames.contains("japanese-search"),
+                "Search mode Japanese analyzer should be available in the list of analyzers");
         }
     }
 
@@ -182,6 +195,65 @@ public class JapaneseAnalyzerProviderTest {
         }
     }
 
+    @Test
+    void testMixedAnalyzerTokenizationAndSearch() {
+        try (Session session = driver.session()) {
+            // Create index with the analyzer that only runs Kuromoji on Japanese text
+            session.run("CREATE FULLTEXT INDEX japanese_mixed_index FOR (n:MixedDoc) ON EACH [n.content] " +
+                       "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese-mixed'}}");
+            
+            // Wait for index to be online
+            session.run("CALL db.awaitIndexes()");
+            
+            session.run("CREATE (d1:MixedDoc {content: 'Neo4jは素晴らしいgraph databaseです。'}), " +
+                       "(d2:MixedDoc {content: 'Customer ID 4711-ABC was migrated to the new cluster.'})");
+            
+            // English words are found in both Japanese and English text
+            Result result = session.run(
+                "CALL db.index.fulltext.queryNodes('japanese_mixed_index', 'database') " +
+                "YIELD node RETURN node.content AS content"
+            );
+            assertEquals("Neo4jは素晴らしいgraph databaseです。", result.single().get("content").asString());
+            
+            result = session.run(
+                "CALL db.index.fulltext.queryNodes('japanese_mixed_index', 'cluster') " +
+                "YIELD node RETURN node.content AS content"
+            );
+            assertEquals("Customer ID 4711-ABC was migrated to the new cluster.", result.single().get("content").asString());
+            
+            // Japanese words are still found through Kuromoji
+            result = session.run(
+                "CALL db.index.fulltext.queryNodes('japanese_mixed_index', '素晴らしい') " +
+                "YIELD node RETURN node.content AS content"
+            );
+            assertEquals("Neo4jは素晴らしいgraph databaseです。", result.single().get("content").asString());
+        }
+    }
+
+    @Test
+    void testNormalizedAnalyzerFindsOtherInflections() {
+        try (Session session = driver.session()) {
+            // Create index with the analyzer that indexes base forms
+            session.run("CREATE FULLTEXT INDEX japanese_normalized_index FOR (n:NormalizedDoc) ON EACH [n.content] " +
+                       "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese-normalized'}}");
+            
+            // Wait for index to be online
+            session.run("CALL db.awaitIndexes()");
+            
+            session.run("CREATE (d:NormalizedDoc {content: '東京タワーから富士山が見えました。新しいコンピューターを買った。'})");
+            
+            // Other inflections and katakana spellings find the document
+            for (String query : List.of("見える", "見えた", "コンピュータ", "買う")) {
+                Result result = session.run(
+                    "CALL db.index.fulltext.queryNodes('japanese_normalized_index', $query) " +
+                    "YIELD node RETURN count(node) AS hits",
+                    Map.of("query", query)
+                );
+                assertEquals(1, result.single().get("hits").asInt(), "Query should find the document: " + query);
+            }
+        }
+    }
+
     @Test
     void testAnalyzerDescription() {
         // Test the description method directly
@@ -201,9 +273,10 @@ public class JapaneseAnalyzerProviderTest {
         List<String> stopwords = provider.stopwords();
         
         assertNotNull(stopwords, "Stopwords list should not be null");
-        // The stopwords list might be empty if reflection fails or if the analyzer doesn't have stopwords
-        // This is acceptable behavior based on the implementation
         assertTrue(stopwords instanceof List, "Should return a List of strings");
+        // The stop words are read from the shared components, not recovered by reflection
+        assertFalse(stopwords.isEmpty(), "Stopwords list should not be empty");
+        assertTrue(stopwords.contains("これ"), "Stopwords should contain 'これ'");
     }
 
     @Test
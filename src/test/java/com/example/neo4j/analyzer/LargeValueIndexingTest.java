@@ -0,0 +1,109 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for indexing very large property values.
+ *
+ * Indexes a 50 MB value with few sentence breaks, like a log dump, through a
+ * full-text index on a small heap. Runs only in the large-values Maven profile,
+ * which sets the heap size and enables segmented tokenization:
+ *
+ *     mvn -Plarge-values test
+ */
+@Tag("large-values")
+public class LargeValueIndexingTest {
+
+    private static final int VALUE_BYTES = 50 * 1024 * 1024;
+    private static final long MAX_HEAP_BYTES = 512L * 1024 * 1024;
+
+    // Log-like fragments: no sentence punctuation, some whitespace, long runs of kanji
+    private static final List<String> FRAGMENTS = List.of(
+            "2024-05-01T12:00:00Z ",
+            "サーバー接続エラー発生 ",
+            "再試行中タイムアウト",
+            "ユーザー認証失敗データベース",
+            "東京特許許可局長今日急遽休暇許可拒否",
+            "status=503 retry=3 ");
+
+    private Neo4j embeddedDatabaseServer;
+    private GraphDatabaseService database;
+
+    @BeforeEach
+    void initializeNeo4j() {
+        embeddedDatabaseServer = Neo4jBuilders.newInProcessBuilder()
+                .build();
+        database = embeddedDatabaseServer.defaultDatabaseService();
+    }
+
+    @AfterEach
+    void closeNeo4j() {
+        if (embeddedDatabaseServer != null) {
+            embeddedDatabaseServer.close();
+        }
+    }
+
+    @Test
+    void testIndexLargeValueOnSmallHeap() {
+        assertTrue(JapaneseAnalysisComponents.shared().maxSegmentLength() > 0,
+            "Segmented tokenization should be enabled (run with -Plarge-values)");
+        assertTrue(Runtime.getRuntime().maxMemory() <= MAX_HEAP_BYTES,
+            "The heap should be limited to 512 MB (run with -Plarge-values)");
+
+        database.executeTransactionally("CREATE FULLTEXT INDEX japanese_large_index FOR (n:Document) ON EACH [n.content] " +
+                "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+
+        String content = largeValue();
+        assertTrue(content.getBytes(StandardCharsets.UTF_8).length >= VALUE_BYTES, "Value should be at least 50 MB");
+        database.executeTransactionally("CREATE (:Document {id: 'large', content: $content})",
+                Map.of("content", content));
+        database.executeTransactionally("CREATE (:Document {id: 'small', content: 'サーバー接続エラー発生'})");
+
+        // Terms from the start, the middle and the end of the value are all indexed
+        assertEquals(List.of("large"), search("firstmarker"), "Beginning of the value should be indexed");
+        assertEquals(List.of("large"), search("東京特許許可局"), "Middle of the value should be indexed");
+        assertEquals(List.of("large"), search("lastmarker"), "End of the value should be indexed");
+        assertEquals(List.of("large", "small"), search("サーバー"), "Both documents should match a common term");
+    }
+
+    private List<String> search(String query) {
+        return database.executeTransactionally(
+                "CALL db.index.fulltext.queryNodes('japanese_large_index', $query) YIELD node " +
+                "RETURN node.id AS id ORDER BY id",
+                Map.of("query", query),
+                result -> result.stream()
+                        .map(row -> (String) row.get("id"))
+                        .collect(Collectors.toList()));
+    }
+
+    private static String largeValue() {
+        int[] fragmentBytes = FRAGMENTS.stream()
+                .mapToInt(fragment -> fragment.getBytes(StandardCharsets.UTF_8).length)
+                .toArray();
+        Random random = new Random(42);
+        StringBuilder value = new StringBuilder(VALUE_BYTES / 2);
+        value.append("firstmarker ");
+        int bytes = value.length();
+        while (bytes < VALUE_BYTES) {
+            int fragment = random.nextInt(FRAGMENTS.size());
+            value.append(FRAGMENTS.get(fragment));
+            bytes += fragmentBytes[fragment];
+        }
+        return value.append(" lastmarker").toString();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.neo4j.analyzer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Results of the load test, and the baseline they are compared with.
+ *
+ * Stored as a plain tab-separated file ({@code metric<TAB>value<TAB>tolerance}) so that
+ * baselines can be committed and diffed. The tolerance is the relative regression
+ * allowed for the metric; it is written with a default per metric when a baseline is
+ * saved and may be edited, since latency percentiles are noisier than throughput.
+ */
+final class LoadTestBaseline {
+
+    /**
+     * Node updates committed per second by all writers together.
+     */
+    static final String WRITES_PER_SECOND = "writesPerSecond";
+
+    /**
+     * Fulltext queries answered per second by all readers together.
+     */
+    static final String QUERIES_PER_SECOND = "queriesPerSecond";
+
+    /**
+     * Median latency of a fulltext query while the writers run, in milliseconds.
+     */
+    static final String QUERY_P50_MILLIS = "queryP50Millis";
+
+    /**
+     * 99th percentile latency of a fulltext query while the writers run, in milliseconds.
+     */
+    static final String QUERY_P99_MILLIS = "queryP99Millis";
+
+    /**
+     * Time to populate the fulltext indexes over the existing nodes, in milliseconds.
+     */
+    static final String POPULATION_MILLIS = "populationMillis";
+
+    private static final Map<String, Double> DEFAULT_TOLERANCES = Map.of(
+            WRITES_PER_SECOND, 0.15,
+            QUERIES_PER_SECOND, 0.15,
+            QUERY_P50_MILLIS, 0.25,
+            QUERY_P99_MILLIS, 0.50,
+            POPULATION_MILLIS, 0.20);
+
+    private final Map<String, Double> values;
+    private final Map<String, Double> tolerances;
+
+    private LoadTestBaseline(Map<String, Double> values, Map<String, Double> tolerances) {
+        this.values = values;
+        this.tolerances = tolerances;
+    }
+
+    /**
+     * @param values Measured value per metric
+     * @return Results with the default tolerances
+     */
+    static LoadTestBaseline of(Map<String, Double> values) {
+        Map<String, Double> tolerances = new LinkedHashMap<>();
+        for (String metric : values.keySet()) {
+            tolerances.put(metric, DEFAULT_TOLERANCES.getOrDefault(metric, 0.20));
+        }
+        return new LoadTestBaseline(new LinkedHashMap<>(values), tolerances);
+    }
+
+    static LoadTestBaseline read(Path file) throws IOException {
+        Map<String, Double> values = new LinkedHashMap<>();
+        Map<String, Double> tolerances = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            if (columns.length != 3) {
+                throw new IOException("Expected metric, value and tolerance in " + file + ": " + line);
+            }
+            values.put(columns[0], Double.parseDouble(columns[1]));
+            tolerances.put(columns[0], Double.parseDouble(columns[2]));
+        }
+        return new LoadTestBaseline(values, tolerances);
+    }
+
+    void write(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# metric<TAB>value<TAB>allowed relative regression");
+        values.forEach((metric, value) -> lines.add(String.format(Locale.ROOT, "%s\t%.2f\t%.2f",
+                metric, value, tolerances.get(metric))));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares these results with a baseline, using the baseline's tolerances.
+     *
+     * Throughputs regress when they drop; latencies and the population time regress
+     * when they grow. Metrics missing from either side are ignored.
+     *
+     * @param baseline The baseline to compare against
+     * @return Human readable descriptions of each regression, empty if none
+     */
+    List<String> regressionsAgainst(LoadTestBaseline baseline) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            String metric = entry.getKey();
+            Double expected = baseline.values.get(metric);
+            if (expected == null || expected == 0.0) {
+                continue;
+            }
+            double tolerance = baseline.tolerances.get(metric);
+            double change = (entry.getValue() - expected) / expected;
+            boolean regressed = higherIsBetter(metric) ? change < -tolerance : change > tolerance;
+            if (regressed) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.2f -> %.2f (%+.1f%%, allowed %.0f%%)",
+                        metric, expected, entry.getValue(), change * 100, tolerance * 100));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * @return The value of each metric, in the order they were measured.
+     */
+    Map<String, Double> values() {
+        return values;
+    }
+
+    private static boolean higherIsBetter(String metric) {
+        return metric.endsWith("PerSecond");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.neo4j.analyzer;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated Japanese corpus of the load test: news-like titles and bodies built from a
+ * fixed vocabulary, so that every run indexes comparable text and the query words
+ * occur with known frequencies. The same seed always gives the same documents.
+ */
+final class LoadTestCorpus {
+
+    /**
+     * Nouns of the corpus, which are also the query words.
+     */
+    static final List<String> NOUNS = List.of(
+            "技術", "経済", "政府", "企業", "市場", "研究", "開発", "環境", "教育", "医療",
+            "地域", "観光", "東京", "大阪", "京都", "科学", "宇宙", "農業", "交通", "文化",
+            "人工知能", "半導体", "再生可能エネルギー", "スマートフォン", "データセンター", "物流",
+            "少子化", "高齢化", "防災", "地震", "台風", "選挙", "予算", "輸出", "為替", "株価");
+
+    private static final List<String> VERBS = List.of(
+            "発表", "拡大", "増加", "減少", "注目", "検討", "導入", "改善", "推進", "強化");
+
+    private static final List<String> SENTENCE_PATTERNS = List.of(
+            "%sの%sが%sされた。",
+            "%sでは%sの%sが進んでいる。",
+            "専門家は%sと%sの%sについて説明した。",
+            "%sに関する%sの%sが求められている。",
+            "今年の%sは%sの%sによって大きく変わった。");
+
+    private final Random random;
+
+    /**
+     * @param random Source of the choices; seeded for repeatable documents
+     */
+    LoadTestCorpus(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @return A title of two nouns and a verb, e.g. "東京の観光が拡大".
+     */
+    String title() {
+        return noun() + "の" + noun() + "が" + verb();
+    }
+
+    /**
+     * @return A body of 5 to 15 sentences.
+     */
+    String body() {
+        StringBuilder body = new StringBuilder();
+        int sentences = 5 + random.nextInt(11);
+        for (int i = 0; i < sentences; i++) {
+            String pattern = SENTENCE_PATTERNS.get(random.nextInt(SENTENCE_PATTERNS.size()));
+            body.append(String.format(pattern, noun(), noun(), verb()));
+        }
+        return body.toString();
+    }
+
+    /**
+     * @return A fulltext query of one or two nouns.
+     */
+    String query() {
+        return random.nextInt(4) == 0 ? noun() + " " + noun() : noun();
+    }
+
+    private String noun() {
+        return NOUNS.get(random.nextInt(NOUNS.size()));
+    }
+
+    private String verb() {
+        return VERBS.get(random.nextInt(VERBS.size()));
+    }
+}
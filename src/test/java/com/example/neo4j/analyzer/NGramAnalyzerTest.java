@@ -0,0 +1,171 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the "japanese-ngram" analyzer.
+ *
+ * Tests the n-grams added by CjkNGramFilter including:
+ * - Bigrams and trigrams across Kuromoji token boundaries, at consistent positions
+ * - The Kuromoji tokens of the "japanese" analyzer are kept, two and three character ones as their n-gram
+ * - No term twice at the same offsets
+ * - Phrase queries find any substring, however Kuromoji splits it
+ * - Latin words and numbers pass through
+ */
+public class NGramAnalyzerTest {
+
+    private Analyzer analyzer;
+
+    @BeforeEach
+    void createAnalyzer() {
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer("japanese-ngram");
+    }
+
+    @AfterEach
+    void closeAnalyzer() {
+        analyzer.close();
+    }
+
+    @Test
+    void testNGramsAtCharacterPositions() throws IOException {
+        // 東京 | タワー, each token standing as the n-gram of its characters
+        assertEquals(List.of("0:東京", "1:東京タ", "1:京タ", "2:京タワ", "2:タワ", "3:タワー", "3:ワー"),
+                positionedTokens("東京タワー"));
+        // Punctuation ends the run
+        assertEquals(List.of("0:東京", "1:タワ", "2:タワー", "2:ワー"), positionedTokens("東京、タワー"));
+        // A longer token on the position of its second character
+        assertEquals(List.of("0:コンピューター", "0:コン", "1:コンピ", "1:ンピ", "2:ンピュ", "2:ピュ"),
+                positionedTokens("コンピューター").subList(0, 6));
+    }
+
+    @Test
+    void testNoTermTwiceAtTheSameOffsets() throws IOException {
+        for (String text : List.of("日本語を楽しい気持ちで学ぶ。", "東京タワーから富士山が見えました。",
+                "新しいコンピューターを買った。", "私は東京に住んでいます")) {
+            Set<String> seen = new HashSet<>();
+            try (TokenStream stream = analyzer.tokenStream("content", text)) {
+                CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+                OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+                stream.reset();
+                while (stream.incrementToken()) {
+                    String token = termAtt + "@" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset();
+                    assertTrue(seen.add(token), "Emitted twice: " + token + " in " + text);
+                }
+                stream.end();
+            }
+        }
+    }
+
+    @Test
+    void testKeepsTheTokensOfJapanese() throws IOException {
+        String text = "私は東京タワーに行きました。新しいコンピューターを買った。";
+        try (Analyzer japanese = JapaneseAnalysisComponents.shared().newAnalyzer()) {
+            List<String> japaneseTokens = terms(japanese, text);
+            List<String> ngramTokens = tokens(text);
+            assertTrue(ngramTokens.containsAll(japaneseTokens), japaneseTokens + " in " + ngramTokens);
+            assertTrue(ngramTokens.contains("ンピュ"));
+        }
+    }
+
+    @Test
+    void testPhraseQueriesFindSubstrings() throws IOException {
+        List<String> texts = List.of(
+                "東京タワーから富士山が見えました。",
+                "新しいコンピューターを買った。",
+                "日本は先進的な技術を持っています。",
+                "Neo4jはグラフデータベースです。");
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+                for (String text : texts) {
+                    Document document = new Document();
+                    document.add(new TextField("content", text, Field.Store.NO));
+                    writer.addDocument(document);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+                // Every substring of two characters or more, including stop words and parts of words
+                for (String text : texts) {
+                    for (int start = 0; start < text.length(); start++) {
+                        for (int end = start + 2; end <= Math.min(text.length(), start + 8); end++) {
+                            String substring = text.substring(start, end);
+                            if (substring.chars().allMatch(c -> ScriptRoutingTokenizer.isJapanese((char) c)
+                                    && Character.getType(c) != Character.OTHER_PUNCTUATION && c != '。')) {
+                                assertTrue(searcher.count(queryBuilder.createPhraseQuery("content", substring)) > 0,
+                                        "Substring should be found: " + substring);
+                            }
+                        }
+                    }
+                }
+                for (String missing : List.of("ータワ", "京富士", "技術持")) {
+                    assertEquals(0, searcher.count(queryBuilder.createPhraseQuery("content", missing)), missing);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLatinWordsPassThrough() throws IOException {
+        assertEquals(List.of("NEO", "4", "J", "グラ", "グラフ", "ラフ"), tokens("Neo4jグラフ"));
+        assertEquals(List.of("GRAPH", "DATABASE"), tokens("graph database"));
+    }
+
+    private List<String> tokens(String text) throws IOException {
+        return terms(analyzer, text);
+    }
+
+    private List<String> positionedTokens(String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            int position = -1;
+            while (stream.incrementToken()) {
+                position += posIncAtt.getPositionIncrement();
+                tokens.add(position + ":" + termAtt);
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    private static List<String> terms(Analyzer analyzer, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+}
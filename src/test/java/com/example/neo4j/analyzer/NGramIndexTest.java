@@ -0,0 +1,112 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the dual-index pattern with the "japanese-ngram" analyzer.
+ *
+ * Indexes the same property with a "japanese" index for word queries and a
+ * "japanese-ngram" index for substring queries, and checks that a phrase query on the
+ * n-gram index finds every node that a {@code *substring*} wildcard query on the
+ * "japanese" index finds, as well as substrings spanning several words, which the
+ * wildcard query cannot find. Prints the latency of both queries.
+ */
+public class NGramIndexTest {
+
+    private static final List<String> SENTENCES = List.of(
+            "東京タワーから富士山が見えました。",
+            "新しいコンピューターを買った。",
+            "日本は先進的な技術を持っています。",
+            "スマートフォンのアプリケーションを開発する。",
+            "大阪城の桜が満開になりました。");
+
+    private static final int NODES = 2_000;
+    private static final int REPETITIONS = 50;
+
+    private Neo4j server;
+    private GraphDatabaseService database;
+
+    @BeforeEach
+    void initializeNeo4j() {
+        server = Neo4jBuilders.newInProcessBuilder().build();
+        database = server.defaultDatabaseService();
+        // One index per kind of query, on the same property
+        database.executeTransactionally("CREATE FULLTEXT INDEX article_words FOR (n:Article) ON EACH [n.body] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CREATE FULLTEXT INDEX article_substrings FOR (n:Article) ON EACH [n.body] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese-ngram'}}");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        database.executeTransactionally(
+                "UNWIND range(0, $nodes - 1) AS i CREATE (:Article {id: i, body: $sentences[i % size($sentences)] + i})",
+                Map.of("nodes", NODES, "sentences", SENTENCES));
+        database.executeTransactionally("CALL db.awaitIndexes()");
+    }
+
+    @AfterEach
+    void closeNeo4j() {
+        server.close();
+    }
+
+    @Test
+    void testPhraseQueriesFindWhatWildcardsFind() {
+        for (String substring : List.of("ンピュー", "士山", "アプリケ", "先進")) {
+            Set<Long> wildcardHits = ids("article_words", "*" + substring + "*");
+            Set<Long> phraseHits = ids("article_substrings", "\"" + substring + "\"");
+            assertFalse(wildcardHits.isEmpty(), substring);
+            assertEquals(wildcardHits, phraseHits, substring);
+        }
+    }
+
+    @Test
+    void testPhraseQueriesFindSubstringsAcrossWords() {
+        // 京タワ spans 東京 and タワー, 桜が満 spans a particle
+        for (String substring : List.of("京タワ", "桜が満", "術を持")) {
+            assertTrue(ids("article_words", "*" + substring + "*").isEmpty(), substring);
+            assertEquals(NODES / SENTENCES.size(), ids("article_substrings", "\"" + substring + "\"").size(), substring);
+        }
+        // The words are still found on the japanese index
+        assertEquals(NODES / SENTENCES.size(), ids("article_words", "タワー").size());
+    }
+
+    @Test
+    void testQueryLatency() {
+        for (String substring : List.of("ンピュー", "士山", "アプリケ")) {
+            double wildcardMicros = micros("article_words", "*" + substring + "*");
+            double phraseMicros = micros("article_substrings", "\"" + substring + "\"");
+            System.out.printf("%s: %,.0f µs wildcard on japanese, %,.0f µs phrase on japanese-ngram%n",
+                    substring, wildcardMicros, phraseMicros);
+        }
+    }
+
+    private Set<Long> ids(String index, String query) {
+        return database.executeTransactionally(
+                "CALL db.index.fulltext.queryNodes($index, $query) YIELD node RETURN node.id AS id",
+                Map.of("index", index, "query", query),
+                result -> result.stream().map(row -> (Long) row.get("id")).collect(Collectors.toCollection(HashSet::new)));
+    }
+
+    private double micros(String index, String query) {
+        // Warm up, then measure
+        for (int i = 0; i < REPETITIONS; i++) {
+            ids(index, query);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            ids(index, query);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / REPETITIONS;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the "japanese-normalized" analyzer.
+ *
+ * Tests the normalization on top of the "japanese" chain including:
+ * - Reduction of inflected words to their base form
+ * - Stemming of katakana long vowel variants
+ * - Removal of particles and auxiliary verbs by part of speech
+ * - Stop words and uppercasing as in the "japanese" analyzer
+ */
+public class NormalizedAnalyzerTest {
+
+    private Analyzer analyzer;
+
+    @BeforeEach
+    void createAnalyzer() {
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer("japanese-normalized");
+    }
+
+    @AfterEach
+    void closeAnalyzer() {
+        analyzer.close();
+    }
+
+    @Test
+    void testInflectedFormsShareBaseForm() throws IOException {
+        for (String form : List.of("食べる", "食べた", "食べます", "食べました")) {
+            assertEquals(List.of("食べる"), tokens(form), form);
+        }
+        assertEquals(List.of("東京", "タワー", "富士山", "見える"), tokens("東京タワーから富士山が見えました。"));
+    }
+
+    @Test
+    void testKatakanaLongVowelVariantsAreMerged() throws IOException {
+        assertEquals(tokens("コンピュータ"), tokens("コンピューター"));
+        assertEquals(List.of("サーバ", "サーバ"), tokens("サーバーとサーバ"));
+        assertEquals(List.of("タワー"), tokens("タワー"), "Short katakana words are kept as they are");
+    }
+
+    @Test
+    void testStopWordsAndCaseAreHandledLikeJapanese() throws IOException {
+        assertEquals(List.of("日本", "技術"), tokens("これは日本の技術です。"));
+        assertEquals(List.of("NEO", "4", "J", "素晴らしい", "GRAPH", "DATABASE"),
+            tokens("Neo4jは素晴らしいgraph databaseです。"));
+    }
+
+    @Test
+    void testFewerDistinctTermsThanJapanese() throws IOException {
+        String text = "食べる。食べた。食べます。食べました。コンピュータとコンピューター。";
+        try (Analyzer japanese = JapaneseAnalysisComponents.shared().newAnalyzer()) {
+            long japaneseTerms = terms(japanese, text).stream().distinct().count();
+            long normalizedTerms = tokens(text).stream().distinct().count();
+            assertEquals(2, normalizedTerms);
+            assertTrue(normalizedTerms < japaneseTerms, "japanese has " + japaneseTerms + " distinct terms");
+        }
+    }
+
+    private List<String> tokens(String text) throws IOException {
+        return terms(analyzer, text);
+    }
+
+    private static List<String> terms(Analyzer analyzer, String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the "japanese-reading" analyzer.
+ *
+ * Tests the readings added by ReadingFormFilter including:
+ * - Katakana readings stacked on the Kuromoji tokens, which are kept
+ * - Joined readings of kana runs and personal names, however Kuromoji splits them
+ * - Honorifics ending runs without starting one
+ * - Queries in hiragana, katakana and romaji finding words written in kanji
+ * - Quoted and unquoted queries, as Neo4j parses them
+ * - No readings for stop words, and Latin words passing through
+ */
+public class ReadingAnalyzerTest {
+
+    private static final List<String> NAMES = List.of("山田太郎", "山田花子", "田中一郎", "東京都", "中島みゆき");
+
+    private Analyzer analyzer;
+
+    @BeforeEach
+    void createAnalyzer() {
+        analyzer = JapaneseAnalysisComponents.shared().newAnalyzer("japanese-reading");
+    }
+
+    @AfterEach
+    void closeAnalyzer() {
+        analyzer.close();
+    }
+
+    @Test
+    void testReadingsAreStackedOnTheTokens() throws IOException {
+        assertEquals(List.of("0:東京", "0:トウキョウ", "1:都", "1:ト"), positionedTokens(analyzer, "東京都"));
+        // The full name spans both positions
+        assertEquals(List.of("0:山田", "0:ヤマダ", "0-1:ヤマダタロウ", "1:太郎", "1:タロウ"),
+                positionedTokens(analyzer, "山田太郎"));
+        assertEquals(List.of("0:トウキョウ"), positionedTokens(analyzer, "トウキョウ"),
+                "Katakana is its own reading");
+    }
+
+    @Test
+    void testKanaRunsAreJoined() throws IOException {
+        // Kuromoji splits やまだたろう into やまだ, たろ and う, which alone match nothing of 山田太郎
+        List<String> tokens = positionedTokens(analyzer, "やまだたろう");
+        assertTrue(tokens.contains("0-2:ヤマダタロウ"), tokens.toString());
+        assertTrue(tokens.containsAll(List.of("0:やまだ", "1:たろ", "2:う")), "The kana tokens are kept: " + tokens);
+    }
+
+    @Test
+    void testHonorificsStartNoRun() throws IOException {
+        List<String> tokens = positionedTokens(analyzer, "山田太郎さんは");
+        assertTrue(tokens.contains("0-1:ヤマダタロウ"), tokens.toString());
+        // さん and the particle after it would be joined to サンハ
+        assertEquals(List.of("2:さん", "2:サン"), tokens.subList(5, tokens.size()));
+    }
+
+    @Test
+    void testKanaQueriesFindKanji() throws IOException {
+        Map<String, String> queries = Map.of(
+                "やまだたろう", "山田太郎",
+                "ヤマダタロウ", "山田太郎",
+                "やまだはなこ", "山田花子",
+                "たなか", "田中一郎",
+                "とうきょう", "東京都",
+                "なかじまみゆき", "中島みゆき");
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            assertEquals(List.of(query.getValue()), search(analyzer, query.getKey()), query.getKey());
+        }
+        assertEquals(List.of("山田太郎", "山田花子"), search(analyzer, "やまだ"));
+        assertEquals(List.of(), search(analyzer, "やまだいちろう"));
+    }
+
+    @Test
+    void testPhraseAndOrQueries() throws IOException {
+        // The queries of Neo4j's parser: quoted, and unquoted words combined with OR
+        assertEquals(List.of("山田太郎"), search(analyzer, "やまだたろう", true, BooleanClause.Occur.MUST));
+        assertEquals(List.of("中島みゆき"), search(analyzer, "なかじまみゆき", true, BooleanClause.Occur.MUST));
+        List<String> ranked = search(analyzer, "やまだたろう", false, BooleanClause.Occur.SHOULD);
+        assertEquals("山田太郎", ranked.get(0), "The full name ranks first: " + ranked);
+    }
+
+    @Test
+    void testRomajiReadings() throws IOException {
+        try (Analyzer romaji = JapaneseAnalysisComponents.load(Optional.empty()).withReadingRomaji(true)
+                .newReadingAnalyzer()) {
+            assertEquals(List.of("0:東京", "0:トウキョウ", "0:TOKYO", "1:都", "1:ト", "1:TO"),
+                    positionedTokens(romaji, "東京都"));
+            // タロウ (kana) and タロー (the pronunciation of 太郎) are both taro
+            assertEquals(List.of("山田太郎"), search(romaji, "yamadataro"));
+            assertEquals(List.of("山田太郎"), search(romaji, "やまだたろう"));
+            assertEquals(List.of("東京都"), search(romaji, "Tokyo"));
+        }
+        assertEquals(List.of(), search(analyzer, "tokyo"), "Romaji is only indexed when configured");
+    }
+
+    @Test
+    void testStopWordsHaveNoReadings() throws IOException {
+        assertEquals(List.of("2:日本", "2:ニッポン", "4:技術", "4:ギジュツ"),
+                positionedTokens(analyzer, "これは日本の技術です。"));
+        assertEquals(List.of(), positionedTokens(analyzer, "これはそれです"), "Runs of stop words are not joined");
+    }
+
+    @Test
+    void testLatinWordsPassThrough() throws IOException {
+        assertEquals(List.of("0:NEO", "1:4", "2:J", "3:グラフ"), positionedTokens(analyzer, "Neo4jグラフ"));
+    }
+
+    /**
+     * @return The hits of a query requiring all of its words, in index order.
+     */
+    private static List<String> search(Analyzer analyzer, String query) throws IOException {
+        List<String> hits = search(analyzer, query, false, BooleanClause.Occur.MUST);
+        hits.sort((a, b) -> NAMES.indexOf(a) - NAMES.indexOf(b));
+        return hits;
+    }
+
+    /**
+     * @return The hits of a phrase or boolean query, by score.
+     */
+    private static List<String> search(Analyzer analyzer, String query, boolean phrase, BooleanClause.Occur operator)
+            throws IOException {
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+                for (String name : NAMES) {
+                    Document document = new Document();
+                    document.add(new TextField("content", name, Field.Store.NO));
+                    document.add(new StoredField("name", name));
+                    writer.addDocument(document);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+                Query parsed = phrase
+                        ? queryBuilder.createPhraseQuery("content", query)
+                        : queryBuilder.createBooleanQuery("content", query, operator);
+                List<String> hits = new ArrayList<>();
+                for (ScoreDoc hit : searcher.search(parsed, NAMES.size()).scoreDocs) {
+                    hits.add(searcher.storedFields().document(hit.doc).get("name"));
+                }
+                return hits;
+            }
+        }
+    }
+
+    /**
+     * @return The terms with their positions, as {@code first-last:term} for terms spanning several positions.
+     */
+    private static List<String> positionedTokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            PositionLengthAttribute posLenAtt = stream.addAttribute(PositionLengthAttribute.class);
+            stream.reset();
+            int position = -1;
+            while (stream.incrementToken()) {
+                position += posIncAtt.getPositionIncrement();
+                int length = posLenAtt.getPositionLength();
+                tokens.add((length == 1 ? position : position + "-" + (position + length - 1)) + ":" + termAtt);
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for name search with the "japanese-reading" analyzer.
+ *
+ * Indexes the names of people written in kanji and in kana with a "japanese" index and
+ * a "japanese-reading" index, and checks that a name typed in kana finds the same
+ * people, in whatever script their name is written, on the reading index, while fuzzy
+ * queries over its hiragana and katakana spellings on the "japanese" index find at most
+ * the names written in kana. Prints the latency of both queries.
+ */
+public class ReadingIndexTest {
+
+    private static final List<String> NAMES = List.of("山田太郎", "山田花子", "田中一郎", "中島みゆき", "やまだたろう");
+
+    private static final int NODES = 1_000;
+    private static final int REPETITIONS = 50;
+
+    private Neo4j server;
+    private GraphDatabaseService database;
+
+    @BeforeEach
+    void initializeNeo4j() {
+        server = Neo4jBuilders.newInProcessBuilder().build();
+        database = server.defaultDatabaseService();
+        database.executeTransactionally("CREATE FULLTEXT INDEX person_words FOR (n:Person) ON EACH [n.name] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CREATE FULLTEXT INDEX person_readings FOR (n:Person) ON EACH [n.name] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese-reading'}}");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        database.executeTransactionally(
+                "UNWIND range(0, $nodes - 1) AS i CREATE (:Person {id: i, name: $names[i % size($names)]})",
+                Map.of("nodes", NODES, "names", NAMES));
+        database.executeTransactionally("CALL db.awaitIndexes()");
+    }
+
+    @AfterEach
+    void closeNeo4j() {
+        server.close();
+    }
+
+    @Test
+    void testKanaQueriesFindNamesInAnyScript() {
+        int perName = NODES / NAMES.size();
+        // 山田太郎 and やまだたろう
+        assertEquals(2 * perName, ids("person_readings", "\"やまだたろう\"").size());
+        assertEquals(2 * perName, ids("person_readings", "\"ヤマダタロウ\"").size());
+        assertEquals(perName, ids("person_readings", "\"なかじまみゆき\"").size());
+        assertEquals(perName, ids("person_readings", "たなか").size());
+        // Kanji queries are unaffected
+        assertEquals(perName, ids("person_readings", "\"山田花子\"").size());
+    }
+
+    @Test
+    void testFuzzyQueriesMissKanjiNames() {
+        Set<Long> fuzzyHits = ids("person_words", fuzzy("やまだたろう"));
+        Set<Long> readingHits = ids("person_readings", "\"やまだたろう\"");
+        assertTrue(readingHits.containsAll(fuzzyHits), "The reading index finds every fuzzy match of the full name");
+        assertTrue(fuzzyHits.size() < readingHits.size(), fuzzyHits.size() + " fuzzy hits");
+    }
+
+    @Test
+    void testQueryLatency() {
+        for (String name : List.of("やまだたろう", "なかじまみゆき", "たなか")) {
+            double fuzzyMicros = micros("person_words", fuzzy(name));
+            double readingMicros = micros("person_readings", "\"" + name + "\"");
+            System.out.printf("%s: %,.0f µs fuzzy on japanese, %,.0f µs phrase on japanese-reading%n",
+                    name, fuzzyMicros, readingMicros);
+        }
+    }
+
+    /**
+     * @return Fuzzy queries for the hiragana and katakana spellings of a name, as used without reading forms.
+     */
+    private static String fuzzy(String hiragana) {
+        StringBuilder katakana = new StringBuilder();
+        ReadingFormFilter.appendKatakana(katakana, hiragana);
+        return hiragana + "~1 OR " + katakana + "~1";
+    }
+
+    private Set<Long> ids(String index, String query) {
+        return database.executeTransactionally(
+                "CALL db.index.fulltext.queryNodes($index, $query) YIELD node RETURN node.id AS id",
+                Map.of("index", index, "query", query),
+                result -> result.stream().map(row -> (Long) row.get("id")).collect(Collectors.toCollection(HashSet::new)));
+    }
+
+    private double micros(String index, String query) {
+        // Warm up, then measure
+        for (int i = 0; i < REPETITIONS; i++) {
+            ids(index, query);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            ids(index, query);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / REPETITIONS;
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.RegexpQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ReindexPlan.
+ *
+ * Tests the diff behind {@code japanese.reindex} including:
+ * - Added stop words looked up in the index, removed ones searched in the text
+ * - Every entry for base form analyzers when stop words are removed
+ * - Surface forms of added, removed and changed user dictionary entries
+ * - Every document whose tokens change being a candidate, and only a part of the corpus
+ * - Added stop words found in an index built with the previous stop words, removed ones only in the text
+ * - The padding of a rewrite giving the same tokens, offsets and positions with every built-in analyzer
+ * - Term queries finding a term exactly, whatever characters it has
+ */
+public class ReindexPlanTest {
+
+    private static final List<String> DICTIONARY = List.of(
+            "東京スカイツリー,東京 スカイツリー,トウキョウ スカイツリー,カスタム名詞",
+            "人工知能,人工知能,ジンコウチノウ,カスタム名詞");
+
+    private final List<Path> files = new ArrayList<>();
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testStopwordChange() {
+        CompiledStopwordSet previous = CompiledStopwordSet.compile(List.of("これ", "は", "the"));
+        CompiledStopwordSet current = CompiledStopwordSet.compile(List.of("これ", "の", "What"));
+
+        ReindexPlan plan = ReindexPlan.stopwordChange(previous, current, true, true);
+        assertEquals(List.of("WHAT", "の"), List.copyOf(plan.indexTerms()), "Terms the index has but should not");
+        assertEquals(List.of("THE", "は"), List.copyOf(plan.substrings()), "Words the index misses");
+        assertFalse(plan.allEntities());
+        assertTrue(plan.matches("The end"));
+        assertTrue(plan.matches(new String[] {"東京", "私は"}));
+        assertFalse(plan.matches("東京の技術"), "Added stop words are found through the index");
+        assertFalse(plan.matches(42L));
+
+        ReindexPlan keepingCase = ReindexPlan.stopwordChange(previous, current, false, true);
+        assertTrue(keepingCase.indexTerms().isEmpty(), "Any spelling may be indexed");
+        assertTrue(keepingCase.matches("what"));
+
+        ReindexPlan baseForms = ReindexPlan.stopwordChange(previous, current, true, false);
+        assertTrue(baseForms.allEntities(), "The removed stop word may be the base form of another word");
+        assertFalse(ReindexPlan.stopwordChange(CompiledStopwordSet.compile(List.of("これ")), current, true, false)
+                .allEntities(), "Only added stop words are looked up in the index");
+
+        assertTrue(ReindexPlan.stopwordChange(current, current, true, true).isEmpty());
+    }
+
+    @Test
+    void testUserDictionaryChange() {
+        List<String> current = List.of(
+                DICTIONARY.get(0),
+                "人工知能,人工 知能,ジンコウ チノウ,カスタム名詞",
+                "\"Neo4j, Inc.\",Neo4j,ネオフォージェイ,カスタム名詞");
+
+        ReindexPlan plan = ReindexPlan.userDictionaryChange(DICTIONARY, current);
+        assertTrue(plan.indexTerms().isEmpty());
+        assertEquals(List.of("NEO4J, INC.", "人工知能"), List.copyOf(plan.substrings()));
+        assertTrue(plan.matches("人工知能の研究"));
+        assertTrue(plan.matches("neo4j, inc. の製品"));
+        assertFalse(plan.matches("東京スカイツリーに行った"), "Unchanged entries are not rewritten");
+        assertTrue(ReindexPlan.userDictionaryChange(DICTIONARY, DICTIONARY).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> ReindexPlan.userDictionaryChange(List.of(), List.of(",東京,トウキョウ,カスタム名詞")));
+    }
+
+    @Test
+    void testPlanOfAnalyzer() {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared();
+        CompiledStopwordSet fewer = CompiledStopwordSet.compile(components.stopwords().words().subList(1, 10));
+
+        ReindexPlan japanese = ReindexPlan.of("japanese", components, Optional.of(fewer), Optional.empty(), List.of());
+        assertEquals(components.stopwords().size() - 9, japanese.indexTerms().size());
+        assertFalse(japanese.allEntities());
+        ReindexPlan normalized = ReindexPlan.of("japanese-normalized", components,
+                Optional.of(CompiledStopwordSet.compile(List.of("技術"))), Optional.empty(), List.of());
+        assertTrue(normalized.allEntities());
+        assertTrue(ReindexPlan.of("japanese", components, Optional.of(components.stopwords()), Optional.of(List.of()),
+                List.of()).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> ReindexPlan.of("standard", components, Optional.of(fewer), Optional.empty(), List.of()));
+
+        assertEquals(japanese.fingerprint(),
+                ReindexPlan.of("japanese", components, Optional.of(fewer), Optional.empty(), List.of()).fingerprint());
+        assertNotEquals(japanese.fingerprint(), normalized.fingerprint(), "Other changes");
+    }
+
+    @Test
+    void testEveryChangedDocumentIsACandidate() throws IOException {
+        List<String> documents = new ArrayList<>();
+        LoadTestCorpus corpus = new LoadTestCorpus(new Random(7));
+        for (int i = 0; i < 500; i++) {
+            documents.add(i % 2 == 0 ? corpus.title() : corpus.body());
+        }
+
+        // A user dictionary entry changed, one removed and one added
+        List<String> previousDictionary = List.of(DICTIONARY.get(1),
+                "再生可能エネルギー,再生可能エネルギー,サイセイカノウエネルギー,カスタム名詞", "京都,京都,キョウト,カスタム名詞");
+        List<String> currentDictionary = List.of("人工知能,人工 知能,ジンコウ チノウ,カスタム名詞",
+                "京都,京都,キョウト,カスタム名詞", "物流,物 流,ブツ リュウ,カスタム名詞");
+        assertCandidates(documents, Optional.empty(), Optional.empty(), previousDictionary, currentDictionary);
+
+        // Stop words added and removed
+        List<String> bundled = JapaneseAnalysisComponents.shared().stopwords().words();
+        List<String> stopwords = new ArrayList<>(bundled);
+        stopwords.removeAll(List.of("今年", "まで"));
+        stopwords.addAll(List.of("技術", "大阪"));
+        assertCandidates(documents, Optional.empty(), Optional.of(stopwords), List.of(), List.of());
+    }
+
+    @Test
+    void testTermQueryFindsExactlyTheTerm() throws IOException {
+        Analyzer analyzer = JapaneseAnalysisComponents.shared().newAnalyzer();
+        List<String> terms = List.of("の", "C++", "A/B", "、", ".*", "WHAT");
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (String term : terms) {
+                Document document = new Document();
+                document.add(new StringField("content", term, Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.commit();
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                for (String term : terms) {
+                    String query = Reindex.termQuery(term);
+                    assertTrue(query.startsWith("/") && query.endsWith("/"), query);
+                    // As the query parser turns /.../ into a regular expression query
+                    String regexp = analyzer.normalize("content", query.substring(1, query.length() - 1))
+                            .utf8ToString();
+                    assertEquals(1, searcher.count(new RegexpQuery(new Term("content", regexp))), query);
+                }
+                assertEquals("/WHAT/", Reindex.termQuery("WHAT"));
+                assertEquals(1, searcher.count(new RegexpQuery(new Term("content",
+                        analyzer.normalize("content", "what").utf8ToString()))), "Lower case queries are upper-cased");
+            }
+        }
+    }
+
+    @Test
+    void testStopwordChangeAgainstTheIndex() throws IOException, ParseException {
+        List<String> documents = new ArrayList<>();
+        LoadTestCorpus corpus = new LoadTestCorpus(new Random(7));
+        for (int i = 0; i < 500; i++) {
+            documents.add(i % 2 == 0 ? corpus.title() : corpus.body());
+        }
+        List<String> stopwords = new ArrayList<>(JapaneseAnalysisComponents.shared().stopwords().words());
+        stopwords.removeAll(List.of("今年", "まで"));
+        stopwords.addAll(List.of("技術", "大阪"));
+        JapaneseAnalysisComponents previous = JapaneseAnalysisComponents.load(Optional.empty(), Optional.empty());
+        JapaneseAnalysisComponents current = JapaneseAnalysisComponents.load(file(Optional.of(stopwords)),
+                Optional.empty());
+        ReindexPlan plan = ReindexPlan.of("japanese", current, Optional.of(previous.stopwords()), Optional.empty(),
+                List.of());
+
+        try (Analyzer before = previous.newAnalyzer(); Analyzer after = current.newAnalyzer();
+             Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(before))) {
+                for (int i = 0; i < documents.size(); i++) {
+                    Document document = new Document();
+                    document.add(new TextField("content", documents.get(i), Field.Store.NO));
+                    document.add(new StoredField("id", i));
+                    writer.addDocument(document);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                // As Neo4j parses fulltext queries, with the analyzer of the index
+                QueryParser parser = new QueryParser("content", after);
+                Set<Integer> found = new TreeSet<>();
+                for (String term : plan.indexTerms()) {
+                    for (ScoreDoc hit : searcher.search(parser.parse(Reindex.termQuery(term)), documents.size())
+                            .scoreDocs) {
+                        found.add(searcher.storedFields().document(hit.doc).getField("id").numericValue().intValue());
+                    }
+                }
+                assertFalse(found.isEmpty(), "The index finds the entries with an added stop word");
+                for (String removed : List.of("まで", "今年")) {
+                    assertEquals(0, searcher.count(parser.parse('"' + removed + '"')),
+                            "Removed stop words are not in the index");
+                }
+
+                int changed = 0;
+                int notFound = 0;
+                for (int i = 0; i < documents.size(); i++) {
+                    String document = documents.get(i);
+                    if (!tokens(before, document).equals(tokens(after, document))) {
+                        changed++;
+                        if (!found.contains(i)) {
+                            notFound++;
+                        }
+                        assertTrue(found.contains(i) || plan.matches(document),
+                                "Changed document should be found: " + document);
+                    }
+                }
+                assertTrue(changed > 0, "The change should change some documents");
+                assertTrue(notFound > 0, "Documents with a removed stop word are only found by their text");
+            }
+        }
+    }
+
+    @Test
+    void testPaddingAddsNoTerm() throws IOException {
+        LoadTestCorpus corpus = new LoadTestCorpus(new Random(11));
+        List<String> texts = new ArrayList<>(List.of("東京スカイツリーに行った", "iPhone 15", "これ", "Ｎｅｏ４ｊ。"));
+        for (int i = 0; i < 100; i++) {
+            texts.add(i % 2 == 0 ? corpus.title() : corpus.body());
+        }
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.shared().withMetrics(false);
+        for (String name : JapaneseAnalysisComponents.BUILT_IN_ANALYZERS) {
+            try (Analyzer analyzer = components.newAnalyzer(name)) {
+                for (String text : texts) {
+                    assertEquals(entries(analyzer, text), entries(analyzer, text + Reindex.PADDING),
+                            name + " should index the padded text as the text: " + text);
+                }
+            }
+        }
+        assertArrayEquals(new String[] {"a", "b "}, (String[]) Reindex.padded(new String[] {"a", "b"}));
+        assertArrayEquals(new String[] {"a", "b "}, (String[]) Reindex.unpadded(new String[] {"a", "b  "}));
+        assertEquals("text", Reindex.unpadded(Reindex.padded("text")));
+        assertNull(Reindex.padded(""), "Empty values have no terms to rewrite");
+        assertNull(Reindex.unpadded("text"));
+    }
+
+    /**
+     * Analyzes the documents with the previous and the current configuration and checks
+     * that every document with other tokens is found by the plan: by a term of the
+     * previous index or by a word of its text.
+     */
+    private void assertCandidates(List<String> documents, Optional<List<String>> previousStopwords,
+                                  Optional<List<String>> currentStopwords, List<String> previousDictionary,
+                                  List<String> currentDictionary) throws IOException {
+        JapaneseAnalysisComponents previous = JapaneseAnalysisComponents.load(
+                file(previousStopwords), file(Optional.of(previousDictionary)));
+        JapaneseAnalysisComponents current = JapaneseAnalysisComponents.load(
+                file(currentStopwords), file(Optional.of(currentDictionary)));
+        Optional<CompiledStopwordSet> stopwordChange = currentStopwords.isPresent()
+                ? Optional.of(previous.stopwords())
+                : Optional.empty();
+        Optional<List<String>> dictionaryChange = previousDictionary.equals(currentDictionary)
+                ? Optional.empty()
+                : Optional.of(previousDictionary);
+        ReindexPlan plan = ReindexPlan.of("japanese", current, stopwordChange, dictionaryChange, currentDictionary);
+
+        int changed = 0;
+        int candidates = 0;
+        try (Analyzer before = previous.newAnalyzer(); Analyzer after = current.newAnalyzer()) {
+            for (String document : documents) {
+                List<String> previousTokens = tokens(before, document);
+                boolean candidate = plan.matches(document)
+                        || previousTokens.stream().anyMatch(plan.indexTerms()::contains);
+                if (!previousTokens.equals(tokens(after, document))) {
+                    changed++;
+                    assertTrue(candidate, "Changed document should be rewritten: " + document);
+                }
+                if (candidate) {
+                    candidates++;
+                }
+            }
+        }
+        assertTrue(changed > 0, "The change should change some documents");
+        assertTrue(candidates < documents.size(), candidates + " candidates");
+    }
+
+    private Optional<Path> file(Optional<List<String>> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return Optional.empty();
+        }
+        Path file = Files.createTempFile("reindex", ".txt");
+        files.add(file);
+        Files.write(file, lines.get(), StandardCharsets.UTF_8);
+        return Optional.of(file);
+    }
+
+    /**
+     * @return The tokens as term:startOffset-endOffset+positionIncrement.
+     */
+    private static List<String> entries(Analyzer analyzer, String text) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute positionAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                entries.add(termAtt + ":" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset()
+                        + "+" + positionAtt.getPositionIncrement());
+            }
+            stream.end();
+        }
+        return entries;
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@code japanese.reindex}.
+ *
+ * Indexes a corpus with one user dictionary, changes the dictionary, rewrites the
+ * affected entries with {@code japanese.reindex} and checks that the index then finds
+ * the same nodes by every term as an index built from scratch with the new dictionary,
+ * is the same index as before, and that the nodes are unchanged. Also checks that a
+ * reindex stopped at its limit, or interrupted between the two transactions of a batch,
+ * resumes where it stopped, and that an index none of whose entries changes is left as
+ * it is.
+ *
+ * The user dictionary of the analyzers is the one of the whole JVM, so the test runs in
+ * its own JVM with {@code japanese.analyzer.userDictionary} set (the reindex execution
+ * of the Maven build).
+ */
+@Tag("reindex")
+public class ReindexTest {
+
+    private static final List<String> PREVIOUS_DICTIONARY = List.of(
+            "東京スカイツリー,東京 スカイツリー,トウキョウ スカイツリー,カスタム名詞",
+            "人工知能,人工知能,ジンコウチノウ,カスタム名詞",
+            "再生可能エネルギー,再生可能エネルギー,サイセイカノウエネルギー,カスタム名詞");
+
+    private static final List<String> CURRENT_DICTIONARY = List.of(
+            "東京スカイツリー,東京 スカイツリー,トウキョウ スカイツリー,カスタム名詞",
+            "人工知能,人工 知能,ジンコウ チノウ,カスタム名詞",
+            "データセンター,データセンター,データセンター,カスタム名詞",
+            "少子高齢化,少子 高齢 化,ショウシ コウレイ カ,カスタム名詞");
+
+    /**
+     * The previous dictionary with an entry whose surface form is in no document.
+     */
+    private static final List<String> UNUSED_ENTRY_ADDED = List.of(
+            "東京スカイツリー,東京 スカイツリー,トウキョウ スカイツリー,カスタム名詞",
+            "人工知能,人工知能,ジンコウチノウ,カスタム名詞",
+            "再生可能エネルギー,再生可能エネルギー,サイセイカノウエネルギー,カスタム名詞",
+            "竜宮城前駅,竜宮城 前 駅,リュウグウジョウ マエ エキ,カスタム名詞");
+
+    private static final int DOCUMENTS = 300;
+
+    private static Path userDictionary;
+
+    private Neo4j server;
+    private GraphDatabaseService database;
+    private Path previousDictionary;
+
+    @BeforeAll
+    static void writeUserDictionary() throws IOException {
+        userDictionary = JapaneseAnalyzerSettings.userDictionaryFile().orElseThrow(() -> new IllegalStateException(
+                "Run with -D" + JapaneseAnalyzerSettings.USER_DICTIONARY + ", see the reindex execution in pom.xml"));
+        Files.createDirectories(userDictionary.toAbsolutePath().getParent());
+        // Before Neo4j loads the analyzers
+        Files.write(userDictionary, PREVIOUS_DICTIONARY, StandardCharsets.UTF_8);
+    }
+
+    @BeforeEach
+    void initializeNeo4j() throws IOException {
+        Files.write(userDictionary, PREVIOUS_DICTIONARY, StandardCharsets.UTF_8);
+        server = Neo4jBuilders.newInProcessBuilder()
+                .withProcedure(JapaneseAnalyzerProcedures.class)
+                .build();
+        database = server.defaultDatabaseService();
+        JapaneseAnalysisComponents.shared().userDictionary().orElseThrow().reloadIfChanged();
+
+        previousDictionary = Files.createTempFile("userdict", ".csv");
+        Files.write(previousDictionary, PREVIOUS_DICTIONARY, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void closeNeo4j() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        Files.deleteIfExists(previousDictionary);
+    }
+
+    @Test
+    void testReindexMatchesFullRebuild() throws IOException {
+        List<String> texts = corpus();
+        createIndex("Doc", "docs", texts);
+        Map<String, Object> definition = definition("docs");
+        Set<String> terms = terms(texts);
+
+        changeUserDictionary(CURRENT_DICTIONARY);
+        createIndex("Rebuilt", "rebuilt", texts);
+        terms.addAll(terms(texts));
+        assertFalse(mismatches(terms).isEmpty(), "The dictionary change should change the index");
+
+        List<Map<String, Object>> rows = reindex(Map.of("previousUserDictionary", previousDictionary.toString(),
+                "batchSize", 7L));
+
+        Map<String, Object> last = rows.get(rows.size() - 1);
+        long entities = (Long) last.get("entities");
+        assertEquals(Boolean.TRUE, last.get("done"));
+        assertTrue(entities > 0 && entities < DOCUMENTS, "Only the affected nodes should be rewritten: " + entities);
+        assertEquals((entities + 6) / 7, rows.size(), "One row per batch");
+        assertEquals((long) DOCUMENTS, last.get("scanned"));
+        assertEquals(definition, definition("docs"), "The index should be kept");
+        assertEquals(List.of(), mismatches(terms), "Terms found differently than by a full rebuild");
+        assertClean(texts);
+
+        // Nothing left to do
+        List<Map<String, Object>> again = reindex(Map.of("previousUserDictionary", userDictionary.toString()));
+        assertEquals(1, again.size());
+        assertEquals(0L, again.get(0).get("batch"));
+        assertEquals(0L, again.get(0).get("entities"));
+        assertEquals(0L, again.get(0).get("scanned"), "Nothing to read for an empty diff");
+    }
+
+    @Test
+    void testStoppedAndInterruptedReindexResumes() throws IOException {
+        List<String> texts = corpus();
+        createIndex("Doc", "docs", texts);
+        Set<String> terms = terms(texts);
+        changeUserDictionary(CURRENT_DICTIONARY);
+        createIndex("Rebuilt", "rebuilt", texts);
+        terms.addAll(terms(texts));
+
+        List<Map<String, Object>> first = reindex(Map.of("previousUserDictionary", previousDictionary.toString(),
+                "batchSize", 3L, "limit", 5L));
+        Map<String, Object> stopped = first.get(first.size() - 1);
+        assertEquals(Boolean.FALSE, stopped.get("done"));
+        assertEquals(5L, stopped.get("entities"));
+        assertEquals(2, first.size(), "Batches of 3 and 2");
+
+        // Interrupted after the first transaction of a batch with the next candidate
+        Map<String, Object> interrupted = database.executeTransactionally(
+                "MATCH (c:" + Reindex.CHECKPOINT_LABEL + " {index: 'docs'}) "
+                        + "MATCH (n:Doc) WHERE id(n) > c.lastId "
+                        + "AND any(surface IN $surfaces WHERE n.text CONTAINS surface) "
+                        + "WITH c, n ORDER BY id(n) LIMIT 1 "
+                        + "SET n.text = n.text + $padding, c.pending = [elementId(n)] "
+                        + "RETURN n.id AS id",
+                Map.of("surfaces", List.of("人工知能", "再生可能エネルギー", "データセンター", "少子高齢化"),
+                        "padding", Reindex.PADDING),
+                result -> result.next());
+
+        List<Map<String, Object>> resumed = reindex(Map.of("previousUserDictionary", previousDictionary.toString(),
+                "batchSize", 3L, "maxEntitiesPerSecond", 50L));
+        Map<String, Object> last = resumed.get(resumed.size() - 1);
+        long entities = (Long) last.get("entities");
+        assertEquals(Boolean.TRUE, last.get("done"));
+        assertTrue((Long) resumed.get(0).get("entities") > 5L, "The count includes the entities of the first call");
+        // Only the last batch is not followed by a wait
+        long throttled = (entities - 5 - 3) * 1000 / 50;
+        assertTrue((Long) last.get("elapsedMillis") >= throttled, "Throttled to 50 entities per second");
+
+        String text = database.executeTransactionally("MATCH (n:Doc {id: $id}) RETURN n.text AS text",
+                Map.of("id", interrupted.get("id")), result -> (String) result.next().get("text"));
+        assertEquals(texts.get(((Long) interrupted.get("id")).intValue()), text,
+                "The padding of the interrupted batch should be removed");
+        assertEquals(List.of(), mismatches(terms), "Terms found differently than by a full rebuild");
+        assertClean(texts);
+    }
+
+    @Test
+    void testUnaffectedIndexIsKept() throws IOException {
+        List<String> texts = corpus();
+        createIndex("Doc", "docs", texts);
+        Map<String, Object> definition = definition("docs");
+
+        changeUserDictionary(UNUSED_ENTRY_ADDED);
+        List<Map<String, Object>> rows = reindex(Map.of("previousUserDictionary", previousDictionary.toString()));
+        assertEquals(1, rows.size());
+        assertEquals(0L, rows.get(0).get("batch"));
+        assertEquals(0L, rows.get(0).get("entities"));
+        assertEquals(Boolean.TRUE, rows.get(0).get("done"));
+        assertEquals((long) DOCUMENTS, rows.get(0).get("scanned"), "Every node is read to be sure");
+        assertEquals(definition, definition("docs"), "The index should be kept");
+        assertClean(texts);
+    }
+
+    @Test
+    void testInvalidCalls() {
+        database.executeTransactionally("CREATE FULLTEXT INDEX standard FOR (n:Doc) ON EACH [n.text]");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+        Map<String, Object> options = Map.of("previousUserDictionary", previousDictionary.toString());
+
+        assertThrows(RuntimeException.class, () -> reindex("missing", options));
+        assertThrows(RuntimeException.class, () -> reindex("standard", options), "Not a Japanese analyzer");
+        assertThrows(RuntimeException.class, () -> reindex("standard", Map.of()), "Nothing to diff");
+        assertThrows(RuntimeException.class, () -> reindex("standard", Map.of("batchsize", 10L)), "Unknown option");
+        assertThrows(RuntimeException.class, () -> reindex("standard", Map.of("previousUserDictionary",
+                previousDictionary.toString(), "batchSize", 0L)), "Empty batches");
+    }
+
+    private void changeUserDictionary(List<String> entries) throws IOException {
+        Files.write(userDictionary, entries, StandardCharsets.UTF_8);
+        JapaneseAnalysisComponents.shared().userDictionary().orElseThrow().reloadIfChanged();
+    }
+
+    private List<String> corpus() {
+        LoadTestCorpus corpus = new LoadTestCorpus(new Random(11));
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            texts.add(i % 3 == 0 ? corpus.body() : corpus.title());
+        }
+        return texts;
+    }
+
+    private void createIndex(String label, String index, List<String> texts) {
+        database.executeTransactionally("UNWIND range(0, size($texts) - 1) AS i CREATE (:" + label
+                + " {id: i, text: $texts[i]})", Map.of("texts", texts));
+        database.executeTransactionally("CREATE FULLTEXT INDEX " + index + " FOR (n:" + label + ") ON EACH [n.text] "
+                + "OPTIONS {indexConfig: {`fulltext.analyzer`: 'japanese'}}");
+        database.executeTransactionally("CALL db.awaitIndexes()");
+    }
+
+    /**
+     * @return Every term of the texts with the current user dictionary.
+     */
+    private Set<String> terms(List<String> texts) {
+        return database.executeTransactionally("CALL japanese.analyzeBatch($texts) YIELD tokens RETURN tokens",
+                Map.of("texts", texts), result -> result.stream()
+                        .flatMap(row -> ((List<?>) row.get("tokens")).stream())
+                        .map(String::valueOf)
+                        .collect(Collectors.toCollection(TreeSet::new)));
+    }
+
+    /**
+     * @return The terms by which the reindexed and the rebuilt index find other nodes.
+     */
+    private List<String> mismatches(Set<String> terms) {
+        List<String> mismatches = new ArrayList<>();
+        for (String term : terms) {
+            if (!hits("docs", term).equals(hits("rebuilt", term))) {
+                mismatches.add(term);
+            }
+        }
+        return mismatches;
+    }
+
+    private Set<Long> hits(String index, String term) {
+        return database.executeTransactionally(
+                "CALL db.index.fulltext.queryNodes($index, $query) YIELD node RETURN node.id AS id",
+                Map.of("index", index, "query", Reindex.termQuery(term)),
+                result -> result.stream().map(row -> (Long) row.get("id")).collect(Collectors.toSet()));
+    }
+
+    private List<Map<String, Object>> reindex(Map<String, Object> options) {
+        return reindex("docs", options);
+    }
+
+    private List<Map<String, Object>> reindex(String index, Map<String, Object> options) {
+        return database.executeTransactionally("CALL japanese.reindex($index, $options)",
+                Map.of("index", index, "options", options), result -> result.stream().collect(Collectors.toList()));
+    }
+
+    /**
+     * @return The schema and settings of an index.
+     */
+    private Map<String, Object> definition(String index) {
+        return database.executeTransactionally("SHOW FULLTEXT INDEXES YIELD name, entityType, labelsOrTypes, "
+                + "properties, options WHERE name = $name RETURN *", Map.of("name", index), result -> result.next());
+    }
+
+    private void assertClean(List<String> texts) {
+        List<String> stored = database.executeTransactionally("MATCH (n:Doc) RETURN n.text AS text ORDER BY n.id",
+                Map.of(), result -> result.stream().map(row -> (String) row.get("text")).collect(Collectors.toList()));
+        assertEquals(texts, stored, "The nodes should be unchanged");
+        long properties = database.executeTransactionally("MATCH (n:Doc) UNWIND keys(n) AS key "
+                + "RETURN count(DISTINCT key) AS count", Map.of(), result -> (Long) result.next().get("count"));
+        assertEquals(2, properties, "No other properties");
+        long checkpoints = database.executeTransactionally("MATCH (c:" + Reindex.CHECKPOINT_LABEL
+                + ") RETURN count(c) AS count", Map.of(), result -> (Long) result.next().get("count"));
+        assertEquals(0, checkpoints, "The checkpoint should be deleted when done");
+    }
+}
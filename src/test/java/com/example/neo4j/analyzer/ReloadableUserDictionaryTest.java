@@ -0,0 +1,249 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ReloadableUserDictionary.
+ *
+ * Tests the user dictionary support including:
+ * - Tokenization with a user dictionary
+ * - Hot reload picked up by new and existing analyzers, but not by streams in progress
+ * - Keeping the previous dictionary when the new file is invalid
+ * - Watching on after a reload listener fails
+ * - A dictionary with 100,000 entries, and its load time and heap footprint as a performance test
+ */
+public class ReloadableUserDictionaryTest {
+
+    private static final String PERSON_NAME = "朝青龍,朝青龍,アサショウリュウ,カスタム人名\n";
+    private static final String PRODUCT_NAME = "東京特許許可局,東京特許許可局,トウキョウトッキョキョカキョク,カスタム名詞\n";
+
+    private static final int LARGE_DICTIONARY_ENTRIES = 100_000;
+    private static final Duration MAX_LARGE_LOAD_TIME = Duration.ofSeconds(30);
+    private static final long MAX_LARGE_HEAP_BYTES = 64L * 1024 * 1024;
+
+    private Path file;
+
+    @BeforeEach
+    void createDictionaryFile() throws IOException {
+        file = Files.createTempFile("userdict", ".csv");
+    }
+
+    @AfterEach
+    void deleteDictionaryFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testUserDictionaryEntriesAreKeptWhole() throws IOException {
+        write(PERSON_NAME);
+        Analyzer plain = JapaneseAnalysisComponents.load(Optional.empty()).newAnalyzer();
+        Analyzer custom = JapaneseAnalysisComponents.load(Optional.empty(), Optional.of(file)).newAnalyzer();
+
+        assertFalse(terms(plain, "朝青龍が勝った").contains("朝青龍"), "Kuromoji alone should split the name");
+        assertEquals(List.of("朝青龍", "勝っ"), terms(custom, "朝青龍が勝った"));
+
+        plain.close();
+        custom.close();
+    }
+
+    @Test
+    void testReloadIsPickedUpByExistingAnalyzers() throws IOException {
+        write(PERSON_NAME);
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty(), Optional.of(file))
+                .withTokenStreamCache(64, 1024 * 1024);
+        ReloadableUserDictionary dictionary = components.userDictionary().orElseThrow();
+        Analyzer analyzer = components.newAnalyzer();
+        List<String> before = terms(analyzer, "東京特許許可局に申請");
+        assertFalse(before.contains("東京特許許可局"));
+
+        // A stream started before the reload finishes with the previous dictionary
+        TokenStream inFlight = analyzer.tokenStream("content", "東京特許許可局に申請");
+        inFlight.reset();
+        assertFalse(dictionary.reloadIfChanged(), "Unchanged file should not be reloaded");
+        write(PERSON_NAME + PRODUCT_NAME);
+        assertTrue(dictionary.reloadIfChanged(), "Changed file should be reloaded");
+        assertEquals(2, dictionary.generation());
+        assertEquals(2, dictionary.entries());
+        assertEquals(before, drain(inFlight), "Stream in progress should keep its dictionary");
+
+        assertEquals(List.of("東京特許許可局", "申請"), terms(analyzer, "東京特許許可局に申請"),
+            "Existing analyzer should use the new dictionary");
+        Analyzer newAnalyzer = components.newAnalyzer();
+        assertEquals(List.of("東京特許許可局", "申請"), terms(newAnalyzer, "東京特許許可局に申請"),
+            "New analyzer should use the new dictionary");
+
+        analyzer.close();
+        newAnalyzer.close();
+    }
+
+    @Test
+    void testInvalidFileKeepsPreviousDictionary() throws IOException {
+        write(PERSON_NAME);
+        ReloadableUserDictionary dictionary = ReloadableUserDictionary.open(file);
+
+        write("朝青龍,朝 青龍,アサショウリュウ\n");
+        assertFalse(dictionary.reloadIfChanged(), "Invalid file should not be swapped in");
+        assertNotNull(dictionary.lastFailure(), "The failure should be reported");
+        assertEquals(1, dictionary.generation());
+        assertNotNull(dictionary.current());
+
+        write(PRODUCT_NAME);
+        assertTrue(dictionary.reloadIfChanged());
+        assertNull(dictionary.lastFailure());
+    }
+
+    @Test
+    void testWatcherReloadsChangedFile() throws Exception {
+        write(PERSON_NAME);
+        ReloadableUserDictionary dictionary = ReloadableUserDictionary.open(file);
+        try {
+            dictionary.watch(Duration.ofMillis(20));
+            write(PERSON_NAME + PRODUCT_NAME);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (dictionary.generation() == 1 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, dictionary.generation(), "Watcher should reload the changed file");
+        } finally {
+            dictionary.stopWatching();
+        }
+    }
+
+    @Test
+    void testFailingListenerDoesNotStopWatcher() throws Exception {
+        write(PERSON_NAME);
+        ReloadableUserDictionary dictionary = ReloadableUserDictionary.open(file);
+        AtomicInteger reloads = new AtomicInteger();
+        dictionary.onReload(() -> {
+            throw new IllegalStateException("Listener failed");
+        });
+        dictionary.onReload(reloads::incrementAndGet);
+        try {
+            dictionary.watch(Duration.ofMillis(20));
+            for (int generation = 2; generation <= 3; generation++) {
+                write(generation == 2 ? PERSON_NAME + PRODUCT_NAME : PRODUCT_NAME);
+                long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+                while (dictionary.generation() < generation && System.nanoTime() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(generation, dictionary.generation(), "Watcher should keep reloading");
+            }
+            assertEquals(2, reloads.get(), "The other listeners still run");
+            assertInstanceOf(IllegalStateException.class, dictionary.lastFailure());
+        } finally {
+            dictionary.stopWatching();
+        }
+    }
+
+    @Test
+    void testLargeDictionary() throws IOException {
+        write(largeDictionary());
+
+        ReloadableUserDictionary dictionary = ReloadableUserDictionary.open(file);
+        assertEquals(LARGE_DICTIONARY_ENTRIES, dictionary.entries());
+
+        Analyzer analyzer = JapaneseAnalysisComponents.load(Optional.empty(), Optional.of(file)).newAnalyzer();
+        assertEquals(List.of("ホシゾラ12345", "商品"), terms(analyzer, "ホシゾラ12345の商品"),
+            "Entries of a large dictionary should be found");
+        analyzer.close();
+    }
+
+    @Test
+    @Tag("performance")
+    void testLargeDictionaryLoadTimeAndFootprint() throws IOException {
+        write(largeDictionary());
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        ReloadableUserDictionary dictionary = ReloadableUserDictionary.open(file);
+        Duration loadTime = Duration.ofNanos(System.nanoTime() - start);
+        long heapBytes = usedHeap() - heapBefore;
+        System.out.printf("User dictionary with %,d entries (%,d bytes): loaded in %,d ms, %,d bytes of heap%n",
+                dictionary.entries(), Files.size(file), loadTime.toMillis(), heapBytes);
+
+        assertEquals(LARGE_DICTIONARY_ENTRIES, dictionary.entries());
+        assertTrue(loadTime.compareTo(MAX_LARGE_LOAD_TIME) < 0, "Load took " + loadTime);
+        assertTrue(heapBytes < MAX_LARGE_HEAP_BYTES, "Dictionary should be compact, used " + heapBytes + " bytes");
+    }
+
+    /**
+     * Product names made of random katakana and a number, one entry each.
+     */
+    private static String largeDictionary() {
+        String katakana = "アイウエオカキクケコサシスセソタチツテトナニヌネノハヒフヘホマミムメモヤユヨラリルレロワン";
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LARGE_DICTIONARY_ENTRIES; i++) {
+            String name;
+            if (i == 12345) {
+                name = "ホシゾラ12345";
+            } else {
+                StringBuilder word = new StringBuilder();
+                int length = 4 + random.nextInt(6);
+                for (int j = 0; j < length; j++) {
+                    word.append(katakana.charAt(random.nextInt(katakana.length())));
+                }
+                name = word.append(i).toString();
+            }
+            text.append(name).append(',').append(name).append(',').append(name).append(",カスタム名詞\n");
+        }
+        return text.toString();
+    }
+
+    private void write(String content) throws IOException {
+        // Each version gets a distinct modification time, even on file systems with coarse timestamps
+        FileTime previous = Files.getLastModifiedTime(file);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(previous.toInstant().plusSeconds(1)));
+    }
+
+    private static List<String> terms(Analyzer analyzer, String text) throws IOException {
+        TokenStream stream = analyzer.tokenStream("content", text);
+        stream.reset();
+        return drain(stream);
+    }
+
+    /**
+     * Consumes and closes a stream that has been reset.
+     */
+    private static List<String> drain(TokenStream stream) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (stream) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ja.tokenattributes.PartOfSpeechAttribute;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ScriptRoutingTokenizer.
+ *
+ * Verifies that the "japanese-mixed" analyzer produces the same tokens, offsets and
+ * positions as the "japanese" analyzer, on sample texts and on the sentences of the
+ * benchmark corpora, while only text that is not plain ASCII goes through Kuromoji.
+ */
+public class ScriptRoutingTokenizerTest {
+
+    private static final List<String> SAMPLE_TEXTS = List.of(
+            "Neo4jは素晴らしいgraph databaseです。",
+            "JavaとPythonでプログラミングしています。",
+            "Customer ID 4711-ABC was migrated to the new cluster on Monday.",
+            "The API returns JSON with status code 200 on success. 日本は先進的な技術を持っています。",
+            "user_name e-mail 3.14 don't ＡＢＣとｄｅｆ café naïve x² ①②",
+            "iPhone15を買った 2024年1月 Tシャツ ﾃｽﾄ半角カナ 「引用」",
+            "  leading and trailing whitespace  ",
+            // Kuromoji splits these differently from the fast path, or by their context
+            "新しい iPhone スマホ を買った",
+            "携帯, スマホ, スマートフォン, 携帯電話",
+            "ｉＰｈｏｎｅ１５",
+            "90 µs",
+            "");
+
+    private static final Path CORPUS = Path.of("src/jmh/resources/corpus");
+
+    @Test
+    void testSameTokensAsJapaneseAnalyzer() throws IOException {
+        Analyzer japanese = JapaneseAnalysisComponents.shared().newAnalyzer();
+        Analyzer mixed = JapaneseAnalysisComponents.shared().newScriptRoutingAnalyzer();
+
+        for (String text : SAMPLE_TEXTS) {
+            assertEquals(tokens(japanese, text), tokens(mixed, text),
+                "Tokens should be identical to the japanese analyzer for: " + text);
+        }
+        String document = String.join("\n", SAMPLE_TEXTS).repeat(200);
+        assertEquals(tokens(japanese, document), tokens(mixed, document),
+            "Tokens should be identical across windows");
+
+        japanese.close();
+        mixed.close();
+    }
+
+    @Test
+    void testSameTokensOnTheBenchmarkCorpora() throws IOException {
+        Analyzer japanese = JapaneseAnalysisComponents.shared().newAnalyzer();
+        Analyzer mixed = JapaneseAnalysisComponents.shared().newScriptRoutingAnalyzer();
+
+        List<String> english = corpusLines("english-sentences.txt");
+        List<String> texts = new ArrayList<>(english);
+        texts.addAll(corpusLines("titles.txt"));
+        // Japanese sentences before and after English ones, joined as in the mixed corpus
+        for (String sentence : corpusLines("japanese-sentences.txt")) {
+            texts.add(sentence);
+            for (String englishSentence : english) {
+                texts.add(englishSentence + " " + sentence + englishSentence + " ");
+            }
+        }
+        for (String text : texts) {
+            assertEquals(tokens(japanese, text), tokens(mixed, text),
+                "Tokens should be identical to the japanese analyzer for: " + text);
+        }
+
+        japanese.close();
+        mixed.close();
+    }
+
+    @Test
+    void testOnlyJapaneseTextGoesThroughKuromoji() throws IOException {
+        Analyzer mixed = JapaneseAnalysisComponents.shared().newScriptRoutingAnalyzer();
+
+        List<String> partsOfSpeech = new ArrayList<>();
+        try (TokenStream stream = mixed.tokenStream("content", "graph database 素晴らしい")) {
+            PartOfSpeechAttribute posAtt = stream.addAttribute(PartOfSpeechAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                partsOfSpeech.add(posAtt.getPartOfSpeech());
+            }
+            stream.end();
+        }
+
+        assertEquals(3, partsOfSpeech.size());
+        assertNull(partsOfSpeech.get(0), "English words should not be analyzed by Kuromoji");
+        assertNull(partsOfSpeech.get(1), "English words should not be analyzed by Kuromoji");
+        assertEquals("形容詞-自立", partsOfSpeech.get(2), "Japanese words should keep Kuromoji attributes");
+
+        mixed.close();
+    }
+
+    @Test
+    void testJapaneseCharacters() {
+        assertTrue(ScriptRoutingTokenizer.isJapanese('日'), "Kanji");
+        assertTrue(ScriptRoutingTokenizer.isJapanese('は'), "Hiragana");
+        assertTrue(ScriptRoutingTokenizer.isJapanese('シ'), "Katakana");
+        assertTrue(ScriptRoutingTokenizer.isJapanese('ー'), "Prolonged sound mark");
+        assertTrue(ScriptRoutingTokenizer.isJapanese('ﾃ'), "Half-width katakana");
+        assertTrue(ScriptRoutingTokenizer.isJapanese('。'), "Ideographic full stop");
+        assertFalse(ScriptRoutingTokenizer.isJapanese('A'), "Latin letter");
+        assertFalse(ScriptRoutingTokenizer.isJapanese('Ａ'), "Full-width Latin letter");
+        assertFalse(ScriptRoutingTokenizer.isJapanese('4'), "Digit");
+        assertFalse(ScriptRoutingTokenizer.isJapanese('한'), "Hangul");
+    }
+
+    private static List<String> corpusLines(String file) throws IOException {
+        return Files.readAllLines(CORPUS.resolve(file), StandardCharsets.UTF_8).stream()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt + " [" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset()
+                        + "] +" + posIncAtt.getPositionIncrement());
+            }
+            stream.end();
+            tokens.add("end [" + offsetAtt.endOffset() + "]");
+        }
+        return tokens;
+    }
+}
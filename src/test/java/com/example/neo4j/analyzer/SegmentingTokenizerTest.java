@@ -0,0 +1,122 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SegmentingTokenizer.
+ *
+ * Verifies that segmented tokenization keeps the tokens and offsets of whole-value
+ * tokenization when the text has safe boundaries, and keeps offsets consistent with
+ * the original text when it has to cut elsewhere.
+ */
+public class SegmentingTokenizerTest {
+
+    private static final String ARTICLE =
+            "日本は先進的な技術を持っています。Neo4jは素晴らしいgraph databaseです。"
+            + "JavaとPythonでプログラミングしています！これは重要な情報です？\n"
+            + "東京都の人口は約千四百万人で、世界有数の大都市として知られています。"
+            + "ログ出力 サーバー接続 エラー発生 再試行中 タイムアウト ユーザー認証 失敗";
+
+    @Test
+    void testSameTokensAsWholeValueAtSentenceBoundaries() throws IOException {
+        Analyzer whole = JapaneseAnalysisComponents.shared().withMaxSegmentLength(0).newAnalyzer();
+        Analyzer segmented = JapaneseAnalysisComponents.shared()
+                .withMaxSegmentLength(SegmentingTokenizer.MIN_SEGMENT_LENGTH).newAnalyzer();
+
+        String text = ARTICLE.repeat(20);
+        assertEquals(tokens(whole, text), tokens(segmented, text),
+            "Segmenting at punctuation and whitespace should not change the tokens");
+
+        whole.close();
+        segmented.close();
+    }
+
+    @Test
+    void testOffsetsPointIntoOriginalTextWithoutBoundaries() throws IOException {
+        Analyzer segmented = JapaneseAnalysisComponents.shared()
+                .withMaxSegmentLength(SegmentingTokenizer.MIN_SEGMENT_LENGTH).newAnalyzer();
+
+        // No punctuation, whitespace or usable script change: only the hard cap applies
+        String text = "東京特許許可局長今日急遽休暇許可拒否".repeat(50) + "𠮷野家".repeat(40);
+        List<Token> tokens = tokens(segmented, text);
+
+        assertFalse(tokens.isEmpty(), "Text without boundaries should still be tokenized");
+        int previousEnd = 0;
+        for (Token token : tokens) {
+            assertTrue(token.start >= previousEnd, "Offsets should never go backwards: " + token);
+            assertEquals(text.substring(token.start, token.end).toUpperCase(), token.term,
+                "Offsets should point at the token in the original text: " + token);
+            assertFalse(Character.isLowSurrogate(text.charAt(token.start)),
+                "Segments should never split a surrogate pair: " + token);
+            previousEnd = token.end;
+        }
+
+        segmented.close();
+    }
+
+    @Test
+    void testFinalOffsetAndReuse() throws IOException {
+        Analyzer segmented = JapaneseAnalysisComponents.shared()
+                .withMaxSegmentLength(SegmentingTokenizer.MIN_SEGMENT_LENGTH).newAnalyzer();
+
+        // The same per-thread tokenizer is reused for values of different sizes
+        for (String text : List.of(ARTICLE.repeat(5), "", "短い文です。", ARTICLE)) {
+            try (TokenStream stream = segmented.tokenStream("content", text)) {
+                OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+                stream.reset();
+                while (stream.incrementToken()) {
+                    assertTrue(offsetAtt.endOffset() <= text.length(), "Offsets should stay inside the text");
+                }
+                stream.end();
+                assertEquals(text.length(), offsetAtt.endOffset(), "Final offset should be the text length");
+            }
+        }
+
+        segmented.close();
+    }
+
+    @Test
+    void testBoundaryPreference() {
+        assertEquals(10, boundary("あいう えおかきく。けこ"), "Sentence punctuation comes first");
+        assertEquals(7, boundary("あいうえおか きくけこさ"), "Whitespace comes next");
+        assertEquals(7, boundary("あいうえおかきキクケコサ"), "Then a change of script");
+        assertEquals(12, boundary("漢字漢字漢字食べるたべる"), "Kanji followed by hiragana is not a boundary");
+        assertEquals(10, boundary("あいうえおかきくけこ𠮷".substring(0, 11)),
+            "A hard cut should not split a surrogate pair");
+        assertEquals(10, boundary("あいうえおかきくけこ"), "Without boundaries the buffer is cut at its end");
+    }
+
+    private static int boundary(String text) {
+        return SegmentingTokenizer.boundary(text.toCharArray(), text.length());
+    }
+
+    private static List<Token> tokens(Analyzer analyzer, String text) throws IOException {
+        List<Token> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(new Token(termAtt.toString(), offsetAtt.startOffset(), offsetAtt.endOffset(),
+                        posIncAtt.getPositionIncrement()));
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    private record Token(String term, int start, int end, int positionIncrement) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.neo4j.analyzer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the memory used by many fulltext indexes with the Japanese analyzer.
+ *
+ * Starts several in-process Neo4j instances (each with its own databases, as the
+ * community edition hosts a single user database per instance), then adds fulltext
+ * indexes to all of them and compares the memory growth per "japanese" index with the
+ * growth per index of Neo4j's built-in "standard-no-stop-words" analyzer. The Kuromoji
+ * dictionaries take about 13 MB; if any of them were loaded per index, database or
+ * analyzer, the difference would be far above the bound. A performance test, run by the
+ * performance profile of the Maven build.
+ */
+@Tag("performance")
+public class SharedDictionaryMemoryTest {
+
+    private static final int INSTANCES = 2;
+    private static final int INDEXES_PER_INSTANCE = 10;
+    private static final int DOCUMENTS_PER_INDEX = 20;
+    private static final long MAX_EXTRA_BYTES_PER_INDEX = 1024 * 1024;
+
+    private final List<Neo4j> servers = new ArrayList<>();
+    private final List<GraphDatabaseService> databases = new ArrayList<>();
+    private int indexCount;
+
+    @BeforeEach
+    void initializeNeo4j() {
+        for (int i = 0; i < INSTANCES; i++) {
+            Neo4j server = Neo4jBuilders.newInProcessBuilder().build();
+            servers.add(server);
+            databases.add(server.defaultDatabaseService());
+        }
+    }
+
+    @AfterEach
+    void closeNeo4j() {
+        for (Neo4j server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testMemoryPerIndexIsBounded() {
+        // Load everything that is loaded once: both analyzers, Neo4j's index infrastructure
+        createIndexes("standard-no-stop-words", 1);
+        createIndexes("japanese", 1);
+
+        long standardBytes = memoryGrowthPerIndex("standard-no-stop-words");
+        long japaneseBytes = memoryGrowthPerIndex("japanese");
+        System.out.printf("Memory growth per index: %,d bytes standard-no-stop-words, %,d bytes japanese%n",
+                standardBytes, japaneseBytes);
+
+        assertTrue(japaneseBytes - standardBytes < MAX_EXTRA_BYTES_PER_INDEX,
+            "A japanese index should not use much more memory than a standard one, used "
+                + (japaneseBytes - standardBytes) + " bytes more");
+    }
+
+    /**
+     * @return Growth of heap and direct memory per index, after creating and using
+     * {@code INDEXES_PER_INSTANCE} indexes in every instance.
+     */
+    private long memoryGrowthPerIndex(String analyzer) {
+        long before = usedMemory();
+        createIndexes(analyzer, INDEXES_PER_INSTANCE);
+        long after = usedMemory();
+        return (after - before) / ((long) INSTANCES * INDEXES_PER_INSTANCE);
+    }
+
+    private void createIndexes(String analyzer, int count) {
+        for (GraphDatabaseService database : databases) {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String name = "memory_index_" + indexCount++;
+                names.add(name);
+                database.executeTransactionally("CREATE FULLTEXT INDEX " + name + " FOR (n:" + label(name)
+                        + ") ON EACH [n.content] OPTIONS {indexConfig: {`fulltext.analyzer`: '" + analyzer + "'}}");
+            }
+            database.executeTransactionally("CALL db.awaitIndexes()");
+            for (String name : names) {
+                // Writes and queries create the analyzers' per-thread token stream chains
+                database.executeTransactionally("UNWIND range(1, $count) AS i CREATE (:" + label(name)
+                                + " {content: '東京都の会社で働いています。Neo4j graph database ' + i})",
+                        Map.of("count", DOCUMENTS_PER_INDEX));
+                long hits = database.executeTransactionally(
+                        "CALL db.index.fulltext.queryNodes($name, '東京') YIELD node RETURN count(node) AS hits",
+                        Map.of("name", name),
+                        result -> (Long) result.next().get("hits"));
+                assertEquals(DOCUMENTS_PER_INDEX, hits, "Every document of " + name + " should be found");
+            }
+        }
+    }
+
+    private static String label(String indexName) {
+        return "Doc_" + indexName;
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        long direct = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                direct += pool.getMemoryUsed();
+            }
+        }
+        return heap + direct;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the synonym stage of the "japanese" analyzer.
+ *
+ * Tests the synonyms of {@code japanese.analyzer.synonyms} including:
+ * - Equivalent words replaced by the first one, also across Kuromoji word boundaries
+ * - Explicit mappings and case-insensitive matching
+ * - Identical tokens from the text file and from the map compiled ahead of time
+ * - Index-time synonyms finding the same documents as a query-side OR of the synonyms
+ */
+public class SynonymAnalyzerTest {
+
+    private static final List<String> SYNONYMS = List.of(
+            "# Orthographic variants and synonyms",
+            "携帯, スマホ, スマートフォン, 携帯電話",
+            "パソコン, PC, personal computer",
+            "子ども, 子供, こども",
+            "ケータイ => 携帯");
+
+    private Path synonymsFile;
+    private Analyzer analyzer;
+
+    @BeforeEach
+    void createAnalyzer() throws IOException {
+        synonymsFile = Files.createTempFile("synonyms", ".txt");
+        Files.write(synonymsFile, SYNONYMS, StandardCharsets.UTF_8);
+        analyzer = JapaneseAnalysisComponents.load(Optional.empty(), Optional.empty(), Optional.of(synonymsFile))
+                .newAnalyzer();
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        analyzer.close();
+        Files.deleteIfExists(synonymsFile);
+    }
+
+    @Test
+    void testEquivalentWordsAreReplacedByTheFirst() throws IOException {
+        for (String text : List.of("スマホを買った", "スマートフォンを買った", "携帯電話を買った", "携帯を買った")) {
+            assertEquals(List.of("携帯", "買っ"), tokens(analyzer, text), text);
+        }
+        assertEquals(List.of("子ども", "子ども", "子ども"), tokens(analyzer, "子供と子どもとこども"));
+        // Without synonyms, the words are indexed as written
+        assertEquals(List.of("スマホ", "買っ"), tokens(JapaneseAnalysisComponents.shared().newAnalyzer(), "スマホを買った"));
+    }
+
+    @Test
+    void testExplicitMappingsAndCase() throws IOException {
+        assertEquals(List.of("携帯", "鳴る"), tokens(analyzer, "ケータイが鳴る"));
+        assertEquals(List.of("新しい", "パソコン", "パソコン"), tokens(analyzer, "新しいPCとパソコン"));
+        assertEquals(List.of("パソコン", "使う", "パソコン"), tokens(analyzer, "pcを使うPersonal Computer"));
+        assertEquals(List.of("携帯", "NEO", "4", "J"), tokens(analyzer, "スマホでNeo4j"));
+    }
+
+    @Test
+    void testCompiledMapGivesTheSameTokens() throws IOException {
+        Path compiled = Files.createTempFile("synonyms", ".fst");
+        try {
+            CompiledSynonymMap synonyms = CompiledSynonymMap.load(synonymsFile,
+                    JapaneseAnalysisComponents.shared().tokenizerFactory());
+            try (OutputStream out = Files.newOutputStream(compiled)) {
+                synonyms.write(out);
+            }
+            try (Analyzer fromCompiled = JapaneseAnalysisComponents.load(Optional.empty(), Optional.empty(),
+                    Optional.of(compiled)).newAnalyzer()) {
+                for (String text : List.of("スマホを買った", "新しいPCとパソコン", "子供と子ども", "ケータイが鳴る",
+                        "東京タワーから富士山が見えました。")) {
+                    assertEquals(tokens(analyzer, text), tokens(fromCompiled, text), text);
+                }
+            }
+        } finally {
+            Files.delete(compiled);
+        }
+    }
+
+    @Test
+    void testInvalidSynonymFileFailsToLoad() throws IOException {
+        Files.write(synonymsFile, List.of("携帯 => スマホ => スマートフォン"), StandardCharsets.UTF_8);
+        assertThrows(UncheckedIOException.class,
+                () -> JapaneseAnalysisComponents.load(Optional.empty(), Optional.empty(), Optional.of(synonymsFile)));
+    }
+
+    @Test
+    void testIndexTimeSynonymsFindTheSameDocumentsAsQueryExpansion() throws IOException {
+        List<String> documents = List.of(
+                "新しいスマホを買いました。", "スマートフォンのアプリを開発する。", "携帯電話の契約を見直す。",
+                "パソコンでデータを分析する。", "PCが故障した。", "子供の教育について。", "こども食堂が広がる。",
+                "東京タワーから富士山が見えました。");
+        List<List<String>> groups = List.of(
+                List.of("携帯", "スマホ", "スマートフォン", "携帯電話"),
+                List.of("パソコン", "PC"),
+                List.of("子ども", "子供", "こども"));
+
+        try (Analyzer plain = JapaneseAnalysisComponents.shared().newAnalyzer();
+             Directory plainIndex = index(plain, documents);
+             Directory synonymIndex = index(analyzer, documents);
+             DirectoryReader plainReader = DirectoryReader.open(plainIndex);
+             DirectoryReader synonymReader = DirectoryReader.open(synonymIndex)) {
+            IndexSearcher plainSearcher = new IndexSearcher(plainReader);
+            IndexSearcher synonymSearcher = new IndexSearcher(synonymReader);
+            for (List<String> group : groups) {
+                // What a Cypher query does today: one clause per synonym
+                BooleanQuery.Builder expanded = new BooleanQuery.Builder();
+                for (String synonym : group) {
+                    expanded.add(new QueryBuilder(plain).createPhraseQuery("content", synonym), BooleanClause.Occur.SHOULD);
+                }
+                Set<Integer> expected = hits(plainSearcher, expanded.build());
+                assertFalse(expected.isEmpty(), group.toString());
+                for (String synonym : group) {
+                    Query query = new QueryBuilder(analyzer).createPhraseQuery("content", synonym);
+                    assertEquals(expected, hits(synonymSearcher, query), synonym);
+                }
+            }
+            assertTrue(MultiTerms.getTerms(synonymReader, "content").size()
+                    < MultiTerms.getTerms(plainReader, "content").size(), "The synonyms share their terms");
+        }
+    }
+
+    private static Directory index(Analyzer analyzer, List<String> documents) throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = new Document();
+                document.add(new StoredField("id", i));
+                document.add(new TextField("content", documents.get(i), Field.Store.NO));
+                writer.addDocument(document);
+            }
+        }
+        return directory;
+    }
+
+    private static Set<Integer> hits(IndexSearcher searcher, Query query) throws IOException {
+        Set<Integer> hits = new TreeSet<>();
+        for (ScoreDoc hit : searcher.search(query, 100).scoreDocs) {
+            hits.add(searcher.storedFields().document(hit.doc).getField("id").numericValue().intValue());
+        }
+        return hits;
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TokenStreamCache.
+ *
+ * Verifies that cached tokens are replayed exactly as the analyzer produced them, that
+ * the cache stays within its size bound, and that it can be shared by concurrent
+ * index population threads.
+ */
+public class TokenStreamCacheTest {
+
+    private static final List<String> SHORT_VALUES = List.of(
+            "東京タワー",
+            "Neo4jグラフデータベース入門",
+            "これはテストです",
+            "Customer ID 4711-ABC",
+            "iPhone15を買った",
+            "");
+
+    @Test
+    void testCachedTokensAreIdentical() throws IOException {
+        Analyzer plain = JapaneseAnalysisComponents.shared().withMaxSegmentLength(0).newAnalyzer();
+        JapaneseAnalysisComponents components = cachedComponents(64, 1024 * 1024);
+        Analyzer cached = components.newAnalyzer();
+        TokenStreamCache cache = components.tokenStreamCache().orElseThrow();
+
+        for (String value : SHORT_VALUES) {
+            List<String> expected = tokens(plain, value);
+            assertEquals(expected, tokens(cached, value), "First analysis should record: " + value);
+            assertEquals(expected, tokens(cached, value), "Second analysis should replay: " + value);
+        }
+        assertEquals(SHORT_VALUES.size(), cache.misses(), "Each value should miss once");
+        assertEquals(SHORT_VALUES.size(), cache.hits(), "Each value should hit once");
+        assertEquals(SHORT_VALUES.size(), cache.entries());
+
+        plain.close();
+        cached.close();
+    }
+
+    @Test
+    void testLongValuesBypassTheCache() throws IOException {
+        Analyzer plain = JapaneseAnalysisComponents.shared().withMaxSegmentLength(0).newAnalyzer();
+        JapaneseAnalysisComponents components = cachedComponents(16, 1024 * 1024);
+        Analyzer cached = components.newAnalyzer();
+        TokenStreamCache cache = components.tokenStreamCache().orElseThrow();
+
+        String longValue = "日本は先進的な技術を持っています。".repeat(100);
+        assertEquals(tokens(plain, longValue), tokens(cached, longValue), "Long values should be analyzed as usual");
+        assertEquals(tokens(plain, longValue), tokens(cached, longValue), "Long values should be analyzed as usual");
+        assertEquals(0, cache.hits() + cache.misses(), "Long values should not be looked up");
+        assertEquals(0, cache.entries());
+
+        // Exactly the maximum length is still cached
+        String shortValue = "0123456789abcdef";
+        tokens(cached, shortValue);
+        assertEquals(1, cache.entries(), "Values of the maximum length should be cached");
+
+        plain.close();
+        cached.close();
+    }
+
+    @Test
+    void testAnalyzersDoNotShareEntries() throws IOException {
+        JapaneseAnalysisComponents components = cachedComponents(64, 1024 * 1024);
+        Analyzer japanese = components.newAnalyzer();
+        Analyzer mixed = components.newScriptRoutingAnalyzer();
+        TokenStreamCache cache = components.tokenStreamCache().orElseThrow();
+
+        tokens(japanese, "東京タワー");
+        tokens(mixed, "東京タワー");
+        assertEquals(0, cache.hits(), "Each analyzer should have its own entries");
+        assertEquals(2, cache.entries());
+
+        japanese.close();
+        mixed.close();
+    }
+
+    @Test
+    void testSizeBound() throws IOException {
+        long maxBytes = 64 * 1024;
+        JapaneseAnalysisComponents components = cachedComponents(64, maxBytes);
+        Analyzer cached = components.newAnalyzer();
+        TokenStreamCache cache = components.tokenStreamCache().orElseThrow();
+
+        for (int i = 0; i < 5_000; i++) {
+            tokens(cached, "商品番号" + i + "の説明");
+        }
+        assertTrue(cache.bytes() <= maxBytes, "Cache should stay within its size bound, was " + cache.bytes());
+        assertTrue(cache.evictions() > 0, "Least recently used entries should be evicted");
+        assertEquals(5_000, cache.misses(), "Distinct values should all miss");
+
+        // Recently used values survive, the oldest do not
+        long hits = cache.hits();
+        tokens(cached, "商品番号4999の説明");
+        tokens(cached, "商品番号0の説明");
+        assertEquals(hits + 1, cache.hits(), "Only the most recent value should still be cached");
+
+        cache.clear();
+        assertEquals(0, cache.entries());
+        assertEquals(0, cache.bytes());
+
+        cached.close();
+    }
+
+    @Test
+    void testConcurrentIndexPopulation() throws Exception {
+        Analyzer plain = JapaneseAnalysisComponents.shared().withMaxSegmentLength(0).newAnalyzer();
+        List<String> values = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String value = SHORT_VALUES.get(i % SHORT_VALUES.size()) + " 第" + (i % 50) + "版";
+            values.add(value);
+            expected.add(tokens(plain, value));
+        }
+
+        // A small cache, so that threads record, replay and evict concurrently
+        JapaneseAnalysisComponents components = cachedComponents(64, 16 * 1024);
+        Analyzer cached = components.newAnalyzer();
+        TokenStreamCache cache = components.tokenStreamCache().orElseThrow();
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 7;
+                results.add(executor.submit(() -> {
+                    int mismatches = 0;
+                    for (int i = 0; i < 2_000; i++) {
+                        int index = (offset + i) % values.size();
+                        if (!expected.get(index).equals(tokens(cached, values.get(index)))) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, (int) result.get(), "Every thread should see the uncached tokens");
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(threads * 2_000L, cache.hits() + cache.misses(), "Every lookup should be counted");
+        assertTrue(cache.hits() > 0, "Repeated values should hit");
+        assertTrue(cache.bytes() <= 16 * 1024, "Cache should stay within its size bound");
+
+        plain.close();
+        cached.close();
+    }
+
+    private static JapaneseAnalysisComponents cachedComponents(int maxValueLength, long maxBytes) {
+        return JapaneseAnalysisComponents.shared()
+                .withMaxSegmentLength(0)
+                .withTokenStreamCache(maxValueLength, maxBytes);
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            PositionLengthAttribute posLenAtt = stream.addAttribute(PositionLengthAttribute.class);
+            TypeAttribute typeAtt = stream.addAttribute(TypeAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt + " [" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset()
+                        + "] +" + posIncAtt.getPositionIncrement() + " /" + posLenAtt.getPositionLength()
+                        + " " + typeAtt.type());
+            }
+            stream.end();
+            tokens.add("end [" + offsetAtt.endOffset() + "] +" + posIncAtt.getPositionIncrement());
+        }
+        return tokens;
+    }
+}
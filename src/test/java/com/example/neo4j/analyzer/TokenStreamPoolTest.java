@@ -0,0 +1,269 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TokenStreamPool.
+ *
+ * Tests the pooled token stream chains including:
+ * - Chains reused across analyzers and threads, with the same tokens as unpooled chains
+ * - A chain never handed out twice, even when its stream is closed twice
+ * - Chains dropped after oversized values, unended streams and user dictionary reloads
+ * - Retained heap with 1,000 concurrent writer threads, against one chain per thread, as a
+ *   performance test
+ */
+public class TokenStreamPoolTest {
+
+    private static final int WRITERS = 1_000;
+    private static final int VALUES_PER_WRITER = 5;
+    private static final int MAX_IDLE_CHAINS = 8;
+    private static final int MAX_RETAINED_VALUE_LENGTH = 4096;
+
+    private static final List<String> VALUES = List.of(
+            "日本は先進的な技術を持っています。",
+            "Neo4jグラフデータベースを使います。",
+            "東京都の会社で働いています。",
+            "Customer ID 4711-ABC の注文",
+            "これはテストです");
+
+    @Test
+    void testChainsAreReused() throws IOException {
+        JapaneseAnalysisComponents components = pooledComponents();
+        TokenStreamPool pool = components.pool("japanese").orElseThrow();
+        Analyzer plain = JapaneseAnalysisComponents.load(Optional.empty()).newAnalyzer();
+
+        for (String value : VALUES) {
+            // A new analyzer of the same name, as Neo4j creates per index
+            try (Analyzer analyzer = components.newAnalyzer()) {
+                assertEquals(tokens(plain, value), tokens(analyzer, value), value);
+            }
+        }
+        assertEquals(1, pool.created(), "Analyzers of the same name share their chains");
+        assertEquals(VALUES.size() - 1, pool.reused());
+        assertEquals(1, pool.idleChains());
+        assertEquals(0, components.pool("japanese-ngram").orElseThrow().idleChains(), "One pool per analyzer");
+        assertTrue(JapaneseAnalysisComponents.load(Optional.empty()).pool("japanese").isEmpty(),
+                "Chains are kept per thread unless a pool is configured");
+        plain.close();
+    }
+
+    @Test
+    void testChainInUseIsNotHandedOut() throws IOException {
+        JapaneseAnalysisComponents components = pooledComponents();
+        TokenStreamPool pool = components.pool("japanese").orElseThrow();
+        Analyzer analyzer = components.newAnalyzer();
+
+        TokenStream first = analyzer.tokenStream("content", VALUES.get(0));
+        first.reset();
+        // Another stream of the same thread, which per-thread reuse would refuse
+        assertEquals(tokens(analyzer, VALUES.get(1)), tokens(analyzer, VALUES.get(1)));
+        assertEquals(2, pool.created());
+        assertTrue(first.incrementToken(), "The first stream is unaffected");
+        while (first.incrementToken()) {
+            // Drain
+        }
+        first.end();
+        first.close();
+        first.close();
+        assertEquals(2, pool.idleChains(), "A chain closed twice is returned once");
+
+        TokenStream a = analyzer.tokenStream("content", VALUES.get(2));
+        TokenStream b = analyzer.tokenStream("content", VALUES.get(3));
+        assertNotSame(a, b, "Each open stream has its own chain");
+        a.close();
+        b.close();
+        assertEquals(0, pool.idleChains(), "Streams closed without being ended are dropped");
+        analyzer.close();
+    }
+
+    @Test
+    void testOversizedValueDropsChain() throws IOException {
+        JapaneseAnalysisComponents components = pooledComponents();
+        TokenStreamPool pool = components.pool("japanese").orElseThrow();
+        Analyzer analyzer = components.newAnalyzer();
+
+        List<String> expected = tokens(analyzer, VALUES.get(0));
+        assertEquals(1, pool.idleChains());
+        String large = VALUES.get(0).repeat(MAX_RETAINED_VALUE_LENGTH / VALUES.get(0).length() + 1);
+        assertFalse(tokens(analyzer, large).isEmpty());
+        assertEquals(1, pool.trimmed());
+        assertEquals(0, pool.idleChains(), "The chain with grown buffers is not kept");
+
+        assertEquals(expected, tokens(analyzer, VALUES.get(0)));
+        assertEquals(2, pool.created(), "The next value gets a new chain");
+        assertEquals(1, pool.idleChains());
+        analyzer.close();
+    }
+
+    @Test
+    void testReloadReplacesPooledChains() throws IOException {
+        Path file = Files.createTempFile("userdict", ".csv");
+        try {
+            Files.writeString(file, "朝青龍,朝青龍,アサショウリュウ,カスタム人名\n", StandardCharsets.UTF_8);
+            JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty(),
+                    Optional.of(file)).withPool(MAX_IDLE_CHAINS, MAX_RETAINED_VALUE_LENGTH);
+            TokenStreamPool pool = components.pool("japanese").orElseThrow();
+            ReloadableUserDictionary dictionary = components.userDictionary().orElseThrow();
+            Analyzer analyzer = components.newAnalyzer();
+            assertFalse(tokens(analyzer, "東京特許許可局に申請").contains("東京特許許可局"));
+
+            Files.writeString(file, "東京特許許可局,東京特許許可局,トウキョウトッキョキョカキョク,カスタム名詞\n",
+                    StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+            assertTrue(dictionary.reloadIfChanged());
+            assertEquals(List.of("東京特許許可局", "申請"), tokens(analyzer, "東京特許許可局に申請"),
+                    "The idle chain of the previous dictionary is not reused");
+            assertEquals(2, pool.created());
+            assertEquals(1, pool.idleChains());
+            analyzer.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @Tag("performance")
+    void testRetainedHeapWithConcurrentWriters() throws Exception {
+        JapaneseAnalysisComponents components = JapaneseAnalysisComponents.load(Optional.empty());
+        JapaneseAnalysisComponents pooled = components.withPool(MAX_IDLE_CHAINS, MAX_RETAINED_VALUE_LENGTH);
+        List<List<String>> expected = new ArrayList<>();
+        try (Analyzer analyzer = components.newAnalyzer()) {
+            for (String value : VALUES) {
+                expected.add(tokens(analyzer, value));
+            }
+        }
+
+        long perThreadBytes = retainedBytes(components.newAnalyzer(), expected);
+        long pooledBytes = retainedBytes(pooled.newAnalyzer(), expected);
+        TokenStreamPool pool = pooled.pool("japanese").orElseThrow();
+        System.out.printf("Retained heap with %,d writer threads: %,d bytes with a chain per thread, "
+                + "%,d bytes pooled (%,d chains created, %,d idle)%n",
+                WRITERS, perThreadBytes, pooledBytes, pool.created(), pool.idleChains());
+
+        assertTrue(pool.idleChains() <= MAX_IDLE_CHAINS);
+        assertTrue(pooledBytes * 4 < perThreadBytes,
+                "Pooled chains should retain far less than a chain per thread: " + pooledBytes + " bytes pooled, "
+                        + perThreadBytes + " bytes per thread");
+    }
+
+    @Test
+    void testVirtualThreadWriters() throws Exception {
+        JapaneseAnalysisComponents components = pooledComponents();
+        TokenStreamPool pool = components.pool("japanese").orElseThrow();
+        Analyzer analyzer = components.newAnalyzer();
+        List<List<String>> expected = new ArrayList<>();
+        for (String value : VALUES) {
+            expected.add(tokens(analyzer, value));
+        }
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            int writer = i;
+            threads.add(Thread.ofVirtual().start(() -> analyze(analyzer, expected, writer, failures)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), List.copyOf(failures));
+        assertTrue(pool.idleChains() <= MAX_IDLE_CHAINS);
+        assertTrue(pool.created() < WRITERS, "Virtual threads should reuse chains, created " + pool.created());
+        assertEquals((long) WRITERS * VALUES_PER_WRITER + VALUES.size(), pool.created() + pool.reused());
+        analyzer.close();
+    }
+
+    /**
+     * Analyzes values on {@code WRITERS} platform threads which then stay alive, as the
+     * threads of a writer pool do, and measures the heap retained while they wait.
+     */
+    private static long retainedBytes(Analyzer analyzer, List<List<String>> expected) throws Exception {
+        long before = usedHeap();
+        CountDownLatch analyzed = new CountDownLatch(WRITERS);
+        CountDownLatch release = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            int writer = i;
+            threads.add(Thread.ofPlatform().start(() -> {
+                analyze(analyzer, expected, writer, failures);
+                analyzed.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        try {
+            assertTrue(analyzed.await(5, TimeUnit.MINUTES));
+            return usedHeap() - before;
+        } finally {
+            release.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            analyzer.close();
+            assertEquals(List.of(), List.copyOf(failures));
+        }
+    }
+
+    private static void analyze(Analyzer analyzer, List<List<String>> expected, int writer,
+                                ConcurrentLinkedQueue<Throwable> failures) {
+        Random random = new Random(writer);
+        try {
+            for (int i = 0; i < VALUES_PER_WRITER; i++) {
+                int value = random.nextInt(VALUES.size());
+                List<String> tokens = tokens(analyzer, VALUES.get(value));
+                if (!tokens.equals(expected.get(value))) {
+                    failures.add(new AssertionError(VALUES.get(value) + ": " + tokens));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.add(e);
+        }
+    }
+
+    private static JapaneseAnalysisComponents pooledComponents() {
+        return JapaneseAnalysisComponents.load(Optional.empty()).withPool(MAX_IDLE_CHAINS, MAX_RETAINED_VALUE_LENGTH);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.neo4j.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.UpperCaseFilter;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.miscellaneous.SetKeywordMarkerFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for UpperCaseStopFilter.
+ * 
+ * Verifies that the fused filter produces exactly the same tokens as the
+ * UpperCaseFilter + StopFilter(ignoreCase=true) chain it replaces, and that it keeps
+ * keyword tokens.
+ */
+public class UpperCaseStopFilterTest {
+
+    private static final List<String> SAMPLE_TEXTS = List.of(
+            "これは重要な情報です。",
+            "あれは古い情報でした。",
+            "日本は先進的な技術を持っています。",
+            "Neo4jは素晴らしいgraph databaseです。",
+            "JavaとPythonでプログラミングしています。",
+            "ＡＢＣとｄｅｆ、そして「引用」…！？",
+            "");
+
+    @Test
+    void testSameTokensAsUpperCaseAndStopFilterChain() throws IOException {
+        Analyzer legacy = AnalyzerCreationBenchmark.legacyAnalyzer();
+        Analyzer analyzer = new JapaneseAnalyzerProvider().createAnalyzer();
+
+        for (String text : SAMPLE_TEXTS) {
+            assertEquals(tokens(legacy, text), tokens(analyzer, text),
+                "Tokens should be identical to the UpperCaseFilter + StopFilter chain for: " + text);
+        }
+
+        legacy.close();
+        analyzer.close();
+    }
+
+    @Test
+    void testCaseInsensitiveStopWordsWithoutFolding() throws IOException {
+        // Latin stop words, including code points with irregular case mappings
+        List<String> stopwords = List.of("the", "i", "k", "straße", "σ", "これ");
+        Set<String> variants = UpperCaseStopFilter.upperCaseVariants(stopwords);
+
+        assertTrue(variants.contains("THE"), "Upper-cased word should be a variant");
+        assertTrue(variants.contains("I"), "Upper-cased word should be a variant");
+        assertTrue(variants.contains("İ"), "Capital I with dot lower-cases to 'i'");
+        assertTrue(variants.contains("K"), "Kelvin sign lower-cases to 'k'");
+        assertTrue(variants.contains("これ"), "Caseless word should map to itself");
+        assertFalse(variants.contains("the"), "Lookups only ever see upper-cased terms");
+
+        CharArraySet ignoreCase = new CharArraySet(stopwords, true);
+        Analyzer chain = whitespaceAnalyzer(tokenizer -> new StopFilter(new UpperCaseFilter(tokenizer), ignoreCase));
+        CompiledStopwordSet compiled = CompiledStopwordSet.compile(stopwords);
+        Analyzer fused = whitespaceAnalyzer(tokenizer -> new UpperCaseStopFilter(tokenizer, compiled));
+
+        String text = "The THE tHe i I İ ı k K K straße STRASSE Σ σ ς これ それ graph";
+        assertEquals(tokens(chain, text), tokens(fused, text));
+    }
+
+    @Test
+    void testKeywordsAreNotRemoved() throws IOException {
+        CompiledStopwordSet compiled = CompiledStopwordSet.compile(List.of("これ", "それ"));
+        CharArraySet keywords = new CharArraySet(List.of("これ"), false);
+        Analyzer fused = whitespaceAnalyzer(tokenizer ->
+                new UpperCaseStopFilter(new SetKeywordMarkerFilter(tokenizer, keywords), compiled));
+
+        assertEquals(List.of("これ [0-2] +1 word", "GRAPH [6-11] +2 word", "end [11] +0"),
+                tokens(fused, "これ それ graph"));
+    }
+
+    private static Analyzer whitespaceAnalyzer(java.util.function.Function<Tokenizer, TokenStream> filters) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new WhitespaceTokenizer();
+                return new TokenStreamComponents(tokenizer, filters.apply(tokenizer));
+            }
+        };
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offset = tokenStream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute position = tokenStream.addAttribute(PositionIncrementAttribute.class);
+            TypeAttribute type = tokenStream.addAttribute(TypeAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens.add(term + " [" + offset.startOffset() + "-" + offset.endOffset() + "] +"
+                        + position.getPositionIncrement() + " " + type.type());
+            }
+            tokenStream.end();
+            tokens.add("end [" + offset.endOffset() + "] +" + position.getPositionIncrement());
+        }
+        return tokens;
+    }
+}